@@ -13,34 +13,91 @@
  * License for the specific language governing permissions and limitations under
  * the License.
  */
-
 package io.cdap.plugin.batch.aggregator;
 
+import com.esotericsoftware.kryo.DefaultSerializer;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.batch.aggregator.function.AggregateFunction;
+import io.cdap.plugin.batch.aggregator.function.BinaryStateFunction;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.Map;
 
 /**
  * A class which represents the aggregation result of a group by aggregator.
  * This class is needed to have the schema since we don't have schema propagation in prepareRun if
- * schema is macro-enabled
+ * schema is macro-enabled. The functions are stored in an array in the order of the configured aggregates, rather than
+ * in a map keyed by name, to keep the per group overhead small.
+ *
+ * Results are shuffled between map and reduce, so they have a compact serialized form. The input schema and the
+ * aggregate configuration are written as a shared {@link AggregateSpec}, which the stream writes only once, and
+ * functions that implement {@link BinaryStateFunction} only write their state. Other functions are written with
+ * Java serialization.
+ *
+ * Spark shuffles with Kryo, which does not call the Java serialization hooks, so results are written with
+ * {@link AggregateResultSerializer} there. That form writes the spec with every result.
  */
+@DefaultSerializer(AggregateResultSerializer.class)
 public class AggregateResult implements Serializable {
-  private final Schema inputSchema;
-  private final Map<String, AggregateFunction> functions;
+  private static final long serialVersionUID = 1L;
+  static final byte VERSION = 1;
+  static final byte BINARY_STATE = 0;
+  static final byte SERIALIZED = 1;
 
-  public AggregateResult(Schema inputSchema, Map<String, AggregateFunction> functions) {
-    this.inputSchema = inputSchema;
+  private transient AggregateSpec spec;
+  private transient AggregateFunction[] functions;
+
+  AggregateResult(AggregateSpec spec, AggregateFunction[] functions) {
+    this.spec = spec;
     this.functions = functions;
   }
 
+  AggregateSpec getSpec() {
+    return spec;
+  }
+
   public Schema getInputSchema() {
-    return inputSchema;
+    return spec.getInputSchema();
   }
 
-  public Map<String, AggregateFunction> getFunctions() {
+  public AggregateFunction[] getFunctions() {
     return functions;
   }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.writeByte(VERSION);
+    out.writeObject(spec);
+    for (AggregateFunction function : functions) {
+      if (function instanceof BinaryStateFunction) {
+        out.writeByte(BINARY_STATE);
+        ((BinaryStateFunction) function).writeState(out);
+      } else {
+        out.writeByte(SERIALIZED);
+        out.writeObject(function);
+      }
+    }
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    byte version = in.readByte();
+    if (version != VERSION) {
+      throw new InvalidObjectException(String.format("Unsupported aggregate result version %d.", version));
+    }
+    spec = (AggregateSpec) in.readObject();
+    functions = spec.createFunctions();
+    for (int i = 0; i < functions.length; i++) {
+      byte encoding = in.readByte();
+      if (encoding == BINARY_STATE && functions[i] instanceof BinaryStateFunction) {
+        ((BinaryStateFunction) functions[i]).readState(in);
+      } else if (encoding == SERIALIZED) {
+        functions[i] = (AggregateFunction) in.readObject();
+      } else {
+        throw new InvalidObjectException(String.format(
+          "Invalid encoding %d for aggregate function %s.", encoding, functions[i].getClass().getSimpleName()));
+      }
+    }
+  }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.batch.aggregator;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import io.cdap.plugin.batch.aggregator.function.AggregateFunction;
+import io.cdap.plugin.batch.aggregator.function.BinaryStateFunction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Kryo serializer for {@link AggregateResult}, which writes the same compact form as the Java serialization hooks
+ * of the result: the {@link AggregateSpec}, followed by the state of each function.
+ *
+ * Unlike the Java form, every record carries its serialized spec. Spark shares a serializer between streams that
+ * are open at the same time, such as the spill files merged by a sorter, so the serializer keeps no state that
+ * depends on the stream. Instead, the serialized spec is cached per spec on write, and the spec is cached by its
+ * bytes on read, so that a spec is only serialized and deserialized once.
+ */
+public class AggregateResultSerializer extends Serializer<AggregateResult> {
+  private static final int MAX_CACHED_SPECS = 16;
+
+  private final Map<AggregateSpec, byte[]> serializedSpecs = new BoundedMap<>();
+  private final Map<ByteBuffer, AggregateSpec> deserializedSpecs = new BoundedMap<>();
+
+  @Override
+  public void write(Kryo kryo, Output output, AggregateResult result) {
+    output.writeByte(AggregateResult.VERSION);
+    AggregateSpec spec = result.getSpec();
+    byte[] specBytes = serializedSpecs.get(spec);
+    if (specBytes == null) {
+      specBytes = serialize(spec);
+      serializedSpecs.put(spec, specBytes);
+    }
+    writeBytes(output, specBytes);
+
+    DataOutputStream out = new DataOutputStream(output);
+    try {
+      for (AggregateFunction function : result.getFunctions()) {
+        if (function instanceof BinaryStateFunction) {
+          output.writeByte(AggregateResult.BINARY_STATE);
+          ((BinaryStateFunction) function).writeState(out);
+        } else {
+          output.writeByte(AggregateResult.SERIALIZED);
+          writeBytes(output, serialize(function));
+        }
+      }
+    } catch (IOException e) {
+      throw new KryoException("Failed to write aggregate function state.", e);
+    }
+  }
+
+  @Override
+  public AggregateResult read(Kryo kryo, Input input, Class<AggregateResult> type) {
+    byte version = input.readByte();
+    if (version != AggregateResult.VERSION) {
+      throw new KryoException(String.format("Unsupported aggregate result version %d.", version));
+    }
+    ByteBuffer specBytes = ByteBuffer.wrap(readBytes(input));
+    AggregateSpec spec = deserializedSpecs.get(specBytes);
+    if (spec == null) {
+      spec = (AggregateSpec) deserialize(specBytes.array());
+      deserializedSpecs.put(specBytes, spec);
+    }
+
+    AggregateFunction[] functions = spec.createFunctions();
+    DataInputStream in = new DataInputStream(input);
+    try {
+      for (int i = 0; i < functions.length; i++) {
+        byte encoding = input.readByte();
+        if (encoding == AggregateResult.BINARY_STATE && functions[i] instanceof BinaryStateFunction) {
+          ((BinaryStateFunction) functions[i]).readState(in);
+        } else if (encoding == AggregateResult.SERIALIZED) {
+          functions[i] = (AggregateFunction) deserialize(readBytes(input));
+        } else {
+          throw new KryoException(String.format(
+            "Invalid encoding %d for aggregate function %s.", encoding, functions[i].getClass().getSimpleName()));
+        }
+      }
+    } catch (IOException e) {
+      throw new KryoException("Failed to read aggregate function state.", e);
+    }
+    return new AggregateResult(spec, functions);
+  }
+
+  private static void writeBytes(Output output, byte[] bytes) {
+    output.writeInt(bytes.length, true);
+    output.writeBytes(bytes);
+  }
+
+  private static byte[] readBytes(Input input) {
+    return input.readBytes(input.readInt(true));
+  }
+
+  private static byte[] serialize(Object object) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(object);
+    } catch (IOException e) {
+      throw new KryoException(String.format("Failed to serialize %s.", object.getClass().getSimpleName()), e);
+    }
+    return bos.toByteArray();
+  }
+
+  private static Object deserialize(byte[] bytes) {
+    // resolve classes with the plugin class loader, which the default class resolution may not use in Spark
+    try (ObjectInputStream ois = new PluginObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return ois.readObject();
+    } catch (IOException | ClassNotFoundException e) {
+      throw new KryoException("Failed to deserialize aggregate result.", e);
+    }
+  }
+
+  /**
+   * Map that keeps the most recently used entries, up to {@link #MAX_CACHED_SPECS}. Specs don't override equals,
+   * so they are kept by identity.
+   */
+  private static final class BoundedMap<K, V> extends LinkedHashMap<K, V> {
+
+    BoundedMap() {
+      super(MAX_CACHED_SPECS, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+      return size() > MAX_CACHED_SPECS;
+    }
+  }
+
+  /**
+   * Object input stream that resolves classes with the class loader of this plugin.
+   */
+  private static final class PluginObjectInputStream extends ObjectInputStream {
+
+    PluginObjectInputStream(ByteArrayInputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+      try {
+        return Class.forName(desc.getName(), false, AggregateResultSerializer.class.getClassLoader());
+      } catch (ClassNotFoundException e) {
+        // primitive types are only resolved by the default implementation
+        return super.resolveClass(desc);
+      }
+    }
+  }
+}
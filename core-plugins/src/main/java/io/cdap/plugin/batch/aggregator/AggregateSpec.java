@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.batch.aggregator;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.batch.aggregator.function.AggregateFunction;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The configured aggregates bound to an input schema. A single instance is shared by every
+ * {@link AggregateResult} with the same input schema, so that when results are serialized, the schema and the
+ * aggregate configuration are written once per stream rather than once per group by Java serialization, and
+ * serialized only once by {@link AggregateResultSerializer}.
+ */
+final class AggregateSpec implements Serializable {
+  private final Schema inputSchema;
+  private final List<GroupByConfig.FunctionInfo> functionInfos;
+  // schemas of the aggregated fields, in the same order as functionInfos
+  private final Schema[] fieldSchemas;
+
+  AggregateSpec(Schema inputSchema, List<GroupByConfig.FunctionInfo> functionInfos, Schema[] fieldSchemas) {
+    this.inputSchema = inputSchema;
+    this.functionInfos = functionInfos;
+    this.fieldSchemas = fieldSchemas;
+  }
+
+  Schema getInputSchema() {
+    return inputSchema;
+  }
+
+  /**
+   * Creates new, uninitialized aggregate functions, indexed in the same order as the configured aggregates.
+   */
+  AggregateFunction[] createFunctions() {
+    AggregateFunction[] functions = new AggregateFunction[functionInfos.size()];
+    for (int i = 0; i < functions.length; i++) {
+      functions[i] = functionInfos.get(i).getAggregateFunction(fieldSchemas[i]);
+    }
+    return functions;
+  }
+}
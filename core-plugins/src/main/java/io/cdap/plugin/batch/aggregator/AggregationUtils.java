@@ -65,6 +65,40 @@ public final class AggregationUtils {
     }
   }
 
+  /**
+   * Validates that the maximum number of elements kept by a function is positive, otherwise throws an
+   * IllegalArgumentException
+   *
+   * @param maxElements  - Maximum number of elements
+   * @param fieldName    - Name of the field
+   * @param functionName - Name of the function
+   */
+  public static void ensureValidMaxElements(int maxElements, String fieldName, String functionName) {
+    if (maxElements <= 0) {
+      throw new IllegalArgumentException(String.format(
+        "Cannot compute %s on field %s because the maximum number of elements %d is not positive",
+        functionName, fieldName, maxElements));
+    }
+  }
+
+  /**
+   * Validates that a group has at most the maximum number of elements of a function, otherwise throws an
+   * IllegalStateException rather than silently truncating the group
+   *
+   * @param numElements  - Number of elements of the group
+   * @param maxElements  - Maximum number of elements
+   * @param fieldName    - Name of the field
+   * @param functionName - Name of the function
+   */
+  public static void ensureWithinMaxElements(int numElements, int maxElements, String fieldName,
+                                             String functionName) {
+    if (numElements > maxElements) {
+      throw new IllegalStateException(String.format(
+        "Cannot compute %s on field %s because a group has more than the maximum number of elements %d",
+        functionName, fieldName, maxElements));
+    }
+  }
+
   private static void generateException(Schema fieldSchema, String fieldName, String functionName,
                                         Schema.Type fieldType, String expectedType) {
     Schema.LogicalType logicalType = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getLogicalType() :
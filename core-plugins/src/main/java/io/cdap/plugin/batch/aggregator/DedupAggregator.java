@@ -47,6 +47,7 @@ import javax.annotation.Nullable;
 public class DedupAggregator extends RecordReducibleAggregator<StructuredRecord> {
   private final DedupConfig dedupConfig;
   private List<String> uniqueFields;
+  private GroupKeyExtractor groupKeyExtractor;
   private DedupConfig.DedupFunctionInfo filterFunction;
   private SelectionFunction selectionFunction;
 
@@ -99,6 +100,9 @@ public class DedupAggregator extends RecordReducibleAggregator<StructuredRecord>
   public void initialize(BatchRuntimeContext context) {
     uniqueFields = dedupConfig.getUniqueFields();
     filterFunction = dedupConfig.getFilter();
+    if (uniqueFields != null) {
+      groupKeyExtractor = new GroupKeyExtractor(uniqueFields, this::getGroupKeySchema);
+    }
   }
 
   @Override
@@ -108,11 +112,7 @@ public class DedupAggregator extends RecordReducibleAggregator<StructuredRecord>
       return;
     }
 
-    StructuredRecord.Builder builder = StructuredRecord.builder(getGroupKeySchema(record.getSchema()));
-    for (String fieldName : uniqueFields) {
-      builder.set(fieldName, record.get(fieldName));
-    }
-    emitter.emit(builder.build());
+    emitter.emit(groupKeyExtractor.extract(record));
   }
 
   @Override
@@ -156,7 +156,7 @@ public class DedupAggregator extends RecordReducibleAggregator<StructuredRecord>
 
   private Schema getGroupKeySchema(Schema inputSchema) {
     List<Schema.Field> fields = new ArrayList<>();
-    for (String fieldName : dedupConfig.getUniqueFields()) {
+    for (String fieldName : uniqueFields) {
       Schema.Field field = inputSchema.getField(fieldName);
       if (field == null) {
         throw new IllegalArgumentException(String.format("Field %s does not exist in input schema %s.",
@@ -39,17 +39,24 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 /**
  * Batch group by aggregator.
+ * <p>
+ * Aggregation is expressed through {@link #initializeAggregateValue}, {@link #mergeValues} and
+ * {@link #mergePartitions}, so that an engine can merge records with the same key into partial aggregates before the
+ * shuffle. Partial aggregates may be merged in any grouping and order, and are shuffled as {@link AggregateResult}s.
+ * The stage only emits group keys, while the grouped values are always the input records, so the plugin itself
+ * cannot choose what is shuffled.
+ * </p>
  */
 @Plugin(type = BatchAggregator.PLUGIN_TYPE)
 @Name("GroupByAggregate")
 @Description("Groups by one or more fields, then performs one or more aggregate functions on each group. " +
   "Supports `Average`, `Count`, `First`, `Last`, `Max`, `Min`,`Sum`,`Collect List`,`Collect Set`, " +
-  "`Standard Deviation`, `Variance`, `Count Distinct` as aggregate functions.")
+  "`Standard Deviation`, `Variance`, `Count Distinct`, `Approximate Count Distinct`, `Approximate Percentile` " +
+  "as aggregate functions.")
 public class GroupByAggregator extends RecordReducibleAggregator<AggregateResult> {
   private final GroupByConfig conf;
   private final HashMap<String, String> functionNameMap = new HashMap<String, String>() {{
@@ -93,11 +100,18 @@ public class GroupByAggregator extends RecordReducibleAggregator<AggregateResult
     put("CORRECTEDSUMOFSQUARESIF", "CorrectedSumOfSquaresIf");
     put("SUMOFSQUARESIF", "SumOfSquaresIf");
     put("ANYIF", "AnyIf");
+    put("APPROXCOUNTDISTINCT", "ApproxCountDistinct");
+    put("APPROXPERCENTILE", "ApproxPercentile");
   }};
 
   private List<String> groupByFields;
   private List<GroupByConfig.FunctionInfo> functionInfos;
+  private GroupKeyExtractor groupKeyExtractor;
   private Schema outputSchema;
+  // aggregates bound to the input schema, shared by all results with that schema
+  private AggregateSpec aggregateSpec;
+  // input schema that the cached output schema and aggregate spec were computed for
+  private Schema outputSchemaInput;
 
   public GroupByAggregator(GroupByConfig conf) {
     super(conf.numPartitions);
@@ -160,6 +174,9 @@ public class GroupByAggregator extends RecordReducibleAggregator<AggregateResult
       if (GroupByConfig.Function.COUNTDISTINCT == functionInfo.getFunction()) {
         validateCountDistinct(inputField, collector, collectorFieldName);
       }
+      if (GroupByConfig.Function.APPROXCOUNTDISTINCT == functionInfo.getFunction()) {
+        validateApproxCountDistinct(inputField, collector, collectorFieldName);
+      }
     }
     validateConditionalFunctions(inputSchema, conf.getAggregates(), collector);
   }
@@ -179,6 +196,22 @@ public class GroupByAggregator extends RecordReducibleAggregator<AggregateResult
     }
   }
 
+  private void validateApproxCountDistinct(Schema.Field inputField, FailureCollector collector,
+                                           String validationFieldName) {
+    if (inputField != null) {
+      Schema.Type type = inputField.getSchema().isNullable() ?
+        inputField.getSchema().getNonNullable().getType() :
+        inputField.getSchema().getType();
+      if (!type.isSimpleType()) {
+        collector.addFailure(
+          String.format("Approximate distinct counting is not supported for the field %s of type %s.",
+                        inputField.getName(), type),
+          "Please specify a field of a simple type.")
+          .withConfigElement("aggregates", validationFieldName);
+      }
+    }
+  }
+
   @Override
   public void prepareRun(BatchAggregatorContext context) throws Exception {
     super.prepareRun(context);
@@ -261,28 +294,28 @@ public class GroupByAggregator extends RecordReducibleAggregator<AggregateResult
   public void initialize(BatchRuntimeContext context) throws Exception {
     groupByFields = conf.getGroupByFields();
     functionInfos = conf.getAggregates();
-    if (context.getInputSchema() != null) {
-      initAggregates(context.getInputSchema());
+    groupKeyExtractor = new GroupKeyExtractor(groupByFields, this::getGroupKeySchema);
+    Schema inputSchema = context.getInputSchema();
+    if (inputSchema != null) {
+      groupKeyExtractor.getKeySchema(inputSchema);
+      getAggregateOutputSchema(inputSchema);
     }
   }
 
   @Override
   public void groupBy(StructuredRecord record, Emitter<StructuredRecord> emitter) throws Exception {
-    // app should provide some way to make some data calculated in configurePipeline available here.
-    // then we wouldn't have to calculate schema here
-    StructuredRecord.Builder builder = StructuredRecord.builder(getGroupKeySchema(record.getSchema()));
-    for (String groupByField : conf.getGroupByFields()) {
-      builder.set(groupByField, record.get(groupByField));
-    }
-    emitter.emit(builder.build());
+    emitter.emit(groupKeyExtractor.extract(record));
   }
 
   @Override
   public AggregateResult initializeAggregateValue(StructuredRecord record) {
-    Map<String, AggregateFunction> functions = initAggregates(record.getSchema());
-    functions.values().forEach(AggregateFunction::initialize);
+    bindSchema(record.getSchema());
+    AggregateFunction[] functions = aggregateSpec.createFunctions();
+    for (AggregateFunction function : functions) {
+      function.initialize();
+    }
     updateAggregates(functions, record);
-    return new AggregateResult(record.getSchema(), functions);
+    return new AggregateResult(aggregateSpec, functions);
   }
 
   @Override
@@ -300,14 +333,14 @@ public class GroupByAggregator extends RecordReducibleAggregator<AggregateResult
   @Override
   public void finalize(StructuredRecord groupKey, AggregateResult aggValue,
                        Emitter<StructuredRecord> emitter) {
-    initAggregates(aggValue.getInputSchema());
-    StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
+    StructuredRecord.Builder builder = StructuredRecord.builder(getAggregateOutputSchema(aggValue.getInputSchema()));
     for (String groupByField : groupByFields) {
       builder.set(groupByField, groupKey.get(groupByField));
     }
 
-    for (Map.Entry<String, AggregateFunction> aggregateFunction : aggValue.getFunctions().entrySet()) {
-      builder.set(aggregateFunction.getKey(), aggregateFunction.getValue().getAggregate());
+    AggregateFunction[] functions = aggValue.getFunctions();
+    for (int i = 0; i < functions.length; i++) {
+      builder.set(functionInfos.get(i).getName(), functions[i].getAggregate());
     }
     emitter.emit(builder.build());
   }
@@ -333,15 +366,15 @@ public class GroupByAggregator extends RecordReducibleAggregator<AggregateResult
     return Schema.recordOf(inputSchema.getRecordName() + ".agg", outputFields);
   }
 
-  private void updateAggregates(Map<String, AggregateFunction> aggregateFunctions, StructuredRecord groupVal) {
-    for (AggregateFunction aggregateFunction : aggregateFunctions.values()) {
+  private void updateAggregates(AggregateFunction[] aggregateFunctions, StructuredRecord groupVal) {
+    for (AggregateFunction aggregateFunction : aggregateFunctions) {
       aggregateFunction.mergeValue(groupVal);
     }
   }
 
-  private void mergeAggregates(Map<String, AggregateFunction> agg1, Map<String, AggregateFunction> agg2) {
-    for (Map.Entry<String, AggregateFunction> aggregateFunction : agg1.entrySet()) {
-      aggregateFunction.getValue().mergeAggregates(agg2.get(aggregateFunction.getKey()));
+  private void mergeAggregates(AggregateFunction[] agg1, AggregateFunction[] agg2) {
+    for (int i = 0; i < agg1.length; i++) {
+      agg1[i].mergeAggregates(agg2[i]);
     }
   }
 
@@ -362,27 +395,44 @@ public class GroupByAggregator extends RecordReducibleAggregator<AggregateResult
     return Schema.Field.of(functionInfo.getName(), aggregateFunction.getOutputSchema());
   }
 
-  private Map<String, AggregateFunction> initAggregates(Schema valueSchema) {
-    List<Schema.Field> outputFields = new ArrayList<>(groupByFields.size() + functionInfos.size());
-    for (String groupByField : groupByFields) {
-      outputFields.add(valueSchema.getField(groupByField));
-    }
+  /**
+   * Returns the output schema for records with the given input schema.
+   */
+  private Schema getAggregateOutputSchema(Schema valueSchema) {
+    bindSchema(valueSchema);
+    return outputSchema;
+  }
 
-    Map<String, AggregateFunction> functions = new HashMap<>();
-    for (GroupByConfig.FunctionInfo functionInfo : functionInfos) {
-      Schema.Field inputField = valueSchema.getField(functionInfo.getField());
-      Schema fieldSchema = inputField == null ? null : inputField.getSchema();
-      AggregateFunction aggregateFunction = functionInfo.getAggregateFunction(fieldSchema);
-      outputFields.add(Schema.Field.of(functionInfo.getName(), aggregateFunction.getOutputSchema()));
-      functions.put(functionInfo.getName(), aggregateFunction);
+  /**
+   * Computes the output schema and the aggregate spec for the given input schema. These are
+   * only recomputed when the input schema changes, since they are needed for every group.
+   */
+  private void bindSchema(Schema valueSchema) {
+    if (valueSchema == outputSchemaInput) {
+      return;
+    }
+    if (outputSchemaInput == null || !outputSchemaInput.equals(valueSchema)) {
+      List<Schema.Field> outputFields = new ArrayList<>(groupByFields.size() + functionInfos.size());
+      for (String groupByField : groupByFields) {
+        outputFields.add(valueSchema.getField(groupByField));
+      }
+      Schema[] fieldSchemas = new Schema[functionInfos.size()];
+      for (int i = 0; i < fieldSchemas.length; i++) {
+        GroupByConfig.FunctionInfo functionInfo = functionInfos.get(i);
+        Schema.Field inputField = valueSchema.getField(functionInfo.getField());
+        fieldSchemas[i] = inputField == null ? null : inputField.getSchema();
+        AggregateFunction aggregateFunction = functionInfo.getAggregateFunction(fieldSchemas[i]);
+        outputFields.add(Schema.Field.of(functionInfo.getName(), aggregateFunction.getOutputSchema()));
+      }
+      outputSchema = Schema.recordOf(valueSchema.getRecordName() + ".agg", outputFields);
+      aggregateSpec = new AggregateSpec(valueSchema, functionInfos, fieldSchemas);
     }
-    outputSchema = Schema.recordOf(valueSchema.getRecordName() + ".agg", outputFields);
-    return functions;
+    outputSchemaInput = valueSchema;
   }
 
   private Schema getGroupKeySchema(Schema inputSchema) {
     List<Schema.Field> fields = new ArrayList<>();
-    for (String groupByField : conf.getGroupByFields()) {
+    for (String groupByField : groupByFields) {
       Schema.Field fieldSchema = inputSchema.getField(groupByField);
       if (fieldSchema == null) {
         throw new IllegalArgumentException(String.format(
@@ -25,6 +25,8 @@ import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.batch.aggregator.function.AggregateFunction;
 import io.cdap.plugin.batch.aggregator.function.AnyIf;
+import io.cdap.plugin.batch.aggregator.function.ApproxCountDistinct;
+import io.cdap.plugin.batch.aggregator.function.ApproxPercentile;
 import io.cdap.plugin.batch.aggregator.function.Avg;
 import io.cdap.plugin.batch.aggregator.function.AvgIf;
 import io.cdap.plugin.batch.aggregator.function.CollectList;
@@ -67,7 +69,9 @@ import io.cdap.plugin.batch.aggregator.function.SumOfSquaresIf;
 import io.cdap.plugin.batch.aggregator.function.Variance;
 import io.cdap.plugin.batch.aggregator.function.VarianceIf;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -83,6 +87,7 @@ public class GroupByConfig extends AggregatorConfig {
     "Supported aggregate functions are count, count(*), sum, avg, min, max, first, last. " +
     "A function must specify the field it should be applied on, as well as the name it should be called. " +
     "Aggregates are specified using syntax: \"name:function(field)[, other aggregates]\"." +
+    "Functions that take arguments, such as approxPercentile, are specified as \"name:function(field, args)\"." +
     "For example, 'avgPrice:avg(price),cheapest:min(price)' will calculate two aggregates. " +
     "The first will create a field called 'avgPrice' that is the average of all 'price' fields in the group. " +
     "The second will create a field called 'cheapest' that contains the minimum 'price' field in the group")
@@ -135,7 +140,7 @@ public class GroupByConfig extends AggregatorConfig {
       return functionInfos;
     }
     Set<String> aggregateNames = new HashSet<>();
-    for (String aggregate : Splitter.on(',').trimResults().split(aggregates)) {
+    for (String aggregate : splitAggregates(aggregates)) {
       int colonIdx = aggregate.indexOf(':');
       if (colonIdx < 0) {
         throw new IllegalArgumentException(String.format(
@@ -172,6 +177,19 @@ public class GroupByConfig extends AggregatorConfig {
       // check if condition involved extract substring up to condition otherwise extract up to length of string
       int fieldEndIndex = (conditionIndex == -1) ? functionAndField.length() - 1 : conditionIndex - 2;
       String field = functionAndField.substring(leftParanIdx + 1, fieldEndIndex).trim();
+      List<String> arguments = new ArrayList<>();
+      int argumentsIdx = field.indexOf(',');
+      if (argumentsIdx >= 0) {
+        for (String argument : Splitter.on(',').trimResults().split(field.substring(argumentsIdx + 1))) {
+          arguments.add(argument);
+        }
+        field = field.substring(0, argumentsIdx).trim();
+        if (arguments.size() > function.getMaxArguments()) {
+          throw new IllegalArgumentException(String.format(
+            "Invalid function '%s'. Function '%s' accepts at most %d argument(s) after the field.",
+            functionAndField, functionStr, function.getMaxArguments()));
+        }
+      }
       if (field.isEmpty()) {
         throw new IllegalArgumentException(String.format(
           "Invalid function '%s'. A field must be given as an argument.", functionAndField));
@@ -191,7 +209,7 @@ public class GroupByConfig extends AggregatorConfig {
         }
         functionCondition = functionCondition.trim();
       }
-      functionInfos.add(new FunctionInfo(name, field, function, functionCondition));
+      functionInfos.add(new FunctionInfo(name, field, function, functionCondition, arguments));
     }
 
     if (functionInfos.isEmpty()) {
@@ -200,27 +218,53 @@ public class GroupByConfig extends AggregatorConfig {
     return functionInfos;
   }
 
+  /**
+   * Splits the aggregates on commas that are not nested in parentheses, so that function arguments and
+   * conditions can contain commas.
+   */
+  private static List<String> splitAggregates(String aggregates) {
+    List<String> result = new ArrayList<>();
+    int depth = 0;
+    int start = 0;
+    for (int i = 0; i < aggregates.length(); i++) {
+      char c = aggregates.charAt(i);
+      if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (c == ',' && depth == 0) {
+        result.add(aggregates.substring(start, i).trim());
+        start = i + 1;
+      }
+    }
+    result.add(aggregates.substring(start).trim());
+    return result;
+  }
+
   /**
    * Class to hold information for an aggregate function.
    */
-  static class FunctionInfo {
+  static class FunctionInfo implements Serializable {
     private final String name;
     private final String field;
     private final Function function;
     private final String condition;
+    private final List<String> arguments;
 
-    FunctionInfo(String name, String field, Function function, String condition) {
+    FunctionInfo(String name, String field, Function function, String condition, List<String> arguments) {
       this.name = name;
       this.field = field;
       this.function = function;
       this.condition = condition;
+      this.arguments = arguments;
+    }
+
+    FunctionInfo(String name, String field, Function function, String condition) {
+      this(name, field, function, condition, Collections.emptyList());
     }
 
     FunctionInfo(String name, String field, Function function) {
-      this.name = name;
-      this.field = field;
-      this.function = function;
-      this.condition = null;
+      this(name, field, function, null);
     }
 
     public String getName() {
@@ -239,6 +283,10 @@ public class GroupByConfig extends AggregatorConfig {
       return condition;
     }
 
+    public List<String> getArguments() {
+      return arguments;
+    }
+
     public AggregateFunction getAggregateFunction(Schema fieldSchema) {
       switch (function) {
         case COUNT:
@@ -265,9 +313,9 @@ public class GroupByConfig extends AggregatorConfig {
         case VARIANCE:
           return new Variance(field, fieldSchema);
         case COLLECTLIST:
-          return new CollectList(field, fieldSchema);
+          return new CollectList(field, fieldSchema, getMaxElements());
         case COLLECTSET:
-          return new CollectSet(field, fieldSchema);
+          return new CollectSet(field, fieldSchema, getMaxElements());
         case LONGESTSTRING:
           return new LongestString(field, fieldSchema);
         case SHORTESTSTRING:
@@ -275,9 +323,9 @@ public class GroupByConfig extends AggregatorConfig {
         case COUNTNULLS:
           return new CountNulls(field);
         case CONCAT:
-          return new Concat(field, fieldSchema);
+          return new Concat(field, fieldSchema, getMaxElements());
         case CONCATDISTINCT:
-          return new ConcatDistinct(field, fieldSchema);
+          return new ConcatDistinct(field, fieldSchema, getMaxElements());
         case LOGICALAND:
           return new LogicalAnd(field, fieldSchema);
         case LOGICALOR:
@@ -303,17 +351,17 @@ public class GroupByConfig extends AggregatorConfig {
         case VARIANCEIF:
           return new VarianceIf(field, fieldSchema, JexlCondition.of(condition));
         case COLLECTLISTIF:
-          return new CollectListIf(field, fieldSchema, JexlCondition.of(condition));
+          return new CollectListIf(field, fieldSchema, JexlCondition.of(condition), getMaxElements());
         case COLLECTSETIF:
-          return new CollectSetIf(field, fieldSchema, JexlCondition.of(condition));
+          return new CollectSetIf(field, fieldSchema, JexlCondition.of(condition), getMaxElements());
         case LONGESTSTRINGIF:
           return new LongestStringIf(field, fieldSchema, JexlCondition.of(condition));
         case SHORTESTSTRINGIF:
           return new ShortestStringIf(field, fieldSchema, JexlCondition.of(condition));
         case CONCATIF:
-          return new ConcatIf(field, fieldSchema, JexlCondition.of(condition));
+          return new ConcatIf(field, fieldSchema, JexlCondition.of(condition), getMaxElements());
         case CONCATDISTINCTIF:
-          return new ConcatDistinctIf(field, fieldSchema, JexlCondition.of(condition));
+          return new ConcatDistinctIf(field, fieldSchema, JexlCondition.of(condition), getMaxElements());
         case LOGICALANDIF:
           return new LogicalAndIf(field, fieldSchema, JexlCondition.of(condition));
         case LOGICALORIF:
@@ -324,11 +372,48 @@ public class GroupByConfig extends AggregatorConfig {
           return new SumOfSquaresIf(field, fieldSchema, JexlCondition.of(condition));
         case ANYIF:
           return new AnyIf(field, fieldSchema, JexlCondition.of(condition));
+        case APPROXCOUNTDISTINCT:
+          if (arguments.isEmpty()) {
+            return new ApproxCountDistinct(field);
+          }
+          return new ApproxCountDistinct(field, parseArgument(arguments.get(0), "precision", Integer::parseInt));
+        case APPROXPERCENTILE:
+          if (arguments.isEmpty()) {
+            throw new IllegalArgumentException(String.format(
+              "Invalid aggregate %s(%s): The percentile must be given as an argument, for example '%s(%s, 0.9)'.",
+              function, field, function, field));
+          }
+          double percentile = parseArgument(arguments.get(0), "percentile", Double::parseDouble);
+          if (arguments.size() == 1) {
+            return new ApproxPercentile(field, fieldSchema, percentile);
+          }
+          return new ApproxPercentile(field, fieldSchema, percentile,
+                                      parseArgument(arguments.get(1), "compression", Double::parseDouble));
       }
       // should never happen
       throw new IllegalStateException("Unknown function type " + function);
     }
 
+    /**
+     * @return the maximum number of elements given as the first argument, or no maximum if there are no arguments
+     */
+    private int getMaxElements() {
+      if (arguments.isEmpty()) {
+        return Integer.MAX_VALUE;
+      }
+      return parseArgument(arguments.get(0), "max elements", Integer::parseInt);
+    }
+
+    private <T> T parseArgument(String argument, String argumentName,
+                                java.util.function.Function<String, T> parser) {
+      try {
+        return parser.apply(argument);
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(String.format("Invalid %s '%s' for aggregate %s(%s).",
+                                                         argumentName, argument, function, field), e);
+      }
+    }
+
     @Override
     public boolean equals(Object o) {
       if (this == o) {
@@ -343,12 +428,13 @@ public class GroupByConfig extends AggregatorConfig {
       return Objects.equals(name, that.name) &&
         Objects.equals(field, that.field) &&
         Objects.equals(function, that.function) &&
-        Objects.equals(condition, that.condition);
+        Objects.equals(condition, that.condition) &&
+        Objects.equals(arguments, that.arguments);
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(name, field, function, condition);
+      return Objects.hash(name, field, function, condition, arguments);
     }
 
     @Override
@@ -358,6 +444,7 @@ public class GroupByConfig extends AggregatorConfig {
         ", field='" + field + '\'' +
         ", function=" + function + '\'' +
         ", condition=" + condition +
+        ", arguments=" + arguments +
         '}';
     }
   }
@@ -378,13 +465,13 @@ public class GroupByConfig extends AggregatorConfig {
     LAST(FunctionType.NONE),
     STDDEV(FunctionType.NONE),
     VARIANCE(FunctionType.NONE),
-    COLLECTLIST(FunctionType.NONE),
-    COLLECTSET(FunctionType.NONE),
+    COLLECTLIST(FunctionType.NONE, 1),
+    COLLECTSET(FunctionType.NONE, 1),
     LONGESTSTRING(FunctionType.NONE),
     SHORTESTSTRING(FunctionType.NONE),
     COUNTNULLS(FunctionType.NONE),
-    CONCAT(FunctionType.NONE),
-    CONCATDISTINCT(FunctionType.NONE),
+    CONCAT(FunctionType.NONE, 1),
+    CONCATDISTINCT(FunctionType.NONE, 1),
     LOGICALAND(FunctionType.NONE),
     LOGICALOR(FunctionType.NONE),
     CORRECTEDSUMOFSQUARES(FunctionType.NONE),
@@ -397,26 +484,41 @@ public class GroupByConfig extends AggregatorConfig {
     MAXIF(FunctionType.CONDITIONAL),
     STDDEVIF(FunctionType.CONDITIONAL),
     VARIANCEIF(FunctionType.CONDITIONAL),
-    COLLECTLISTIF(FunctionType.CONDITIONAL),
-    COLLECTSETIF(FunctionType.CONDITIONAL),
+    COLLECTLISTIF(FunctionType.CONDITIONAL, 1),
+    COLLECTSETIF(FunctionType.CONDITIONAL, 1),
     LONGESTSTRINGIF(FunctionType.CONDITIONAL),
     SHORTESTSTRINGIF(FunctionType.CONDITIONAL),
-    CONCATIF(FunctionType.CONDITIONAL),
-    CONCATDISTINCTIF(FunctionType.CONDITIONAL),
+    CONCATIF(FunctionType.CONDITIONAL, 1),
+    CONCATDISTINCTIF(FunctionType.CONDITIONAL, 1),
     LOGICALANDIF(FunctionType.CONDITIONAL),
     LOGICALORIF(FunctionType.CONDITIONAL),
     CORRECTEDSUMOFSQUARESIF(FunctionType.CONDITIONAL),
     SUMOFSQUARESIF(FunctionType.CONDITIONAL),
-    ANYIF(FunctionType.CONDITIONAL);
+    ANYIF(FunctionType.CONDITIONAL),
+    APPROXCOUNTDISTINCT(FunctionType.NONE, 1),
+    APPROXPERCENTILE(FunctionType.NONE, 2);
 
     private final FunctionType type;
+    private final int maxArguments;
 
     Function(final FunctionType type) {
+      this(type, 0);
+    }
+
+    Function(final FunctionType type, int maxArguments) {
       this.type = type;
+      this.maxArguments = maxArguments;
     }
 
     public boolean isConditional() {
       return this.type == FunctionType.CONDITIONAL;
     }
+
+    /**
+     * @return the maximum number of arguments the function accepts after the field
+     */
+    public int getMaxArguments() {
+      return maxArguments;
+    }
   }
 }
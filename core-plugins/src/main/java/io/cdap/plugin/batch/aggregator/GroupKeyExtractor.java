@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.aggregator;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Extracts the group key from input records. The key schema is computed once for an input schema and reused for
+ * every record of that schema, so that extracting a key only requires reading the key fields of the record.
+ * Schemas are compared by identity first, and only by value when a different schema instance is seen.
+ */
+final class GroupKeyExtractor {
+  private final String[] keyFields;
+  private final Function<Schema, Schema> keySchemaFunction;
+  private Schema inputSchema;
+  private Schema keySchema;
+
+  /**
+   * @param keyFields the fields that make up the group key
+   * @param keySchemaFunction function that computes the key schema for an input schema. It is only called when
+   *                          a new input schema is seen and is expected to fail if a key field is missing.
+   */
+  GroupKeyExtractor(List<String> keyFields, Function<Schema, Schema> keySchemaFunction) {
+    this.keyFields = keyFields.toArray(new String[0]);
+    this.keySchemaFunction = keySchemaFunction;
+  }
+
+  /**
+   * Returns the key schema for the given input schema, computing it if the schema has not been seen before.
+   */
+  Schema getKeySchema(Schema schema) {
+    if (schema != inputSchema) {
+      if (inputSchema == null || !inputSchema.equals(schema)) {
+        keySchema = keySchemaFunction.apply(schema);
+      }
+      inputSchema = schema;
+    }
+    return keySchema;
+  }
+
+  /**
+   * Builds the group key for the given record.
+   */
+  StructuredRecord extract(StructuredRecord record) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(getKeySchema(record.getSchema()));
+    for (String keyField : keyFields) {
+      builder.set(keyField, record.get(keyField));
+    }
+    return builder.build();
+  }
+}
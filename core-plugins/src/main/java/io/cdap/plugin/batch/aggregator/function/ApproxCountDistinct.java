@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.aggregator.function;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Estimates the number of distinct values of a specific column using a HyperLogLog sketch. Unlike
+ * {@link CountDistinct}, the memory used per group is fixed by the precision rather than the number of distinct
+ * values. The relative standard error is about 1.04 / sqrt(2^precision).
+ */
+public class ApproxCountDistinct implements AggregateFunction<Long, ApproxCountDistinct>, BinaryStateFunction {
+  private static final Schema SCHEMA = Schema.of(Schema.Type.LONG);
+  private final String fieldName;
+  private final int precision;
+  private HyperLogLog sketch;
+
+  public ApproxCountDistinct(String fieldName, int precision) {
+    this.fieldName = fieldName;
+    this.precision = precision;
+    // fail fast on an invalid precision
+    new HyperLogLog(precision);
+  }
+
+  public ApproxCountDistinct(String fieldName) {
+    this(fieldName, HyperLogLog.DEFAULT_PRECISION);
+  }
+
+  @Override
+  public void initialize() {
+    sketch = new HyperLogLog(precision);
+  }
+
+  @Override
+  public void mergeValue(StructuredRecord record) {
+    sketch.add(record.get(fieldName));
+  }
+
+  @Override
+  public void mergeAggregates(ApproxCountDistinct otherAgg) {
+    sketch.merge(otherAgg.sketch);
+  }
+
+  @Override
+  public Long getAggregate() {
+    return sketch.estimate();
+  }
+
+  @Override
+  public Schema getOutputSchema() {
+    return SCHEMA;
+  }
+
+  @Override
+  public void writeState(DataOutput out) throws IOException {
+    sketch.write(out);
+  }
+
+  @Override
+  public void readState(DataInput in) throws IOException {
+    sketch = new HyperLogLog(precision);
+    sketch.read(in);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.aggregator.function;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.batch.aggregator.AggregationUtils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Estimates a percentile of a numeric column using a t-digest. The memory used per group is bounded by the
+ * compression rather than the number of values, and the estimate is most accurate near the tails.
+ */
+public class ApproxPercentile implements AggregateFunction<Double, ApproxPercentile>, BinaryStateFunction {
+  private static final Schema SCHEMA = Schema.nullableOf(Schema.of(Schema.Type.DOUBLE));
+  private final String fieldName;
+  private final double percentile;
+  private final double compression;
+  private TDigest digest;
+
+  public ApproxPercentile(String fieldName, Schema fieldSchema, double percentile, double compression) {
+    this.fieldName = fieldName;
+    AggregationUtils.ensureNumericType(fieldSchema, fieldName, "ApproxPercentile");
+    if (percentile < 0d || percentile > 1d) {
+      throw new IllegalArgumentException(String.format(
+        "Cannot compute ApproxPercentile on field %s because the percentile %s is not between 0 and 1.",
+        fieldName, percentile));
+    }
+    this.percentile = percentile;
+    this.compression = compression;
+    // fail fast on an invalid compression
+    new TDigest(compression);
+  }
+
+  public ApproxPercentile(String fieldName, Schema fieldSchema, double percentile) {
+    this(fieldName, fieldSchema, percentile, TDigest.DEFAULT_COMPRESSION);
+  }
+
+  @Override
+  public void initialize() {
+    digest = new TDigest(compression);
+  }
+
+  @Override
+  public void mergeValue(StructuredRecord record) {
+    Number value = record.get(fieldName);
+    if (value != null) {
+      digest.add(value.doubleValue());
+    }
+  }
+
+  @Override
+  public void mergeAggregates(ApproxPercentile otherAgg) {
+    digest.merge(otherAgg.digest);
+  }
+
+  @Override
+  public Double getAggregate() {
+    // null only if every value is null
+    return digest.quantile(percentile);
+  }
+
+  @Override
+  public Schema getOutputSchema() {
+    return SCHEMA;
+  }
+
+  @Override
+  public void writeState(DataOutput out) throws IOException {
+    digest.write(out);
+  }
+
+  @Override
+  public void readState(DataInput in) throws IOException {
+    digest = new TDigest(compression);
+    digest.read(in);
+  }
+}
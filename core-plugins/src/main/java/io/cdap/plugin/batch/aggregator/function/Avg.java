@@ -20,10 +20,14 @@ import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.batch.aggregator.AggregationUtils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Calculates the average of a column. Does not protect against overflow.
  */
-public class Avg implements AggregateFunction<Double, Avg> {
+public class Avg implements AggregateFunction<Double, Avg>, BinaryStateFunction {
   private final String fieldName;
   private final Schema outputSchema;
   private double avg;
@@ -45,11 +49,11 @@ public class Avg implements AggregateFunction<Double, Avg> {
 
   @Override
   public void mergeValue(StructuredRecord record) {
-    Object val = record.get(fieldName);
+    Number val = record.get(fieldName);
     if (val == null) {
       return;
     }
-    computeAvg(1L, (Number) val);
+    computeAvg(1L, val.doubleValue());
   }
 
   @Override
@@ -71,11 +75,23 @@ public class Avg implements AggregateFunction<Double, Avg> {
     return outputSchema;
   }
 
-  private void computeAvg(long deltaCount, Number oldAvg) {
+  private void computeAvg(long deltaCount, double oldAvg) {
     if (deltaCount == 0L) {
       return;
     }
     count += deltaCount;
-    avg = avg + (oldAvg.doubleValue() - avg) * deltaCount / count;
+    avg = avg + (oldAvg - avg) * deltaCount / count;
+  }
+
+  @Override
+  public void writeState(DataOutput out) throws IOException {
+    out.writeLong(count);
+    out.writeDouble(avg);
+  }
+
+  @Override
+  public void readState(DataInput in) throws IOException {
+    count = in.readLong();
+    avg = in.readDouble();
   }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.batch.aggregator.function;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * An aggregate function whose intermediate state can be written in a compact binary form. Only the state that
+ * changes while aggregating is written. The function name, field and schemas come from the configuration, so the
+ * reader creates the function from the configuration and then reads the state into it.
+ */
+public interface BinaryStateFunction {
+
+  /**
+   * Writes the intermediate state of the function.
+   *
+   * @param out the output to write to
+   */
+  void writeState(DataOutput out) throws IOException;
+
+  /**
+   * Reads the intermediate state written by {@link #writeState(DataOutput)} into a function that was created from the
+   * same configuration. This replaces any existing state.
+   *
+   * @param in the input to read from
+   */
+  void readState(DataInput in) throws IOException;
+}
@@ -19,22 +19,34 @@ package io.cdap.plugin.batch.aggregator.function;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.batch.aggregator.AggregationUtils;
 
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Collect List of a specific column
+ * Collect List of a specific column. The list can be limited to a maximum number of elements, which bounds the
+ * memory used by a group regardless of its size. A group with more elements fails the aggregation.
  * @param <T> type of aggregate value
  */
 public class CollectList<T> implements AggregateFunction<List<T>, CollectList<T>> {
   private final String fieldName;
   private final Schema fieldSchema;
+  private final int maxElements;
   private List<T> result;
 
   public CollectList(String fieldName, Schema fieldSchema) {
+    this(fieldName, fieldSchema, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param maxElements the maximum number of elements of a group. A group with more elements fails.
+   */
+  public CollectList(String fieldName, Schema fieldSchema, int maxElements) {
     this.fieldName = fieldName;
     this.fieldSchema = fieldSchema;
+    AggregationUtils.ensureValidMaxElements(maxElements, fieldName, "CollectList");
+    this.maxElements = maxElements;
   }
 
   @Override
@@ -44,11 +56,14 @@ public class CollectList<T> implements AggregateFunction<List<T>, CollectList<T>
 
   @Override
   public void mergeValue(StructuredRecord record) {
+    AggregationUtils.ensureWithinMaxElements(result.size() + 1, maxElements, fieldName, "CollectList");
     result.add(record.get(fieldName));
   }
 
   @Override
   public void mergeAggregates(CollectList<T> otherAgg) {
+    AggregationUtils.ensureWithinMaxElements(result.size() + otherAgg.result.size(), maxElements, fieldName,
+                                             "CollectList");
     result.addAll(otherAgg.result);
   }
 
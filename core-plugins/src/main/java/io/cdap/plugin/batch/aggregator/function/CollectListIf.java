@@ -31,7 +31,11 @@ public class CollectListIf<T> extends CollectList<T> implements Serializable {
   private final Condition condition;
 
   public CollectListIf(String fieldName, Schema fieldSchema, Condition condition) {
-    super(fieldName, fieldSchema);
+    this(fieldName, fieldSchema, condition, Integer.MAX_VALUE);
+  }
+
+  public CollectListIf(String fieldName, Schema fieldSchema, Condition condition, int maxElements) {
+    super(fieldName, fieldSchema, maxElements);
     this.condition = condition;
   }
 
@@ -18,22 +18,34 @@ package io.cdap.plugin.batch.aggregator.function;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.batch.aggregator.AggregationUtils;
 
 import java.util.HashSet;
 import java.util.Set;
 
 /**
- * Collect Set of a specific column
+ * Collect Set of a specific column. The set can be limited to a maximum number of elements, which bounds the
+ * memory used by a group regardless of its size. A group with more distinct elements fails the aggregation.
  * @param <T> type of aggregate value
  */
 public class CollectSet<T> implements AggregateFunction<Set<T>, CollectSet<T>> {
   private final String fieldName;
   private final Schema fieldSchema;
+  private final int maxElements;
   private Set<T> result;
 
   public CollectSet(String fieldName, Schema fieldSchema) {
+    this(fieldName, fieldSchema, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param maxElements the maximum number of distinct elements of a group. A group with more elements fails.
+   */
+  public CollectSet(String fieldName, Schema fieldSchema, int maxElements) {
     this.fieldName = fieldName;
     this.fieldSchema = fieldSchema;
+    AggregationUtils.ensureValidMaxElements(maxElements, fieldName, "CollectSet");
+    this.maxElements = maxElements;
   }
 
   @Override
@@ -43,12 +55,15 @@ public class CollectSet<T> implements AggregateFunction<Set<T>, CollectSet<T>> {
 
   @Override
   public void mergeValue(StructuredRecord record) {
-    result.add(record.get(fieldName));
+    if (result.add(record.get(fieldName))) {
+      AggregationUtils.ensureWithinMaxElements(result.size(), maxElements, fieldName, "CollectSet");
+    }
   }
 
   @Override
   public void mergeAggregates(CollectSet<T> otherAgg) {
     result.addAll(otherAgg.result);
+    AggregationUtils.ensureWithinMaxElements(result.size(), maxElements, fieldName, "CollectSet");
   }
 
   @Override
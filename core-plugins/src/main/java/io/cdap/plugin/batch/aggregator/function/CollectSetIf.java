@@ -30,7 +30,11 @@ public class CollectSetIf<T> extends CollectSet<T> implements Serializable {
   private final Condition condition;
 
   public CollectSetIf(String fieldName, Schema fieldSchema, Condition condition) {
-    super(fieldName, fieldSchema);
+    this(fieldName, fieldSchema, condition, Integer.MAX_VALUE);
+  }
+
+  public CollectSetIf(String fieldName, Schema fieldSchema, Condition condition, int maxElements) {
+    super(fieldName, fieldSchema, maxElements);
     this.condition = condition;
   }
 
@@ -19,18 +19,31 @@ package io.cdap.plugin.batch.aggregator.function;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.data.schema.Schema.Type;
+import io.cdap.plugin.batch.aggregator.AggregationUtils;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Concatenates the values in the group with a comma
+ * Concatenates the values in the group with a comma. The number of concatenated values can be limited, which bounds
+ * the memory used by a group regardless of its size. A group with more values fails the aggregation. Values are joined only when the aggregate is requested, so that
+ * adding a value does not copy the values seen so far.
  */
 public class Concat implements AggregateFunction<String, Concat> {
 
   private final String fieldName;
   private final Schema fieldSchema;
-  private String concatString;
-  private boolean firstString = true;
+  private final int maxElements;
+  private List<String> values;
 
   public Concat(String fieldName, Schema fieldSchema) {
+    this(fieldName, fieldSchema, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param maxElements the maximum number of values of a group. A group with more values fails.
+   */
+  public Concat(String fieldName, Schema fieldSchema, int maxElements) {
     this.fieldName = fieldName;
     this.fieldSchema = fieldSchema;
     Type inputType =
@@ -41,41 +54,34 @@ public class Concat implements AggregateFunction<String, Concat> {
         String.format("Field '%s' is of unsupported non-string type '%s'. ",
                       fieldName, inputType));
     }
+    AggregationUtils.ensureValidMaxElements(maxElements, fieldName, "Concat");
+    this.maxElements = maxElements;
   }
 
   @Override
   public void initialize() {
-    this.concatString = "";
+    this.values = new ArrayList<>();
   }
 
   @Override
   public void mergeValue(StructuredRecord record) {
-    if (record.get(fieldName) != null) {
-      String value = record.get(fieldName);
-      if (firstString) {
-        concatString = value;
-        firstString = false;
-        return;
-      }
-      concatString = String.format("%s, %s", concatString, value);
+    String value = record.get(fieldName);
+    if (value != null) {
+      AggregationUtils.ensureWithinMaxElements(values.size() + 1, maxElements, fieldName, "Concat");
+      values.add(value);
     }
   }
 
   @Override
   public void mergeAggregates(Concat otherAgg) {
-    if (otherAgg.getAggregate() == null) {
-      return;
-    }
-    if (concatString.equals("")) {
-      concatString = otherAgg.getAggregate();
-      return;
-    }
-    concatString = String.format("%s, %s", concatString, otherAgg.concatString);
+    AggregationUtils.ensureWithinMaxElements(values.size() + otherAgg.values.size(), maxElements, fieldName,
+                                             "Concat");
+    values.addAll(otherAgg.values);
   }
 
   @Override
   public String getAggregate() {
-    return concatString;
+    return String.join(", ", values);
   }
 
   @Override
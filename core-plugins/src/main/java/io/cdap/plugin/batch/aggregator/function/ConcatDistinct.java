@@ -20,18 +20,29 @@ import com.google.common.base.Strings;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.data.schema.Schema.Type;
+import io.cdap.plugin.batch.aggregator.AggregationUtils;
 
 /**
- * Concatenates only distinct values in the group with a comma
+ * Concatenates only distinct values in the group with a comma. The number of concatenated values can be limited,
+ * which bounds the memory used by a group regardless of its size. A group with more values fails the aggregation.
  */
 public class ConcatDistinct implements AggregateFunction<String, ConcatDistinct> {
 
   private final String fieldName;
   private final Schema fieldSchema;
+  private final int maxElements;
   private String concatString;
   private boolean firstString = true;
+  private int numValues;
 
   public ConcatDistinct(String fieldName, Schema fieldSchema) {
+    this(fieldName, fieldSchema, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param maxElements the maximum number of distinct values of a group. A group with more values fails.
+   */
+  public ConcatDistinct(String fieldName, Schema fieldSchema, int maxElements) {
     this.fieldName = fieldName;
     this.fieldSchema = fieldSchema;
     Type inputType = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
@@ -40,11 +51,14 @@ public class ConcatDistinct implements AggregateFunction<String, ConcatDistinct>
       throw new IllegalArgumentException(
         String.format("Field '%s' is of unsupported non-string type '%s'. ", fieldName, inputType));
     }
+    AggregationUtils.ensureValidMaxElements(maxElements, fieldName, "ConcatDistinct");
+    this.maxElements = maxElements;
   }
 
   @Override
   public void initialize() {
     concatString = "";
+    numValues = 0;
   }
 
   @Override
@@ -52,6 +66,7 @@ public class ConcatDistinct implements AggregateFunction<String, ConcatDistinct>
     if (record.get(fieldName) != null) {
       String value = record.get(fieldName);
       if (value != null && !concatString.contains(value)) {
+        AggregationUtils.ensureWithinMaxElements(++numValues, maxElements, fieldName, "ConcatDistinct");
         if (firstString) {
           concatString = value;
           firstString = false;
@@ -69,9 +84,12 @@ public class ConcatDistinct implements AggregateFunction<String, ConcatDistinct>
     }
     if (concatString.equals("")) {
       concatString = otherAgg.getAggregate();
+      numValues = otherAgg.numValues;
       return;
     }
     if (!concatString.contains(otherAgg.concatString)) {
+      numValues += otherAgg.numValues;
+      AggregationUtils.ensureWithinMaxElements(numValues, maxElements, fieldName, "ConcatDistinct");
       concatString = String.format("%s, %s", concatString, otherAgg.concatString);
     }
   }
@@ -29,7 +29,11 @@ public class ConcatDistinctIf extends ConcatDistinct implements Serializable {
   private final Condition condition;
 
   public ConcatDistinctIf(String fieldName, Schema fieldSchema, Condition condition) {
-    super(fieldName, fieldSchema);
+    this(fieldName, fieldSchema, condition, Integer.MAX_VALUE);
+  }
+
+  public ConcatDistinctIf(String fieldName, Schema fieldSchema, Condition condition, int maxElements) {
+    super(fieldName, fieldSchema, maxElements);
     this.condition = condition;
   }
 
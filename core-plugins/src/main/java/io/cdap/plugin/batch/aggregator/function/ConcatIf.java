@@ -29,7 +29,11 @@ public class ConcatIf extends Concat implements Serializable {
   private final Condition condition;
 
   public ConcatIf(String fieldName, Schema fieldSchema, Condition condition) {
-    super(fieldName, fieldSchema);
+    this(fieldName, fieldSchema, condition, Integer.MAX_VALUE);
+  }
+
+  public ConcatIf(String fieldName, Schema fieldSchema, Condition condition, int maxElements) {
+    super(fieldName, fieldSchema, maxElements);
     this.condition = condition;
   }
 
@@ -20,10 +20,14 @@ import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.batch.aggregator.AggregationUtils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Calculates the Standard Deviation
  */
-public class CorrectedSumOfSquares implements AggregateFunction<Double, CorrectedSumOfSquares> {
+public class CorrectedSumOfSquares implements AggregateFunction<Double, CorrectedSumOfSquares>, BinaryStateFunction {
 
   private final String fieldName;
   private final Schema outputSchema;
@@ -48,21 +52,23 @@ public class CorrectedSumOfSquares implements AggregateFunction<Double, Correcte
 
   @Override
   public void mergeValue(StructuredRecord record) {
-    Object val = record.get(fieldName);
+    Number val = record.get(fieldName);
     if (val == null) {
       return;
     }
-    Number value = (Number) val;
+    double value = val.doubleValue();
     numEntries++;
-    sum += value.doubleValue();
-    sumOfSquares += Math.pow(value.doubleValue(), 2d);
+    sum += value;
+    sumOfSquares += value * value;
+    correctSumOfSquares = null;
   }
 
   @Override
   public void mergeAggregates(CorrectedSumOfSquares otherAgg) {
-    if (otherAgg.getAggregate() == null) {
+    if (otherAgg.numEntries == 0) {
       return;
     }
+    correctSumOfSquares = null;
     if (numEntries == 0) {
       numEntries = otherAgg.numEntries;
       sum = otherAgg.sum;
@@ -87,4 +93,19 @@ public class CorrectedSumOfSquares implements AggregateFunction<Double, Correcte
   public Schema getOutputSchema() {
     return outputSchema;
   }
+
+  @Override
+  public void writeState(DataOutput out) throws IOException {
+    out.writeLong(numEntries);
+    out.writeDouble(sum);
+    out.writeDouble(sumOfSquares);
+  }
+
+  @Override
+  public void readState(DataInput in) throws IOException {
+    correctSumOfSquares = null;
+    numEntries = in.readLong();
+    sum = in.readDouble();
+    sumOfSquares = in.readDouble();
+  }
 }
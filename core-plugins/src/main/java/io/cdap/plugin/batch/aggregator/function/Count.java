@@ -19,10 +19,14 @@ package io.cdap.plugin.batch.aggregator.function;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Counts the number of times a specific column has a non-null value.
  */
-public class Count implements AggregateFunction<Long, Count> {
+public class Count implements AggregateFunction<Long, Count>, BinaryStateFunction {
   private static final Schema SCHEMA = Schema.of(Schema.Type.LONG);
   private final String fieldName;
   private long count;
@@ -58,4 +62,14 @@ public class Count implements AggregateFunction<Long, Count> {
   public Schema getOutputSchema() {
     return SCHEMA;
   }
+
+  @Override
+  public void writeState(DataOutput out) throws IOException {
+    out.writeLong(count);
+  }
+
+  @Override
+  public void readState(DataInput in) throws IOException {
+    count = in.readLong();
+  }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.aggregator.function;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A HyperLogLog sketch for estimating the number of distinct values. Values are hashed to 64 bits, which removes
+ * the need for a large range correction, and small cardinalities are estimated with linear counting, as in HLL++.
+ * The state is a single byte array of 2^precision registers, so merging two sketches is a register-wise max.
+ */
+final class HyperLogLog implements Serializable {
+  static final int MIN_PRECISION = 4;
+  static final int MAX_PRECISION = 18;
+  static final int DEFAULT_PRECISION = 12;
+
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+  private final int precision;
+  private final byte[] registers;
+
+  HyperLogLog(int precision) {
+    if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException(String.format("HyperLogLog precision must be between %d and %d, but is %d.",
+                                                       MIN_PRECISION, MAX_PRECISION, precision));
+    }
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  int getPrecision() {
+    return precision;
+  }
+
+  /**
+   * Adds a value to the sketch. Null values are ignored.
+   */
+  void add(Object value) {
+    if (value == null) {
+      return;
+    }
+    long hash = hash(value);
+    int index = (int) (hash >>> (Long.SIZE - precision));
+    // the sentinel bit bounds the rank by 64 - precision + 1
+    long remaining = (hash << precision) | (1L << (precision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+    if (rank > registers[index]) {
+      registers[index] = rank;
+    }
+  }
+
+  /**
+   * Merges the other sketch into this one. Both sketches must have the same precision.
+   */
+  void merge(HyperLogLog other) {
+    if (other.precision != precision) {
+      throw new IllegalArgumentException(String.format("Cannot merge HyperLogLog sketches with precision %d and %d.",
+                                                       precision, other.precision));
+    }
+    for (int i = 0; i < registers.length; i++) {
+      if (other.registers[i] > registers[i]) {
+        registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  /**
+   * @return the estimated number of distinct values added to the sketch
+   */
+  long estimate() {
+    int numRegisters = registers.length;
+    double sum = 0d;
+    int zeros = 0;
+    for (byte register : registers) {
+      sum += 1d / (1L << register);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+    double estimate = alpha(numRegisters) * numRegisters * numRegisters / sum;
+    if (zeros > 0 && estimate <= 2.5d * numRegisters) {
+      estimate = numRegisters * Math.log((double) numRegisters / zeros);
+    }
+    return Math.round(estimate);
+  }
+
+  /**
+   * Writes the registers. The precision is not written, since the reader creates the sketch with the same precision.
+   */
+  void write(DataOutput out) throws IOException {
+    out.write(registers);
+  }
+
+  /**
+   * Reads registers written by {@link #write(DataOutput)} by a sketch with the same precision.
+   */
+  void read(DataInput in) throws IOException {
+    in.readFully(registers);
+  }
+
+  private static double alpha(int numRegisters) {
+    switch (numRegisters) {
+      case 16:
+        return 0.673d;
+      case 32:
+        return 0.697d;
+      case 64:
+        return 0.709d;
+      default:
+        return 0.7213d / (1d + 1.079d / numRegisters);
+    }
+  }
+
+  private static long hash(Object value) {
+    if (value instanceof String) {
+      return HASH_FUNCTION.hashBytes(((String) value).getBytes(StandardCharsets.UTF_8)).asLong();
+    }
+    if (value instanceof Integer || value instanceof Long) {
+      return HASH_FUNCTION.hashLong(((Number) value).longValue()).asLong();
+    }
+    if (value instanceof Float || value instanceof Double) {
+      return HASH_FUNCTION.hashLong(Double.doubleToLongBits(((Number) value).doubleValue())).asLong();
+    }
+    if (value instanceof Boolean) {
+      return HASH_FUNCTION.hashLong((Boolean) value ? 1L : 0L).asLong();
+    }
+    if (value instanceof ByteBuffer) {
+      ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      return HASH_FUNCTION.hashBytes(bytes).asLong();
+    }
+    if (value instanceof byte[]) {
+      return HASH_FUNCTION.hashBytes((byte[]) value).asLong();
+    }
+    return HASH_FUNCTION.hashBytes(value.toString().getBytes(StandardCharsets.UTF_8)).asLong();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    HyperLogLog that = (HyperLogLog) o;
+    return precision == that.precision && Arrays.equals(registers, that.registers);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * precision + Arrays.hashCode(registers);
+  }
+}
@@ -16,28 +16,46 @@
 
 package io.cdap.plugin.batch.aggregator.function;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import org.apache.commons.jexl3.JexlBuilder;
 import org.apache.commons.jexl3.JexlContext;
 import org.apache.commons.jexl3.JexlEngine;
 import org.apache.commons.jexl3.JexlScript;
-import org.apache.commons.jexl3.MapContext;
 
 import java.io.Serializable;
-import java.util.Iterator;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
- * Class used for evaluating Jexl condition
+ * Class used for evaluating Jexl condition.
+ * The script is compiled once per condition string, and the variables of the condition are resolved against the
+ * record schema once per schema rather than once per record. Conditional functions that use the same condition
+ * share one instance, so a record is only evaluated once for all of them. Instances are only shared while functions
+ * use them, and at most {@link #MAX_CONDITIONS} of them, so that conditions of pipelines that ran before in the same
+ * JVM are not kept.
  */
 public class JexlCondition implements Condition, Serializable {
+  private static final JexlEngine ENGINE = new JexlBuilder().cache(1024).strict(true).silent(false).create();
+  private static final int MAX_CONDITIONS = 1024;
+  private static final LoadingCache<String, JexlCondition> CONDITIONS = CacheBuilder.newBuilder()
+    .maximumSize(MAX_CONDITIONS)
+    .weakValues()
+    .build(new CacheLoader<String, JexlCondition>() {
+      @Override
+      public JexlCondition load(String condition) {
+        return new JexlCondition(condition);
+      }
+    });
 
   private final String condition;
-  private transient JexlEngine engine;
-  private transient JexlScript script;
+  private transient volatile Compiled compiled;
+  private transient volatile ThreadLocal<Evaluation> evaluations;
 
   private JexlCondition(String condition) {
     this.condition = condition;
@@ -45,73 +63,54 @@ public class JexlCondition implements Condition, Serializable {
 
   @Override
   public boolean apply(StructuredRecord record) {
-    JexlScript script = getScript();
-    Set<List<String>> variables = script.getVariables();
-    JexlContext context = new MapContext();
-
-    for (List<String> variable : variables) {
-      Object value = getValue(record, variable);
-      context.set(variable.stream().collect(Collectors.joining(".")), value);
-    }
-
-    Object result = this.script.execute(context);
-
-    if (result instanceof Boolean) {
-      return (boolean) result;
-    } else {
-      throw new IllegalArgumentException("incorrect condition");
+    Evaluation evaluation = getEvaluations().get();
+    if (record == evaluation.lastRecord.get()) {
+      return evaluation.lastResult;
     }
+    evaluation.bind(record.getSchema());
+    evaluation.lastResult = evaluation.evaluate(record);
+    evaluation.lastRecord = new WeakReference<>(record);
+    return evaluation.lastResult;
   }
 
   /**
-   * Return value of a field from a record based on provided path
+   * Generates JexlScript containing condition
    *
-   * @param record {@link StructuredRecord}
-   * @param path   path to a field in record
-   * @return {@link Object} value of a field in record
+   * @return {@link Compiled} holding the script and its variables
    */
-  private Object getValue(StructuredRecord record, List<String> path) {
-    StructuredRecord structuredRecord = record;
-    Iterator<String> iterator = path.iterator();
-    Object value = null;
-    Schema.Field field = null;
-    while (iterator.hasNext()) {
-      field = structuredRecord.getSchema().getField(iterator.next());
-      if (field == null) {
-        throw new IllegalArgumentException("Field provided in condition is not in input schema.");
-      }
-      if (field.getSchema().getType().equals(Schema.Type.RECORD)) {
-        structuredRecord = structuredRecord.get(field.getName());
-      } else {
-        value = structuredRecord.get(field.getName());
-      }
+  private Compiled getCompiled() {
+    Compiled result = compiled;
+    if (result == null) {
+      // compiling twice in a race is harmless, the results are equivalent
+      result = new Compiled(ENGINE.createScript(condition));
+      compiled = result;
     }
-    return value;
+    return result;
   }
 
   /**
-   * Generates JexlScript containing condition
-   *
-   * @return {@link JexlScript}
+   * Returns the per thread evaluation state. It is created on first use rather than in the constructor, since
+   * serializers such as Kryo create instances without calling the constructor or readResolve.
    */
-  private synchronized JexlScript getScript() {
-    if (engine == null) {
-      engine = new JexlBuilder().cache(1024).strict(true).silent(false).create();
-    }
-    if (script == null) {
-      script = engine.createScript(condition);
+  private ThreadLocal<Evaluation> getEvaluations() {
+    ThreadLocal<Evaluation> result = evaluations;
+    if (result == null) {
+      // creating it twice in a race is harmless, a thread only loses its evaluation state
+      result = ThreadLocal.withInitial(() -> new Evaluation(getCompiled()));
+      evaluations = result;
     }
-    return script;
+    return result;
   }
 
   /**
-   * Generates the actual condition based on the given string
+   * Returns the condition for the given string. Conditions are shared, so that the script is only compiled once
+   * and functions using the same condition evaluate it once per record.
    *
    * @param condition string representation of Jexl condition
    * @return {@link JexlCondition}
    */
   public static JexlCondition of(String condition) {
-    return new JexlCondition(condition);
+    return CONDITIONS.getUnchecked(condition);
   }
 
   /**
@@ -121,9 +120,150 @@ public class JexlCondition implements Condition, Serializable {
    * @return set of lists representing full path of each variable
    */
   public static Set<List<String>> getVariables(String condition) {
-    JexlEngine engine = new JexlBuilder().cache(1024).strict(true).silent(false).create();
-    JexlScript script = engine.createScript(condition);
+    return ENGINE.createScript(condition).getVariables();
+  }
 
-    return script.getVariables();
+  /**
+   * Replaces deserialized instances with the shared instance for the condition.
+   */
+  private Object readResolve() {
+    return of(condition);
+  }
+
+  /**
+   * A compiled script and the variables it references.
+   */
+  private static final class Compiled {
+    private final JexlScript script;
+    // variable names as referenced in the script, for example 'author.name'
+    private final String[] names;
+    private final String[][] paths;
+
+    private Compiled(JexlScript script) {
+      this.script = script;
+      Set<List<String>> variables = script.getVariables();
+      this.names = new String[variables.size()];
+      this.paths = new String[variables.size()][];
+      int i = 0;
+      for (List<String> variable : variables) {
+        names[i] = String.join(".", variable);
+        paths[i] = variable.toArray(new String[0]);
+        i++;
+      }
+    }
+  }
+
+  /**
+   * Per thread evaluation state. Holds the context passed to the script, the variable bindings for the last seen
+   * schema, and the result for the last evaluated record.
+   */
+  private static final class Evaluation implements JexlContext {
+    private final Compiled compiled;
+    private final Object[] values;
+    private Schema schema;
+    // for each variable and each step of its path, whether the step descends into a nested record
+    private boolean[][] descend;
+    // the record is not kept alive by the evaluation state of threads, which outlives the stage
+    private WeakReference<StructuredRecord> lastRecord = new WeakReference<>(null);
+    private boolean lastResult;
+
+    private Evaluation(Compiled compiled) {
+      this.compiled = compiled;
+      this.values = new Object[compiled.names.length];
+    }
+
+    /**
+     * Resolves the variable paths against the schema, if it is not the one that was resolved last.
+     */
+    private void bind(Schema recordSchema) {
+      if (recordSchema == schema) {
+        return;
+      }
+      if (schema == null || !schema.equals(recordSchema)) {
+        boolean[][] bindings = new boolean[compiled.paths.length][];
+        for (int i = 0; i < bindings.length; i++) {
+          String[] path = compiled.paths[i];
+          bindings[i] = new boolean[path.length];
+          Schema current = recordSchema;
+          for (int j = 0; j < path.length; j++) {
+            Schema.Field field = current.getField(path[j]);
+            if (field == null) {
+              throw new IllegalArgumentException("Field provided in condition is not in input schema.");
+            }
+            if (field.getSchema().getType().equals(Schema.Type.RECORD)) {
+              bindings[i][j] = true;
+              current = field.getSchema();
+            }
+          }
+        }
+        descend = bindings;
+      }
+      schema = recordSchema;
+    }
+
+    private boolean evaluate(StructuredRecord record) {
+      for (int i = 0; i < values.length; i++) {
+        values[i] = getValue(record, compiled.paths[i], descend[i]);
+      }
+      Object result;
+      try {
+        result = compiled.script.execute(this);
+      } finally {
+        // don't keep the field values of the record after it was evaluated
+        Arrays.fill(values, null);
+      }
+      if (result instanceof Boolean) {
+        return (boolean) result;
+      } else {
+        throw new IllegalArgumentException("incorrect condition");
+      }
+    }
+
+    /**
+     * Return value of a field from a record based on provided path
+     */
+    private static Object getValue(StructuredRecord record, String[] path, boolean[] descend) {
+      StructuredRecord structuredRecord = record;
+      Object value = null;
+      for (int i = 0; i < path.length; i++) {
+        if (descend[i]) {
+          structuredRecord = structuredRecord.get(path[i]);
+        } else {
+          value = structuredRecord.get(path[i]);
+        }
+      }
+      return value;
+    }
+
+    @Override
+    public Object get(String name) {
+      int index = indexOf(name);
+      return index < 0 ? null : values[index];
+    }
+
+    @Override
+    public void set(String name, Object value) {
+      int index = indexOf(name);
+      if (index < 0) {
+        throw new IllegalArgumentException(String.format("Cannot assign to '%s' in condition.", name));
+      }
+      values[index] = value;
+    }
+
+    @Override
+    public boolean has(String name) {
+      return indexOf(name) >= 0;
+    }
+
+    private int indexOf(String name) {
+      // conditions reference only a few variables, so a linear scan is cheaper than hashing
+      String[] names = compiled.names;
+      for (int i = 0; i < names.length; i++) {
+        if (names[i].equals(name)) {
+          return i;
+        }
+      }
+      return -1;
+    }
   }
 }
@@ -16,40 +16,146 @@
 
 package io.cdap.plugin.batch.aggregator.function;
 
+import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.batch.aggregator.AggregationUtils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import javax.annotation.Nullable;
+
 /**
  * Base class for number based aggregate functions.
  * Allows subclasses to implement typed methods instead of implementing their own casting logic.
+ * Integral values are accumulated in a long and floating point values in a double, so updates do not allocate
+ * boxed numbers. The aggregate is only converted back to the type of the field in {@link #getAggregate()}.
  *
  * @param <V> type of aggregate function
  */
-public abstract class NumberFunction<V extends NumberFunction> implements AggregateFunction<Number, V> {
+public abstract class NumberFunction<V extends NumberFunction>
+  implements AggregateFunction<Number, V>, BinaryStateFunction {
   protected final String fieldName;
   protected final Schema fieldSchema;
   protected final Schema.Type fieldType;
-  protected Number number;
+  private final boolean integral;
+  private boolean hasValue;
+  private long longValue;
+  private double doubleValue;
 
   public NumberFunction(final String fieldName, Schema fieldSchema) {
     this.fieldName = fieldName;
     this.fieldSchema = fieldSchema;
     this.fieldType = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
     AggregationUtils.ensureNumericType(fieldSchema, fieldName, this.getClass().getSimpleName());
+    this.integral = fieldType == Schema.Type.INT || fieldType == Schema.Type.LONG;
   }
 
   @Override
   public void initialize() {
-    this.number = null;
+    this.hasValue = false;
+    this.longValue = 0L;
+    this.doubleValue = 0d;
+  }
+
+  @Override
+  public void mergeValue(StructuredRecord record) {
+    Number value = record.get(fieldName);
+    if (value == null) {
+      return;
+    }
+    if (integral) {
+      combineLong(value.longValue());
+    } else {
+      combineDouble(value.doubleValue());
+    }
+  }
+
+  @Override
+  public void mergeAggregates(V otherAgg) {
+    NumberFunction other = otherAgg;
+    if (!other.hasValue) {
+      return;
+    }
+    if (integral) {
+      combineLong(other.longValue);
+    } else {
+      combineDouble(other.doubleValue);
+    }
   }
 
+  @Nullable
   @Override
   public Number getAggregate() {
-    return number;
+    if (!hasValue) {
+      return null;
+    }
+    switch (fieldType) {
+      case INT:
+        return (int) longValue;
+      case LONG:
+        return longValue;
+      case FLOAT:
+        return (float) doubleValue;
+      default:
+        return doubleValue;
+    }
   }
 
   @Override
   public Schema getOutputSchema() {
     return fieldSchema;
   }
+
+  @Override
+  public void writeState(DataOutput out) throws IOException {
+    out.writeBoolean(hasValue);
+    if (!hasValue) {
+      return;
+    }
+    if (integral) {
+      out.writeLong(longValue);
+    } else {
+      out.writeDouble(doubleValue);
+    }
+  }
+
+  @Override
+  public void readState(DataInput in) throws IOException {
+    initialize();
+    hasValue = in.readBoolean();
+    if (!hasValue) {
+      return;
+    }
+    if (integral) {
+      longValue = in.readLong();
+    } else {
+      doubleValue = in.readDouble();
+    }
+  }
+
+  /**
+   * Combines the current aggregate of an int or long field with a value.
+   */
+  protected abstract long combine(long current, long value);
+
+  /**
+   * Combines the current aggregate of a float or double field with a value.
+   */
+  protected abstract double combine(double current, double value);
+
+  private void combineLong(long value) {
+    // int results wrap around when narrowed in getAggregate, the same as with int arithmetic
+    longValue = hasValue ? combine(longValue, value) : value;
+    hasValue = true;
+  }
+
+  private void combineDouble(double value) {
+    doubleValue = hasValue ? combine(doubleValue, value) : value;
+    if (fieldType == Schema.Type.FLOAT) {
+      // round after every operation to keep the result the same as with float arithmetic
+      doubleValue = (float) doubleValue;
+    }
+    hasValue = true;
+  }
 }
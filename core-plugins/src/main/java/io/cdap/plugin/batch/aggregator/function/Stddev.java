@@ -20,12 +20,15 @@ import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.batch.aggregator.AggregationUtils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import javax.annotation.Nullable;
 
 /**
  * Calculates the Standard Deviation
  */
-public class Stddev implements AggregateFunction<Double, Stddev> {
+public class Stddev implements AggregateFunction<Double, Stddev>, BinaryStateFunction {
   private final Variance variance;
 
   public Stddev(String fieldName, Schema fieldSchema) {
@@ -62,4 +65,14 @@ public class Stddev implements AggregateFunction<Double, Stddev> {
   public Schema getOutputSchema() {
     return variance.getOutputSchema();
   }
+
+  @Override
+  public void writeState(DataOutput out) throws IOException {
+    variance.writeState(out);
+  }
+
+  @Override
+  public void readState(DataInput in) throws IOException {
+    variance.readState(in);
+  }
 }
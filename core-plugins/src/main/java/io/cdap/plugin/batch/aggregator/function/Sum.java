@@ -16,7 +16,6 @@
 
 package io.cdap.plugin.batch.aggregator.function;
 
-import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 
 /**
@@ -29,41 +28,12 @@ public class Sum extends NumberFunction<Sum> {
   }
 
   @Override
-  public void mergeValue(StructuredRecord record) {
-    combine(record.get(fieldName));
+  protected long combine(long current, long value) {
+    return current + value;
   }
 
   @Override
-  public void mergeAggregates(Sum otherAgg) {
-    combine(otherAgg.getAggregate());
-  }
-
-  private void combine(Number otherNum) {
-    if (otherNum == null) {
-      return;
-    }
-
-    if (number == null) {
-      number = otherNum;
-      return;
-    }
-
-    switch (fieldType) {
-      case INT:
-        number = (Integer) number + (Integer) otherNum;
-        return;
-      case LONG:
-        number = (Long) number + (Long) otherNum;
-        return;
-      case FLOAT:
-        number = (Float) number + (Float) otherNum;
-        return;
-      case DOUBLE:
-        number = (Double) number + (Double) otherNum;
-        return;
-      default:
-        throw new IllegalArgumentException(String.format("Field '%s' is of unsupported non-numeric type '%s'. ",
-                                                         fieldName, fieldType));
-    }
+  protected double combine(double current, double value) {
+    return current + value;
   }
 }
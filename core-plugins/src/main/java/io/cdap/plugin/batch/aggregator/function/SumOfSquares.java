@@ -20,12 +20,15 @@ import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.batch.aggregator.AggregationUtils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import javax.annotation.Nullable;
 
 /**
  * Calculates the sum of squares
  */
-public class SumOfSquares implements AggregateFunction<Double, SumOfSquares> {
+public class SumOfSquares implements AggregateFunction<Double, SumOfSquares>, BinaryStateFunction {
 
   private final String fieldName;
   private final Schema outputSchema;
@@ -45,23 +48,17 @@ public class SumOfSquares implements AggregateFunction<Double, SumOfSquares> {
 
   @Override
   public void mergeValue(StructuredRecord record) {
-    Object val = record.get(fieldName);
+    Number val = record.get(fieldName);
     if (val == null) {
       return;
     }
-    sumOfSquares += Math.pow(((Number) val).doubleValue(), 2d);
+    double value = val.doubleValue();
+    sumOfSquares += value * value;
   }
 
   @Override
   public void mergeAggregates(SumOfSquares otherAgg) {
-    if (otherAgg.getAggregate() == null) {
-      return;
-    }
-    if (sumOfSquares == 0d) {
-      sumOfSquares = otherAgg.getAggregate();
-      return;
-    }
-    sumOfSquares += otherAgg.getAggregate();
+    sumOfSquares += otherAgg.sumOfSquares;
   }
 
   @Nullable
@@ -74,4 +71,14 @@ public class SumOfSquares implements AggregateFunction<Double, SumOfSquares> {
   public Schema getOutputSchema() {
     return outputSchema;
   }
+
+  @Override
+  public void writeState(DataOutput out) throws IOException {
+    out.writeDouble(sumOfSquares);
+  }
+
+  @Override
+  public void readState(DataInput in) throws IOException {
+    sumOfSquares = in.readDouble();
+  }
 }
@@ -0,0 +1,234 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.aggregator.function;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A merging t-digest for estimating quantiles. Values are buffered and periodically merged into a sorted list of
+ * centroids whose sizes are bounded by the arcsine scale function, which keeps the tails accurate. The number of
+ * centroids is bounded by the compression, so the state stays a few KB regardless of the number of values.
+ */
+final class TDigest implements Serializable {
+  static final double DEFAULT_COMPRESSION = 100d;
+
+  private final double compression;
+  private double[] means;
+  private double[] weights;
+  private double totalWeight;
+  private double min;
+  private double max;
+  // values added since the last compression, always empty when serialized
+  private transient double[] buffer;
+  private transient int bufferSize;
+
+  TDigest(double compression) {
+    if (compression < 10d) {
+      throw new IllegalArgumentException(String.format("t-digest compression must be at least 10, but is %s.",
+                                                       compression));
+    }
+    this.compression = compression;
+    this.means = new double[0];
+    this.weights = new double[0];
+    this.min = Double.POSITIVE_INFINITY;
+    this.max = Double.NEGATIVE_INFINITY;
+  }
+
+  void add(double value) {
+    if (Double.isNaN(value)) {
+      return;
+    }
+    if (buffer == null) {
+      buffer = new double[(int) (5 * compression)];
+    }
+    buffer[bufferSize++] = value;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+    if (bufferSize == buffer.length) {
+      compress();
+    }
+  }
+
+  /**
+   * Merges the other digest into this one.
+   */
+  void merge(TDigest other) {
+    other.compress();
+    compress();
+    if (other.means.length == 0) {
+      return;
+    }
+    merge(other.means, other.weights, other.means.length);
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+  }
+
+  /**
+   * @param quantile the quantile to estimate, between 0 and 1
+   * @return the estimated value at the quantile, or null if no values were added
+   */
+  Double quantile(double quantile) {
+    compress();
+    int size = means.length;
+    if (size == 0) {
+      return null;
+    }
+    if (size == 1) {
+      return means[0];
+    }
+    double index = quantile * totalWeight;
+    // between the minimum and the center of the first centroid
+    if (index < weights[0] / 2) {
+      return min + (means[0] - min) * index / (weights[0] / 2);
+    }
+    double center = weights[0] / 2;
+    for (int i = 0; i < size - 1; i++) {
+      double nextCenter = center + (weights[i] + weights[i + 1]) / 2;
+      if (index <= nextCenter) {
+        return means[i] + (means[i + 1] - means[i]) * (index - center) / (nextCenter - center);
+      }
+      center = nextCenter;
+    }
+    // between the center of the last centroid and the maximum
+    double lastHalf = weights[size - 1] / 2;
+    return means[size - 1] + (max - means[size - 1]) * Math.min(1d, (index - center) / lastHalf);
+  }
+
+  /**
+   * Writes the centroids. The compression is not written, since the reader creates the digest with the same
+   * compression.
+   */
+  void write(DataOutput out) throws IOException {
+    compress();
+    out.writeInt(means.length);
+    if (means.length == 0) {
+      return;
+    }
+    out.writeDouble(totalWeight);
+    out.writeDouble(min);
+    out.writeDouble(max);
+    for (int i = 0; i < means.length; i++) {
+      out.writeDouble(means[i]);
+      out.writeDouble(weights[i]);
+    }
+  }
+
+  /**
+   * Reads centroids written by {@link #write(DataOutput)}, replacing the current state.
+   */
+  void read(DataInput in) throws IOException {
+    int size = in.readInt();
+    bufferSize = 0;
+    means = new double[size];
+    weights = new double[size];
+    if (size == 0) {
+      totalWeight = 0d;
+      min = Double.POSITIVE_INFINITY;
+      max = Double.NEGATIVE_INFINITY;
+      return;
+    }
+    totalWeight = in.readDouble();
+    min = in.readDouble();
+    max = in.readDouble();
+    for (int i = 0; i < size; i++) {
+      means[i] = in.readDouble();
+      weights[i] = in.readDouble();
+    }
+  }
+
+  /**
+   * Merges buffered values into the centroids.
+   */
+  private void compress() {
+    if (bufferSize == 0) {
+      return;
+    }
+    Arrays.sort(buffer, 0, bufferSize);
+    double[] bufferWeights = new double[bufferSize];
+    Arrays.fill(bufferWeights, 1d);
+    double[] values = buffer;
+    int numValues = bufferSize;
+    bufferSize = 0;
+    merge(values, bufferWeights, numValues);
+  }
+
+  /**
+   * Merges the given sorted centroids with the current centroids.
+   */
+  private void merge(double[] otherMeans, double[] otherWeights, int otherSize) {
+    int size = means.length + otherSize;
+    double[] mergedMeans = new double[size];
+    double[] mergedWeights = new double[size];
+    int i = 0;
+    int j = 0;
+    for (int k = 0; k < size; k++) {
+      if (j >= otherSize || (i < means.length && means[i] <= otherMeans[j])) {
+        mergedMeans[k] = means[i];
+        mergedWeights[k] = weights[i++];
+      } else {
+        mergedMeans[k] = otherMeans[j];
+        mergedWeights[k] = otherWeights[j++];
+      }
+    }
+
+    double total = totalWeight;
+    for (int k = 0; k < otherSize; k++) {
+      total += otherWeights[k];
+    }
+
+    // merge adjacent centroids as long as the merged centroid spans at most one unit of the scale function
+    int count = 0;
+    double weightSoFar = 0d;
+    double kLeft = scale(0d);
+    double currentMean = mergedMeans[0];
+    double currentWeight = mergedWeights[0];
+    for (int k = 1; k < size; k++) {
+      double proposedWeight = currentWeight + mergedWeights[k];
+      if (scale((weightSoFar + proposedWeight) / total) - kLeft <= 1d) {
+        currentMean += (mergedMeans[k] - currentMean) * mergedWeights[k] / proposedWeight;
+        currentWeight = proposedWeight;
+      } else {
+        mergedMeans[count] = currentMean;
+        mergedWeights[count++] = currentWeight;
+        weightSoFar += currentWeight;
+        kLeft = scale(weightSoFar / total);
+        currentMean = mergedMeans[k];
+        currentWeight = mergedWeights[k];
+      }
+    }
+    mergedMeans[count] = currentMean;
+    mergedWeights[count++] = currentWeight;
+
+    means = Arrays.copyOf(mergedMeans, count);
+    weights = Arrays.copyOf(mergedWeights, count);
+    totalWeight = total;
+  }
+
+  private double scale(double quantile) {
+    return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1d, quantile) - 1);
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    compress();
+    out.defaultWriteObject();
+  }
+}
@@ -20,6 +20,9 @@ import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.batch.aggregator.AggregationUtils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import javax.annotation.Nullable;
 
 /**
@@ -29,14 +32,10 @@ import javax.annotation.Nullable;
  * Uses https://www.tandfonline.com/doi/abs/10.1080/00031305.2014.966589 as the way to combine variance from two
  * splits.
  */
-public class Variance implements AggregateFunction<Double, Variance> {
-  private static final String AGG_KEY = "variance";
-  private static final String AGG_SQUARE_MEAN_KEY = "squareMean";
-  private static final String AGG_COUNT_KEY = "count";
-  private static final String AGG_MEAN_KEY = "mean";
+public class Variance implements AggregateFunction<Double, Variance>, BinaryStateFunction {
   private final String fieldName;
   private final Schema outputSchema;
-  private Double variance;
+  // sum of squared differences from the mean
   private double squareMean;
   private double mean;
   private long count;
@@ -50,7 +49,6 @@ public class Variance implements AggregateFunction<Double, Variance> {
 
   @Override
   public void initialize() {
-    this.variance = null;
     this.squareMean = 0d;
     this.mean = 0d;
     this.count = 0L;
@@ -58,61 +56,66 @@ public class Variance implements AggregateFunction<Double, Variance> {
 
   @Override
   public void mergeValue(StructuredRecord record) {
-    Object val = record.get(fieldName);
+    Number val = record.get(fieldName);
     if (val == null) {
       return;
     }
 
-    Number value = (Number) val;
+    double value = val.doubleValue();
     count++;
-
-    double delta = value.doubleValue() - mean;
+    double delta = value - mean;
     mean += delta / count;
-    double delta2 = value.doubleValue() - mean;
-    squareMean += delta * delta2;
-    // if we divide by count, the result will be population variance,
-    // count - 1, we will get sample variance
-    if (count == 1L) {
-      variance = 0d;
-      return;
-    }
-    variance = squareMean / (count - 1);
+    squareMean += delta * (value - mean);
   }
 
   @Override
   public void mergeAggregates(Variance otherAgg) {
-    if (otherAgg.variance == null) {
+    if (otherAgg.count == 0L) {
       return;
     }
-    if (variance == null) {
-      variance = otherAgg.variance;
+    if (count == 0L) {
       count = otherAgg.count;
       mean = otherAgg.mean;
+      squareMean = otherAgg.squareMean;
       return;
     }
 
     long c1 = count;
     long c2 = otherAgg.count;
-    double m1 = mean;
-    double m2 = otherAgg.mean;
+    double delta = otherAgg.mean - mean;
 
     count = c1 + c2;
-    variance = 1d / (count - 1d) * ((c1 - 1d) * variance + (c2 - 1d) * otherAgg.variance +
-                                      c1 * c2 * Math.pow(m1 - m2, 2d) / count);
-    mean = (c1 * m1 + c2 * m2) / count;
+    squareMean += otherAgg.squareMean + delta * delta * c1 * c2 / count;
+    mean += delta * c2 / count;
   }
 
   @Nullable
   @Override
   public Double getAggregate() {
-    if (variance != null) {
-      return variance / count * (count - 1);
+    // this only happens when every value is null
+    if (count == 0L) {
+      return null;
     }
-    return variance;
+    // dividing by count gives the population variance, dividing by count - 1 would give the sample variance
+    return squareMean / count;
   }
 
   @Override
   public Schema getOutputSchema() {
     return outputSchema;
   }
+
+  @Override
+  public void writeState(DataOutput out) throws IOException {
+    out.writeLong(count);
+    out.writeDouble(mean);
+    out.writeDouble(squareMean);
+  }
+
+  @Override
+  public void readState(DataInput in) throws IOException {
+    count = in.readLong();
+    mean = in.readDouble();
+    squareMean = in.readDouble();
+  }
 }
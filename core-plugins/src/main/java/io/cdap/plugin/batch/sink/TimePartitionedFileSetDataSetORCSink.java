@@ -79,6 +79,18 @@ public class TimePartitionedFileSetDataSetORCSink extends
     @Description("Whether to create inline indexes")
     private Boolean createIndex;
 
+    @Nullable
+    @Description("Comma separated list of the columns to create bloom filters for")
+    private String bloomFilterColumns;
+
+    @Nullable
+    @Description("False positive probability of the bloom filters (must be > 0 and < 1)")
+    private Double bloomFilterFpp;
+
+    @Nullable
+    @Description("Maximum ratio of distinct values to rows for a string column to be dictionary encoded")
+    private Double dictionaryKeyThreshold;
+
     public TPFSOrcSinkConfig(String name, @Nullable String basePath, @Nullable String pathFormat,
                              @Nullable String timeZone, @Nullable String compressionCodec,
                              @Nullable Long compressionChunkSize, @Nullable Long stripeSize, @Nullable Long indexStride,
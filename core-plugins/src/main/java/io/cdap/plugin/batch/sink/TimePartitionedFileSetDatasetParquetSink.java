@@ -63,6 +63,22 @@ public class TimePartitionedFileSetDatasetParquetSink extends
     @Description("Used to specify the compression codec to be used for the final dataset.")
     private String compressionCodec;
 
+    @Nullable
+    @Description("Number of bytes in each row group")
+    private Long blockSize;
+
+    @Nullable
+    @Description("Number of bytes in each page")
+    private Integer pageSize;
+
+    @Nullable
+    @Description("Maximum number of bytes in the dictionary of a column chunk")
+    private Integer dictionaryPageSize;
+
+    @Nullable
+    @Description("Whether to dictionary encode columns with few distinct values")
+    private Boolean enableDictionary;
+
     public TPFSParquetSinkConfig(String name, @Nullable String basePath, @Nullable String pathFormat,
                                  @Nullable String timeZone, @Nullable String compressionCodec) {
       super(name, basePath, pathFormat, timeZone);
@@ -64,6 +64,13 @@ public class FileSourceConfig extends AbstractFileSourceConfig {
   @Nullable
   @Description("The maximum number of rows that will get investigated for automatic data type detection.")
   private Long sampleSize;
+
+  @Macro
+  @Nullable
+  @Description("How rows are picked for automatic data type detection. 'sequential' reads the first rows of the " +
+    "first file. 'sampled' reads rows from up to 16 files, and from several offsets within each file, in parallel, " +
+    "and also detects decimals and timestamps. The default value is 'sequential'.")
+  private String schemaDetectionMode;
   
   FileSourceConfig() {
     super();
@@ -41,7 +41,6 @@ import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
 import io.cdap.cdap.etl.api.lineage.field.FieldOperation;
 import io.cdap.cdap.etl.api.lineage.field.FieldTransformOperation;
-import io.cdap.cdap.format.StructuredRecordStringConverter;
 import io.cdap.plugin.ScriptConstants;
 import io.cdap.plugin.common.SchemaValidator;
 import io.cdap.plugin.common.StructuredRecordSerializer;
@@ -51,10 +50,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -76,9 +80,17 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
     .create();
   private static final Logger LOG = LoggerFactory.getLogger(JavaScriptTransform.class);
   private static final String FUNCTION_NAME = "dont_name_your_function_this";
-  private static final String VARIABLE_NAME = "dont_name_your_variable_this";
-  private static final String EMITTER_NAME = "dont_name_your_variable2_this";
   private static final String CONTEXT_NAME = "dont_name_your_context_this";
+  private static final String ENCODERS_NAME = "dont_name_your_encoders_this";
+  private static final String ENCODER_PREFIX = "dont_name_your_encoder_this_";
+  private static final String ENCODER_DEFINITION =
+    "function " + ENCODER_PREFIX + "null(v) { return null; }\n" +
+    "function " + ENCODER_PREFIX + "number(v) { return v == null ? null : Number(v); }\n" +
+    "function " + ENCODER_PREFIX + "boolean(v) { return v == null ? null : v == true; }\n" +
+    "function " + ENCODER_PREFIX + "string(v) { return v == null ? null : String(v); }\n" +
+    "function " + ENCODER_PREFIX + "bytes(v) { if (v == null) { return null; } " +
+    "var bytes = " + ENCODERS_NAME + ".bytes(v); var result = []; " +
+    "for (var i = 0; i < bytes.length; i++) { result.push(bytes[i]); } return result; }\n";
   private ScriptEngine engine;
   private Invocable invocable;
   private Schema schema;
@@ -89,6 +101,25 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
   @Nullable
   private Method somValuesMethod;
 
+  // functions that pass records to the script as javascript objects, evaluated once for an input schema
+  private final Map<Schema, String> transformFunctions = new HashMap<>();
+  private Schema transformSchema;
+  private String transformFunction;
+  private ScriptEncoders encoders;
+
+  // decoders of the objects emitted by the script, created once for a schema
+  private Schema decoderSchema;
+  private Decoder decoder;
+  private Schema errDecoderSchema;
+  private Decoder errDecoder;
+
+  /**
+   * Converts an object returned by the script to the java object for a schema.
+   */
+  private interface Decoder {
+    Object decode(Object object);
+  }
+
   /**
    * Configuration for the script transform.
    */
@@ -201,10 +232,10 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) {
     try {
-      engine.eval(String.format("var %s = %s;", VARIABLE_NAME, StructuredRecordStringConverter.toJsonString(input)));
+      // the record is converted to a javascript object by a function compiled for its schema,
+      // rather than written as json and parsed again for every record
       Emitter<Map> jsEmitter = new JSEmitter(emitter, schema == null ? input.getSchema() : schema);
-      engine.put(EMITTER_NAME, jsEmitter);
-      invocable.invokeFunction(FUNCTION_NAME);
+      invocable.invokeFunction(getTransformFunction(input.getSchema()), input, jsEmitter);
     } catch (Exception e) {
       throw new IllegalArgumentException("Could not transform input: " + e.getMessage(), e);
     }
@@ -216,16 +247,16 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
   public final class JSEmitter implements Emitter<Map> {
 
     private final Emitter<StructuredRecord> emitter;
-    private final Schema schema;
+    private final Decoder decoder;
 
     public JSEmitter(Emitter<StructuredRecord> emitter, Schema schema) {
       this.emitter = emitter;
-      this.schema = schema;
+      this.decoder = getDecoder(schema);
     }
 
     @Override
     public void emit(Map value) {
-      emitter.emit(decodeRecord(value, schema));
+      emitter.emit((StructuredRecord) decoder.decode(value));
     }
 
     @Override
@@ -236,15 +267,235 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
     @Override
     public void emitError(InvalidEntry<Map> invalidEntry) {
       emitter.emitError(new InvalidEntry<>(invalidEntry.getErrorCode(), invalidEntry.getErrorMsg(),
-                                           decodeRecord(invalidEntry.getInvalidRecord(), errSchema)));
+                                           decodeError(invalidEntry.getInvalidRecord())));
     }
 
     public void emitError(Map invalidEntry) {
-      emitter.emitError(
-        getErrorObject(invalidEntry, decodeRecord((Map) invalidEntry.get("invalidRecord"), errSchema)));
+      emitter.emitError(getErrorObject(invalidEntry, decodeError((Map) invalidEntry.get("invalidRecord"))));
+    }
+  }
+
+  private String getTransformFunction(Schema inputSchema) throws ScriptException {
+    // records of a stage almost always share a schema object, so the map is only checked when it changes
+    if (inputSchema != transformSchema) {
+      String function = transformFunctions.get(inputSchema);
+      if (function == null) {
+        function = FUNCTION_NAME + transformFunctions.size();
+        engine.eval(new EncoderScript(function).generate(inputSchema));
+        transformFunctions.put(inputSchema, function);
+      }
+      transformSchema = inputSchema;
+      transformFunction = function;
+    }
+    return transformFunction;
+  }
+
+  /**
+   * Generates the functions that convert a record of a schema to a javascript object, the same object as parsing the
+   * json of the record gives, and the function that passes it to the transform of the script. The conversion for
+   * each type is generated once, so that converting a record only walks the record.
+   */
+  private final class EncoderScript {
+    private final String function;
+    private final StringBuilder script = new StringBuilder();
+    // records are encoded by name, so that a record can contain itself
+    private final Map<String, String> recordEncoders = new HashMap<>();
+    private int numEncoders;
+
+    private EncoderScript(String function) {
+      this.function = function;
+    }
+
+    private String generate(Schema inputSchema) {
+      String encoder = getEncoder(inputSchema);
+      script.append(String.format("function %s(record, emitter) { return transform(%s(record), emitter, %s); }\n",
+                                  function, encoder, CONTEXT_NAME));
+      return script.toString();
+    }
+
+    /**
+     * Returns the name of the function that encodes a value of the schema, generating it if needed.
+     * Every encoder returns null for a null value.
+     */
+    private String getEncoder(Schema schema) {
+      switch (schema.getType()) {
+        case NULL:
+          return ENCODER_PREFIX + "null";
+        case INT:
+        case LONG:
+        case FLOAT:
+        case DOUBLE:
+          // longs and floats are java objects in the script unless they are converted
+          return ENCODER_PREFIX + "number";
+        case BOOLEAN:
+          return ENCODER_PREFIX + "boolean";
+        case STRING:
+        case ENUM:
+          return ENCODER_PREFIX + "string";
+        case BYTES:
+          return ENCODER_PREFIX + "bytes";
+        case ARRAY:
+          String componentEncoder = getEncoder(schema.getComponentSchema());
+          return define(String.format(
+            "var list = %s.list(v); var result = []; " +
+              "for (var i = 0; i < list.size(); i++) { result.push(%s(list.get(i))); } return result;",
+            ENCODERS_NAME, componentEncoder));
+        case MAP:
+          String valueEncoder = getEncoder(schema.getMapSchema().getValue());
+          return define(String.format(
+            "var result = {}; var it = v.entrySet().iterator(); " +
+              "while (it.hasNext()) { var entry = it.next(); result[entry.getKey()] = %s(entry.getValue()); } " +
+              "return result;", valueEncoder));
+        case RECORD:
+          return getRecordEncoder(schema);
+        case UNION:
+          return getUnionEncoder(schema);
+        default:
+          throw new IllegalArgumentException("Unable to encode object with schema " + schema);
+      }
+    }
+
+    private String getRecordEncoder(Schema schema) {
+      String encoder = recordEncoders.get(schema.getRecordName());
+      if (encoder != null) {
+        return encoder;
+      }
+      encoder = function + "_" + numEncoders++;
+      recordEncoders.put(schema.getRecordName(), encoder);
+      List<String> fields = new ArrayList<>();
+      for (Schema.Field field : schema.getFields()) {
+        String name = GSON.toJson(field.getName());
+        fields.add(String.format("%s: %s(v.get(%s))", name, getEncoder(field.getSchema()), name));
+      }
+      script.append(String.format("function %s(v) { if (v == null) { return null; } return { %s }; }\n",
+                                  encoder, String.join(", ", fields)));
+      return encoder;
+    }
+
+    private String getUnionEncoder(Schema schema) {
+      List<Schema> schemas = schema.getUnionSchemas();
+      if (schema.isNullable() && schemas.size() == 2) {
+        // every encoder handles null
+        return getEncoder(schema.getNonNullable());
+      }
+      StringBuilder cases = new StringBuilder();
+      for (int i = 0; i < schemas.size(); i++) {
+        cases.append(String.format("case %d: return %s(v); ", i, getEncoder(schemas.get(i))));
+      }
+      return define(String.format("switch (%s.branch(%d, v)) { %s}", ENCODERS_NAME,
+                                  encoders.addUnion(schemas), cases));
+    }
+
+    private String define(String body) {
+      String encoder = function + "_" + numEncoders++;
+      script.append(String.format("function %s(v) { if (v == null) { return null; } %s }\n", encoder, body));
+      return encoder;
+    }
+  }
+
+  /**
+   * Java conversions used by the encoders of the script.
+   */
+  public static final class ScriptEncoders {
+    private final List<List<Schema>> unions = new ArrayList<>();
+
+    private int addUnion(List<Schema> schemas) {
+      unions.add(schemas);
+      return unions.size() - 1;
+    }
+
+    public List list(Object object) {
+      if (object instanceof List) {
+        return (List) object;
+      }
+      if (object instanceof Collection) {
+        return new ArrayList<>((Collection) object);
+      }
+      if (object instanceof Object[]) {
+        return Arrays.asList((Object[]) object);
+      }
+      if (object.getClass().isArray()) {
+        List<Object> list = new ArrayList<>(Array.getLength(object));
+        for (int i = 0; i < Array.getLength(object); i++) {
+          list.add(Array.get(object, i));
+        }
+        return list;
+      }
+      throw new IllegalArgumentException("Unable to encode " + object.getClass().getName() + " as an array");
+    }
+
+    public byte[] bytes(Object object) {
+      if (object instanceof ByteBuffer) {
+        ByteBuffer buffer = ((ByteBuffer) object).duplicate();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+      }
+      return (byte[]) object;
+    }
+
+    /**
+     * Returns the index of the schema of a union that the object belongs to.
+     */
+    public int branch(int union, Object object) {
+      List<Schema> schemas = unions.get(union);
+      for (int i = 0; i < schemas.size(); i++) {
+        if (matches(schemas.get(i), object)) {
+          return i;
+        }
+      }
+      throw new IllegalArgumentException("Unable to encode " + object.getClass().getName() + " with union schema " +
+                                           schemas);
+    }
+
+    private boolean matches(Schema schema, Object object) {
+      switch (schema.getType()) {
+        case BOOLEAN:
+          return object instanceof Boolean;
+        case INT:
+          return object instanceof Integer;
+        case LONG:
+          return object instanceof Long;
+        case FLOAT:
+          return object instanceof Float;
+        case DOUBLE:
+          return object instanceof Double;
+        case STRING:
+          return object instanceof String;
+        case ENUM:
+          return object instanceof String || object instanceof Enum;
+        case BYTES:
+          return object instanceof byte[] || object instanceof ByteBuffer;
+        case ARRAY:
+          return object instanceof Collection || object.getClass().isArray();
+        case MAP:
+          return object instanceof Map;
+        case RECORD:
+          return object instanceof StructuredRecord &&
+            schema.getRecordName().equals(((StructuredRecord) object).getSchema().getRecordName());
+        default:
+          return false;
+      }
     }
   }
 
+  private Decoder getDecoder(Schema schema) {
+    // records of a stage almost always share a schema object, so the decoder is only created when it changes
+    if (schema != decoderSchema) {
+      decoder = createDecoder(schema);
+      decoderSchema = schema;
+    }
+    return decoder;
+  }
+
+  private StructuredRecord decodeError(Map invalidRecord) {
+    if (errSchema != errDecoderSchema) {
+      errDecoder = createDecoder(errSchema);
+      errDecoderSchema = errSchema;
+    }
+    return (StructuredRecord) errDecoder.decode(invalidRecord);
+  }
+
   private InvalidEntry<StructuredRecord> getErrorObject(Map result, StructuredRecord input) {
     Preconditions.checkState(result.containsKey("errorCode"));
 
@@ -268,46 +519,84 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
     return new InvalidEntry<>(errorCodeInt, (String) result.get("errorMsg"), input);
   }
 
-  private Object decode(Object object, Schema schema) {
-    Schema.Type type = schema.getType();
-
-    switch (type) {
+  /**
+   * Creates the decoder for a schema. The conversion for each type is chosen once, so that decoding an object only
+   * walks the object.
+   */
+  private Decoder createDecoder(Schema schema) {
+    switch (schema.getType()) {
       case NULL:
-      case BOOLEAN:
+        return object -> null;
+      // numbers come back as Numbers
       case INT:
+        return object -> ((Number) object).intValue();
       case LONG:
+        return object -> ((Number) object).longValue();
       case FLOAT:
+        return object -> ((Number) object).floatValue();
       case DOUBLE:
-      case BYTES:
+        // cast so that if it's not really a double it will fail. This is possible for unions,
+        // where we don't know what the actual type of the object should be.
+        return object -> ((Number) object).doubleValue();
+      case BOOLEAN:
+        return object -> (Boolean) object;
       case STRING:
-        return decodeSimpleType(object, schema);
-      case ENUM:
-        break;
+        return object -> (String) object;
+      case BYTES:
+        return this::decodeBytes;
       case ARRAY:
-        return decodeArray(jsObject2List(object), schema.getComponentSchema());
+        Decoder componentDecoder = createDecoder(schema.getComponentSchema());
+        return object -> decodeArray(jsObject2List(object), componentDecoder);
       case MAP:
-        Schema keySchema = schema.getMapSchema().getKey();
-        Schema valSchema = schema.getMapSchema().getValue();
+        Decoder keyDecoder = createDecoder(schema.getMapSchema().getKey());
+        Decoder valDecoder = createDecoder(schema.getMapSchema().getValue());
         // Should be fine to cast since schema tells us what it is.
         //noinspection unchecked
-        return decodeMap((Map<Object, Object>) object, keySchema, valSchema);
+        return object -> decodeMap((Map<Object, Object>) object, keyDecoder, valDecoder);
       case RECORD:
-        return decodeRecord((Map) object, schema);
+        return new RecordDecoder(schema);
       case UNION:
-        return decodeUnion(object, schema.getUnionSchemas());
+        return createUnionDecoder(schema.getUnionSchemas());
+      default:
+        return object -> {
+          throw new RuntimeException("Unable decode object with schema " + schema);
+        };
     }
-
-    throw new RuntimeException("Unable decode object with schema " + schema);
   }
 
-  private StructuredRecord decodeRecord(Map nativeObject, Schema schema) {
-    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-    for (Schema.Field field : schema.getFields()) {
-      String fieldName = field.getName();
-      Object fieldVal = nativeObject.get(fieldName);
-      builder.set(fieldName, decode(fieldVal, field.getSchema()));
+  /**
+   * Decodes a map into a record. The decoders of the fields are created on first use, so that creating the decoder
+   * of a recursive schema terminates.
+   */
+  private final class RecordDecoder implements Decoder {
+    private final Schema schema;
+    private String[] fieldNames;
+    private Decoder[] fieldDecoders;
+
+    private RecordDecoder(Schema schema) {
+      this.schema = schema;
+    }
+
+    @Override
+    public Object decode(Object object) {
+      Map nativeObject = (Map) object;
+      if (fieldDecoders == null) {
+        List<Schema.Field> fields = schema.getFields();
+        String[] names = new String[fields.size()];
+        Decoder[] decoders = new Decoder[fields.size()];
+        for (int i = 0; i < names.length; i++) {
+          names[i] = fields.get(i).getName();
+          decoders[i] = createDecoder(fields.get(i).getSchema());
+        }
+        fieldNames = names;
+        fieldDecoders = decoders;
+      }
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      for (int i = 0; i < fieldNames.length; i++) {
+        builder.set(fieldNames[i], fieldDecoders[i].decode(nativeObject.get(fieldNames[i])));
+      }
+      return builder.build();
     }
-    return builder.build();
   }
 
   private List jsObject2List(Object object) {
@@ -322,64 +611,47 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
     return (List) object;
   }
 
-  @SuppressWarnings("RedundantCast")
-  private Object decodeSimpleType(Object object, Schema schema) {
-    Schema.Type type = schema.getType();
-    switch (type) {
-      case NULL:
-        return null;
-      // numbers come back as Numbers
-      case INT:
-        return ((Number) object).intValue();
-      case LONG:
-        return ((Number) object).longValue();
-      case FLOAT:
-        return ((Number) object).floatValue();
-      case BYTES:
-        List byteArr = jsObject2List(object);
-        byte[] output = new byte[byteArr.size()];
-        for (int i = 0; i < output.length; i++) {
-          // everything is a number
-          output[i] = ((Number) byteArr.get(i)).byteValue();
-        }
-        return output;
-      case DOUBLE:
-        // case so that if it's not really a double it will fail. This is possible for unions,
-        // where we don't know what the actual type of the object should be.
-        return ((Number) object).doubleValue();
-      case BOOLEAN:
-        return (Boolean) object;
-      case STRING:
-        return (String) object;
+  private byte[] decodeBytes(Object object) {
+    List byteArr = jsObject2List(object);
+    byte[] output = new byte[byteArr.size()];
+    for (int i = 0; i < output.length; i++) {
+      // everything is a number
+      output[i] = ((Number) byteArr.get(i)).byteValue();
     }
-    throw new RuntimeException("Unable decode object with schema " + schema);
+    return output;
   }
 
-  private Map<Object, Object> decodeMap(Map<Object, Object> object, Schema keySchema, Schema valSchema) {
+  private Map<Object, Object> decodeMap(Map<Object, Object> object, Decoder keyDecoder, Decoder valDecoder) {
     Map<Object, Object> output = Maps.newHashMap();
     for (Map.Entry<Object, Object> entry : object.entrySet()) {
-      output.put(decode(entry.getKey(), keySchema), decode(entry.getValue(), valSchema));
+      output.put(keyDecoder.decode(entry.getKey()), valDecoder.decode(entry.getValue()));
     }
     return output;
   }
 
-  private List<Object> decodeArray(List nativeArray, Schema componentSchema) {
+  private List<Object> decodeArray(List nativeArray, Decoder componentDecoder) {
     List<Object> arr = Lists.newArrayListWithCapacity(nativeArray.size());
     for (Object arrObj : nativeArray) {
-      arr.add(decode(arrObj, componentSchema));
+      arr.add(componentDecoder.decode(arrObj));
     }
     return arr;
   }
 
-  private Object decodeUnion(Object object, List<Schema> schemas) {
+  private Decoder createUnionDecoder(List<Schema> schemas) {
+    List<Decoder> decoders = new ArrayList<>(schemas.size());
     for (Schema schema : schemas) {
-      try {
-        return decode(object, schema);
-      } catch (Exception e) {
-        // could be ok, just move on and try the next schema
-      }
+      decoders.add(createDecoder(schema));
     }
-    throw new RuntimeException("Unable decode union with schema " + schemas);
+    return object -> {
+      for (Decoder decoder : decoders) {
+        try {
+          return decoder.decode(object);
+        } catch (Exception e) {
+          // could be ok, just move on and try the next schema
+        }
+      }
+      throw new RuntimeException("Unable decode union with schema " + schemas);
+    };
   }
 
   private void init(@Nullable TransformContext context, FailureCollector collector) {
@@ -407,16 +679,17 @@ public class JavaScriptTransform extends Transform<StructuredRecord, StructuredR
 
     Arguments arguments = context == null ? null : context.getArguments();
     engine.put(CONTEXT_NAME, new ScriptContext(LOG, metrics, context, lookupConfig, js, arguments));
+    encoders = new ScriptEncoders();
+    engine.put(ENCODERS_NAME, encoders);
+    transformFunctions.clear();
+    transformSchema = null;
 
     try {
-      // this is pretty ugly, but doing this so that we can pass the 'input' json into the transform function.
-      // that is, we want people to implement
-      // function transform(input) { ... }
-      // rather than function transform() { ... } and have them access a global variable in the function
-
-      String script = String.format("function %s() { return transform(%s, %s, %s); }\n%s",
-                                    FUNCTION_NAME, VARIABLE_NAME, EMITTER_NAME, CONTEXT_NAME, config.script);
-      engine.eval(script);
+      // the functions that pass the input to the transform function are generated for each input schema,
+      // so that people implement
+      // function transform(input, emitter, context) { ... }
+      // rather than convert the record themselves and access a global variable for the context
+      engine.eval(ENCODER_DEFINITION + config.script);
     } catch (ScriptException e) {
       collector.addFailure(String.format("Invalid script: %s.", e.getMessage()), null)
         .withConfigProperty(Config.SCRIPT);
@@ -71,6 +71,7 @@ import io.cdap.plugin.format.delimited.output.DelimitedOutputFormatProvider;
 import io.cdap.plugin.format.delimited.output.TSVOutputFormatProvider;
 import io.cdap.plugin.format.json.input.JsonInputFormatProvider;
 import io.cdap.plugin.format.json.output.JsonOutputFormatProvider;
+import io.cdap.plugin.format.orc.input.OrcInputFormatProvider;
 import io.cdap.plugin.format.orc.output.OrcOutputFormatProvider;
 import io.cdap.plugin.format.parquet.input.ParquetInputFormatProvider;
 import io.cdap.plugin.format.parquet.output.ParquetOutputFormatProvider;
@@ -169,8 +170,9 @@ public class ETLBatchTestBase extends HydratorTestBase {
                       ImmutableSet.of(JsonOutputFormatProvider.PLUGIN_CLASS, JsonInputFormatProvider.PLUGIN_CLASS),
                       JsonOutputFormatProvider.class, JsonInputFormatProvider.class);
     addPluginArtifact(NamespaceId.DEFAULT.artifact("formats-orc", "4.0.0"), DATAPIPELINE_ARTIFACT_ID,
-                      ImmutableSet.of(OrcOutputFormatProvider.PLUGIN_CLASS),
-                      OrcOutputFormatProvider.class, OrcOutputFormat.class, OrcStruct.class,
+                      ImmutableSet.of(OrcOutputFormatProvider.PLUGIN_CLASS, OrcInputFormatProvider.PLUGIN_CLASS),
+                      OrcOutputFormatProvider.class, OrcInputFormatProvider.class, OrcOutputFormat.class,
+                      OrcStruct.class,
                       TypeDescription.class, TimestampColumnVector.class);
     addPluginArtifact(NamespaceId.DEFAULT.artifact("formats-parquet", "4.0.0"), DATAPIPELINE_ARTIFACT_ID,
                       ImmutableSet.of(ParquetOutputFormatProvider.PLUGIN_CLASS,
@@ -0,0 +1,282 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package io.cdap.plugin.batch.aggregator;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.batch.aggregator.function.AggregateFunction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the serialized form of {@link AggregateResult}.
+ */
+public class AggregateResultTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "purchase",
+    Schema.Field.of("user", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("item", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("quantity", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("price", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))));
+  private static final List<GroupByConfig.FunctionInfo> FUNCTIONS = ImmutableList.of(
+    new GroupByConfig.FunctionInfo("total", "quantity", GroupByConfig.Function.SUM),
+    new GroupByConfig.FunctionInfo("maxPrice", "price", GroupByConfig.Function.MAX),
+    new GroupByConfig.FunctionInfo("avgPrice", "price", GroupByConfig.Function.AVG),
+    new GroupByConfig.FunctionInfo("stddevPrice", "price", GroupByConfig.Function.STDDEV),
+    new GroupByConfig.FunctionInfo("numPurchases", "*", GroupByConfig.Function.COUNT),
+    new GroupByConfig.FunctionInfo("numItems", "item", GroupByConfig.Function.APPROXCOUNTDISTINCT,
+                                   null, ImmutableList.of("8")),
+    new GroupByConfig.FunctionInfo("items", "item", GroupByConfig.Function.COLLECTLIST));
+
+  private static AggregateSpec createSpec() {
+    Schema[] fieldSchemas = new Schema[FUNCTIONS.size()];
+    for (int i = 0; i < fieldSchemas.length; i++) {
+      Schema.Field field = SCHEMA.getField(FUNCTIONS.get(i).getField());
+      fieldSchemas[i] = field == null ? null : field.getSchema();
+    }
+    return new AggregateSpec(SCHEMA, FUNCTIONS, fieldSchemas);
+  }
+
+  private static AggregateResult createResult(AggregateSpec spec, int group) {
+    AggregateFunction[] functions = spec.createFunctions();
+    for (AggregateFunction function : functions) {
+      function.initialize();
+    }
+    for (int i = 0; i < 10; i++) {
+      StructuredRecord record = StructuredRecord.builder(SCHEMA)
+        .set("user", "u" + group)
+        .set("item", "i" + (i % 3))
+        .set("quantity", i)
+        .set("price", i % 4 == 0 ? null : group + i * 0.5d)
+        .build();
+      for (AggregateFunction function : functions) {
+        function.mergeValue(record);
+      }
+    }
+    return new AggregateResult(spec, functions);
+  }
+
+  private static byte[] serialize(List<?> objects) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      for (Object object : objects) {
+        oos.writeObject(object);
+      }
+    }
+    return bos.toByteArray();
+  }
+
+  private static List<Object> deserialize(byte[] bytes, int count) throws IOException, ClassNotFoundException {
+    List<Object> objects = new ArrayList<>();
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      for (int i = 0; i < count; i++) {
+        objects.add(ois.readObject());
+      }
+    }
+    return objects;
+  }
+
+  private static byte[] serializeWithKryo(Kryo kryo, List<?> objects) {
+    // like the Spark shuffle, write each object on its own
+    Output output = new Output(4096, -1);
+    for (Object object : objects) {
+      kryo.writeClassAndObject(output, object);
+    }
+    return output.toBytes();
+  }
+
+  private static List<Object> deserializeWithKryo(Kryo kryo, byte[] bytes, int count) {
+    List<Object> objects = new ArrayList<>();
+    Input input = new Input(bytes);
+    for (int i = 0; i < count; i++) {
+      objects.add(kryo.readClassAndObject(input));
+    }
+    return objects;
+  }
+
+  private static List<AggregateResult> createResults(int count) {
+    AggregateSpec spec = createSpec();
+    List<AggregateResult> results = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      results.add(createResult(spec, i));
+    }
+    return results;
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    List<AggregateResult> results = createResults(5);
+    assertRoundTrip(results, deserialize(serialize(results), results.size()));
+  }
+
+  @Test
+  public void testKryoRoundTrip() {
+    List<AggregateResult> results = createResults(5);
+    Kryo kryo = new Kryo();
+    assertRoundTrip(results, deserializeWithKryo(kryo, serializeWithKryo(kryo, results), results.size()));
+
+    // a different Kryo instance, as in another executor, reads the same bytes
+    assertRoundTrip(results, deserializeWithKryo(new Kryo(), serializeWithKryo(kryo, results), results.size()));
+  }
+
+  private static void assertRoundTrip(List<AggregateResult> results, List<Object> deserializedObjects) {
+    List<AggregateResult> deserialized = new ArrayList<>();
+    for (Object object : deserializedObjects) {
+      deserialized.add((AggregateResult) object);
+    }
+    for (int i = 0; i < results.size(); i++) {
+      AggregateFunction[] expected = results.get(i).getFunctions();
+      AggregateFunction[] actual = deserialized.get(i).getFunctions();
+      Assert.assertEquals(SCHEMA, deserialized.get(i).getInputSchema());
+      Assert.assertEquals(expected.length, actual.length);
+      for (int j = 0; j < expected.length; j++) {
+        Assert.assertEquals(expected[j].getAggregate(), actual[j].getAggregate());
+      }
+    }
+
+    // deserialized results can still be merged
+    AggregateFunction[] merged = deserialized.get(0).getFunctions();
+    AggregateFunction[] other = deserialized.get(1).getFunctions();
+    for (int i = 0; i < merged.length; i++) {
+      merged[i].mergeAggregates(other[i]);
+    }
+    Assert.assertEquals(90, merged[0].getAggregate());
+    Assert.assertEquals(20L, merged[4].getAggregate());
+    Assert.assertEquals(3L, merged[5].getAggregate());
+  }
+
+  @Test
+  public void testKryoRecordsWrittenOnTheirOwn() {
+    // like Spark serializing single objects, the output and input are cleared and reused for every record
+    List<AggregateResult> results = createResults(5);
+    Kryo writeKryo = new Kryo();
+    Kryo readKryo = new Kryo();
+    Output output = new Output(4096, -1);
+    Input input = new Input();
+    List<Object> deserialized = new ArrayList<>();
+    for (AggregateResult result : results) {
+      output.clear();
+      writeKryo.writeClassAndObject(output, result);
+      input.setBuffer(output.toBytes());
+      deserialized.add(readKryo.readClassAndObject(input));
+    }
+    assertRoundTrip(results, deserialized);
+  }
+
+  @Test
+  public void testSmallerThanJavaSerialization() throws Exception {
+    List<AggregateResult> results = createResults(100);
+    List<Object> javaSerialized = new ArrayList<>();
+    for (AggregateResult result : results) {
+      javaSerialized.add(result.getInputSchema());
+      javaSerialized.add(result.getFunctions());
+    }
+
+    int compactSize = serialize(results).length;
+    int javaSize = serialize(javaSerialized).length;
+    Assert.assertTrue(String.format("Compact size %d is not smaller than Java serialized size %d.",
+                                    compactSize, javaSize), compactSize < javaSize);
+  }
+
+  @Test
+  public void testFasterThanJavaSerialization() throws Exception {
+    List<AggregateResult> results = createResults(1000);
+    List<Object> javaSerialized = new ArrayList<>();
+    for (AggregateResult result : results) {
+      javaSerialized.add(result.getInputSchema());
+      javaSerialized.add(result.getFunctions());
+    }
+    Kryo kryo = new Kryo();
+
+    // take the best of several runs, the first of which also warm up the code paths
+    long compactNanos = Long.MAX_VALUE;
+    long kryoNanos = Long.MAX_VALUE;
+    long javaNanos = Long.MAX_VALUE;
+    for (int run = 0; run < 5; run++) {
+      long start = System.nanoTime();
+      deserialize(serialize(results), results.size());
+      compactNanos = Math.min(compactNanos, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      deserializeWithKryo(kryo, serializeWithKryo(kryo, results), results.size());
+      kryoNanos = Math.min(kryoNanos, System.nanoTime() - start);
+
+      start = System.nanoTime();
+      deserialize(serialize(javaSerialized), javaSerialized.size());
+      javaNanos = Math.min(javaNanos, System.nanoTime() - start);
+    }
+
+    Assert.assertTrue(String.format("Compact round trip took %dus, which is not faster than the %dus of Java " +
+                                      "serialization.", compactNanos / 1000, javaNanos / 1000),
+                      compactNanos < javaNanos);
+    Assert.assertTrue(String.format("Kryo round trip took %dus, which is not faster than the %dus of Java " +
+                                      "serialization.", kryoNanos / 1000, javaNanos / 1000),
+                      kryoNanos < javaNanos);
+  }
+
+  @Test
+  public void testKryoInterleavedStreams() {
+    // like spill files merged by a sorter, two streams of results with different specs are written and read at the
+    // same time with the same serializer
+    AggregateSpec otherSpec = new AggregateSpec(SCHEMA, FUNCTIONS.subList(0, 3), new Schema[] {
+      SCHEMA.getField("quantity").getSchema(), SCHEMA.getField("price").getSchema(),
+      SCHEMA.getField("price").getSchema() });
+    List<AggregateResult> results = createResults(4);
+    List<AggregateResult> otherResults = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      otherResults.add(createResult(otherSpec, i));
+    }
+
+    Kryo kryo = new Kryo();
+    Output output = new Output(4096, -1);
+    Output otherOutput = new Output(4096, -1);
+    for (int i = 0; i < results.size(); i++) {
+      kryo.writeClassAndObject(output, results.get(i));
+      kryo.writeClassAndObject(otherOutput, otherResults.get(i));
+    }
+
+    Input input = new Input(output.toBytes());
+    Input otherInput = new Input(otherOutput.toBytes());
+    List<Object> deserialized = new ArrayList<>();
+    List<Object> otherDeserialized = new ArrayList<>();
+    for (int i = 0; i < results.size(); i++) {
+      // the other stream is read first, so that it is not read in the order it was written
+      otherDeserialized.add(kryo.readClassAndObject(otherInput));
+      deserialized.add(kryo.readClassAndObject(input));
+    }
+    assertRoundTrip(results, deserialized);
+    for (int i = 0; i < otherResults.size(); i++) {
+      AggregateFunction[] expected = otherResults.get(i).getFunctions();
+      AggregateFunction[] actual = ((AggregateResult) otherDeserialized.get(i)).getFunctions();
+      Assert.assertEquals(expected.length, actual.length);
+      for (int j = 0; j < expected.length; j++) {
+        Assert.assertEquals(expected[j].getAggregate(), actual[j].getAggregate());
+      }
+    }
+  }
+}
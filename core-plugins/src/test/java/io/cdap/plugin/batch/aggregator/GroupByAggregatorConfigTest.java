@@ -55,4 +55,31 @@ public class GroupByAggregatorConfigTest {
     );
     Assert.assertEquals(expected, config.getAggregates());
   }
+
+  @Test
+  public void testParsingArguments() {
+    GroupByConfig config = new GroupByConfig("user",
+                                             "users:approxCountDistinct(id), " +
+                                               "preciseUsers:approxCountDistinct(id, 14)," +
+                                               "p90:approxPercentile( price , 0.9 )," +
+                                               "p99:approxPercentile(price, 0.99, 200)," +
+                                               "items:collectList(item, 100)");
+    List<GroupByConfig.FunctionInfo> expected = ImmutableList.of(
+      new GroupByConfig.FunctionInfo("users", "id", GroupByConfig.Function.APPROXCOUNTDISTINCT),
+      new GroupByConfig.FunctionInfo("preciseUsers", "id", GroupByConfig.Function.APPROXCOUNTDISTINCT, null,
+                                     ImmutableList.of("14")),
+      new GroupByConfig.FunctionInfo("p90", "price", GroupByConfig.Function.APPROXPERCENTILE, null,
+                                     ImmutableList.of("0.9")),
+      new GroupByConfig.FunctionInfo("p99", "price", GroupByConfig.Function.APPROXPERCENTILE, null,
+                                     ImmutableList.of("0.99", "200")),
+      new GroupByConfig.FunctionInfo("items", "item", GroupByConfig.Function.COLLECTLIST, null,
+                                     ImmutableList.of("100"))
+    );
+    Assert.assertEquals(expected, config.getAggregates());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManyArguments() {
+    new GroupByConfig("user", "total:sum(price, 2)").getAggregates();
+  }
 }
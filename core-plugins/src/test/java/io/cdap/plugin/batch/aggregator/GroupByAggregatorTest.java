@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.aggregator;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.etl.api.batch.BatchRuntimeContext;
+import io.cdap.cdap.etl.mock.common.MockEmitter;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests that {@link GroupByAggregator} computes the same aggregates when records are merged into partial aggregates
+ * before the shuffle, as an engine that combines map-side does, as when every record is shuffled.
+ */
+public class GroupByAggregatorTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "purchase",
+    Schema.Field.of("user", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("item", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("price", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))));
+  private static final String AGGREGATES = "total:sum(price),purchases:count(*),avgPrice:avg(price)," +
+    "maxPrice:max(price),stddevPrice:stddev(price),items:collectSet(item),numItems:approxCountDistinct(item)";
+
+  @Test
+  public void testPartialAggregatesBeforeShuffle() throws Exception {
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      records.add(StructuredRecord.builder(SCHEMA)
+                    .set("user", "u" + (i % 7))
+                    .set("item", "i" + (i % 11))
+                    .set("price", i % 5 == 0 ? null : i * 0.25d)
+                    .build());
+    }
+
+    // every record is shuffled and aggregated by the reducer
+    GroupByAggregator aggregator = createAggregator();
+    Map<StructuredRecord, AggregateResult> groups = new LinkedHashMap<>();
+    for (StructuredRecord record : records) {
+      StructuredRecord key = groupKey(aggregator, record);
+      AggregateResult result = groups.get(key);
+      groups.put(key, result == null ?
+        aggregator.initializeAggregateValue(record) : aggregator.mergeValues(result, record));
+    }
+    Map<Object, StructuredRecord> expected = finish(aggregator, groups);
+
+    // each of several map tasks merges its records into partial aggregates, which are shuffled with Kryo and merged
+    // by the reducer of another aggregator instance
+    int numTasks = 4;
+    List<Map<StructuredRecord, AggregateResult>> tasks = new ArrayList<>();
+    for (int task = 0; task < numTasks; task++) {
+      GroupByAggregator mapAggregator = createAggregator();
+      Map<StructuredRecord, AggregateResult> partials = new HashMap<>();
+      for (int i = task; i < records.size(); i += numTasks) {
+        StructuredRecord record = records.get(i);
+        StructuredRecord key = groupKey(mapAggregator, record);
+        AggregateResult partial = partials.get(key);
+        partials.put(key, partial == null ?
+          mapAggregator.initializeAggregateValue(record) : mapAggregator.mergeValues(partial, record));
+      }
+      tasks.add(partials);
+    }
+    GroupByAggregator reduceAggregator = createAggregator();
+    Map<StructuredRecord, AggregateResult> merged = new LinkedHashMap<>();
+    for (Map<StructuredRecord, AggregateResult> partials : tasks) {
+      for (Map.Entry<StructuredRecord, AggregateResult> entry : partials.entrySet()) {
+        AggregateResult partial = shuffle(entry.getValue());
+        AggregateResult result = merged.get(entry.getKey());
+        merged.put(entry.getKey(), result == null ? partial : reduceAggregator.mergePartitions(result, partial));
+      }
+    }
+    Map<Object, StructuredRecord> actual = finish(reduceAggregator, merged);
+
+    Assert.assertEquals(7, expected.size());
+    Assert.assertEquals(expected.keySet(), actual.keySet());
+    for (Object user : expected.keySet()) {
+      StructuredRecord expectedRecord = expected.get(user);
+      StructuredRecord actualRecord = actual.get(user);
+      for (String field : new String[] { "total", "avgPrice", "stddevPrice" }) {
+        Assert.assertEquals(field, expectedRecord.<Double>get(field), actualRecord.<Double>get(field), 0.000001d);
+      }
+      for (String field : new String[] { "purchases", "maxPrice", "numItems" }) {
+        Assert.assertEquals(field, expectedRecord.get(field), actualRecord.get(field));
+      }
+      Assert.assertEquals(new HashSet<>(expectedRecord.<List<String>>get("items")),
+                          new HashSet<>(actualRecord.<List<String>>get("items")));
+    }
+  }
+
+  private static GroupByAggregator createAggregator() throws Exception {
+    GroupByAggregator aggregator = new GroupByAggregator(new GroupByConfig("user", AGGREGATES));
+    BatchRuntimeContext context = Mockito.mock(BatchRuntimeContext.class);
+    Mockito.when(context.getInputSchema()).thenReturn(SCHEMA);
+    aggregator.initialize(context);
+    return aggregator;
+  }
+
+  private static StructuredRecord groupKey(GroupByAggregator aggregator, StructuredRecord record) throws Exception {
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    aggregator.groupBy(record, emitter);
+    return emitter.getEmitted().get(0);
+  }
+
+  private static AggregateResult shuffle(AggregateResult result) {
+    Output output = new Output(4096, -1);
+    new Kryo().writeClassAndObject(output, result);
+    return (AggregateResult) new Kryo().readClassAndObject(new Input(output.toBytes()));
+  }
+
+  private static Map<Object, StructuredRecord> finish(GroupByAggregator aggregator,
+                                                      Map<StructuredRecord, AggregateResult> groups) {
+    Map<Object, StructuredRecord> results = new HashMap<>();
+    for (Map.Entry<StructuredRecord, AggregateResult> entry : groups.entrySet()) {
+      MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+      aggregator.finalize(entry.getKey(), entry.getValue(), emitter);
+      StructuredRecord output = emitter.getEmitted().get(0);
+      results.put(output.get("user"), output);
+    }
+    return results;
+  }
+}
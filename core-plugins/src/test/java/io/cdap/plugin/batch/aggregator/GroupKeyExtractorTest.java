@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.aggregator;
+
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for {@link GroupKeyExtractor}.
+ */
+public class GroupKeyExtractorTest {
+  private static final Schema KEY_SCHEMA = Schema.recordOf(
+    "key",
+    Schema.Field.of("user", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("item", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+
+  private static Schema inputSchema() {
+    return Schema.recordOf(
+      "purchase",
+      Schema.Field.of("user", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("item", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+      Schema.Field.of("price", Schema.of(Schema.Type.DOUBLE)));
+  }
+
+  @Test
+  public void testKeySchemaComputedOncePerSchema() {
+    AtomicInteger calls = new AtomicInteger();
+    GroupKeyExtractor extractor = new GroupKeyExtractor(ImmutableList.of("user", "item"), schema -> {
+      calls.incrementAndGet();
+      return KEY_SCHEMA;
+    });
+
+    Schema schema = inputSchema();
+    StructuredRecord key1 = extractor.extract(
+      StructuredRecord.builder(schema).set("user", "u1").set("item", 1).set("price", 1.5d).build());
+    StructuredRecord key2 = extractor.extract(
+      StructuredRecord.builder(schema).set("user", "u2").set("price", 2.5d).build());
+    // an equal schema that is a different instance should not recompute the key schema
+    StructuredRecord key3 = extractor.extract(
+      StructuredRecord.builder(inputSchema()).set("user", "u3").set("item", 3).set("price", 3.5d).build());
+
+    Assert.assertEquals(1, calls.get());
+    Assert.assertEquals(StructuredRecord.builder(KEY_SCHEMA).set("user", "u1").set("item", 1).build(), key1);
+    Assert.assertEquals(StructuredRecord.builder(KEY_SCHEMA).set("user", "u2").build(), key2);
+    Assert.assertEquals(StructuredRecord.builder(KEY_SCHEMA).set("user", "u3").set("item", 3).build(), key3);
+  }
+
+  @Test
+  public void testKeySchemaRecomputedForNewSchema() {
+    AtomicInteger calls = new AtomicInteger();
+    GroupKeyExtractor extractor = new GroupKeyExtractor(ImmutableList.of("user"), schema -> {
+      calls.incrementAndGet();
+      return Schema.recordOf("key", schema.getField("user"));
+    });
+
+    Schema schema1 = Schema.recordOf("r1", Schema.Field.of("user", Schema.of(Schema.Type.STRING)));
+    Schema schema2 = Schema.recordOf("r2", Schema.Field.of("user", Schema.of(Schema.Type.LONG)));
+    extractor.extract(StructuredRecord.builder(schema1).set("user", "u1").build());
+    StructuredRecord key = extractor.extract(StructuredRecord.builder(schema2).set("user", 5L).build());
+
+    Assert.assertEquals(2, calls.get());
+    Assert.assertEquals(5L, (long) key.get("user"));
+  }
+}
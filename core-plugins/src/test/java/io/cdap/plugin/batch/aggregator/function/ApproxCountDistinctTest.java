@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.aggregator.function;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ApproxCountDistinctTest extends AggregateFunctionTest {
+  @Test
+  public void testApproxCountDistinct() {
+    Schema schema = Schema.recordOf("cities",
+                                    Schema.Field.of("city", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    test(new ApproxCountDistinct("city"), schema, "city", 3L,
+         Arrays.asList("Mountain View", "Sunnyvale", null, "Sunnyvale", "RedwoodCity", "RedwoodCity"),
+         new ApproxCountDistinct("city"));
+  }
+
+  @Test
+  public void testLargeCardinality() {
+    Schema schema = Schema.recordOf("users", Schema.Field.of("id", Schema.of(Schema.Type.LONG)));
+    List<Object> vals = new ArrayList<>();
+    for (long i = 0; i < 100000; i++) {
+      // every value appears twice, once in each partition
+      vals.add(i);
+    }
+    vals.addAll(new ArrayList<>(vals));
+    long estimate = (long) getAggregate(new ApproxCountDistinct("id", 14), schema, "id", vals,
+                                        new ApproxCountDistinct("id", 14));
+    Assert.assertEquals(100000d, estimate, 100000d * 0.03);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPrecision() {
+    new ApproxCountDistinct("id", 2);
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.aggregator.function;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class ApproxPercentileTest extends AggregateFunctionTest {
+  @Test
+  public void testSmallInput() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+    test(new ApproxPercentile("x", schema.getField("x").getSchema(), 0d), schema, "x", 1d,
+         Arrays.asList(5, 1, null, 3), new ApproxPercentile("x", schema.getField("x").getSchema(), 0d));
+    test(new ApproxPercentile("x", schema.getField("x").getSchema(), 1d), schema, "x", 5d,
+         Arrays.asList(5, 1, null, 3), new ApproxPercentile("x", schema.getField("x").getSchema(), 1d));
+    test(new ApproxPercentile("x", schema.getField("x").getSchema(), 0.5d), schema, "x", null,
+         Collections.singletonList(null), new ApproxPercentile("x", schema.getField("x").getSchema(), 0.5d));
+  }
+
+  @Test
+  public void testLargeInput() {
+    Schema fieldSchema = Schema.of(Schema.Type.DOUBLE);
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", fieldSchema));
+    List<Object> vals = new ArrayList<>();
+    for (int i = 0; i < 100000; i++) {
+      vals.add((double) i);
+    }
+    Collections.shuffle(vals, new Random(0));
+    for (double percentile : new double[] { 0.01d, 0.5d, 0.9d, 0.99d }) {
+      double estimate = (double) getAggregate(new ApproxPercentile("x", fieldSchema, percentile), schema, "x", vals,
+                                              new ApproxPercentile("x", fieldSchema, percentile));
+      Assert.assertEquals(percentile * 100000, estimate, 100000 * 0.005);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidPercentile() {
+    new ApproxPercentile("x", Schema.of(Schema.Type.INT), 1.5d);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNonNumericField() {
+    new ApproxPercentile("x", Schema.of(Schema.Type.STRING), 0.5d);
+  }
+}
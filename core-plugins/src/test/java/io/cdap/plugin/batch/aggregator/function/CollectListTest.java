@@ -61,4 +61,32 @@ public class CollectListTest extends AggregateFunctionTest {
     test(new CollectList("x", schema), schema, "x",
          ImmutableList.of("a", "b", "c", "d"), ImmutableList.of("a", "b", "c", "d"), new CollectList("x", schema));
   }
+
+  @Test
+  public void testMaxElements() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    test(new CollectList("x", schema, 6), schema, "x",
+         ImmutableList.of(1, 2, 3, 4, 5, 6), ImmutableList.of(1, 2, 3, 4, 5, 6), new CollectList("x", schema, 6));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMoreThanMaxElements() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    // each function is within the maximum, but the merged group is not
+    getAggregate(new CollectList("x", schema, 4), schema, "x", ImmutableList.of(1, 2, 3, 4, 5, 6),
+                 new CollectList("x", schema, 4));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMoreThanMaxElementsInPartialAggregate() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    getAggregate(new CollectList("x", schema, 2), schema, "x", ImmutableList.of(1, 2, 3, 4, 5, 6),
+                 new CollectList("x", schema, 2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidMaxElements() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    new CollectList("x", schema, 0);
+  }
 }
@@ -60,4 +60,19 @@ public class CollectSetTest extends AggregateFunctionTest {
     test(new CollectSet("x", schema), schema, "x", ImmutableSet.of("1", "2"), ImmutableList.of("1", "2", "1"),
          new CollectSet("x", schema));
   }
+
+  @Test
+  public void testMaxElements() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    // duplicates do not count towards the maximum
+    test(new CollectSet("x", schema, 3), schema, "x", ImmutableSet.of(1, 2, 3),
+         ImmutableList.of(1, 1, 2, 3, 2, 3), new CollectSet("x", schema, 3));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMoreThanMaxElements() {
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.of(Schema.Type.INT)));
+    getAggregate(new CollectSet("x", schema, 3), schema, "x", ImmutableList.of(1, 1, 2, 3, 4, 5),
+                 new CollectSet("x", schema, 3));
+  }
 }
@@ -36,4 +36,39 @@ public class ConcatDistinctTest extends AggregateFunctionTest {
          Arrays.asList(null, "2", "3", "4", "5"), new Concat("x", fieldSchema));
   }
 
+  @Test
+  public void testConcatMaxElements() {
+    Schema fieldSchema = Schema.of(Schema.Type.STRING);
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.nullableOf(fieldSchema)));
+    test(new Concat("x", fieldSchema, 5), schema, "x", "1, 2, 3, 4, 5",
+         Arrays.asList("1", "2", "3", "4", "5"), new Concat("x", fieldSchema, 5));
+    // null values do not count towards the maximum
+    test(new Concat("x", fieldSchema, 4), schema, "x", "2, 3, 4, 5",
+         Arrays.asList(null, "2", "3", "4", "5"), new Concat("x", fieldSchema, 4));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testConcatMoreThanMaxElements() {
+    Schema fieldSchema = Schema.of(Schema.Type.STRING);
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.nullableOf(fieldSchema)));
+    getAggregate(new Concat("x", fieldSchema, 3), schema, "x", Arrays.asList("1", "2", "3", "4", "5"),
+                 new Concat("x", fieldSchema, 3));
+  }
+
+  @Test
+  public void testConcatDistinctMaxElements() {
+    Schema fieldSchema = Schema.of(Schema.Type.STRING);
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.nullableOf(fieldSchema)));
+    // repeated values do not count towards the maximum
+    test(new ConcatDistinct("x", fieldSchema, 3), schema, "x", "a, b, c",
+         Arrays.asList("a", "a", "b", "c", "c", "c"), new ConcatDistinct("x", fieldSchema, 3));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testConcatDistinctMoreThanMaxElements() {
+    Schema fieldSchema = Schema.of(Schema.Type.STRING);
+    Schema schema = Schema.recordOf("test", Schema.Field.of("x", Schema.nullableOf(fieldSchema)));
+    getAggregate(new ConcatDistinct("x", fieldSchema, 2), schema, "x", Arrays.asList("a", "b", "c", "d"),
+                 new ConcatDistinct("x", fieldSchema, 2));
+  }
 }
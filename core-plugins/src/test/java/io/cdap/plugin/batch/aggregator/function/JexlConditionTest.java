@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2021 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.aggregator.function;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+public class JexlConditionTest {
+  private static final Schema AUTHOR_SCHEMA = Schema.recordOf(
+    "author",
+    Schema.Field.of("name", Schema.of(Schema.Type.STRING)));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "book",
+    Schema.Field.of("price", Schema.of(Schema.Type.DOUBLE)),
+    Schema.Field.of("author", AUTHOR_SCHEMA));
+
+  private static StructuredRecord book(double price, String author) {
+    return StructuredRecord.builder(SCHEMA)
+      .set("price", price)
+      .set("author", StructuredRecord.builder(AUTHOR_SCHEMA).set("name", author).build())
+      .build();
+  }
+
+  @Test
+  public void testApply() throws Exception {
+    JexlCondition condition = JexlCondition.of("price > 10 && author.name.equals('jan')");
+    Assert.assertTrue(condition.apply(book(20d, "jan")));
+    Assert.assertFalse(condition.apply(book(5d, "jan")));
+    Assert.assertFalse(condition.apply(book(20d, "bob")));
+    // a different but equal schema instance
+    Schema copy = Schema.parseJson(SCHEMA.toString());
+    StructuredRecord record = StructuredRecord.builder(copy)
+      .set("price", 30d)
+      .set("author", StructuredRecord.builder(AUTHOR_SCHEMA).set("name", "jan").build())
+      .build();
+    Assert.assertTrue(condition.apply(record));
+  }
+
+  @Test
+  public void testSharedInstance() throws Exception {
+    JexlCondition condition = JexlCondition.of("price > 10");
+    Assert.assertSame(condition, JexlCondition.of("price > 10"));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(condition);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Assert.assertSame(condition, in.readObject());
+    }
+  }
+
+  @Test
+  public void testSerializedFunction() throws Exception {
+    // conditional functions are shipped to the executors with the aggregator
+    SumIf sumIf = new SumIf("price", Schema.of(Schema.Type.DOUBLE), JexlCondition.of("author.name.equals('jan')"));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(sumIf);
+    }
+    SumIf read;
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      read = (SumIf) in.readObject();
+    }
+    read.initialize();
+    read.mergeValue(book(20d, "jan"));
+    read.mergeValue(book(5d, "bob"));
+    read.mergeValue(book(7d, "jan"));
+    Assert.assertEquals(27d, read.getAggregate().doubleValue(), 0.000001d);
+  }
+
+  @Test
+  public void testKryoCopy() {
+    // kryo creates the instance without a constructor and does not call readResolve, as spark configures it
+    Kryo kryo = new Kryo();
+    kryo.setInstantiatorStrategy(new StdInstantiatorStrategy());
+    Output output = new Output(1024, -1);
+    kryo.writeClassAndObject(output, JexlCondition.of("price > 10 && author.name.equals('jan')"));
+    JexlCondition condition = (JexlCondition) kryo.readClassAndObject(new Input(output.toBytes()));
+
+    Assert.assertTrue(condition.apply(book(20d, "jan")));
+    Assert.assertFalse(condition.apply(book(5d, "jan")));
+    Assert.assertFalse(condition.apply(book(20d, "bob")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMissingField() {
+    JexlCondition.of("quantity > 10").apply(book(20d, "jan"));
+  }
+}
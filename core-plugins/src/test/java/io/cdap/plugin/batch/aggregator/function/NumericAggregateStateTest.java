@@ -0,0 +1,223 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.batch.aggregator.function;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+import javax.annotation.Nullable;
+
+/**
+ * Tests the primitive state of the numeric aggregate functions for each numeric type, with nulls, empty groups, and
+ * partial states that are written, read and merged like the aggregates of different partitions.
+ */
+public class NumericAggregateStateTest {
+  private static final Schema.Type[] TYPES = { Schema.Type.INT, Schema.Type.LONG, Schema.Type.FLOAT, Schema.Type.DOUBLE };
+  private static final List<Integer> VALUES = Arrays.asList(3, null, -7, 12, 0, 5, null, 9, -2);
+
+  @Test
+  public void testSumMinMax() throws IOException {
+    for (Schema.Type type : TYPES) {
+      List<Number> values = values(type);
+      Assert.assertEquals(type.name(), convert(type, 20), aggregate(Sum::new, type, values));
+      Assert.assertEquals(type.name(), convert(type, -7), aggregate(Min::new, type, values));
+      Assert.assertEquals(type.name(), convert(type, 12), aggregate(Max::new, type, values));
+    }
+  }
+
+  @Test
+  public void testAvgVarianceStddev() throws IOException {
+    for (Schema.Type type : TYPES) {
+      List<Number> values = values(type);
+      List<Double> doubles = new ArrayList<>();
+      for (Number value : values) {
+        if (value != null) {
+          doubles.add(value.doubleValue());
+        }
+      }
+      double mean = 0d;
+      for (double value : doubles) {
+        mean += value / doubles.size();
+      }
+      double variance = 0d;
+      double sumOfSquares = 0d;
+      double sum = 0d;
+      for (double value : doubles) {
+        variance += Math.pow(value - mean, 2d) / doubles.size();
+        sumOfSquares += Math.pow(value, 2d);
+        sum += value;
+      }
+      assertDouble(type, mean, aggregate(Avg::new, type, values));
+      assertDouble(type, variance, aggregate(Variance::new, type, values));
+      assertDouble(type, Math.sqrt(variance), aggregate(Stddev::new, type, values));
+      assertDouble(type, sumOfSquares, aggregate(SumOfSquares::new, type, values));
+      assertDouble(type, sumOfSquares - Math.pow(sum, 2d) / doubles.size(),
+                   aggregate(CorrectedSumOfSquares::new, type, values));
+    }
+  }
+
+  @Test
+  public void testEmptyAndNullGroups() throws IOException {
+    List<Number> nulls = Arrays.asList(null, null);
+    for (Schema.Type type : TYPES) {
+      for (List<Number> values : Arrays.asList(Collections.<Number>emptyList(), nulls)) {
+        Assert.assertNull(aggregate(Sum::new, type, values));
+        Assert.assertNull(aggregate(Min::new, type, values));
+        Assert.assertNull(aggregate(Max::new, type, values));
+        Assert.assertNull(aggregate(Avg::new, type, values));
+        Assert.assertNull(aggregate(Variance::new, type, values));
+        Assert.assertNull(aggregate(Stddev::new, type, values));
+        assertDouble(type, 0d, aggregate(SumOfSquares::new, type, values));
+      }
+
+      // an empty partial state does not change the other one, whichever side it is merged into
+      List<Number> values = values(type);
+      for (int split : new int[] { 0, values.size() }) {
+        Assert.assertEquals(convert(type, 20), aggregate(Sum::new, type, values, split));
+        Assert.assertEquals(convert(type, -7), aggregate(Min::new, type, values, split));
+        Assert.assertEquals(convert(type, 12), aggregate(Max::new, type, values, split));
+        assertDouble(type, aggregate(Avg::new, type, values), aggregate(Avg::new, type, values, split));
+        assertDouble(type, aggregate(Variance::new, type, values), aggregate(Variance::new, type, values, split));
+        assertDouble(type, aggregate(CorrectedSumOfSquares::new, type, values),
+                     aggregate(CorrectedSumOfSquares::new, type, values, split));
+      }
+    }
+  }
+
+  @Test
+  public void testMixedNumberClasses() throws IOException {
+    // values of a field may be boxed as any number class, and are aggregated by the type of the field
+    List<Number> values = Arrays.asList(1, 2L, 3.5f, null, 4.25d);
+    Assert.assertEquals(10.75d, aggregate(Sum::new, Schema.Type.DOUBLE, values));
+    Assert.assertEquals(1d, aggregate(Min::new, Schema.Type.DOUBLE, values));
+    Assert.assertEquals(10.75f, aggregate(Sum::new, Schema.Type.FLOAT, values));
+    assertDouble(Schema.Type.DOUBLE, 10.75d / 4, aggregate(Avg::new, Schema.Type.DOUBLE, values));
+
+    List<Number> integers = Arrays.asList(1, 2L, (short) 3, null, (byte) 4);
+    Assert.assertEquals(10L, aggregate(Sum::new, Schema.Type.LONG, integers));
+    Assert.assertEquals(4L, aggregate(Max::new, Schema.Type.LONG, integers));
+    Assert.assertEquals(10, aggregate(Sum::new, Schema.Type.INT, integers));
+  }
+
+  @Test
+  public void testIntAndFloatArithmetic() throws IOException {
+    // int sums wrap around and float sums are rounded after every addition, the same as with int and float values
+    List<Number> ints = Arrays.asList(Integer.MAX_VALUE, 1, 5);
+    Assert.assertEquals(Integer.MAX_VALUE + 1 + 5, aggregate(Sum::new, Schema.Type.INT, ints));
+    Assert.assertEquals((long) Integer.MAX_VALUE + 6, aggregate(Sum::new, Schema.Type.LONG, ints));
+    List<Number> floats = Arrays.asList(0.1f, 0.2f, 0.3f, 0.4f);
+    float expected = (0.1f + 0.2f) + (0.3f + 0.4f);
+    Assert.assertEquals(expected, aggregate(Sum::new, Schema.Type.FLOAT, floats));
+  }
+
+  @Test
+  public void testCorrectedSumOfSquaresAfterGetAggregate() {
+    Schema fieldSchema = Schema.of(Schema.Type.DOUBLE);
+    Schema schema = Schema.recordOf("record", Schema.Field.of("x", fieldSchema));
+    CorrectedSumOfSquares first = new CorrectedSumOfSquares("x", fieldSchema);
+    CorrectedSumOfSquares second = new CorrectedSumOfSquares("x", fieldSchema);
+    first.initialize();
+    second.initialize();
+    first.mergeValue(StructuredRecord.builder(schema).set("x", 1d).build());
+    first.mergeValue(StructuredRecord.builder(schema).set("x", 3d).build());
+    Assert.assertEquals(2d, first.getAggregate(), 0.000001d);
+
+    // the result is computed again once more values are aggregated
+    first.mergeValue(StructuredRecord.builder(schema).set("x", 5d).build());
+    Assert.assertEquals(8d, first.getAggregate(), 0.000001d);
+    second.mergeValue(StructuredRecord.builder(schema).set("x", 7d).build());
+    first.mergeAggregates(second);
+    Assert.assertEquals(20d, first.getAggregate(), 0.000001d);
+  }
+
+  private static List<Number> values(Schema.Type type) {
+    List<Number> values = new ArrayList<>();
+    for (Integer value : VALUES) {
+      values.add(value == null ? null : convert(type, value));
+    }
+    return values;
+  }
+
+  private static Number convert(Schema.Type type, int value) {
+    switch (type) {
+      case INT:
+        return value;
+      case LONG:
+        return (long) value;
+      case FLOAT:
+        return (float) value;
+      default:
+        return (double) value;
+    }
+  }
+
+  private static void assertDouble(Schema.Type type, @Nullable Object expected, @Nullable Object actual) {
+    Assert.assertNotNull(type.name(), expected);
+    Assert.assertNotNull(type.name(), actual);
+    Assert.assertEquals(type.name(), (double) expected, (double) actual, 0.000001d);
+  }
+
+  @Nullable
+  private static Object aggregate(BiFunction<String, Schema, AggregateFunction> factory, Schema.Type type,
+                                  List<Number> values) throws IOException {
+    return aggregate(factory, type, values, values.size() / 2);
+  }
+
+  /**
+   * Aggregates the values before the split and after the split separately, then writes and reads the state of the
+   * second partial aggregate and merges it into the first.
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  private static Object aggregate(BiFunction<String, Schema, AggregateFunction> factory, Schema.Type type,
+                                  List<Number> values, int split) throws IOException {
+    Schema fieldSchema = Schema.nullableOf(Schema.of(type));
+    Schema schema = Schema.recordOf("record", Schema.Field.of("x", fieldSchema));
+    AggregateFunction first = factory.apply("x", fieldSchema);
+    AggregateFunction second = factory.apply("x", fieldSchema);
+    first.initialize();
+    second.initialize();
+    for (int i = 0; i < values.size(); i++) {
+      StructuredRecord record = StructuredRecord.builder(schema).set("x", values.get(i)).build();
+      (i < split ? first : second).mergeValue(record);
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      ((BinaryStateFunction) second).writeState(out);
+    }
+    AggregateFunction read = factory.apply("x", fieldSchema);
+    read.initialize();
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      ((BinaryStateFunction) read).readState(in);
+    }
+    first.mergeAggregates(read);
+    return first.getAggregate();
+  }
+}
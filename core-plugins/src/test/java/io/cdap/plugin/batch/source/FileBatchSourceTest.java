@@ -620,6 +620,42 @@ public class FileBatchSourceTest extends ETLBatchTestBase {
     Assert.assertEquals(expected, output);
   }
 
+  @Test
+  public void testReadMultilineJson() throws Exception {
+    File fileText = new File(temporaryFolder.newFolder(), "test.json");
+    String outputDatasetName = UUID.randomUUID().toString();
+
+    Schema schema = Schema.recordOf("user",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+                                    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+    String appName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp(
+      appName, outputDatasetName, ImmutableMap.<String, String>builder()
+        .put(Constants.Reference.REFERENCE_NAME, appName + "TestFile")
+        .put(Properties.File.PATH, fileText.getAbsolutePath())
+        .put(Properties.File.FORMAT, FileFormat.JSON.name().toLowerCase())
+        .put(Properties.File.SCHEMA, schema.toString())
+        .put("pathField", "file")
+        .put("enableMultilineSupport", "true")
+        .build());
+
+    FileUtils.writeStringToFile(fileText, "[\n  {\n    \"id\": 0,\n    \"name\": \"Sam {\\\"x\\\"}\",\n" +
+      "    \"extra\": {\"nested\": [1, 2]}\n  },\n  {\n    \"id\": 1\n  }\n]\n{\"id\": 2, \"name\": null}\n");
+
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    String file = fileText.toURI().toString();
+    Set<StructuredRecord> expected = ImmutableSet.of(
+      StructuredRecord.builder(schema).set("id", 0L).set("name", "Sam {\"x\"}").set("file", file).build(),
+      StructuredRecord.builder(schema).set("id", 1L).set("file", file).build(),
+      StructuredRecord.builder(schema).set("id", 2L).set("file", file).build());
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    Assert.assertEquals(expected, new HashSet<>(MockSink.readOutput(outputManager)));
+  }
+
   @Test
   public void testReadCSV() throws Exception {
     testReadDelimitedText(FileFormat.CSV.name(), ",", false);
@@ -681,6 +717,45 @@ public class FileBatchSourceTest extends ETLBatchTestBase {
     Assert.assertEquals(expected, output);
   }
 
+  @Test
+  public void testReadRequiredFields() throws Exception {
+    File fileText = new File(temporaryFolder.newFolder(), "test.csv");
+    String outputDatasetName = UUID.randomUUID().toString();
+
+    Schema schema = Schema.recordOf("user",
+      Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+      Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Schema outputSchema = Schema.recordOf("user",
+      Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+      Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+      Schema.Field.of("file", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+    String appName = UUID.randomUUID().toString();
+    ApplicationManager appManager = createSourceAndDeployApp(
+      appName, outputDatasetName, ImmutableMap.<String, String>builder()
+        .put(Constants.Reference.REFERENCE_NAME, appName + "TestFile")
+        .put(Properties.File.PATH, fileText.getAbsolutePath())
+        .put(Properties.File.FORMAT, FileFormat.CSV.name().toLowerCase())
+        .put(Properties.File.SCHEMA, schema.toString())
+        .put("pathField", "file")
+        .put("requiredFields", "id, score")
+        .build());
+
+    FileUtils.writeStringToFile(fileText, "0,sam,1.5\n1,not a double,\n");
+
+    appManager.getWorkflowManager(SmartWorkflow.NAME)
+      .startAndWaitForRun(ProgramRunStatus.COMPLETED, 5, TimeUnit.MINUTES);
+
+    Set<StructuredRecord> expected = ImmutableSet.of(
+      StructuredRecord.builder(outputSchema).set("id", 0L).set("score", 1.5d)
+        .set("file", fileText.toURI().toString()).build(),
+      StructuredRecord.builder(outputSchema).set("id", 1L).set("file", fileText.toURI().toString()).build());
+    DataSetManager<Table> outputManager = getDataset(outputDatasetName);
+    Assert.assertEquals(expected, new HashSet<>(MockSink.readOutput(outputManager)));
+  }
+
   @Test
   public void testTextFormatWithoutOffset() throws Exception {
     File fileText = new File(temporaryFolder.newFolder(), "test.txt");
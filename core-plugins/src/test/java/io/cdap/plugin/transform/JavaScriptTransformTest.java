@@ -404,4 +404,134 @@ public class JavaScriptTransformTest {
     Assert.assertEquals(1, mockContext.getMockMetrics().getCount("script.transform.count"));
     Assert.assertEquals(1, mockContext.getMockMetrics().getPipelineCount("transform.1.script.transform.count"));
   }
+
+  @Test
+  public void testInputIsScriptObject() throws Exception {
+    Schema outputSchema = Schema.recordOf(
+      "output",
+      Schema.Field.of("numArguments", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("numFields", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("types", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("bytes", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("json", Schema.of(Schema.Type.STRING)));
+    JavaScriptTransform.Config config = new JavaScriptTransform.Config(
+      "function transform(x, emitter, context) {\n" +
+        "  var types = [typeof x.booleanField, typeof x.intField, typeof x.longField, typeof x.floatField,\n" +
+        "    typeof x.stringField, x.nullableField === null ? 'null' : typeof x.nullableField,\n" +
+        "    Array.isArray(x.bytesField), Array.isArray(x.arrayField), typeof x.mapField, typeof x.unionField];\n" +
+        "  emitter.emit({ 'numArguments': arguments.length, 'numFields': Object.keys(x).length,\n" +
+        "    'types': types.join(','), 'bytes': x.bytesField.join(','),\n" +
+        "    'json': JSON.stringify({ 'map': x.mapField, 'array': x.arrayField }) });\n" +
+        "}",
+      outputSchema.toString(), null);
+    Transform<StructuredRecord, StructuredRecord> transform = new JavaScriptTransform(config);
+    transform.initialize(new MockTransformContext());
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(RECORD1, emitter);
+    transform.transform(RECORD2, emitter);
+    StructuredRecord output1 = emitter.getEmitted().get(0);
+    StructuredRecord output2 = emitter.getEmitted().get(1);
+
+    // the transform function gets the record as a javascript object, the emitter and the context
+    Assert.assertEquals(3, output1.<Integer>get("numArguments").intValue());
+    Assert.assertEquals(11, output1.<Integer>get("numFields").intValue());
+    Assert.assertEquals("boolean,number,number,number,string,string,true,true,object,string",
+                        output1.get("types"));
+    Assert.assertEquals("102,111,111", output1.get("bytes"));
+    Assert.assertEquals("{\"map\":{\"foo\":13,\"bar\":17},\"array\":[\"foo\",\"bar\",\"baz\"]}",
+                        output1.get("json"));
+    Assert.assertEquals("boolean,number,number,number,string,null,true,true,object,number",
+                        output2.get("types"));
+    Assert.assertEquals("104,101,108,108,111", output2.get("bytes"));
+    Assert.assertEquals("{\"map\":{},\"array\":[]}", output2.get("json"));
+  }
+
+  @Test
+  public void testInputSchemaChanges() throws Exception {
+    JavaScriptTransform.Config config = new JavaScriptTransform.Config(
+      "function transform(x, emitter, context) { x.stringField = x.stringField + '!'; emitter.emit(x); }", null, null);
+    Transform<StructuredRecord, StructuredRecord> transform = new JavaScriptTransform(config);
+    transform.initialize(new MockTransformContext());
+
+    // records of different schemas are passed to the same script, and emitted with their own schema
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    transform.transform(RECORD1, emitter);
+    transform.transform(STRING_RECORD, emitter);
+    transform.transform(RECORD2, emitter);
+    transform.transform(StructuredRecord.builder(STRING_SCHEMA).set("stringField", "yyy").build(), emitter);
+
+    List<StructuredRecord> emitted = emitter.getEmitted();
+    Assert.assertEquals(4, emitted.size());
+    Assert.assertEquals(SCHEMA, emitted.get(0).getSchema());
+    Assert.assertEquals("bar!", emitted.get(0).get("stringField"));
+    Assert.assertEquals(STRING_SCHEMA, emitted.get(1).getSchema());
+    Assert.assertEquals("zzz!", emitted.get(1).get("stringField"));
+    Assert.assertEquals(SCHEMA, emitted.get(2).getSchema());
+    Assert.assertEquals("world!", emitted.get(2).get("stringField"));
+    Assert.assertEquals(3, emitted.get(2).<Integer>get("unionField").intValue());
+    Assert.assertEquals(STRING_SCHEMA, emitted.get(3).getSchema());
+    Assert.assertEquals("yyy!", emitted.get(3).get("stringField"));
+  }
+
+  @Test
+  public void testNestedNullableAndArrayFields() throws Exception {
+    Schema innerSchema = Schema.recordOf(
+      "inner",
+      Schema.Field.of("name", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))));
+    Schema schema = Schema.recordOf(
+      "nested",
+      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("inner", Schema.nullableOf(innerSchema)),
+      Schema.Field.of("inners", Schema.arrayOf(innerSchema)),
+      Schema.Field.of("scores", Schema.nullableOf(Schema.arrayOf(Schema.nullableOf(Schema.of(Schema.Type.INT))))),
+      Schema.Field.of("tags", Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                           Schema.arrayOf(Schema.of(Schema.Type.STRING)))),
+      Schema.Field.of("choice", Schema.unionOf(Schema.of(Schema.Type.STRING), innerSchema,
+                                               Schema.of(Schema.Type.NULL))));
+    List<StructuredRecord> inputs = ImmutableList.of(
+      StructuredRecord.builder(schema)
+        .set("id", 1)
+        .set("inner", StructuredRecord.builder(innerSchema).set("name", "a").set("score", 0.5d).build())
+        .set("inners", ImmutableList.of(StructuredRecord.builder(innerSchema).set("name", "b").build(),
+                                        StructuredRecord.builder(innerSchema).set("name", "c").set("score", 2.5d)
+                                          .build()))
+        .set("scores", Lists.newArrayList(1, null, 3))
+        .set("tags", ImmutableMap.of("x", ImmutableList.of("p", "q"), "y", ImmutableList.of()))
+        .set("choice", StructuredRecord.builder(innerSchema).set("name", "d").set("score", 1d).build())
+        .build(),
+      StructuredRecord.builder(schema)
+        .set("id", 2)
+        .set("inners", ImmutableList.of())
+        .set("tags", ImmutableMap.of())
+        .set("choice", "text")
+        .build(),
+      StructuredRecord.builder(schema)
+        .set("id", 3)
+        .set("inners", ImmutableList.of())
+        .set("scores", Lists.newArrayList((Integer) null))
+        .set("tags", ImmutableMap.of())
+        .build());
+
+    JavaScriptTransform.Config config = new JavaScriptTransform.Config(
+      "function transform(input, emitter, context) { input.id = input.id + 10; emitter.emit(input); }",
+      schema.toString(), null);
+    Transform<StructuredRecord, StructuredRecord> transform = new JavaScriptTransform(config);
+    transform.initialize(new MockTransformContext());
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    for (StructuredRecord input : inputs) {
+      transform.transform(input, emitter);
+    }
+    Assert.assertEquals(inputs.size(), emitter.getEmitted().size());
+    for (int i = 0; i < inputs.size(); i++) {
+      StructuredRecord input = inputs.get(i);
+      StructuredRecord output = emitter.getEmitted().get(i);
+      Assert.assertEquals(input.<Integer>get("id") + 10, output.<Integer>get("id").intValue());
+      for (String field : new String[] { "inner", "inners", "scores", "tags", "choice" }) {
+        Assert.assertEquals(field, input.get(field), output.get(field));
+      }
+    }
+  }
 }
@@ -50,6 +50,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import javax.sql.rowset.serial.SerialBlob;
 
 /**
@@ -72,6 +73,11 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
    */
   private int [] columnTypes;
 
+  // result set that the read schema and column readers were computed for
+  private ResultSet boundResultSet;
+  private Schema readSchema;
+  private ColumnReader[] columnReaders;
+
   /**
    * Used to construct a DBRecord from a StructuredRecord in the ETL Pipeline
    *
@@ -121,6 +127,22 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
    */
   public void readFields(ResultSet resultSet) throws SQLException {
     bytesRead = 0;
+    // the same record is used to read every row of a split, so the schema and the column mapping are only computed
+    // for the first row of each result set
+    if (resultSet != boundResultSet) {
+      bind(resultSet);
+    }
+    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(readSchema);
+    for (ColumnReader columnReader : columnReaders) {
+      setField(resultSet, recordBuilder, columnReader);
+    }
+    record = recordBuilder.build();
+  }
+
+  /**
+   * Computes the record schema and the column to read for each field of the given result set.
+   */
+  private void bind(ResultSet resultSet) throws SQLException {
     ResultSetMetaData metadata = resultSet.getMetaData();
     String outputSchemaString = conf.get(DBUtils.OVERRIDE_SCHEMA, null);
     Schema outputSchema = null;
@@ -149,31 +171,38 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
       newSchema.add(Schema.Field.of(newName, field.getSchema()));
     }
 
+    // map of original name -> column index, JDBC column indices start with 1. Like ResultSet.findColumn, names are
+    // matched ignoring case and the first of several columns with the same name is used.
+    Map<String, Integer> columnIndices = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    for (int i = 1; i <= metadata.getColumnCount(); i++) {
+      columnIndices.putIfAbsent(metadata.getColumnName(i), i);
+    }
+
     List<Schema.Field> schemaFields = DBUtils.getSchemaFields(Schema.recordOf("resultSet", newSchema),
-                                                              conf.get(DBUtils.OVERRIDE_SCHEMA));
-    Schema schema = Schema.recordOf("dbRecord", schemaFields);
-    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(schema);
-    for (int i = 0; i < schemaFields.size(); i++) {
+                                                              outputSchemaString);
+    ColumnReader[] readers = new ColumnReader[schemaFields.size()];
+    for (int i = 0; i < readers.length; i++) {
       Schema.Field field = schemaFields.get(i);
-      int sqlType = metadata.getColumnType(i + 1);
-      int sqlPrecision = metadata.getPrecision(i + 1);
-      int sqlScale = metadata.getScale(i + 1);
-
-      Schema outputFieldSchema = field.getSchema();
-      outputFieldSchema = outputFieldSchema.isNullable() ? outputFieldSchema.getNonNullable() : outputFieldSchema;
-      setField(resultSet, recordBuilder, field, sqlType, sqlPrecision, sqlScale, nameMap.getOrDefault(field.getName(),
-                                                                                                      field.getName()),
-               outputFieldSchema);
+      String originalName = nameMap.getOrDefault(field.getName(), field.getName());
+      Integer columnIndex = columnIndices.get(originalName);
+      if (columnIndex == null) {
+        throw new IllegalArgumentException(
+          String.format("Schema field '%s' does not match any column of the result set. The columns are %s.",
+                        originalName, columnIndices.keySet()));
+      }
+      readers[i] = new ColumnReader(field, columnIndex, metadata.getColumnType(columnIndex),
+                                    metadata.getPrecision(columnIndex), metadata.getScale(columnIndex));
     }
-    record = recordBuilder.build();
+    readSchema = Schema.recordOf("dbRecord", schemaFields);
+    columnReaders = readers;
+    boundResultSet = resultSet;
   }
 
-  private void setField(ResultSet resultSet, StructuredRecord.Builder recordBuilder, Schema.Field field, int sqlType,
-                        int sqlPrecision, int sqlScale, String originalName, Schema outputFieldSchema)
-    throws SQLException {
-    // original name has to be used to get result from result set
-    Object o = DBUtils.transformValue(sqlType, sqlPrecision, sqlScale, resultSet, originalName,
-                                      outputFieldSchema);
+  private void setField(ResultSet resultSet, StructuredRecord.Builder recordBuilder,
+                        ColumnReader columnReader) throws SQLException {
+    Schema.Field field = columnReader.field;
+    Object o = DBUtils.transformValue(columnReader.sqlType, columnReader.precision, columnReader.scale, resultSet,
+                                      columnReader.columnIndex, columnReader.outputFieldSchema);
     if (o instanceof Date) {
       bytesRead += Long.BYTES;
       recordBuilder.setDate(field.getName(), ((Date) o).toLocalDate());
@@ -190,10 +219,7 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
       recordBuilder.setDecimal(field.getName(), decimal);
     } else {
       if (o != null) {
-        Schema schema = field.getSchema();
-        if (schema.isNullable()) {
-          schema = schema.getNonNullable();
-        }
+        Schema schema = columnReader.outputFieldSchema;
         switch (schema.getType()) {
           case INT:
           case BOOLEAN:
@@ -245,11 +271,22 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
    * @param stmt the {@link PreparedStatement} to write the {@link StructuredRecord} to
    */
   public void write(PreparedStatement stmt) throws SQLException {
+    write(stmt, 0);
+  }
+
+  /**
+   * Writes the {@link #record} to the specified {@link PreparedStatement}, starting after the given number of
+   * parameters. This is used for statements that insert multiple rows, where each row has its own parameters.
+   *
+   * @param stmt the {@link PreparedStatement} to write the {@link StructuredRecord} to
+   * @param parameterOffset the number of parameters before the first parameter of this record
+   */
+  public void write(PreparedStatement stmt, int parameterOffset) throws SQLException {
     bytesWritten = 0;
     Schema recordSchema = record.getSchema();
     List<Schema.Field> schemaFields = recordSchema.getFields();
     for (int i = 0; i < schemaFields.size(); i++) {
-      writeToDB(stmt, schemaFields.get(i), i);
+      writeToDB(stmt, schemaFields.get(i), i, parameterOffset + i + 1);
     }
   }
 
@@ -309,13 +346,13 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
     }
   }
 
-  private void writeToDB(PreparedStatement stmt, Schema.Field field, int fieldIndex) throws SQLException {
+  private void writeToDB(PreparedStatement stmt, Schema.Field field, int fieldIndex,
+                         int sqlIndex) throws SQLException {
     String fieldName = field.getName();
     Schema fieldSchema = getNonNullableSchema(field);
     Schema.Type fieldType = fieldSchema.getType();
     Schema.LogicalType fieldLogicalType = fieldSchema.getLogicalType();
     Object fieldValue = record.get(fieldName);
-    int sqlIndex = fieldIndex + 1;
 
     if (fieldValue == null) {
       stmt.setNull(sqlIndex, columnTypes[fieldIndex]);
@@ -425,4 +462,27 @@ public class DBRecord implements Writable, DBWritable, Configurable, DataSizeRep
   public Configuration getConf() {
     return conf;
   }
+
+  /**
+   * Reads the value of a field from a result set column. The column type, precision and scale are read from the
+   * result set metadata once, rather than for every row.
+   */
+  private static final class ColumnReader {
+    private final Schema.Field field;
+    private final int columnIndex;
+    private final int sqlType;
+    private final int precision;
+    private final int scale;
+    private final Schema outputFieldSchema;
+
+    ColumnReader(Schema.Field field, int columnIndex, int sqlType, int precision, int scale) {
+      this.field = field;
+      this.columnIndex = columnIndex;
+      this.sqlType = sqlType;
+      this.precision = precision;
+      this.scale = scale;
+      Schema schema = field.getSchema();
+      this.outputFieldSchema = schema.isNullable() ? schema.getNonNullable() : schema;
+    }
+  }
 }
@@ -225,6 +225,9 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
     public static final String COLUMNS = "columns";
     public static final String TABLE_NAME = "tableName";
     public static final String TRANSACTION_ISOLATION_LEVEL = "transactionIsolationLevel";
+    public static final String BATCH_SIZE = "batchSize";
+    public static final String COMMIT_INTERVAL = "commitInterval";
+    public static final String ROWS_PER_INSERT = "rowsPerInsert";
 
     @Name(COLUMNS)
     @Description("Comma-separated list of columns in the specified table to export to.")
@@ -245,6 +248,29 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
     @Macro
     public String transactionIsolationLevel;
 
+    @Nullable
+    @Name(BATCH_SIZE)
+    @Description("The number of rows to send to the database in a single batch. Larger batches are faster, " +
+      "with the tradeoff of higher memory usage. Defaults to 1000.")
+    @Macro
+    public Integer batchSize;
+
+    @Nullable
+    @Name(COMMIT_INTERVAL)
+    @Description("The number of rows after which the transaction is committed. If not set, each task commits all " +
+      "of its rows in a single transaction when it finishes. Setting this lets large writes make progress without " +
+      "one large transaction, but rows committed by a task that later fails are not rolled back.")
+    @Macro
+    public Long commitInterval;
+
+    @Nullable
+    @Name(ROWS_PER_INSERT)
+    @Description("The number of rows to write with each INSERT statement, using a multi-row " +
+      "'INSERT ... VALUES (...), (...)' statement. This helps with drivers that do not execute batches efficiently. " +
+      "It is ignored for databases that do not support multi-row inserts, such as Oracle and Phoenix. Defaults to 1.")
+    @Macro
+    public Integer rowsPerInsert;
+
     private void validate(FailureCollector collector) {
       if (getUseConnection()) {
         collector.addFailure("Database batch sink plugin doesn't support using existing connection.",
@@ -254,6 +280,17 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
         collector.addFailure("Database batch sink plugin doesn't support using existing connection.",
                              "Remove macro in connection property.");
       }
+      if (!containsMacro(BATCH_SIZE) && batchSize != null && batchSize < 1) {
+        collector.addFailure("Batch size must be a positive number.", null).withConfigProperty(BATCH_SIZE);
+      }
+      if (!containsMacro(COMMIT_INTERVAL) && commitInterval != null && commitInterval < 1) {
+        collector.addFailure("Commit interval must be a positive number.", null)
+          .withConfigProperty(COMMIT_INTERVAL);
+      }
+      if (!containsMacro(ROWS_PER_INSERT) && rowsPerInsert != null && rowsPerInsert < 1) {
+        collector.addFailure("Rows per insert must be a positive number.", null)
+          .withConfigProperty(ROWS_PER_INSERT);
+      }
     }
   }
 
@@ -267,6 +304,15 @@ public class DBSink extends ReferenceBatchSink<StructuredRecord, DBRecord, NullW
       if (dbSinkConfig.transactionIsolationLevel != null) {
         conf.put(TransactionIsolationLevel.CONF_KEY, dbSinkConfig.transactionIsolationLevel);
       }
+      if (dbSinkConfig.batchSize != null) {
+        conf.put(ETLDBOutputFormat.BATCH_SIZE, String.valueOf(dbSinkConfig.batchSize));
+      }
+      if (dbSinkConfig.commitInterval != null) {
+        conf.put(ETLDBOutputFormat.COMMIT_INTERVAL, String.valueOf(dbSinkConfig.commitInterval));
+      }
+      if (dbSinkConfig.rowsPerInsert != null) {
+        conf.put(ETLDBOutputFormat.ROWS_PER_INSERT, String.valueOf(dbSinkConfig.rowsPerInsert));
+      }
       if (dbSinkConfig.getConnectionArguments() != null) {
         conf.put(DBUtils.CONNECTION_ARGUMENTS, dbSinkConfig.getConnectionArguments());
       }
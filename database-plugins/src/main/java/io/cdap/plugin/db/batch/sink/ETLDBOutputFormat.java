@@ -16,9 +16,11 @@
 
 package io.cdap.plugin.db.batch.sink;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import io.cdap.plugin.ConnectionConfig;
+import io.cdap.plugin.DBRecord;
 import io.cdap.plugin.DataSizeReporter;
 import io.cdap.plugin.common.db.DBUtils;
 import io.cdap.plugin.common.db.JDBCDriverShim;
@@ -42,18 +44,32 @@ import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Properties;
+import javax.annotation.Nullable;
 
 /**
  * Class that extends {@link DBOutputFormat} to load the database driver class correctly.
  *
+ * Rows are added to a JDBC batch that is executed every {@link #BATCH_SIZE} rows, so that the driver does not buffer
+ * every row of the task. If {@link #COMMIT_INTERVAL} is set, the transaction is also committed every that many rows,
+ * otherwise it is committed once when the writer is closed. If writing fails when the writer is closed, the rows
+ * written since the last commit are rolled back. If {@link #ROWS_PER_INSERT} is greater than one and the
+ * database supports it, rows are written with a multi-row {@code INSERT ... VALUES (...), (...)} statement, which
+ * helps with drivers that execute batches one statement at a time.
+ *
  * @param <K> - Key passed to this class to be written
  * @param <V> - Value passed to this class to be written. The value is ignored.
  *
  */
 public class ETLDBOutputFormat<K extends DBWritable, V>  extends DBOutputFormat<K, V> {
   public static final String AUTO_COMMIT_ENABLED = "io.cdap.hydrator.db.output.autocommit.enabled";
+  public static final String BATCH_SIZE = "io.cdap.hydrator.db.output.batch.size";
+  public static final String COMMIT_INTERVAL = "io.cdap.hydrator.db.output.commit.interval";
+  public static final String ROWS_PER_INSERT = "io.cdap.hydrator.db.output.rows.per.insert";
+  public static final int DEFAULT_BATCH_SIZE = 1000;
 
   private static final Logger LOG = LoggerFactory.getLogger(ETLDBOutputFormat.class);
+  // most databases limit the number of parameters in a statement, SQL Server has the lowest limit
+  private static final int MAX_PARAMETERS = 2000;
   private Configuration conf;
   private Driver driver;
   private JDBCDriverShim driverShim;
@@ -69,63 +85,207 @@ public class ETLDBOutputFormat<K extends DBWritable, V>  extends DBOutputFormat<
       fieldNames = new String[dbConf.getOutputFieldCount()];
     }
 
+    int batchSize = conf.getInt(BATCH_SIZE, DEFAULT_BATCH_SIZE);
+    long commitInterval = conf.getLong(COMMIT_INTERVAL, 0L);
+    int rowsPerInsert = getRowsPerInsert(conf.getInt(ROWS_PER_INSERT, 1), fieldNames.length);
+
     try {
       Connection connection = getConnection(conf);
-      PreparedStatement statement = connection.prepareStatement(constructQuery(tableName, fieldNames));
-      return new DBRecordWriter(connection, statement) {
-
-        private boolean emptyData = true;
-        private long bytesWritten = 0;
-
-        //Implementation of the close method below is the exact implementation in DBOutputFormat except that
-        //we check if there is any data to be written and if not, we skip executeBatch call.
-        //There might be reducers that don't receive any data and thus this check is necessary to prevent
-        //empty data to be committed (since some Databases doesn't support that).
-        @Override
-        public void close(TaskAttemptContext context) throws IOException {
-          try {
-            if (!emptyData) {
-              getStatement().executeBatch();
-              getConnection().commit();
-              context.getCounter(FileOutputFormatCounter.BYTES_WRITTEN).increment(bytesWritten);
-            }
-          } catch (SQLException e) {
-            try {
-              getConnection().rollback();
-            } catch (SQLException ex) {
-              LOG.warn(StringUtils.stringifyException(ex));
-            }
-            throw new IOException(e);
-          } finally {
-            try {
-              getStatement().close();
-              getConnection().close();
-            } catch (SQLException ex) {
-              throw new IOException(ex);
-            }
-          }
+      String query = constructQuery(tableName, fieldNames);
+      PreparedStatement statement = connection.prepareStatement(query);
+      PreparedStatement multiRowStatement = rowsPerInsert > 1 ?
+        connection.prepareStatement(constructMultiRowQuery(query, fieldNames.length, rowsPerInsert)) : null;
+      return new ETLDBRecordWriter(connection, statement, multiRowStatement, fieldNames.length, rowsPerInsert,
+                                   batchSize, commitInterval);
+    } catch (Exception ex) {
+      throw Throwables.propagate(ex);
+    }
+  }
+
+  /**
+   * Returns the number of rows to write with each insert statement, falling back to one row for databases that do
+   * not support multi-row inserts, and limiting the number of parameters in a statement.
+   */
+  private int getRowsPerInsert(int rowsPerInsert, int numFields) {
+    if (rowsPerInsert <= 1) {
+      return 1;
+    }
+    String urlProperty = conf.get(DBConfiguration.URL_PROPERTY);
+    if (urlProperty.startsWith("jdbc:oracle") || urlProperty.startsWith("jdbc:phoenix")) {
+      LOG.warn("Multi-row inserts are not supported by {}. Rows will be inserted one at a time.", urlProperty);
+      return 1;
+    }
+    int maxRows = Math.max(1, MAX_PARAMETERS / Math.max(1, numFields));
+    if (rowsPerInsert > maxRows) {
+      LOG.debug("Reducing rows per insert from {} to {} to stay within the statement parameter limit.",
+                rowsPerInsert, maxRows);
+      return maxRows;
+    }
+    return rowsPerInsert;
+  }
 
-          try {
-            DriverManager.deregisterDriver(driverShim);
-          } catch (SQLException e) {
-            throw new IOException(e);
+  /**
+   * Extends the single row insert query to insert the given number of rows.
+   */
+  @VisibleForTesting
+  static String constructMultiRowQuery(String query, int numFields, int rowsPerInsert) {
+    StringBuilder row = new StringBuilder(",(");
+    for (int i = 0; i < numFields; i++) {
+      row.append(i == 0 ? "?" : ",?");
+    }
+    row.append(')');
+    StringBuilder multiRowQuery = new StringBuilder(query);
+    for (int i = 1; i < rowsPerInsert; i++) {
+      multiRowQuery.append(row);
+    }
+    return multiRowQuery.toString();
+  }
+
+  /**
+   * Record writer that executes the batch every {@link #BATCH_SIZE} rows and optionally commits every
+   * {@link #COMMIT_INTERVAL} rows.
+   */
+  private class ETLDBRecordWriter extends DBRecordWriter {
+    @Nullable
+    private final PreparedStatement multiRowStatement;
+    private final int numFields;
+    private final int batchSize;
+    private final long commitInterval;
+    // rows waiting to fill the multi-row statement, null if multi-row inserts are not used
+    @Nullable
+    private final DBRecord[] pendingRows;
+    private int numPendingRows;
+    private int singleRowsInBatch;
+    private int multiRowInsertsInBatch;
+    private int rowsInBatch;
+    private long rowsSinceCommit;
+    private boolean emptyData = true;
+    private long bytesWritten = 0;
+
+    ETLDBRecordWriter(Connection connection, PreparedStatement statement,
+                      @Nullable PreparedStatement multiRowStatement, int numFields, int rowsPerInsert,
+                      int batchSize, long commitInterval) throws SQLException {
+      super(connection, statement);
+      this.multiRowStatement = multiRowStatement;
+      this.numFields = numFields;
+      this.pendingRows = multiRowStatement == null ? null : new DBRecord[rowsPerInsert];
+      this.batchSize = Math.max(1, batchSize);
+      this.commitInterval = commitInterval;
+    }
+
+    //Implementation of the close method below is the exact implementation in DBOutputFormat except that
+    //we check if there is any data to be written and if not, we skip executeBatch call.
+    //There might be reducers that don't receive any data and thus this check is necessary to prevent
+    //empty data to be committed (since some Databases doesn't support that).
+    @Override
+    public void close(TaskAttemptContext context) throws IOException {
+      try {
+        if (!emptyData) {
+          addPendingRows();
+          executeBatch();
+          getConnection().commit();
+          context.getCounter(FileOutputFormatCounter.BYTES_WRITTEN).increment(bytesWritten);
+        }
+      } catch (SQLException e) {
+        try {
+          getConnection().rollback();
+        } catch (SQLException ex) {
+          LOG.warn(StringUtils.stringifyException(ex));
+        }
+        throw new IOException(e);
+      } finally {
+        try {
+          if (multiRowStatement != null) {
+            multiRowStatement.close();
           }
+          getStatement().close();
+          getConnection().close();
+        } catch (SQLException ex) {
+          throw new IOException(ex);
         }
+      }
 
-        @Override
-        public void write(K key, V value) throws IOException {
-          super.write(key, value);
-          if (key instanceof DataSizeReporter) {
-            bytesWritten += ((DataSizeReporter) key).getBytesWritten();
-          }
-          if (value instanceof DataSizeReporter) {
-            bytesWritten += ((DataSizeReporter) value).getBytesWritten();
+      try {
+        DriverManager.deregisterDriver(driverShim);
+      } catch (SQLException e) {
+        throw new IOException(e);
+      }
+    }
+
+    @Override
+    public void write(K key, V value) throws IOException {
+      try {
+        if (pendingRows != null && key instanceof DBRecord) {
+          pendingRows[numPendingRows++] = (DBRecord) key;
+          if (numPendingRows == pendingRows.length) {
+            addMultiRow();
           }
-          emptyData = false;
+        } else {
+          addSingleRow(key);
         }
-      };
-    } catch (Exception ex) {
-      throw Throwables.propagate(ex);
+        if (value instanceof DataSizeReporter) {
+          bytesWritten += ((DataSizeReporter) value).getBytesWritten();
+        }
+        emptyData = false;
+        rowsSinceCommit++;
+        if (rowsInBatch >= batchSize) {
+          executeBatch();
+        }
+        if (commitInterval > 0 && rowsSinceCommit >= commitInterval) {
+          addPendingRows();
+          executeBatch();
+          getConnection().commit();
+          rowsSinceCommit = 0;
+        }
+      } catch (SQLException e) {
+        throw new IOException(e);
+      }
+    }
+
+    private void addSingleRow(DBWritable row) throws SQLException {
+      row.write(getStatement());
+      getStatement().addBatch();
+      if (row instanceof DataSizeReporter) {
+        bytesWritten += ((DataSizeReporter) row).getBytesWritten();
+      }
+      singleRowsInBatch++;
+      rowsInBatch++;
+    }
+
+    /**
+     * Adds the rows that did not fill a multi-row statement to the batch one at a time, so that they are written
+     * with the next commit.
+     */
+    private void addPendingRows() throws SQLException {
+      for (int i = 0; i < numPendingRows; i++) {
+        addSingleRow(pendingRows[i]);
+        pendingRows[i] = null;
+      }
+      numPendingRows = 0;
+    }
+
+    private void addMultiRow() throws SQLException {
+      for (int i = 0; i < numPendingRows; i++) {
+        pendingRows[i].write(multiRowStatement, i * numFields);
+        bytesWritten += pendingRows[i].getBytesWritten();
+        pendingRows[i] = null;
+      }
+      multiRowStatement.addBatch();
+      multiRowInsertsInBatch++;
+      rowsInBatch += numPendingRows;
+      numPendingRows = 0;
+    }
+
+    private void executeBatch() throws SQLException {
+      if (multiRowInsertsInBatch > 0) {
+        multiRowStatement.executeBatch();
+        multiRowInsertsInBatch = 0;
+      }
+      if (singleRowsInBatch > 0) {
+        getStatement().executeBatch();
+        singleRowsInBatch = 0;
+      }
+      rowsInBatch = 0;
     }
   }
 
@@ -160,6 +160,9 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
                                                          sourceConfig.importQuery));
       }
       hConf.set(DBConfiguration.INPUT_ORDER_BY_PROPERTY, sourceConfig.splitBy);
+      if (sourceConfig.splitStrategy != null) {
+        hConf.set(DataDrivenETLDBInputFormat.SPLIT_STRATEGY, sourceConfig.splitStrategy);
+      }
     }
     if (sourceConfig.numSplits != null) {
       hConf.setInt(MRJobConfig.NUM_MAPS, sourceConfig.numSplits);
@@ -274,6 +277,7 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
     public static final String PATTERN_TO_REPLACE = "patternToReplace";
     public static final String REPLACE_WITH = "replaceWith";
     public static final String FETCH_SIZE = "fetchSize";
+    public static final String SPLIT_STRATEGY = "splitStrategy";
 
     @Name(IMPORT_QUERY)
     @Description("The SELECT query to use to import data from the specified table. " +
@@ -306,6 +310,16 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
     @Macro
     Integer numSplits;
 
+    @Nullable
+    @Name(SPLIT_STRATEGY)
+    @Description("How the split boundaries are computed when numSplits is greater than one. 'range' divides the " +
+      "range returned by the bounding query into equal-width ranges. 'balanced' uses quantiles of the split-by " +
+      "column, so that each split reads about the same number of rows even if the values are skewed. The 'balanced' " +
+      "strategy requires the split-by field to be selected by the import query and supports numeric, date, time, " +
+      "timestamp and string columns. Defaults to 'range'.")
+    @Macro
+    String splitStrategy;
+
     @Nullable
     @Name(TRANSACTION_ISOLATION_LEVEL)
     @Description("The transaction isolation level for queries run by this sink. " +
@@ -395,6 +409,16 @@ public class DBSource extends ReferenceBatchSource<LongWritable, DBRecord, Struc
           .withConfigProperty(BOUNDING_QUERY).withConfigProperty(NUM_SPLITS);
       }
 
+      if (!containsMacro(SPLIT_STRATEGY) && splitStrategy != null &&
+        !DataDrivenETLDBInputFormat.SPLIT_STRATEGY_RANGE.equalsIgnoreCase(splitStrategy) &&
+        !DataDrivenETLDBInputFormat.SPLIT_STRATEGY_BALANCED.equalsIgnoreCase(splitStrategy)) {
+        collector.addFailure(String.format("Invalid split strategy '%s'.", splitStrategy),
+                             String.format("Split strategy must be '%s' or '%s'.",
+                                           DataDrivenETLDBInputFormat.SPLIT_STRATEGY_RANGE,
+                                           DataDrivenETLDBInputFormat.SPLIT_STRATEGY_BALANCED))
+          .withConfigProperty(SPLIT_STRATEGY);
+      }
+
       if (replaceWith != null && patternToReplace == null) {
         collector.addFailure("Replace With is set but Pattern To Replace is not provided", null)
           .withConfigProperty(REPLACE_WITH).withConfigProperty(PATTERN_TO_REPLACE);
@@ -16,6 +16,7 @@
 
 package io.cdap.plugin.db.batch.source;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import io.cdap.plugin.ConnectionConfig;
 import io.cdap.plugin.DataSizeReporter;
@@ -25,6 +26,8 @@ import io.cdap.plugin.db.batch.NoOpCommitConnection;
 import io.cdap.plugin.db.batch.TransactionIsolationLevel;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
@@ -36,10 +39,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.Date;
 import java.sql.Driver;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
@@ -47,8 +58,12 @@ import java.util.Properties;
  */
 public class DataDrivenETLDBInputFormat extends DataDrivenDBInputFormat {
   public static final String AUTO_COMMIT_ENABLED = "io.cdap.hydrator.db.autocommit.enabled";
+  public static final String SPLIT_STRATEGY = "io.cdap.hydrator.db.split.strategy";
+  public static final String SPLIT_STRATEGY_RANGE = "range";
+  public static final String SPLIT_STRATEGY_BALANCED = "balanced";
 
   private static final Logger LOG = LoggerFactory.getLogger(DataDrivenETLDBInputFormat.class);
+  private static final String CONDITIONS = "$CONDITIONS";
   private Driver driver;
   private JDBCDriverShim driverShim;
 
@@ -64,6 +79,165 @@ public class DataDrivenETLDBInputFormat extends DataDrivenDBInputFormat {
     conf.setBoolean(AUTO_COMMIT_ENABLED, enableAutoCommit);
   }
 
+  /**
+   * Returns the splits for the job. With the {@link #SPLIT_STRATEGY_BALANCED} strategy, the split boundaries are
+   * quantiles of the split-by column instead of equal-width ranges between its minimum and maximum, so that each
+   * split reads roughly the same number of rows even if the values are skewed. Otherwise, or if the boundaries
+   * cannot be computed, the splits are generated from the bounding query.
+   */
+  @Override
+  public List<InputSplit> getSplits(JobContext job) throws IOException {
+    Configuration conf = job.getConfiguration();
+    int numSplits = conf.getInt(MRJobConfig.NUM_MAPS, 1);
+    if (numSplits <= 1 || !SPLIT_STRATEGY_BALANCED.equalsIgnoreCase(conf.get(SPLIT_STRATEGY))) {
+      return super.getSplits(job);
+    }
+
+    String splitColumn = getDBConf().getInputOrderBy();
+    String query = getDBConf().getInputQuery().replace(CONDITIONS, "(1 = 1)");
+    try {
+      List<InputSplit> splits = createSplits(splitColumn,
+                                             getSplitBoundaries(getConnection(), query, splitColumn, numSplits));
+      LOG.debug("Generated {} balanced splits for column '{}'.", splits.size(), splitColumn);
+      closeConnection();
+      return splits;
+    } catch (SQLException | IllegalArgumentException e) {
+      LOG.warn("Unable to generate balanced splits for column '{}', using the bounding query instead.",
+               splitColumn, e);
+      rollback(getConnection());
+    }
+    // the bounding query reuses the connection and closes it
+    return super.getSplits(job);
+  }
+
+  /**
+   * Computes the distinct lower boundaries of all splits but the first, in database order. The boundaries are
+   * computed with the NTILE window function where it is supported, and otherwise by counting the rows and querying
+   * the value at each boundary row with an offset, so that only the boundaries are sent to the client.
+   *
+   * @throws SQLException if the database supports neither way of computing the boundaries
+   */
+  @VisibleForTesting
+  static List<Object> getSplitBoundaries(Connection connection, String query, String splitColumn,
+                                         int numSplits) throws SQLException {
+    // the split column is selected from the import query, so it cannot be qualified by a table name
+    String column = splitColumn.substring(splitColumn.lastIndexOf('.') + 1);
+    String nonNullQuery = String.format("SELECT %s AS split_value FROM (%s) split_query WHERE %s IS NOT NULL",
+                                        column, query, column);
+    List<Object> boundaries = new ArrayList<>();
+    try (Statement statement = connection.createStatement()) {
+      String ntileQuery = String.format(
+        "SELECT MIN(split_value) FROM (SELECT %s AS split_value, NTILE(%d) OVER (ORDER BY %s) AS split_bucket " +
+          "FROM (%s) split_query WHERE %s IS NOT NULL) split_buckets GROUP BY split_bucket ORDER BY split_bucket",
+        column, numSplits, column, query, column);
+      try (ResultSet resultSet = statement.executeQuery(ntileQuery)) {
+        // the first bucket starts at the minimum, which is covered by the first split
+        if (resultSet.next()) {
+          while (resultSet.next()) {
+            addBoundary(boundaries, resultSet.getObject(1));
+          }
+        }
+        return boundaries;
+      } catch (SQLException e) {
+        LOG.debug("NTILE is not supported, computing split boundaries with an offset query per boundary for " +
+                    "column '{}'.", column, e);
+        rollback(connection);
+      }
+
+      long count;
+      try (ResultSet resultSet = statement.executeQuery(String.format("SELECT COUNT(*) FROM (%s) split_count",
+                                                                      nonNullQuery))) {
+        count = resultSet.next() ? resultSet.getLong(1) : 0L;
+      }
+      if (count == 0) {
+        return boundaries;
+      }
+      for (int split = 1; split < numSplits; split++) {
+        long boundaryRow = split * count / numSplits;
+        String offsetQuery = String.format("%s ORDER BY split_value OFFSET %d ROWS FETCH FIRST 1 ROWS ONLY",
+                                           nonNullQuery, boundaryRow);
+        try (ResultSet resultSet = statement.executeQuery(offsetQuery)) {
+          if (resultSet.next()) {
+            addBoundary(boundaries, resultSet.getObject(1));
+          }
+        }
+      }
+    }
+    return boundaries;
+  }
+
+  private static void addBoundary(List<Object> boundaries, Object value) {
+    // skewed columns can have the same value at several quantiles, which would generate empty splits
+    if (value != null && (boundaries.isEmpty() || !value.equals(boundaries.get(boundaries.size() - 1)))) {
+      boundaries.add(value);
+    }
+  }
+
+  private static void rollback(Connection connection) {
+    // some databases abort the transaction on a failed statement
+    try {
+      if (!connection.getAutoCommit()) {
+        connection.rollback();
+      }
+    } catch (SQLException e) {
+      LOG.debug("Failed to roll back the split boundary query.", e);
+    }
+  }
+
+  /**
+   * Creates splits that cover the ranges between consecutive boundaries, plus a split for null values.
+   *
+   * @param splitColumn the split-by column
+   * @param boundaries the distinct lower boundaries of all splits but the first, in database order
+   * @throws IllegalArgumentException if a boundary cannot be written as a SQL literal
+   */
+  @VisibleForTesting
+  static List<InputSplit> createSplits(String splitColumn, List<Object> boundaries) {
+    List<InputSplit> splits = new ArrayList<>(boundaries.size() + 2);
+    if (boundaries.isEmpty()) {
+      splits.add(new DataDrivenDBInputSplit("1 = 1", "1 = 1"));
+      return splits;
+    }
+    String lowerClause = "1 = 1";
+    for (Object boundary : boundaries) {
+      String literal = toLiteral(boundary);
+      splits.add(new DataDrivenDBInputSplit(lowerClause, String.format("%s < %s", splitColumn, literal)));
+      lowerClause = String.format("%s >= %s", splitColumn, literal);
+    }
+    splits.add(new DataDrivenDBInputSplit(lowerClause, "1 = 1"));
+    String nullClause = splitColumn + " IS NULL";
+    splits.add(new DataDrivenDBInputSplit(nullClause, nullClause));
+    return splits;
+  }
+
+  /**
+   * Writes a split boundary as a SQL literal. Dates and times use the JDBC escape syntax, which drivers translate
+   * to the literal syntax of their database.
+   */
+  @VisibleForTesting
+  static String toLiteral(Object value) {
+    if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).toPlainString();
+    }
+    if (value instanceof Number) {
+      return value.toString();
+    }
+    if (value instanceof Timestamp) {
+      return String.format("{ts '%s'}", value);
+    }
+    if (value instanceof Date) {
+      return String.format("{d '%s'}", value);
+    }
+    if (value instanceof Time) {
+      return String.format("{t '%s'}", value);
+    }
+    if (value instanceof String) {
+      return "'" + ((String) value).replace("'", "''") + "'";
+    }
+    throw new IllegalArgumentException(String.format("Cannot split on values of type '%s'.",
+                                                     value.getClass().getName()));
+  }
+
   @Override
   public Connection getConnection() {
     if (this.connection == null) {
@@ -236,23 +236,23 @@ public class DBRecordTest {
     ResultSet resultSetMock = Mockito.mock(ResultSet.class);
     Mockito.when(resultSetMock.getMetaData()).thenReturn(rsMetaMock);
     Mockito.when(resultSetMock.next()).thenReturn(true).thenReturn(false);
-    Mockito.when(resultSetMock.getObject("integer")).thenReturn(expectedInt);
-    Mockito.when(resultSetMock.getObject("double")).thenReturn(expectedDouble);
-    Mockito.when(resultSetMock.getObject("smallint")).thenReturn(expectedSmallInt);
-    Mockito.when(resultSetMock.getObject("tinyint")).thenReturn(expectedTinyInt);
-    Mockito.when(resultSetMock.getObject("date")).thenReturn(expectedDate);
-    Mockito.when(resultSetMock.getDate("date")).thenReturn(expectedDate);
-    Mockito.when(resultSetMock.getObject("time")).thenReturn(expectedTime);
-    Mockito.when(resultSetMock.getTime("time")).thenReturn(expectedTime);
-    Mockito.when(resultSetMock.getObject("timestamp")).thenReturn(expectedTimestamp);
-    Mockito.when(resultSetMock.getTimestamp("timestamp")).thenReturn(expectedTimestamp);
-    Mockito.when(resultSetMock.getObject("decimal")).thenReturn(expectedDecimal);
-    Mockito.when(resultSetMock.getBigDecimal("decimal", 3)).thenReturn(expectedDecimal);
-    Mockito.when(resultSetMock.getObject("blob")).thenReturn(expectedBlob);
-    Mockito.when(resultSetMock.getObject("boolean")).thenReturn(expectedBoolean);
-    Mockito.when(resultSetMock.getObject("string")).thenReturn(expectedString);
-    Mockito.when(resultSetMock.getObject("float")).thenReturn(expectedFloat);
-    Mockito.when(resultSetMock.getObject("nullnumeric")).thenReturn(expectedNullNumeric);
+    Mockito.when(resultSetMock.getObject(1)).thenReturn(expectedInt);
+    Mockito.when(resultSetMock.getObject(2)).thenReturn(expectedDouble);
+    Mockito.when(resultSetMock.getObject(3)).thenReturn(expectedSmallInt);
+    Mockito.when(resultSetMock.getObject(4)).thenReturn(expectedTinyInt);
+    Mockito.when(resultSetMock.getObject(5)).thenReturn(expectedDate);
+    Mockito.when(resultSetMock.getDate(5)).thenReturn(expectedDate);
+    Mockito.when(resultSetMock.getObject(6)).thenReturn(expectedTime);
+    Mockito.when(resultSetMock.getTime(6)).thenReturn(expectedTime);
+    Mockito.when(resultSetMock.getObject(7)).thenReturn(expectedTimestamp);
+    Mockito.when(resultSetMock.getTimestamp(7)).thenReturn(expectedTimestamp);
+    Mockito.when(resultSetMock.getObject(8)).thenReturn(expectedDecimal);
+    Mockito.when(resultSetMock.getBigDecimal(8, 3)).thenReturn(expectedDecimal);
+    Mockito.when(resultSetMock.getObject(9)).thenReturn(expectedBlob);
+    Mockito.when(resultSetMock.getObject(10)).thenReturn(expectedBoolean);
+    Mockito.when(resultSetMock.getObject(11)).thenReturn(expectedString);
+    Mockito.when(resultSetMock.getObject(12)).thenReturn(expectedFloat);
+    Mockito.when(resultSetMock.getObject(13)).thenReturn(expectedNullNumeric);
 
     StructuredRecord expectedRecord = StructuredRecord
       .builder(Schema.recordOf("dbRecord",
@@ -307,6 +307,87 @@ public class DBRecordTest {
     Assert.assertNull(expectedRecord.getDecimal("nullnumeric"));
   }
 
+  @Test
+  public void testReadMultipleRows() throws SQLException {
+    ResultSetMetaData rsMetaMock = Mockito.mock(ResultSetMetaData.class);
+    Mockito.when(rsMetaMock.getColumnCount()).thenReturn(2);
+    Mockito.when(rsMetaMock.getColumnName(Mockito.eq(1))).thenReturn("id");
+    Mockito.when(rsMetaMock.getColumnType(Mockito.eq(1))).thenReturn(Types.VARCHAR);
+    Mockito.when(rsMetaMock.isNullable(Mockito.eq(1))).thenReturn(ResultSetMetaData.columnNoNulls);
+    Mockito.when(rsMetaMock.getColumnName(Mockito.eq(2))).thenReturn("score");
+    Mockito.when(rsMetaMock.getColumnType(Mockito.eq(2))).thenReturn(Types.DOUBLE);
+    Mockito.when(rsMetaMock.isNullable(Mockito.eq(2))).thenReturn(ResultSetMetaData.columnNullable);
+
+    ResultSet resultSetMock = Mockito.mock(ResultSet.class);
+    Mockito.when(resultSetMock.getMetaData()).thenReturn(rsMetaMock);
+    Mockito.when(resultSetMock.getObject(1)).thenReturn("a").thenReturn("b");
+    Mockito.when(resultSetMock.getObject(2)).thenReturn(1.5d).thenReturn(null);
+
+    DBRecord dbRecord = new DBRecord();
+    dbRecord.setConf(new Configuration());
+    dbRecord.readFields(resultSetMock);
+    StructuredRecord first = dbRecord.getRecord();
+    dbRecord.readFields(resultSetMock);
+    StructuredRecord second = dbRecord.getRecord();
+
+    Assert.assertEquals("a", first.get("id"));
+    Assert.assertEquals(1.5d, first.<Double>get("score"), 0d);
+    Assert.assertEquals("b", second.get("id"));
+    Assert.assertNull(second.get("score"));
+    Assert.assertEquals(1L, dbRecord.getBytesRead());
+    // the schema is computed once for the result set
+    Assert.assertSame(first.getSchema(), second.getSchema());
+  }
+
+  @Test
+  public void testColumnNamesIgnoreCase() throws SQLException {
+    // the driver reports the column names in a different case when they are looked up again
+    ResultSetMetaData rsMetaMock = Mockito.mock(ResultSetMetaData.class);
+    Mockito.when(rsMetaMock.getColumnCount()).thenReturn(2);
+    Mockito.when(rsMetaMock.getColumnName(Mockito.eq(1))).thenReturn("id").thenReturn("ID");
+    Mockito.when(rsMetaMock.getColumnType(Mockito.eq(1))).thenReturn(Types.VARCHAR);
+    Mockito.when(rsMetaMock.isNullable(Mockito.eq(1))).thenReturn(ResultSetMetaData.columnNoNulls);
+    Mockito.when(rsMetaMock.getColumnName(Mockito.eq(2))).thenReturn("score").thenReturn("SCORE");
+    Mockito.when(rsMetaMock.getColumnType(Mockito.eq(2))).thenReturn(Types.DOUBLE);
+    Mockito.when(rsMetaMock.isNullable(Mockito.eq(2))).thenReturn(ResultSetMetaData.columnNoNulls);
+
+    ResultSet resultSetMock = Mockito.mock(ResultSet.class);
+    Mockito.when(resultSetMock.getMetaData()).thenReturn(rsMetaMock);
+    Mockito.when(resultSetMock.getObject(1)).thenReturn("a");
+    Mockito.when(resultSetMock.getObject(2)).thenReturn(1.5d);
+
+    DBRecord dbRecord = new DBRecord();
+    dbRecord.setConf(new Configuration());
+    dbRecord.readFields(resultSetMock);
+
+    Assert.assertEquals(1.5d, dbRecord.getRecord().<Double>get("score"), 0d);
+    Assert.assertEquals("a", dbRecord.getRecord().get("id"));
+  }
+
+  @Test
+  public void testMissingColumn() throws SQLException {
+    ResultSetMetaData rsMetaMock = Mockito.mock(ResultSetMetaData.class);
+    Mockito.when(rsMetaMock.getColumnCount()).thenReturn(2);
+    Mockito.when(rsMetaMock.getColumnName(Mockito.eq(1))).thenReturn("id");
+    Mockito.when(rsMetaMock.getColumnType(Mockito.eq(1))).thenReturn(Types.VARCHAR);
+    Mockito.when(rsMetaMock.isNullable(Mockito.eq(1))).thenReturn(ResultSetMetaData.columnNoNulls);
+    Mockito.when(rsMetaMock.getColumnName(Mockito.eq(2))).thenReturn("score").thenReturn("other");
+    Mockito.when(rsMetaMock.getColumnType(Mockito.eq(2))).thenReturn(Types.DOUBLE);
+    Mockito.when(rsMetaMock.isNullable(Mockito.eq(2))).thenReturn(ResultSetMetaData.columnNullable);
+
+    ResultSet resultSetMock = Mockito.mock(ResultSet.class);
+    Mockito.when(resultSetMock.getMetaData()).thenReturn(rsMetaMock);
+
+    DBRecord dbRecord = new DBRecord();
+    dbRecord.setConf(new Configuration());
+    try {
+      dbRecord.readFields(resultSetMock);
+      Assert.fail("Expected the field without a column to fail.");
+    } catch (IllegalArgumentException e) {
+      Assert.assertTrue(e.getMessage(), e.getMessage().contains("'score'"));
+    }
+  }
+
   @Test
   public void testDatetime() throws SQLException {
     //When output schema has datetime type , valid datetime string values should be allowed.
@@ -325,8 +406,8 @@ public class DBRecordTest {
     ResultSet resultSetMock = Mockito.mock(ResultSet.class);
     Mockito.when(resultSetMock.getMetaData()).thenReturn(rsMetaMock);
     Mockito.when(resultSetMock.next()).thenReturn(true).thenReturn(false);
-    Mockito.when(resultSetMock.getObject("string")).thenReturn(testString);
-    Mockito.when(resultSetMock.getObject("datetimestring")).thenReturn(formattedDateTime);
+    Mockito.when(resultSetMock.getObject(1)).thenReturn(testString);
+    Mockito.when(resultSetMock.getObject(2)).thenReturn(formattedDateTime);
 
     Schema outputSchema = Schema.recordOf("dbRecord",
                                           Schema.Field.of("string", Schema.of(Schema.Type.STRING)),
@@ -358,7 +439,7 @@ public class DBRecordTest {
     ResultSet resultSetMock = Mockito.mock(ResultSet.class);
     Mockito.when(resultSetMock.getMetaData()).thenReturn(rsMetaMock);
     Mockito.when(resultSetMock.next()).thenReturn(true).thenReturn(false);
-    Mockito.when(resultSetMock.getObject("datetimestring")).thenReturn(testDateTime);
+    Mockito.when(resultSetMock.getObject(1)).thenReturn(testDateTime);
 
     Schema outputSchema = Schema.recordOf("dbRecord",
                                           Schema.Field.of("datetimestring",
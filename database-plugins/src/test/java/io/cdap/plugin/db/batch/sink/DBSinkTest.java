@@ -130,6 +130,14 @@ public class DBSinkTest {
     }
   }
 
+  @Test
+  public void testMultiRowQuery() {
+    Assert.assertEquals("INSERT INTO foo (a, b) VALUES (?, ?),(?,?),(?,?)",
+                        ETLDBOutputFormat.constructMultiRowQuery("INSERT INTO foo (a, b) VALUES (?, ?)", 2, 3));
+    Assert.assertEquals("INSERT INTO foo (a) VALUES (?)",
+                        ETLDBOutputFormat.constructMultiRowQuery("INSERT INTO foo (a) VALUES (?)", 1, 1));
+  }
+
   public Map<String, Object> getRecordFields(StructuredRecord record) {
     Map<String, Object> fields = Maps.newHashMap();
     for (Schema.Field field : record.getSchema().getFields()) {
@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.sink;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.DBRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Counter;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormatCounter;
+import org.hsqldb.jdbc.JDBCDriver;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for the record writer of {@link ETLDBOutputFormat}, which write to an in-memory database.
+ */
+public class ETLDBOutputFormatTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "row",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("name", Schema.of(Schema.Type.STRING)));
+  private static final int[] COLUMN_TYPES = { Types.INTEGER, Types.VARCHAR };
+  private static int databaseCount;
+
+  private String url;
+
+  @Before
+  public void createTable() throws SQLException {
+    // the driver is registered when its class is loaded
+    new JDBCDriver();
+    url = "jdbc:hsqldb:mem:etldboutputformat" + databaseCount++;
+    try (Connection connection = DriverManager.getConnection(url, "SA", "");
+         Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE my_table (id INT PRIMARY KEY, name VARCHAR(20))");
+    }
+  }
+
+  @Test
+  public void testPeriodicCommit() throws Exception {
+    // rows are inserted three at a time, and committed every four rows
+    RecordWriter<DBRecord, NullWritable> writer = createWriter(2, 4, 3);
+    for (int id = 0; id < 4; id++) {
+      writer.write(row(id), NullWritable.get());
+    }
+    // the fourth row did not fill a multi-row insert, but is committed with the others
+    Assert.assertEquals(ids(0, 4), readIds());
+
+    for (int id = 4; id < 9; id++) {
+      writer.write(row(id), NullWritable.get());
+    }
+    // the last row did not fill a multi-row insert, and is written when the writer is closed
+    writer.close(createContext());
+    Assert.assertEquals(ids(0, 9), readIds());
+  }
+
+  @Test
+  public void testCommitOnClose() throws Exception {
+    RecordWriter<DBRecord, NullWritable> writer = createWriter(1000, 0, 4);
+    for (int id = 0; id < 10; id++) {
+      writer.write(row(id), NullWritable.get());
+    }
+    writer.close(createContext());
+    Assert.assertEquals(ids(0, 10), readIds());
+  }
+
+  @Test
+  public void testRollbackOnFailure() throws Exception {
+    RecordWriter<DBRecord, NullWritable> writer = createWriter(1000, 3, 2);
+    for (int id = 0; id < 3; id++) {
+      writer.write(row(id), NullWritable.get());
+    }
+    // a row that is only waiting to fill a multi-row insert, and a duplicate id that fails the insert
+    writer.write(row(3), NullWritable.get());
+    writer.write(row(0), NullWritable.get());
+    try {
+      writer.close(createContext());
+      Assert.fail("Expected the duplicate id to fail the insert.");
+    } catch (IOException e) {
+      // expected
+    }
+    // the rows written since the last commit are rolled back
+    Assert.assertEquals(ids(0, 3), readIds());
+  }
+
+  @Test
+  public void testNoRows() throws Exception {
+    createWriter(10, 5, 2).close(createContext());
+    Assert.assertEquals(ids(0, 0), readIds());
+  }
+
+  private RecordWriter<DBRecord, NullWritable> createWriter(int batchSize, long commitInterval, int rowsPerInsert)
+    throws IOException {
+    Configuration conf = new Configuration();
+    DBConfiguration.configureDB(conf, JDBCDriver.class.getName(), url, "SA", "");
+    conf.set(DBConfiguration.OUTPUT_TABLE_NAME_PROPERTY, "my_table");
+    conf.setStrings(DBConfiguration.OUTPUT_FIELD_NAMES_PROPERTY, "id", "name");
+    conf.setInt(ETLDBOutputFormat.BATCH_SIZE, batchSize);
+    conf.setLong(ETLDBOutputFormat.COMMIT_INTERVAL, commitInterval);
+    conf.setInt(ETLDBOutputFormat.ROWS_PER_INSERT, rowsPerInsert);
+    return new ETLDBOutputFormat<DBRecord, NullWritable>().getRecordWriter(createContext(conf));
+  }
+
+  private static TaskAttemptContext createContext() {
+    return createContext(new Configuration());
+  }
+
+  private static TaskAttemptContext createContext(Configuration conf) {
+    TaskAttemptContext context = Mockito.mock(TaskAttemptContext.class);
+    Mockito.when(context.getConfiguration()).thenReturn(conf);
+    Mockito.when(context.getCounter(FileOutputFormatCounter.BYTES_WRITTEN)).thenReturn(Mockito.mock(Counter.class));
+    return context;
+  }
+
+  private static DBRecord row(int id) {
+    return new DBRecord(StructuredRecord.builder(SCHEMA).set("id", id).set("name", "name" + id).build(),
+                        COLUMN_TYPES);
+  }
+
+  private static List<Integer> ids(int start, int end) {
+    List<Integer> ids = new ArrayList<>();
+    for (int id = start; id < end; id++) {
+      ids.add(id);
+    }
+    return ids;
+  }
+
+  /**
+   * Reads the committed ids with a separate connection.
+   */
+  private List<Integer> readIds() throws SQLException {
+    List<Integer> ids = new ArrayList<>();
+    try (Connection connection = DriverManager.getConnection(url, "SA", "");
+         Statement statement = connection.createStatement();
+         ResultSet resultSet = statement.executeQuery("SELECT id FROM my_table ORDER BY id")) {
+      while (resultSet.next()) {
+        ids.add(resultSet.getInt(1));
+      }
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.db.batch.source;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.lib.db.DataDrivenDBInputFormat.DataDrivenDBInputSplit;
+import org.hsqldb.jdbc.JDBCDriver;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for the balanced split strategy of {@link DataDrivenETLDBInputFormat}.
+ */
+public class BalancedSplitsTest {
+
+  @Test
+  public void testSplitsBetweenBoundaries() {
+    List<InputSplit> splits = DataDrivenETLDBInputFormat.createSplits("id", ImmutableList.of(10L, 250L));
+    Assert.assertEquals(4, splits.size());
+    assertSplit("1 = 1", "id < 10", splits.get(0));
+    assertSplit("id >= 10", "id < 250", splits.get(1));
+    assertSplit("id >= 250", "1 = 1", splits.get(2));
+    assertSplit("id IS NULL", "id IS NULL", splits.get(3));
+  }
+
+  @Test
+  public void testNoBoundaries() {
+    List<InputSplit> splits = DataDrivenETLDBInputFormat.createSplits("id", Collections.emptyList());
+    Assert.assertEquals(1, splits.size());
+    assertSplit("1 = 1", "1 = 1", splits.get(0));
+  }
+
+  @Test
+  public void testLiterals() {
+    Assert.assertEquals("5", DataDrivenETLDBInputFormat.toLiteral(5));
+    Assert.assertEquals("12345678901234567890.5",
+                        DataDrivenETLDBInputFormat.toLiteral(new BigDecimal("1.23456789012345678905E19")));
+    Assert.assertEquals("'O''Brien'", DataDrivenETLDBInputFormat.toLiteral("O'Brien"));
+    Assert.assertEquals("{d '2020-03-01'}", DataDrivenETLDBInputFormat.toLiteral(Date.valueOf("2020-03-01")));
+    Assert.assertEquals("{ts '2020-03-01 10:15:30.5'}",
+                        DataDrivenETLDBInputFormat.toLiteral(Timestamp.valueOf("2020-03-01 10:15:30.5")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedType() {
+    DataDrivenETLDBInputFormat.toLiteral(new byte[] {1, 2});
+  }
+
+  @Test
+  public void testBoundariesWithOffsetQueries() throws SQLException {
+    // the embedded database does not support NTILE, so the boundaries are queried with offsets
+    new JDBCDriver();
+    try (Connection connection = DriverManager.getConnection("jdbc:hsqldb:mem:balancedsplits", "SA", "")) {
+      try (Statement statement = connection.createStatement()) {
+        statement.execute("CREATE TABLE my_table (id INT, name VARCHAR(20))");
+      }
+      // 60 distinct values, followed by 40 rows with the same value and a few null values
+      try (PreparedStatement statement = connection.prepareStatement("INSERT INTO my_table VALUES (?, ?)")) {
+        for (int i = 0; i < 105; i++) {
+          if (i < 100) {
+            statement.setInt(1, i < 60 ? i : 1000);
+          } else {
+            statement.setNull(1, Types.INTEGER);
+          }
+          statement.setString(2, "name" + i);
+          statement.executeUpdate();
+        }
+      }
+
+      Assert.assertEquals(ImmutableList.of(25, 50, 1000),
+                          DataDrivenETLDBInputFormat.getSplitBoundaries(
+                            connection, "SELECT * FROM my_table WHERE (1 = 1)", "my_table.id", 4));
+      // the same value at several quantiles is only a boundary once
+      Assert.assertEquals(ImmutableList.of(12, 25, 37, 50, 1000),
+                          DataDrivenETLDBInputFormat.getSplitBoundaries(
+                            connection, "SELECT * FROM my_table WHERE (1 = 1)", "id", 8));
+    }
+  }
+
+  @Test
+  public void testBoundariesWithNtile() throws SQLException {
+    ResultSet resultSet = Mockito.mock(ResultSet.class);
+    Mockito.when(resultSet.next()).thenReturn(true, true, true, true, false);
+    Mockito.when(resultSet.getObject(1)).thenReturn(1L, 25L, 50L, 50L);
+    Statement statement = Mockito.mock(Statement.class);
+    Mockito.when(statement.executeQuery(Mockito.anyString())).thenReturn(resultSet);
+    Connection connection = Mockito.mock(Connection.class);
+    Mockito.when(connection.createStatement()).thenReturn(statement);
+
+    // the first bucket starts at the minimum, and buckets that start with the same value are merged
+    Assert.assertEquals(ImmutableList.of(25L, 50L),
+                        DataDrivenETLDBInputFormat.getSplitBoundaries(connection, "SELECT * FROM t", "id", 4));
+    // only the NTILE query is run
+    Mockito.verify(statement).executeQuery(
+      "SELECT MIN(split_value) FROM (SELECT id AS split_value, NTILE(4) OVER (ORDER BY id) AS split_bucket " +
+        "FROM (SELECT * FROM t) split_query WHERE id IS NOT NULL) split_buckets GROUP BY split_bucket " +
+        "ORDER BY split_bucket");
+    Mockito.verify(statement).close();
+    Mockito.verifyNoMoreInteractions(statement);
+  }
+
+  @Test(expected = SQLException.class)
+  public void testBoundariesNotSupported() throws SQLException {
+    // a database that supports neither NTILE nor offsets falls back to the bounding query in getSplits
+    Statement statement = Mockito.mock(Statement.class);
+    Mockito.when(statement.executeQuery(Mockito.anyString())).thenThrow(new SQLException("syntax error"));
+    Connection connection = Mockito.mock(Connection.class);
+    Mockito.when(connection.createStatement()).thenReturn(statement);
+    Mockito.when(connection.getAutoCommit()).thenReturn(true);
+    DataDrivenETLDBInputFormat.getSplitBoundaries(connection, "SELECT * FROM t", "id", 4);
+  }
+
+  private static void assertSplit(String lowerClause, String upperClause, InputSplit split) {
+    DataDrivenDBInputSplit dbSplit = (DataDrivenDBInputSplit) split;
+    Assert.assertEquals(lowerClause, dbSplit.getLowerClause());
+    Assert.assertEquals(upperClause, dbSplit.getUpperClause());
+  }
+}
@@ -18,7 +18,10 @@ package io.cdap.plugin.format.avro.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.plugin.common.batch.JobUtils;
+import io.cdap.plugin.format.input.AdaptiveSplitPacker;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import io.cdap.plugin.format.input.ProcessedFileIndex;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
@@ -39,8 +42,20 @@ public class CombineAvroInputFormat extends CombineFileInputFormat<NullWritable,
 
   @Override
   public List<InputSplit> getSplits(JobContext job) throws IOException {
-    return JobUtils.applyWithExtraClassLoader(job, getClass().getClassLoader(),
-                                              CombineAvroInputFormat.super::getSplits);
+    return JobUtils.applyWithExtraClassLoader(job, getClass().getClassLoader(), context -> {
+      if (AdaptiveSplitPacker.isEnabled(context)) {
+        return new AdaptiveSplitPacker(context, file -> isSplitable(context, file)).getSplits();
+      }
+      return super.getSplits(context);
+    });
+  }
+
+  /**
+   * Leaves out the files that previous runs have read, if the job has a processed file index.
+   */
+  @Override
+  protected List<FileStatus> listStatus(JobContext job) throws IOException {
+    return ProcessedFileIndex.selectNewFiles(job.getConfiguration(), super.listStatus(job));
   }
 
   /**
@@ -43,7 +43,7 @@ public class RegexPathFilter extends Configured implements PathFilter {
       if (fileSystem.isDirectory(path)) {
         return true;
       } else if (fileSystem.isFile(path)) {
-        return pattern == null || pattern.matcher(path.toUri().getPath()).matches();
+        return acceptFile(path);
       }
       return false;
     } catch (IOException e) {
@@ -51,6 +51,14 @@ public class RegexPathFilter extends Configured implements PathFilter {
     }
   }
 
+  /**
+   * Returns whether a path that is known to be a file matches the regex. Unlike {@link #accept(Path)}, this does not
+   * look up the type of the path in the file system.
+   */
+  public boolean acceptFile(Path path) {
+    return pattern == null || pattern.matcher(path.toUri().getPath()).matches();
+  }
+
   @Override
   public void setConf(Configuration conf) {
     super.setConf(conf);
@@ -0,0 +1,399 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.input;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.plugin.format.RegexPathFilter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.fs.RemoteIterator;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+/**
+ * Computes the splits of a {@link CombineFileInputFormat} for inputs with many small files. Directories are listed in
+ * parallel, one level of the directory tree at a time, and the files are packed into splits that are balanced by both
+ * their size and their number of files, rather than combined up to the maximum split size in listing order.
+ * <p>
+ * Files larger than the maximum split size are cut into chunks of that size if they are splittable. Chunks are grouped
+ * by the first host that stores them. A host with at least one split's worth of chunks gets splits of its own, and the
+ * chunks of the other hosts are pooled. Each group starts with the fewest splits that could keep them within both the
+ * maximum size and the maximum number of files, and its chunks are assigned, largest first, to the split with the
+ * lowest load. If that split cannot take a chunk without exceeding either maximum, a new split is added for it. The
+ * load of a split is the larger of its fraction of the maximum size and its fraction of the maximum number of files.
+ * A chunk that is larger than the maximum split size, such as a file that is not splittable, gets a split of its own.
+ */
+public final class AdaptiveSplitPacker {
+  public static final String ENABLED = "combine.adaptive.enabled";
+  public static final String MAX_FILES_PER_SPLIT = "combine.adaptive.max.files.per.split";
+  public static final String LISTING_THREADS = "combine.adaptive.listing.threads";
+  public static final int DEFAULT_MAX_FILES_PER_SPLIT = 1000;
+  private static final int DEFAULT_LISTING_THREADS = 16;
+  // as in FileInputFormat, a file is only cut into chunks if it is more than 10% larger than the maximum split size
+  private static final double SPLIT_SLOP = 1.1;
+  private static final Logger LOG = LoggerFactory.getLogger(AdaptiveSplitPacker.class);
+  private static final PathFilter HIDDEN_FILE_FILTER = path -> {
+    String name = path.getName();
+    return !name.startsWith("_") && !name.startsWith(".");
+  };
+
+  private final JobContext job;
+  private final Predicate<Path> isSplitable;
+
+  /**
+   * @param job the job to compute the splits of
+   * @param isSplitable whether a file can be cut into chunks
+   */
+  public AdaptiveSplitPacker(JobContext job, Predicate<Path> isSplitable) {
+    this.job = job;
+    this.isSplitable = isSplitable;
+  }
+
+  /**
+   * Returns whether splits should be computed by this class rather than by {@link CombineFileInputFormat}.
+   */
+  public static boolean isEnabled(JobContext job) {
+    return job.getConfiguration().getBoolean(ENABLED, false);
+  }
+
+  /**
+   * Lists the input files of the job and packs them into splits.
+   *
+   * @return the splits, which are all {@link CombineFileSplit CombineFileSplits}
+   * @throws IOException if an input path does not exist or could not be listed
+   */
+  public List<InputSplit> getSplits() throws IOException {
+    Configuration conf = job.getConfiguration();
+    long maxBytes = FileInputFormat.getMaxSplitSize(job);
+    int maxFiles = conf.getInt(MAX_FILES_PER_SPLIT, DEFAULT_MAX_FILES_PER_SPLIT);
+    if (maxBytes < 1 || maxFiles < 1) {
+      throw new IllegalArgumentException(String.format(
+        "The maximum split size and number of files per split must be positive, but are %d and %d.",
+        maxBytes, maxFiles));
+    }
+
+    long listingStart = System.currentTimeMillis();
+    Listing listing = listFiles();
+    long listingMillis = System.currentTimeMillis() - listingStart;
+
+    List<LocatedFileStatus> files = ProcessedFileIndex.selectNewFiles(conf, listing.files);
+    List<Chunk> chunks = toChunks(files, maxBytes);
+    List<InputSplit> splits = pack(chunks, maxBytes, maxFiles);
+    conf.setLong(FileInputFormat.NUM_INPUT_FILES, files.size());
+    LOG.info("Listed {} files in {} directories in {} ms, and packed {} chunks of {} files into {} splits.",
+             listing.files.size(), listing.numDirectories, listingMillis, chunks.size(), files.size(), splits.size());
+    return splits;
+  }
+
+  /**
+   * Packs chunks into splits, first for each host with enough chunks, then for the chunks of the other hosts.
+   */
+  private static List<InputSplit> pack(List<Chunk> chunks, long maxBytes, int maxFiles) {
+    Map<String, List<Chunk>> chunksByHost = new TreeMap<>();
+    for (Chunk chunk : chunks) {
+      chunksByHost.computeIfAbsent(chunk.host, host -> new ArrayList<>()).add(chunk);
+    }
+
+    List<InputSplit> splits = new ArrayList<>();
+    List<Chunk> pooled = new ArrayList<>();
+    for (Map.Entry<String, List<Chunk>> entry : chunksByHost.entrySet()) {
+      List<Chunk> hostChunks = entry.getValue();
+      if (entry.getKey().isEmpty() || (hostChunks.size() < maxFiles && totalLength(hostChunks) < maxBytes)) {
+        pooled.addAll(hostChunks);
+        continue;
+      }
+      String[] locations = new String[] { entry.getKey() };
+      for (List<Chunk> split : binPack(hostChunks, maxBytes, maxFiles)) {
+        splits.add(toSplit(split, locations));
+      }
+    }
+    if (!pooled.isEmpty()) {
+      for (List<Chunk> split : binPack(pooled, maxBytes, maxFiles)) {
+        splits.add(toSplit(split, new String[0]));
+      }
+    }
+    return splits;
+  }
+
+  /**
+   * Assigns chunks, largest first, to the least loaded split, adding a split whenever that one is full.
+   */
+  private static List<List<Chunk>> binPack(List<Chunk> chunks, long maxBytes, int maxFiles) {
+    long totalLength = totalLength(chunks);
+    long numBins = Math.max(totalLength / maxBytes + (totalLength % maxBytes == 0 ? 0 : 1),
+                            ((long) chunks.size() + maxFiles - 1) / maxFiles);
+    numBins = Math.max(1, Math.min(numBins, chunks.size()));
+
+    PriorityQueue<Bin> bins = new PriorityQueue<>((int) numBins, Comparator.comparingDouble(Bin::getLoad));
+    for (int i = 0; i < numBins; i++) {
+      bins.add(new Bin(maxBytes, maxFiles));
+    }
+    chunks.sort(Comparator.comparingLong((Chunk chunk) -> chunk.length).reversed());
+    for (Chunk chunk : chunks) {
+      Bin bin = bins.peek();
+      if (bin.canAdd(chunk)) {
+        bins.poll();
+      } else {
+        bin = new Bin(maxBytes, maxFiles);
+      }
+      bin.add(chunk);
+      bins.add(bin);
+    }
+
+    List<List<Chunk>> packed = new ArrayList<>(bins.size());
+    for (Bin bin : bins) {
+      packed.add(bin.chunks);
+    }
+    return packed;
+  }
+
+  private static CombineFileSplit toSplit(List<Chunk> chunks, String[] locations) {
+    // read the files of a split in order, and the chunks of a file from its start
+    chunks.sort(Comparator.comparing((Chunk chunk) -> chunk.path.toString()).thenComparingLong(chunk -> chunk.start));
+    Path[] paths = new Path[chunks.size()];
+    long[] starts = new long[chunks.size()];
+    long[] lengths = new long[chunks.size()];
+    for (int i = 0; i < chunks.size(); i++) {
+      Chunk chunk = chunks.get(i);
+      paths[i] = chunk.path;
+      starts[i] = chunk.start;
+      lengths[i] = chunk.length;
+    }
+    return new CombineFileSplit(paths, starts, lengths, locations);
+  }
+
+  private static long totalLength(List<Chunk> chunks) {
+    long totalLength = 0L;
+    for (Chunk chunk : chunks) {
+      totalLength += chunk.length;
+    }
+    return totalLength;
+  }
+
+  /**
+   * Cuts splittable files larger than the maximum split size into chunks of that size.
+   */
+  private List<Chunk> toChunks(List<LocatedFileStatus> files, long maxBytes) throws IOException {
+    List<Chunk> chunks = new ArrayList<>(files.size());
+    for (LocatedFileStatus file : files) {
+      long start = 0L;
+      long length = file.getLen();
+      if (length > maxBytes * SPLIT_SLOP && isSplitable.test(file.getPath())) {
+        while (length - start > maxBytes * SPLIT_SLOP) {
+          chunks.add(new Chunk(file.getPath(), start, maxBytes, getHost(file, start)));
+          start += maxBytes;
+        }
+      }
+      chunks.add(new Chunk(file.getPath(), start, length - start, getHost(file, start)));
+    }
+    return chunks;
+  }
+
+  /**
+   * Lists the files of the input paths. Directories of the same level are listed in parallel. As in
+   * {@link FileInputFormat}, hidden files are skipped, and sub-directories are only read if the input is recursive.
+   */
+  private Listing listFiles() throws IOException {
+    Configuration conf = job.getConfiguration();
+    PathFilter inputFilter = FileInputFormat.getInputPathFilter(job);
+    boolean recursive = FileInputFormat.getInputDirRecursive(job);
+
+    Listing listing = new Listing();
+    List<Path> directories = new ArrayList<>();
+    for (Path path : FileInputFormat.getInputPaths(job)) {
+      FileSystem fs = path.getFileSystem(conf);
+      FileStatus[] matches = fs.globStatus(path, match -> HIDDEN_FILE_FILTER.accept(match)
+        && (inputFilter == null || inputFilter.accept(match)));
+      if (matches == null) {
+        throw new IOException(String.format("Input path %s does not exist.", path));
+      }
+      if (matches.length == 0) {
+        throw new IOException(String.format("Input pattern %s matches 0 files.", path));
+      }
+      for (FileStatus match : matches) {
+        if (match.isDirectory()) {
+          directories.add(match.getPath());
+        } else {
+          listing.files.add(new LocatedFileStatus(match, fs.getFileBlockLocations(match, 0L, match.getLen())));
+        }
+      }
+    }
+    if (directories.isEmpty()) {
+      return listing;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(
+      conf.getInt(LISTING_THREADS, DEFAULT_LISTING_THREADS),
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("file-listing-%d").build());
+    try {
+      while (!directories.isEmpty()) {
+        List<Future<Listing>> futures = new ArrayList<>(directories.size());
+        for (Path directory : directories) {
+          futures.add(executor.submit(() -> listDirectory(directory, inputFilter)));
+        }
+        listing.numDirectories += directories.size();
+        directories = new ArrayList<>();
+        for (Future<Listing> future : futures) {
+          Listing directoryListing = future.get();
+          listing.files.addAll(directoryListing.files);
+          if (recursive) {
+            directories.addAll(directoryListing.directories);
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while listing the input files.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Failed to list the input files.", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    return listing;
+  }
+
+  private Listing listDirectory(Path directory, @Nullable PathFilter inputFilter) throws IOException {
+    Listing listing = new Listing();
+    RemoteIterator<LocatedFileStatus> statuses = directory.getFileSystem(job.getConfiguration())
+      .listLocatedStatus(directory);
+    while (statuses.hasNext()) {
+      LocatedFileStatus status = statuses.next();
+      Path path = status.getPath();
+      if (!HIDDEN_FILE_FILTER.accept(path) || !accept(inputFilter, path, status.isDirectory())) {
+        continue;
+      }
+      if (status.isDirectory()) {
+        listing.directories.add(path);
+      } else {
+        listing.files.add(status);
+      }
+    }
+    return listing;
+  }
+
+  /**
+   * Returns the first host of the block that contains the given offset, or an empty string if it is unknown.
+   */
+  private static String getHost(LocatedFileStatus file, long offset) throws IOException {
+    BlockLocation[] blocks = file.getBlockLocations();
+    if (blocks == null) {
+      return "";
+    }
+    for (BlockLocation block : blocks) {
+      if (offset >= block.getOffset() && offset < block.getOffset() + block.getLength()) {
+        String[] hosts = block.getHosts();
+        return hosts.length == 0 ? "" : hosts[0];
+      }
+    }
+    return "";
+  }
+
+  private static boolean accept(@Nullable PathFilter filter, Path path, boolean isDirectory) {
+    if (filter == null) {
+      return true;
+    }
+    if (filter instanceof RegexPathFilter) {
+      // the type of the path is already known, so there is no need for the filter to look it up
+      return isDirectory || ((RegexPathFilter) filter).acceptFile(path);
+    }
+    return filter.accept(path);
+  }
+
+  /**
+   * Files and directories found while listing.
+   */
+  private static final class Listing {
+    private final List<LocatedFileStatus> files = new ArrayList<>();
+    private final List<Path> directories = new ArrayList<>();
+    private int numDirectories;
+  }
+
+  /**
+   * A range of a file that is read as a whole.
+   */
+  private static final class Chunk {
+    private final Path path;
+    private final long start;
+    private final long length;
+    private final String host;
+
+    private Chunk(Path path, long start, long length, String host) {
+      this.path = path;
+      this.start = start;
+      this.length = length;
+      this.host = host;
+    }
+  }
+
+  /**
+   * Chunks that are packed into the same split.
+   */
+  private static final class Bin {
+    private final long maxBytes;
+    private final int maxFiles;
+    private final List<Chunk> chunks = new ArrayList<>();
+    private long length;
+
+    private Bin(long maxBytes, int maxFiles) {
+      this.maxBytes = maxBytes;
+      this.maxFiles = maxFiles;
+    }
+
+    /**
+     * Returns whether the chunk fits in this bin. A chunk always fits in an empty bin, even if it is too large.
+     */
+    private boolean canAdd(Chunk chunk) {
+      return chunks.isEmpty() || (chunks.size() < maxFiles && length + chunk.length <= maxBytes);
+    }
+
+    private void add(Chunk chunk) {
+      chunks.add(chunk);
+      length += chunk.length;
+    }
+
+    private double getLoad() {
+      return Math.max((double) length / maxBytes, (double) chunks.size() / maxFiles);
+    }
+  }
+}
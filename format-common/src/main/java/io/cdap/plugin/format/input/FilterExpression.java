@@ -0,0 +1,463 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+/**
+ * A filter on the records read by a file format, which columnar formats push down to their readers.
+ *
+ * The expression compares top level fields to literals, and comparisons can be combined with 'and', 'or', 'not'
+ * and parentheses. For example:
+ *
+ * <pre>
+ *   country = 'US' and (price >= 10.5 or discounted is not null)
+ * </pre>
+ *
+ * Supported operators are =, !=, &lt;&gt;, &lt;, &lt;=, &gt;, &gt;=, 'is null' and 'is not null'. Strings are
+ * quoted with single quotes, and a single quote inside a string is escaped by doubling it. Literals are converted to
+ * the type of the field they are compared to, so that formats do not have to parse them again. Fields with a logical
+ * type are compared using their physical value, except that date fields can also be compared to a quoted ISO date.
+ * A comparison with a null field value is false.
+ */
+public abstract class FilterExpression {
+
+  /**
+   * Comparison operators.
+   */
+  public enum Operator {
+    EQ, NOT_EQ, LT, LT_EQ, GT, GT_EQ, IS_NULL, IS_NOT_NULL
+  }
+
+  /**
+   * Visitor for filter expressions, used to convert them into format specific predicates.
+   *
+   * @param <T> type of result
+   */
+  public interface Visitor<T> {
+
+    T visitAnd(FilterExpression left, FilterExpression right);
+
+    T visitOr(FilterExpression left, FilterExpression right);
+
+    T visitNot(FilterExpression child);
+
+    T visitComparison(Comparison comparison);
+  }
+
+  private FilterExpression() {
+    // only the nested classes are expressions
+  }
+
+  public abstract <T> T accept(Visitor<T> visitor);
+
+  /**
+   * Evaluates the expression for a record.
+   *
+   * @param values function that returns the value of a field of the record
+   * @return whether the record matches the expression
+   */
+  public abstract boolean matches(Function<String, Object> values);
+
+  /**
+   * Parses the given filter expression.
+   *
+   * @param expression the filter expression
+   * @param schema the schema of the records that are read
+   * @return the parsed expression
+   * @throws IllegalArgumentException if the expression is invalid or refers to a field that cannot be filtered on
+   */
+  public static FilterExpression parse(String expression, Schema schema) {
+    Parser parser = new Parser(expression, schema);
+    FilterExpression filter = parser.parseOr();
+    if (parser.position < parser.tokens.size()) {
+      throw parser.error(String.format("Unexpected '%s'", parser.tokens.get(parser.position)));
+    }
+    return filter;
+  }
+
+  /**
+   * Comparison of a field with a literal, or a null check.
+   */
+  public static final class Comparison extends FilterExpression {
+    private final String fieldName;
+    private final Schema fieldSchema;
+    private final Operator operator;
+    private final Comparable<Object> value;
+
+    @SuppressWarnings("unchecked")
+    private Comparison(String fieldName, Schema fieldSchema, Operator operator, @Nullable Comparable<?> value) {
+      this.fieldName = fieldName;
+      this.fieldSchema = fieldSchema;
+      this.operator = operator;
+      this.value = (Comparable<Object>) value;
+    }
+
+    public String getFieldName() {
+      return fieldName;
+    }
+
+    /**
+     * @return the non-nullable schema of the field
+     */
+    public Schema getFieldSchema() {
+      return fieldSchema;
+    }
+
+    public Operator getOperator() {
+      return operator;
+    }
+
+    /**
+     * @return the literal, of the java type used for the field in records, or null for null checks
+     */
+    @Nullable
+    public Object getValue() {
+      return value;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) {
+      return visitor.visitComparison(this);
+    }
+
+    @Override
+    public boolean matches(Function<String, Object> values) {
+      Object fieldValue = values.apply(fieldName);
+      if (operator == Operator.IS_NULL) {
+        return fieldValue == null;
+      }
+      if (operator == Operator.IS_NOT_NULL) {
+        return fieldValue != null;
+      }
+      if (fieldValue == null) {
+        return false;
+      }
+      int result = value.compareTo(fieldValue);
+      switch (operator) {
+        case EQ:
+          return result == 0;
+        case NOT_EQ:
+          return result != 0;
+        case LT:
+          return result > 0;
+        case LT_EQ:
+          return result >= 0;
+        case GT:
+          return result < 0;
+        default:
+          return result <= 0;
+      }
+    }
+  }
+
+  private static final class And extends FilterExpression {
+    private final FilterExpression left;
+    private final FilterExpression right;
+
+    private And(FilterExpression left, FilterExpression right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) {
+      return visitor.visitAnd(left, right);
+    }
+
+    @Override
+    public boolean matches(Function<String, Object> values) {
+      return left.matches(values) && right.matches(values);
+    }
+  }
+
+  private static final class Or extends FilterExpression {
+    private final FilterExpression left;
+    private final FilterExpression right;
+
+    private Or(FilterExpression left, FilterExpression right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) {
+      return visitor.visitOr(left, right);
+    }
+
+    @Override
+    public boolean matches(Function<String, Object> values) {
+      return left.matches(values) || right.matches(values);
+    }
+  }
+
+  private static final class Not extends FilterExpression {
+    private final FilterExpression child;
+
+    private Not(FilterExpression child) {
+      this.child = child;
+    }
+
+    @Override
+    public <T> T accept(Visitor<T> visitor) {
+      return visitor.visitNot(child);
+    }
+
+    @Override
+    public boolean matches(Function<String, Object> values) {
+      return !child.matches(values);
+    }
+  }
+
+  /**
+   * Recursive descent parser for filter expressions.
+   */
+  private static final class Parser {
+    private final String expression;
+    private final Schema schema;
+    private final List<String> tokens;
+    private int position;
+
+    private Parser(String expression, Schema schema) {
+      this.expression = expression;
+      this.schema = schema;
+      this.tokens = tokenize(expression);
+    }
+
+    private FilterExpression parseOr() {
+      FilterExpression filter = parseAnd();
+      while (acceptKeyword("or")) {
+        filter = new Or(filter, parseAnd());
+      }
+      return filter;
+    }
+
+    private FilterExpression parseAnd() {
+      FilterExpression filter = parseUnary();
+      while (acceptKeyword("and")) {
+        filter = new And(filter, parseUnary());
+      }
+      return filter;
+    }
+
+    private FilterExpression parseUnary() {
+      if (acceptKeyword("not")) {
+        return new Not(parseUnary());
+      }
+      if (accept("(")) {
+        FilterExpression filter = parseOr();
+        if (!accept(")")) {
+          throw error("Expected ')'");
+        }
+        return filter;
+      }
+      return parseComparison();
+    }
+
+    private FilterExpression parseComparison() {
+      String fieldName = next("a field name");
+      Schema.Field field = schema.getField(fieldName);
+      if (field == null) {
+        throw error(String.format("Field '%s' does not exist in the schema", fieldName));
+      }
+      Schema fieldSchema = field.getSchema().isNullable() ? field.getSchema().getNonNullable() : field.getSchema();
+
+      if (acceptKeyword("is")) {
+        boolean negate = acceptKeyword("not");
+        if (!acceptKeyword("null")) {
+          throw error(String.format("Expected 'null' after 'is' for field '%s'", fieldName));
+        }
+        return new Comparison(fieldName, fieldSchema, negate ? Operator.IS_NOT_NULL : Operator.IS_NULL, null);
+      }
+
+      String token = next("an operator");
+      Operator operator;
+      switch (token) {
+        case "=":
+        case "==":
+          operator = Operator.EQ;
+          break;
+        case "!=":
+        case "<>":
+          operator = Operator.NOT_EQ;
+          break;
+        case "<":
+          operator = Operator.LT;
+          break;
+        case "<=":
+          operator = Operator.LT_EQ;
+          break;
+        case ">":
+          operator = Operator.GT;
+          break;
+        case ">=":
+          operator = Operator.GT_EQ;
+          break;
+        default:
+          throw error(String.format("Invalid operator '%s' for field '%s'", token, fieldName));
+      }
+      if (fieldSchema.getType() == Schema.Type.BOOLEAN && operator != Operator.EQ && operator != Operator.NOT_EQ) {
+        throw error(String.format("Operator '%s' is not supported for boolean field '%s'", token, fieldName));
+      }
+      return new Comparison(fieldName, fieldSchema, operator,
+                            parseLiteral(fieldName, fieldSchema, next("a value")));
+    }
+
+    private Comparable<?> parseLiteral(String fieldName, Schema fieldSchema, String literal) {
+      boolean quoted = literal.startsWith("'");
+      try {
+        switch (fieldSchema.getType()) {
+          case INT:
+            if (quoted && fieldSchema.getLogicalType() == Schema.LogicalType.DATE) {
+              return (int) LocalDate.parse(unquote(literal)).toEpochDay();
+            }
+            if (!quoted) {
+              return Integer.parseInt(literal);
+            }
+            break;
+          case LONG:
+            if (!quoted) {
+              return Long.parseLong(literal);
+            }
+            break;
+          case FLOAT:
+            if (!quoted) {
+              return Float.parseFloat(literal);
+            }
+            break;
+          case DOUBLE:
+            if (!quoted) {
+              return Double.parseDouble(literal);
+            }
+            break;
+          case BOOLEAN:
+            if ("true".equalsIgnoreCase(literal) || "false".equalsIgnoreCase(literal)) {
+              return Boolean.parseBoolean(literal);
+            }
+            break;
+          case STRING:
+          case ENUM:
+            if (quoted) {
+              return unquote(literal);
+            }
+            break;
+          default:
+            throw error(String.format("Field '%s' of type '%s' cannot be filtered on",
+                                      fieldName, fieldSchema.getType()));
+        }
+      } catch (NumberFormatException | DateTimeParseException e) {
+        // fall through to the error below
+      }
+      throw error(String.format("Invalid value %s for field '%s' of type '%s'",
+                                literal, fieldName, fieldSchema.getType()));
+    }
+
+    private boolean accept(String token) {
+      if (position < tokens.size() && tokens.get(position).equals(token)) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+      if (position < tokens.size() && tokens.get(position).equalsIgnoreCase(keyword)) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private String next(String expected) {
+      if (position >= tokens.size()) {
+        throw error(String.format("Expected %s at the end of the expression", expected));
+      }
+      return tokens.get(position++);
+    }
+
+    private IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(String.format("%s in filter '%s'.", message, expression));
+    }
+
+    private static String unquote(String literal) {
+      return literal.substring(1, literal.length() - 1).replace("''", "'");
+    }
+
+    /**
+     * Splits the expression into identifiers, literals, operators and parentheses. Quoted strings keep their quotes
+     * so that they can be told apart from identifiers.
+     */
+    private static List<String> tokenize(String expression) {
+      List<String> tokens = new ArrayList<>();
+      int length = expression.length();
+      int i = 0;
+      while (i < length) {
+        char c = expression.charAt(i);
+        if (Character.isWhitespace(c)) {
+          i++;
+        } else if (c == '(' || c == ')') {
+          tokens.add(String.valueOf(c));
+          i++;
+        } else if (c == '\'') {
+          int end = i + 1;
+          while (true) {
+            if (end >= length) {
+              throw new IllegalArgumentException(String.format("Unterminated string in filter '%s'.", expression));
+            }
+            if (expression.charAt(end) == '\'') {
+              if (end + 1 < length && expression.charAt(end + 1) == '\'') {
+                end += 2;
+                continue;
+              }
+              break;
+            }
+            end++;
+          }
+          tokens.add(expression.substring(i, end + 1));
+          i = end + 1;
+        } else if ("=!<>".indexOf(c) >= 0) {
+          int end = i + 1;
+          if (end < length && "=>".indexOf(expression.charAt(end)) >= 0) {
+            end++;
+          }
+          tokens.add(expression.substring(i, end));
+          i = end;
+        } else {
+          int end = i;
+          while (end < length && (Character.isLetterOrDigit(expression.charAt(end))
+            || "_.-+".indexOf(expression.charAt(end)) >= 0)) {
+            end++;
+          }
+          if (end == i) {
+            throw new IllegalArgumentException(String.format("Unexpected character '%s' in filter '%s'.",
+                                                             c, expression));
+          }
+          tokens.add(expression.substring(i, end));
+          i = end;
+        }
+      }
+      return tokens;
+    }
+  }
+}
@@ -19,10 +19,12 @@ package io.cdap.plugin.format.input;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
@@ -30,6 +32,12 @@ import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -50,8 +58,20 @@ public abstract class PathTrackingInputFormat extends FileInputFormat<NullWritab
   static final String FILENAME_ONLY = "path.tracking.filename.only";
   public static final String SOURCE_FILE_ENCODING = "path.tracking.encoding";
   static final String SCHEMA = "schema";
+  /**
+   * Comma-separated names of the fields to read. When set, records only contain these fields and the path field.
+   */
+  public static final String REQUIRED_FIELDS = "path.tracking.required.fields";
   public static final String TARGET_ENCODING = "utf-8";
 
+  /**
+   * Leaves out the files that previous runs have read, if the job has a processed file index.
+   */
+  @Override
+  protected List<FileStatus> listStatus(JobContext job) throws IOException {
+    return ProcessedFileIndex.selectNewFiles(job.getConfiguration(), super.listStatus(job));
+  }
+
   @Override
   public RecordReader<NullWritable, StructuredRecord> createRecordReader(InputSplit split,
                                                                          TaskAttemptContext context)
@@ -68,10 +88,32 @@ public abstract class PathTrackingInputFormat extends FileInputFormat<NullWritab
     String path = userFilenameOnly ? fileSplit.getPath().getName() : fileSplit.getPath().toUri().toString();
     String schema = hConf.get(SCHEMA);
     Schema parsedSchema = schema == null ? null : Schema.parseJson(schema);
+    String requiredFields = hConf.get(REQUIRED_FIELDS);
+    Schema outputSchema = parsedSchema == null || requiredFields == null ? null :
+      getProjectedSchema(parsedSchema, Arrays.asList(requiredFields.split(",")), pathField);
 
-    RecordReader<NullWritable, StructuredRecord.Builder> delegate = createRecordReader(fileSplit, context,
-                                                                                       pathField, parsedSchema);
-    return new TrackingRecordReader(delegate, pathField, path);
+    RecordReader<NullWritable, StructuredRecord.Builder> delegate =
+      createRecordReader(fileSplit, context, pathField, parsedSchema, outputSchema);
+    return new TrackingRecordReader(delegate, pathField, path, outputSchema);
+  }
+
+  /**
+   * Returns the schema with only the given fields and the path field, in the order of the schema.
+   *
+   * @param schema the schema to project
+   * @param fields the names of the fields to keep
+   * @param pathField the path field, which is always kept
+   * @return the projected schema
+   */
+  public static Schema getProjectedSchema(Schema schema, Collection<String> fields, @Nullable String pathField) {
+    Set<String> names = new HashSet<>(fields);
+    List<Schema.Field> projectedFields = new ArrayList<>();
+    for (Schema.Field field : schema.getFields()) {
+      if (names.contains(field.getName()) || field.getName().equals(pathField)) {
+        projectedFields.add(field);
+      }
+    }
+    return Schema.recordOf(schema.getRecordName(), projectedFields);
   }
 
   public RecordReader<LongWritable, Text> getDefaultRecordReaderDelegate(InputSplit split,
@@ -92,6 +134,19 @@ public abstract class PathTrackingInputFormat extends FileInputFormat<NullWritab
     FileSplit split, TaskAttemptContext context,
     @Nullable String pathField, @Nullable Schema schema) throws IOException, InterruptedException;
 
+  /**
+   * Creates a record reader that only reads the fields of the output schema, if there is one. Readers that can skip
+   * the conversion of fields that are not required should override this and build records with the output schema
+   * instance. By default, all fields are read and records are projected to the output schema afterwards.
+   *
+   * @param outputSchema the schema of the records to read, or null to read every field of the schema
+   */
+  protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(
+    FileSplit split, TaskAttemptContext context, @Nullable String pathField, @Nullable Schema schema,
+    @Nullable Schema outputSchema) throws IOException, InterruptedException {
+    return createRecordReader(split, context, pathField, schema);
+  }
+
   /**
    * Supports adding a field to each record that contains the path of the file the record was read from.
    */
@@ -99,12 +154,14 @@ public abstract class PathTrackingInputFormat extends FileInputFormat<NullWritab
     private final RecordReader<NullWritable, StructuredRecord.Builder> delegate;
     private final String pathField;
     private final String path;
+    private final Schema outputSchema;
 
     TrackingRecordReader(RecordReader<NullWritable, StructuredRecord.Builder> delegate,
-                         @Nullable String pathField, String path) {
+                         @Nullable String pathField, String path, @Nullable Schema outputSchema) {
       this.delegate = delegate;
       this.pathField = pathField;
       this.path = path;
+      this.outputSchema = outputSchema;
     }
 
     @Override
@@ -123,7 +180,16 @@ public abstract class PathTrackingInputFormat extends FileInputFormat<NullWritab
       if (pathField != null) {
         recordBuilder.set(pathField, path);
       }
-      return recordBuilder.build();
+      StructuredRecord record = recordBuilder.build();
+      // records of readers that read every field are projected here
+      if (outputSchema == null || record.getSchema() == outputSchema) {
+        return record;
+      }
+      StructuredRecord.Builder projected = StructuredRecord.builder(outputSchema);
+      for (Schema.Field field : outputSchema.getFields()) {
+        projected.set(field.getName(), record.get(field.getName()));
+      }
+      return projected.build();
     }
 
     @Override
@@ -0,0 +1,298 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.input;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An index of the files that previous runs of a source have read, so that a run only reads new files. A file is
+ * identified by its path, modification time and length, so a file that is modified is read again.
+ * <p>
+ * The index is a directory of immutable segments. When the splits of a run are computed, the files that the run reads
+ * are written to a pending segment, which is committed if the run succeeds and deleted if it fails. When there are
+ * too many segments, they are merged into one.
+ * <p>
+ * The watermark is the latest modification time of any file in the index. Files that were modified more than the
+ * retention period before the watermark are assumed to have been read without being looked up, and are pruned from
+ * the index. The size of the index, and the work to check files against it, are therefore proportional to the files
+ * modified within the retention period rather than to every file the source has ever read.
+ */
+public final class ProcessedFileIndex {
+  public static final String INDEX_PATH = "processed.file.index.path";
+  public static final String RETENTION_MILLIS = "processed.file.index.retention.ms";
+  public static final String RUN_ID = "processed.file.index.run.id";
+  private static final Logger LOG = LoggerFactory.getLogger(ProcessedFileIndex.class);
+  private static final String SEGMENT_PREFIX = "segment-";
+  private static final String PENDING_PREFIX = "pending-";
+  private static final String TEMP_PREFIX = "tmp-";
+  private static final int MAX_SEGMENTS = 16;
+  private static final int VERSION = 1;
+  private static final long NO_WATERMARK = Long.MIN_VALUE;
+
+  private final long watermark;
+  private final long retentionMillis;
+  private final Set<Entry> entries;
+
+  private ProcessedFileIndex(long watermark, long retentionMillis, Set<Entry> entries) {
+    this.watermark = watermark;
+    this.retentionMillis = retentionMillis;
+    this.entries = entries;
+  }
+
+  /**
+   * Configures a job to only read the files that are not in the index.
+   *
+   * @param conf the configuration of the job
+   * @param indexPath the directory of the index
+   * @param retentionMillis how long before the watermark files are still looked up in the index
+   * @param runId a unique id of the run, which names its pending segment
+   */
+  public static void configure(Configuration conf, Path indexPath, long retentionMillis, String runId) {
+    conf.set(INDEX_PATH, indexPath.toString());
+    conf.setLong(RETENTION_MILLIS, retentionMillis);
+    conf.set(RUN_ID, runId);
+  }
+
+  /**
+   * Returns whether the job is configured to only read new files.
+   */
+  public static boolean isEnabled(Configuration conf) {
+    return conf.get(INDEX_PATH) != null;
+  }
+
+  /**
+   * Returns the files that are not in the index, and writes them to the pending segment of the run. Calling this
+   * again in the same run replaces the pending segment. If the job is not configured with an index, all files are
+   * returned.
+   *
+   * @param conf the configuration of the job
+   * @param files the listed input files
+   * @return the files that the run should read
+   * @throws IOException if the index could not be read or written
+   */
+  public static <T extends FileStatus> List<T> selectNewFiles(Configuration conf, List<T> files) throws IOException {
+    if (!isEnabled(conf)) {
+      return files;
+    }
+    Path indexPath = new Path(conf.get(INDEX_PATH));
+    FileSystem fs = indexPath.getFileSystem(conf);
+    ProcessedFileIndex index = load(fs, indexPath, conf.getLong(RETENTION_MILLIS, 0L));
+
+    List<T> newFiles = new ArrayList<>();
+    List<Entry> newEntries = new ArrayList<>();
+    for (T file : files) {
+      Entry entry = new Entry(file.getPath().toString(), file.getModificationTime(), file.getLen());
+      if (index.isNew(entry)) {
+        newFiles.add(file);
+        newEntries.add(entry);
+      }
+    }
+
+    Path pending = new Path(indexPath, PENDING_PREFIX + conf.get(RUN_ID));
+    if (newEntries.isEmpty()) {
+      fs.delete(pending, false);
+    } else {
+      write(fs, pending, getWatermark(NO_WATERMARK, newEntries), newEntries);
+    }
+    LOG.info("Selected {} new files out of {} listed files, using an index of {} files.",
+             newFiles.size(), files.size(), index.entries.size());
+    return newFiles;
+  }
+
+  /**
+   * Commits the pending segment of the run, so that later runs do not read its files again, and merges the segments
+   * if there are too many.
+   *
+   * @param conf the configuration of the job
+   * @throws IOException if the index could not be read or written
+   */
+  public static void commit(Configuration conf) throws IOException {
+    Path indexPath = new Path(conf.get(INDEX_PATH));
+    FileSystem fs = indexPath.getFileSystem(conf);
+    String runId = conf.get(RUN_ID);
+    Path pending = new Path(indexPath, PENDING_PREFIX + runId);
+    if (!fs.exists(pending)) {
+      // the run did not read any file
+      return;
+    }
+    if (!fs.rename(pending, new Path(indexPath, SEGMENT_PREFIX + runId))) {
+      throw new IOException(String.format("Failed to commit the processed file index segment '%s'.", pending));
+    }
+
+    FileStatus[] segments = listSegments(fs, indexPath);
+    if (segments.length <= MAX_SEGMENTS) {
+      return;
+    }
+    ProcessedFileIndex index = load(fs, indexPath, conf.getLong(RETENTION_MILLIS, 0L));
+    // merged segments are written under a temporary name first, so that readers never see a partial segment
+    Path temp = new Path(indexPath, TEMP_PREFIX + runId);
+    write(fs, temp, index.watermark, index.entries);
+    if (!fs.rename(temp, new Path(indexPath, SEGMENT_PREFIX + runId + "-merged"))) {
+      throw new IOException(String.format("Failed to merge the processed file index segments in '%s'.", indexPath));
+    }
+    for (FileStatus segment : segments) {
+      fs.delete(segment.getPath(), false);
+    }
+  }
+
+  /**
+   * Deletes the pending segment of the run, so that later runs read its files again.
+   *
+   * @param conf the configuration of the job
+   * @throws IOException if the pending segment could not be deleted
+   */
+  public static void abort(Configuration conf) throws IOException {
+    Path indexPath = new Path(conf.get(INDEX_PATH));
+    indexPath.getFileSystem(conf).delete(new Path(indexPath, PENDING_PREFIX + conf.get(RUN_ID)), false);
+  }
+
+  @VisibleForTesting
+  int size() {
+    return entries.size();
+  }
+
+  private boolean isNew(Entry entry) {
+    // files older than the retention period before the watermark were read, and are no longer in the index
+    if (watermark != NO_WATERMARK && entry.modificationTime < watermark - retentionMillis) {
+      return false;
+    }
+    return !entries.contains(entry);
+  }
+
+  /**
+   * Reads the committed segments, leaving out files that are older than the retention period before the watermark.
+   */
+  @VisibleForTesting
+  static ProcessedFileIndex load(FileSystem fs, Path indexPath, long retentionMillis) throws IOException {
+    long watermark = NO_WATERMARK;
+    List<Entry> entries = new ArrayList<>();
+    if (fs.exists(indexPath)) {
+      for (FileStatus segment : listSegments(fs, indexPath)) {
+        watermark = Math.max(watermark, read(fs, segment.getPath(), entries));
+      }
+    }
+    Set<Entry> retained = new HashSet<>();
+    for (Entry entry : entries) {
+      if (entry.modificationTime >= watermark - retentionMillis) {
+        retained.add(entry);
+      }
+    }
+    return new ProcessedFileIndex(watermark, retentionMillis, retained);
+  }
+
+  private static FileStatus[] listSegments(FileSystem fs, Path indexPath) throws IOException {
+    return fs.listStatus(indexPath, path -> path.getName().startsWith(SEGMENT_PREFIX));
+  }
+
+  private static long getWatermark(long watermark, Collection<Entry> entries) {
+    for (Entry entry : entries) {
+      watermark = Math.max(watermark, entry.modificationTime);
+    }
+    return watermark;
+  }
+
+  /**
+   * Writes a segment, which is a gzipped version, watermark and number of files, followed by the path, modification
+   * time and length of each file.
+   */
+  private static void write(FileSystem fs, Path path, long watermark, Collection<Entry> entries) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(
+      new BufferedOutputStream(new GZIPOutputStream(fs.create(path, true))))) {
+      out.writeInt(VERSION);
+      out.writeLong(watermark);
+      out.writeInt(entries.size());
+      for (Entry entry : entries) {
+        out.writeUTF(entry.path);
+        out.writeLong(entry.modificationTime);
+        out.writeLong(entry.length);
+      }
+    }
+  }
+
+  /**
+   * Reads the files of a segment.
+   *
+   * @return the watermark of the segment
+   */
+  private static long read(FileSystem fs, Path path, List<Entry> entries) throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(fs.open(path))))) {
+      int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException(String.format("Processed file index segment '%s' has unsupported version %d.",
+                                            path, version));
+      }
+      long watermark = in.readLong();
+      int numEntries = in.readInt();
+      for (int i = 0; i < numEntries; i++) {
+        entries.add(new Entry(in.readUTF(), in.readLong(), in.readLong()));
+      }
+      return watermark;
+    }
+  }
+
+  /**
+   * A version of a file.
+   */
+  private static final class Entry {
+    private final String path;
+    private final long modificationTime;
+    private final long length;
+
+    private Entry(String path, long modificationTime, long length) {
+      this.path = path;
+      this.modificationTime = modificationTime;
+      this.length = length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Entry that = (Entry) o;
+      return modificationTime == that.modificationTime && length == that.length && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, modificationTime, length);
+    }
+  }
+}
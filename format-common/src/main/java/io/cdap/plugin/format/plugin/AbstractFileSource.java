@@ -37,7 +37,10 @@ import io.cdap.plugin.common.SourceInputFormatProvider;
 import io.cdap.plugin.common.batch.JobUtils;
 import io.cdap.plugin.format.FileFormat;
 import io.cdap.plugin.format.RegexPathFilter;
+import io.cdap.plugin.format.input.AdaptiveSplitPacker;
 import io.cdap.plugin.format.input.EmptyInputFormat;
+import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import io.cdap.plugin.format.input.ProcessedFileIndex;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
@@ -54,6 +57,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -77,6 +82,8 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
   private static final String FILE_SYSTEM_PROPERTIES = "fileSystemProperties";
   private final T config;
   private static final Gson GSON = new Gson();
+  // the job configuration, if the run only reads new files
+  private Configuration processedFileIndexConf;
 
   protected AbstractFileSource(T config) {
     this.config = config;
@@ -130,7 +137,7 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
     }
 
     validatePathField(collector, schema);
-    pipelineConfigurer.getStageConfigurer().setOutputSchema(schema);
+    pipelineConfigurer.getStageConfigurer().setOutputSchema(getOutputSchema(collector, schema));
   }
 
   @Override
@@ -155,7 +162,9 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
 
     FormatContext formatContext = new FormatContext(collector, context.getInputSchema());
     validateInputFormatProvider(formatContext, fileFormat, validatingInputFormat);
-    validatePathField(collector, validatingInputFormat.getSchema(formatContext));
+    Schema formatSchema = validatingInputFormat.getSchema(formatContext);
+    validatePathField(collector, formatSchema);
+    getOutputSchema(collector, formatSchema);
     collector.getOrThrowException();
 
     Job job = JobUtils.createInstance();
@@ -172,9 +181,10 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
     LineageRecorder lineageRecorder = new LineageRecorder(context, config.getReferenceName());
     lineageRecorder.createExternalDataset(schema);
 
-    if (schema != null && schema.getFields() != null) {
+    Schema outputSchema = getOutputSchema(collector, schema);
+    if (outputSchema != null && outputSchema.getFields() != null) {
       recordLineage(lineageRecorder,
-                    schema.getFields().stream().map(Schema.Field::getName).collect(Collectors.toList()));
+                    outputSchema.getFields().stream().map(Schema.Field::getName).collect(Collectors.toList()));
     }
 
     // set entries here, before FileSystem is used
@@ -197,12 +207,20 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
     } else {
       FileInputFormat.addInputPath(job, path);
       FileInputFormat.setMaxInputSplitSize(job, config.getMaxSplitSize());
+      if (config.shouldCombineSplitsAdaptively()) {
+        conf.setBoolean(AdaptiveSplitPacker.ENABLED, true);
+        conf.setInt(AdaptiveSplitPacker.MAX_FILES_PER_SPLIT, config.getMaxFilesPerSplit());
+      }
       inputFormatClass = validatingInputFormat.getInputFormatClassName();
       Configuration hConf = job.getConfiguration();
       Map<String, String> inputFormatConfiguration = validatingInputFormat.getInputFormatConfiguration();
       for (Map.Entry<String, String> propertyEntry : inputFormatConfiguration.entrySet()) {
         hConf.set(propertyEntry.getKey(), propertyEntry.getValue());
       }
+      List<String> requiredFields = config.getRequiredFields();
+      if (requiredFields != null) {
+        hConf.set(PathTrackingInputFormat.REQUIRED_FIELDS, String.join(",", requiredFields));
+      }
     }
 
     // set entries here again, in case anything set by PathTrackingInputFormat should be overridden
@@ -210,9 +228,35 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
       conf.set(entry.getKey(), entry.getValue());
     }
 
+    String processedFileIndexPath = config.getProcessedFileIndexPath();
+    if (processedFileIndexPath != null) {
+      ProcessedFileIndex.configure(conf, new Path(processedFileIndexPath),
+                                   TimeUnit.HOURS.toMillis(config.getProcessedFileRetentionHours()),
+                                   UUID.randomUUID().toString());
+      processedFileIndexConf = conf;
+    }
+
     context.setInput(Input.of(config.getReferenceName(), new SourceInputFormatProvider(inputFormatClass, conf)));
   }
 
+  @Override
+  public void onRunFinish(boolean succeeded, BatchSourceContext context) {
+    super.onRunFinish(succeeded, context);
+    if (processedFileIndexConf == null) {
+      return;
+    }
+    try {
+      if (succeeded) {
+        ProcessedFileIndex.commit(processedFileIndexConf);
+      } else {
+        ProcessedFileIndex.abort(processedFileIndexConf);
+      }
+    } catch (IOException e) {
+      LOG.error("Failed to update the index of processed files in '{}'. Files read by this run may be read again.",
+                config.getProcessedFileIndexPath(), e);
+    }
+  }
+
   @Override
   public void transform(KeyValue<NullWritable, StructuredRecord> input,
                         Emitter<StructuredRecord> emitter) throws Exception {
@@ -269,6 +313,25 @@ public abstract class AbstractFileSource<T extends PluginConfig & FileSourceProp
     }
   }
 
+  /**
+   * Returns the schema with only the required fields, if any are configured.
+   */
+  @Nullable
+  private Schema getOutputSchema(FailureCollector collector, @Nullable Schema schema) {
+    List<String> requiredFields = config.getRequiredFields();
+    if (schema == null || schema.getFields() == null || requiredFields == null) {
+      return schema;
+    }
+    for (String field : requiredFields) {
+      if (schema.getField(field) == null) {
+        collector.addFailure(String.format("Required field '%s' does not exist in the schema.", field),
+                             "Remove the field from the required fields.")
+          .withConfigProperty(AbstractFileSourceConfig.NAME_REQUIRED_FIELDS);
+      }
+    }
+    return PathTrackingInputFormat.getProjectedSchema(schema, requiredFields, config.getPathField());
+  }
+
   /**
    * Determines if the schema should be auto detected. This method must return false if any of the plugin properties
    * needed to determine the schema is a macro or not present. Otherwise this method should return true.
@@ -26,8 +26,12 @@ import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.plugin.common.IdUtils;
 import io.cdap.plugin.format.FileFormat;
 import io.cdap.plugin.format.charset.fixedlength.FixedLengthCharset;
+import io.cdap.plugin.format.input.AdaptiveSplitPacker;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
 /**
@@ -39,6 +43,10 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
   public static final String NAME_FORMAT = "format";
   public static final String NAME_SCHEMA = "schema";
   public static final String NAME_DELIMITER = "delimiter";
+  public static final String NAME_REQUIRED_FIELDS = "requiredFields";
+  public static final String NAME_MAX_FILES_PER_SPLIT = "maxFilesPerSplit";
+  public static final String NAME_PROCESSED_FILE_RETENTION_HOURS = "processedFileRetentionHours";
+  public static final long DEFAULT_PROCESSED_FILE_RETENTION_HOURS = 168L;
   public static final String DEFAULT_FILE_ENCODING = "UTF-8";
 
   @Description("Name be used to uniquely identify this source for lineage, annotating metadata, etc.")
@@ -64,6 +72,20 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
   @Macro
   private Long maxSplitSize;
 
+  @Macro
+  @Nullable
+  @Description("Whether to pack files into partitions that are balanced by both their size and their number of files. "
+    + "Directories are listed in parallel, and files are grouped by the hosts that store them. This speeds up reading "
+    + "directories with many small files. The default value is false.")
+  private Boolean adaptiveSplitCombining;
+
+  @Name(NAME_MAX_FILES_PER_SPLIT)
+  @Macro
+  @Nullable
+  @Description("Maximum number of files in each partition when adaptive split combining is enabled. "
+    + "The default value is 1000.")
+  private Integer maxFilesPerSplit;
+
   @Macro
   @Nullable
   @Description("Whether to allow an input that does not exist. When false, the source will fail the run if the input "
@@ -115,11 +137,41 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     "is 'csv', 'tsv' or 'delimited'. The default value is false.")
   protected Boolean enableQuotedValues;
 
+  @Macro
+  @Nullable
+  @Description("Whether quoted values may contain newlines. This value will only be used if the format is 'csv', " +
+    "'tsv' or 'delimited' and quoted values are enabled, or if the format is 'json', in which case json objects " +
+    "may span multiple lines. The default value is false.")
+  protected Boolean enableMultilineSupport;
+
   @Macro
   @Nullable
   @Description("File encoding for the source files. The default encoding is 'UTF-8'")
   private String fileEncoding;
 
+  @Macro
+  @Nullable
+  @Description("Directory in which to keep an index of the files that were read. When set, each run only reads files "
+    + "that no previous successful run has read. A file that is modified is read again. "
+    + "If not specified, every run reads all files.")
+  private String processedFileIndexPath;
+
+  @Name(NAME_PROCESSED_FILE_RETENTION_HOURS)
+  @Macro
+  @Nullable
+  @Description("Number of hours that processed files are kept in the index, counted back from the most recently "
+    + "modified file that was read. Files that were modified earlier are assumed to have been read. "
+    + "The default value is 168 (7 days).")
+  private Long processedFileRetentionHours;
+
+  @Name(NAME_REQUIRED_FIELDS)
+  @Macro
+  @Nullable
+  @Description("Comma-separated list of the fields to read. Other fields in the schema are left out of the output " +
+    "schema, and the 'csv', 'tsv', 'delimited', 'json' and 'text' formats skip converting them. " +
+    "If not specified, all fields are read.")
+  private String requiredFields;
+
   // this is a hidden property that only exists for wrangler's parse-as-csv that uses the header as the schema
   // when this is true and the format is text, the header will be the first record returned by every record reader
   @Nullable
@@ -148,6 +200,18 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
       collector.addFailure(e.getMessage(), null).withConfigProperty(NAME_SCHEMA).withStacktrace(e.getStackTrace());
     }
 
+    if (!containsMacro(NAME_MAX_FILES_PER_SPLIT) && maxFilesPerSplit != null && maxFilesPerSplit < 1) {
+      collector.addFailure(String.format("Maximum files per split must be positive, but is %d.", maxFilesPerSplit),
+                           null).withConfigProperty(NAME_MAX_FILES_PER_SPLIT);
+    }
+
+    if (!containsMacro(NAME_PROCESSED_FILE_RETENTION_HOURS) && processedFileRetentionHours != null
+      && processedFileRetentionHours < 0) {
+      collector.addFailure(String.format("Processed file retention must not be negative, but is %d hours.",
+                                         processedFileRetentionHours), null)
+        .withConfigProperty(NAME_PROCESSED_FILE_RETENTION_HOURS);
+    }
+
     if (getFileEncoding() != null && !getFileEncoding().equals(getDefaultFileEncoding())) {
       if (!FixedLengthCharset.isValidEncoding(getFileEncoding())) {
         collector.addFailure("Specified file encoding is not valid.",
@@ -194,6 +258,27 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     return maxSplitSize;
   }
 
+  @Override
+  public boolean shouldCombineSplitsAdaptively() {
+    return adaptiveSplitCombining != null && adaptiveSplitCombining;
+  }
+
+  @Override
+  public int getMaxFilesPerSplit() {
+    return maxFilesPerSplit == null ? AdaptiveSplitPacker.DEFAULT_MAX_FILES_PER_SPLIT : maxFilesPerSplit;
+  }
+
+  @Nullable
+  @Override
+  public String getProcessedFileIndexPath() {
+    return Strings.isNullOrEmpty(processedFileIndexPath) ? null : processedFileIndexPath;
+  }
+
+  @Override
+  public long getProcessedFileRetentionHours() {
+    return processedFileRetentionHours == null ? DEFAULT_PROCESSED_FILE_RETENTION_HOURS : processedFileRetentionHours;
+  }
+
   @Override
   public boolean shouldAllowEmptyInput() {
     return ignoreNonExistingFolders;
@@ -241,6 +326,18 @@ public abstract class AbstractFileSourceConfig extends PluginConfig implements F
     }
   }
 
+  @Nullable
+  @Override
+  public List<String> getRequiredFields() {
+    if (containsMacro(NAME_REQUIRED_FIELDS) || Strings.isNullOrEmpty(requiredFields)) {
+      return null;
+    }
+    return Arrays.stream(requiredFields.split(","))
+      .map(String::trim)
+      .filter(field -> !field.isEmpty())
+      .collect(Collectors.toList());
+  }
+
   public boolean shouldCopyHeader() {
     return copyHeader;
   }
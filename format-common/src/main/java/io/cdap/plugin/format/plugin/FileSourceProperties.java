@@ -19,7 +19,9 @@ package io.cdap.plugin.format.plugin;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.plugin.format.FileFormat;
+import io.cdap.plugin.format.input.AdaptiveSplitPacker;
 
+import java.util.List;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
@@ -94,6 +96,36 @@ public interface FileSourceProperties {
    */
   long getMaxSplitSize();
 
+  /**
+   * Whether to pack the input files into splits that are balanced by both size and number of files, listing
+   * directories in parallel.
+   */
+  default boolean shouldCombineSplitsAdaptively() {
+    return false;
+  }
+
+  /**
+   * Get the maximum number of files in an input split, when splits are combined adaptively.
+   */
+  default int getMaxFilesPerSplit() {
+    return AdaptiveSplitPacker.DEFAULT_MAX_FILES_PER_SPLIT;
+  }
+
+  /**
+   * The directory of the index of processed files, if each run should only read files that previous runs have not.
+   */
+  @Nullable
+  default String getProcessedFileIndexPath() {
+    return null;
+  }
+
+  /**
+   * Get the number of hours before the most recently modified processed file that files are kept in the index.
+   */
+  default long getProcessedFileRetentionHours() {
+    return 168L;
+  }
+
   /**
    * Whether to allow a path that doesn't exist.
    */
@@ -126,4 +158,13 @@ public interface FileSourceProperties {
    */
   @Nullable
   Schema getSchema();
+
+  /**
+   * The names of the fields to read, if only some of the fields in the schema are needed. Fields that are not
+   * required are not in the output schema, and formats that support it skip converting them.
+   */
+  @Nullable
+  default List<String> getRequiredFields() {
+    return null;
+  }
 }
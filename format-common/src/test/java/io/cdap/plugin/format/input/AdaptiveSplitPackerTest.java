@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.input;
+
+import io.cdap.plugin.format.RegexPathFilter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Tests for {@link AdaptiveSplitPacker}.
+ */
+public class AdaptiveSplitPackerTest {
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testBalancedSplits() throws IOException {
+    File dir = createInput();
+    Job job = createJob(dir, 100L, 4);
+    List<InputSplit> splits = new AdaptiveSplitPacker(job, file -> true).getSplits();
+
+    // the 10 chunks of 100 bytes of the large file fill 10 splits, and the 30 small files need 8 splits of 4 files
+    Assert.assertEquals(18, splits.size());
+    Map<String, Long> bytesPerFile = new HashMap<>();
+    for (InputSplit split : splits) {
+      CombineFileSplit combineSplit = (CombineFileSplit) split;
+      Assert.assertTrue(combineSplit.getNumPaths() <= 4);
+      Assert.assertTrue(combineSplit.getLength() <= 100L);
+      for (int i = 0; i < combineSplit.getNumPaths(); i++) {
+        bytesPerFile.merge(combineSplit.getPath(i).getName(), combineSplit.getLength(i), Long::sum);
+      }
+    }
+    // hidden files and files in sub-directories are not read
+    Assert.assertEquals(31, bytesPerFile.size());
+    Assert.assertEquals(1000L, (long) bytesPerFile.get("big.dat"));
+    Assert.assertEquals(10L, (long) bytesPerFile.get("small-0.txt"));
+    Assert.assertEquals(31L, job.getConfiguration().getLong(FileInputFormat.NUM_INPUT_FILES, 0L));
+  }
+
+  @Test
+  public void testRecursiveFilteredListing() throws IOException {
+    File dir = createInput();
+    Job job = createJob(dir, 1000L, 10);
+    FileInputFormat.setInputDirRecursive(job, true);
+    RegexPathFilter.configure(job.getConfiguration(), Pattern.compile(".*\\.txt"));
+    FileInputFormat.setInputPathFilter(job, RegexPathFilter.class);
+    // the large file is not splittable, but is filtered out anyway
+    List<InputSplit> splits = new AdaptiveSplitPacker(job, file -> false).getSplits();
+
+    // 35 files of 10 bytes in splits of at most 10 files
+    Assert.assertEquals(4, splits.size());
+    int numFiles = 0;
+    for (InputSplit split : splits) {
+      CombineFileSplit combineSplit = (CombineFileSplit) split;
+      Assert.assertTrue(combineSplit.getNumPaths() >= 8 && combineSplit.getNumPaths() <= 9);
+      for (Path path : combineSplit.getPaths()) {
+        Assert.assertTrue(path.getName().endsWith(".txt"));
+      }
+      numFiles += combineSplit.getNumPaths();
+    }
+    Assert.assertEquals(35, numFiles);
+  }
+
+  @Test(expected = IOException.class)
+  public void testMissingInput() throws IOException {
+    Job job = createJob(new File(tmpFolder.getRoot(), "missing"), 100L, 4);
+    new AdaptiveSplitPacker(job, file -> true).getSplits();
+  }
+
+  /**
+   * Creates 30 files of 10 bytes, a file of 1000 bytes, a hidden file, and a sub-directory with 5 files of 10 bytes.
+   */
+  private File createInput() throws IOException {
+    File dir = tmpFolder.newFolder();
+    byte[] small = new byte[10];
+    for (int i = 0; i < 30; i++) {
+      Files.write(new File(dir, "small-" + i + ".txt").toPath(), small);
+    }
+    Files.write(new File(dir, "big.dat").toPath(), new byte[1000]);
+    Files.write(new File(dir, "_SUCCESS").toPath(), small);
+    File subDir = new File(dir, "sub");
+    Assert.assertTrue(subDir.mkdir());
+    for (int i = 0; i < 5; i++) {
+      Files.write(new File(subDir, "nested-" + i + ".txt").toPath(), small);
+    }
+    return dir;
+  }
+
+  private static Job createJob(File dir, long maxSplitSize, int maxFilesPerSplit) throws IOException {
+    Job job = Job.getInstance(new Configuration());
+    FileInputFormat.addInputPath(job, new Path(dir.toURI()));
+    FileInputFormat.setMaxInputSplitSize(job, maxSplitSize);
+    job.getConfiguration().setBoolean(AdaptiveSplitPacker.ENABLED, true);
+    job.getConfiguration().setInt(AdaptiveSplitPacker.MAX_FILES_PER_SPLIT, maxFilesPerSplit);
+    return job;
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.input;
+
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests for {@link FilterExpression}.
+ */
+public class FilterExpressionTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "purchase",
+    Schema.Field.of("country", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("price", Schema.of(Schema.Type.DOUBLE)),
+    Schema.Field.of("quantity", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("gift", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("day", Schema.of(Schema.LogicalType.DATE)),
+    Schema.Field.of("body", Schema.of(Schema.Type.BYTES)));
+
+  @Test
+  public void testMatches() {
+    FilterExpression filter =
+      FilterExpression.parse("country = 'US' AND (price >= 10.5 or quantity is not null) and not gift = true", SCHEMA);
+    Assert.assertTrue(filter.matches(values("US", 10.5d, null, false)::get));
+    Assert.assertTrue(filter.matches(values("US", 1d, 3, false)::get));
+    Assert.assertFalse(filter.matches(values("US", 1d, null, false)::get));
+    Assert.assertFalse(filter.matches(values("CA", 20d, 3, false)::get));
+    Assert.assertFalse(filter.matches(values(null, 20d, 3, false)::get));
+    Assert.assertFalse(filter.matches(values("US", 20d, 3, true)::get));
+  }
+
+  @Test
+  public void testLiterals() {
+    FilterExpression.Comparison comparison =
+      (FilterExpression.Comparison) FilterExpression.parse("country <> 'O''Brien'", SCHEMA);
+    Assert.assertEquals(FilterExpression.Operator.NOT_EQ, comparison.getOperator());
+    Assert.assertEquals("O'Brien", comparison.getValue());
+
+    comparison = (FilterExpression.Comparison) FilterExpression.parse("day < '1970-01-11'", SCHEMA);
+    Assert.assertEquals(10, comparison.getValue());
+    Assert.assertEquals(Schema.LogicalType.DATE, comparison.getFieldSchema().getLogicalType());
+
+    comparison = (FilterExpression.Comparison) FilterExpression.parse("quantity>-3", SCHEMA);
+    Assert.assertEquals(FilterExpression.Operator.GT, comparison.getOperator());
+    Assert.assertEquals(-3, comparison.getValue());
+    Assert.assertEquals(Schema.of(Schema.Type.INT), comparison.getFieldSchema());
+  }
+
+  @Test
+  public void testInvalidExpressions() {
+    assertInvalid("missing = 1");
+    assertInvalid("price = 'abc'");
+    assertInvalid("country = US");
+    assertInvalid("gift < true");
+    assertInvalid("body = 'a'");
+    assertInvalid("price > 1 and");
+    assertInvalid("(price > 1");
+    assertInvalid("price > 1 price < 2");
+    assertInvalid("country = 'US");
+  }
+
+  private static void assertInvalid(String filter) {
+    try {
+      FilterExpression.parse(filter, SCHEMA);
+      Assert.fail(String.format("Filter '%s' should be invalid", filter));
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private static Map<String, Object> values(String country, double price, Integer quantity, boolean gift) {
+    Map<String, Object> values = new HashMap<>(ImmutableMap.of("price", price, "gift", gift, "day", 0));
+    values.put("country", country);
+    values.put("quantity", quantity);
+    return values;
+  }
+}
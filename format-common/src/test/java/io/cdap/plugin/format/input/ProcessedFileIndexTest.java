@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tests for {@link ProcessedFileIndex}.
+ */
+public class ProcessedFileIndexTest {
+  private static final long RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private File dataDir;
+  private Path indexPath;
+  private FileSystem fs;
+
+  @Before
+  public void setUp() throws IOException {
+    dataDir = tmpFolder.newFolder();
+    indexPath = new Path(tmpFolder.newFolder().toURI());
+    fs = FileSystem.getLocal(new Configuration());
+  }
+
+  @Test
+  public void testOnlyNewFilesAreSelected() throws IOException {
+    write("a", "1");
+    write("b", "2");
+    Configuration conf = configure("run1");
+    Assert.assertEquals(names("a", "b"), selectNewFiles(conf));
+    ProcessedFileIndex.commit(conf);
+
+    // a new file and a modified file are read
+    write("b", "22");
+    write("c", "3");
+    conf = configure("run2");
+    Assert.assertEquals(names("b", "c"), selectNewFiles(conf));
+    ProcessedFileIndex.abort(conf);
+
+    // the files of a failed run are read again
+    conf = configure("run3");
+    Assert.assertEquals(names("b", "c"), selectNewFiles(conf));
+    ProcessedFileIndex.commit(conf);
+
+    conf = configure("run4");
+    Assert.assertTrue(selectNewFiles(conf).isEmpty());
+    ProcessedFileIndex.commit(conf);
+  }
+
+  @Test
+  public void testFilesBeforeRetentionAreSkipped() throws IOException {
+    long now = System.currentTimeMillis();
+    Assert.assertTrue(write("new", "1").setLastModified(now));
+    Configuration conf = configure("run1");
+    Assert.assertEquals(names("new"), selectNewFiles(conf));
+    ProcessedFileIndex.commit(conf);
+
+    // a file that was never read, but is older than the retention period before the watermark
+    Assert.assertTrue(write("old", "2").setLastModified(now - 2 * RETENTION_MILLIS));
+    Assert.assertTrue(write("late", "3").setLastModified(now - RETENTION_MILLIS / 2));
+    conf = configure("run2");
+    Assert.assertEquals(names("late"), selectNewFiles(conf));
+  }
+
+  @Test
+  public void testSegmentsAreMerged() throws IOException {
+    for (int i = 0; i < 20; i++) {
+      write("file-" + i, String.valueOf(i));
+      Configuration conf = configure("run" + i);
+      Assert.assertEquals(names("file-" + i), selectNewFiles(conf));
+      ProcessedFileIndex.commit(conf);
+    }
+    FileStatus[] segments = fs.listStatus(indexPath, path -> path.getName().startsWith("segment-"));
+    Assert.assertTrue(segments.length <= 16);
+    Assert.assertEquals(20, ProcessedFileIndex.load(fs, indexPath, RETENTION_MILLIS).size());
+    Assert.assertTrue(selectNewFiles(configure("last")).isEmpty());
+  }
+
+  private Configuration configure(String runId) {
+    Configuration conf = new Configuration();
+    ProcessedFileIndex.configure(conf, indexPath, RETENTION_MILLIS, runId);
+    return conf;
+  }
+
+  private Set<String> selectNewFiles(Configuration conf) throws IOException {
+    List<FileStatus> files = Arrays.asList(fs.listStatus(new Path(dataDir.toURI())));
+    return ProcessedFileIndex.selectNewFiles(conf, files).stream()
+      .map(file -> file.getPath().getName())
+      .collect(Collectors.toSet());
+  }
+
+  private File write(String name, String content) throws IOException {
+    File file = new File(dataDir, name);
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private static Set<String> names(String... names) {
+    return Arrays.stream(names).collect(Collectors.toSet());
+  }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.common;
+
+import io.cdap.cdap.api.data.schema.Schema;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import javax.annotation.Nullable;
+
+/**
+ * Infers the type of a column from its values. Each value is classified in a single pass over its characters,
+ * without regular expressions or exceptions, and the column type is the least type in the lattice below that all
+ * values fit in:
+ *
+ * <pre>
+ *   int -> long -> double -> decimal -> string
+ *   boolean ------------------------> string
+ *   timestamp ----------------------> string
+ * </pre>
+ *
+ * Empty values make the column nullable, while values that are only whitespace are strings, as they are when the
+ * column is read. Numbers with up to 15 significant digits, which a double represents
+ * exactly, are doubles, and longer numbers are decimals. A decimal column has the precision and scale that fit all of
+ * its values, and is a string if that precision is above 38. Timestamps are ISO-8601 date times with an offset.
+ * Lattices for different samples of a column can be merged.
+ */
+public class ColumnTypeLattice {
+  private static final int MAX_DOUBLE_DIGITS = 15;
+  private static final int MAX_DECIMAL_PRECISION = 38;
+  private static final int MAX_EXPONENT = 1000;
+
+  /**
+   * Types of the lattice, in the order in which numeric types widen.
+   */
+  private enum Kind {
+    NONE, INT, LONG, DOUBLE, DECIMAL, BOOLEAN, TIMESTAMP, STRING
+  }
+
+  private Kind kind = Kind.NONE;
+  private boolean nullable;
+  // the most digits before and after the decimal point of the numeric values
+  private int integerDigits;
+  private int scale;
+
+  /**
+   * Adds a value of the column.
+   *
+   * @param value the raw string value
+   */
+  public void add(@Nullable String value) {
+    if (kind == Kind.STRING && nullable) {
+      return;
+    }
+    if (isEmpty(value)) {
+      nullable = true;
+      return;
+    }
+    kind = join(kind, classify(value));
+  }
+
+  /**
+   * Merges the values of another sample of the same column into this one.
+   *
+   * @param other the lattice of the other sample
+   */
+  public void merge(ColumnTypeLattice other) {
+    kind = join(kind, other.kind);
+    nullable |= other.nullable;
+    integerDigits = Math.max(integerDigits, other.integerDigits);
+    scale = Math.max(scale, other.scale);
+  }
+
+  /**
+   * Returns the schema of the column, which is a nullable string if the column only had empty values.
+   */
+  public Schema toSchema() {
+    Schema schema;
+    switch (kind) {
+      case INT:
+        schema = Schema.of(Schema.Type.INT);
+        break;
+      case LONG:
+        schema = Schema.of(Schema.Type.LONG);
+        break;
+      case DOUBLE:
+        schema = Schema.of(Schema.Type.DOUBLE);
+        break;
+      case DECIMAL:
+        schema = integerDigits + scale > MAX_DECIMAL_PRECISION ?
+          Schema.of(Schema.Type.STRING) : Schema.decimalOf(Math.max(1, integerDigits + scale), scale);
+        break;
+      case BOOLEAN:
+        schema = Schema.of(Schema.Type.BOOLEAN);
+        break;
+      case TIMESTAMP:
+        schema = Schema.of(Schema.LogicalType.TIMESTAMP_MICROS);
+        break;
+      case NONE:
+        return Schema.nullableOf(Schema.of(Schema.Type.STRING));
+      default:
+        schema = Schema.of(Schema.Type.STRING);
+    }
+    return nullable ? Schema.nullableOf(schema) : schema;
+  }
+
+  /**
+   * Parses an ISO-8601 date time with an offset, such as '2020-01-12T23:50:06.123Z' or '2020-01-12 23:50:06+01:00'.
+   * The date and the time may be separated by a 'T' or a space, the fraction of a second is optional, and the offset
+   * may be 'Z', '+HH', '+HHMM' or '+HH:MM'.
+   *
+   * @param value the raw string value
+   * @return the parsed timestamp, or null if the value is not a timestamp
+   */
+  @Nullable
+  public static ZonedDateTime parseTimestamp(String value) {
+    int length = value.length();
+    // yyyy-MM-ddTHH:mm:ss is 19 characters, followed by at least one character of offset
+    if (length < 20 || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(13) != ':' ||
+      value.charAt(16) != ':' || (value.charAt(10) != 'T' && value.charAt(10) != ' ')) {
+      return null;
+    }
+    int year = digits(value, 0, 4);
+    int month = digits(value, 5, 7);
+    int day = digits(value, 8, 10);
+    int hour = digits(value, 11, 13);
+    int minute = digits(value, 14, 16);
+    int second = digits(value, 17, 19);
+    if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0) {
+      return null;
+    }
+
+    int pos = 19;
+    int nanos = 0;
+    if (value.charAt(pos) == '.') {
+      int fractionStart = ++pos;
+      while (pos < length && isDigit(value.charAt(pos))) {
+        pos++;
+      }
+      int fractionDigits = pos - fractionStart;
+      if (fractionDigits == 0 || fractionDigits > 9) {
+        return null;
+      }
+      nanos = digits(value, fractionStart, pos);
+      for (int i = fractionDigits; i < 9; i++) {
+        nanos *= 10;
+      }
+    }
+
+    ZoneOffset offset = parseOffset(value, pos);
+    if (offset == null) {
+      return null;
+    }
+    try {
+      return ZonedDateTime.of(LocalDateTime.of(year, month, day, hour, minute, second, nanos), offset);
+    } catch (DateTimeException e) {
+      // the fields have the right format, but are out of range, such as a 13th month
+      return null;
+    }
+  }
+
+  @Nullable
+  private static ZoneOffset parseOffset(String value, int pos) {
+    int length = value.length() - pos;
+    if (length == 1 && value.charAt(pos) == 'Z') {
+      return ZoneOffset.UTC;
+    }
+    if (length < 3 || (value.charAt(pos) != '+' && value.charAt(pos) != '-')) {
+      return null;
+    }
+    int hours = digits(value, pos + 1, pos + 3);
+    int minutes;
+    if (length == 3) {
+      minutes = 0;
+    } else if (length == 5) {
+      minutes = digits(value, pos + 3, pos + 5);
+    } else if (length == 6 && value.charAt(pos + 3) == ':') {
+      minutes = digits(value, pos + 4, pos + 6);
+    } else {
+      return null;
+    }
+    // offsets range from -18:00 to +18:00
+    if (hours < 0 || minutes < 0 || minutes > 59 || hours * 60 + minutes > 18 * 60) {
+      return null;
+    }
+    int sign = value.charAt(pos) == '-' ? -1 : 1;
+    return ZoneOffset.ofHoursMinutes(sign * hours, sign * minutes);
+  }
+
+  private static Kind join(Kind a, Kind b) {
+    if (a == b || b == Kind.NONE) {
+      return a;
+    }
+    if (a == Kind.NONE) {
+      return b;
+    }
+    if (a.compareTo(Kind.DECIMAL) <= 0 && b.compareTo(Kind.DECIMAL) <= 0) {
+      return a.compareTo(b) > 0 ? a : b;
+    }
+    return Kind.STRING;
+  }
+
+  /**
+   * Classifies a non-empty value, and updates the number of digits if it is a number.
+   */
+  private Kind classify(String value) {
+    int length = value.length();
+    char first = value.charAt(0);
+    if (first == 't' || first == 'T' || first == 'f' || first == 'F') {
+      return "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value) ? Kind.BOOLEAN : Kind.STRING;
+    }
+
+    int pos = first == '-' || first == '+' ? 1 : 0;
+    // digits before the decimal point, without leading zeros
+    int intStart = pos;
+    while (pos < length && value.charAt(pos) == '0') {
+      pos++;
+    }
+    int significantStart = pos;
+    while (pos < length && isDigit(value.charAt(pos))) {
+      pos++;
+    }
+    int intEnd = pos;
+    int numIntDigits = intEnd - significantStart;
+    if (intEnd == intStart) {
+      return classifyNonNumber(value);
+    }
+    if (pos == length) {
+      return classifyInteger(value, significantStart, numIntDigits, first == '-');
+    }
+
+    int numFractionDigits = 0;
+    if (value.charAt(pos) == '.') {
+      int fractionStart = ++pos;
+      while (pos < length && isDigit(value.charAt(pos))) {
+        pos++;
+      }
+      numFractionDigits = pos - fractionStart;
+      if (numFractionDigits == 0) {
+        return classifyNonNumber(value);
+      }
+    }
+
+    int exponent = 0;
+    boolean hasExponent = false;
+    if (pos < length && (value.charAt(pos) == 'e' || value.charAt(pos) == 'E')) {
+      pos++;
+      boolean negative = pos < length && value.charAt(pos) == '-';
+      if (pos < length && (value.charAt(pos) == '-' || value.charAt(pos) == '+')) {
+        pos++;
+      }
+      int exponentStart = pos;
+      while (pos < length && isDigit(value.charAt(pos))) {
+        exponent = Math.min(MAX_EXPONENT, exponent * 10 + value.charAt(pos) - '0');
+        pos++;
+      }
+      if (pos == exponentStart) {
+        return classifyNonNumber(value);
+      }
+      exponent = negative ? -exponent : exponent;
+      hasExponent = true;
+    }
+    if (pos != length) {
+      return classifyNonNumber(value);
+    }
+
+    integerDigits = Math.max(integerDigits, Math.max(0, numIntDigits + exponent));
+    scale = Math.max(scale, Math.max(0, numFractionDigits - exponent));
+    return hasExponent || numIntDigits + numFractionDigits <= MAX_DOUBLE_DIGITS ? Kind.DOUBLE : Kind.DECIMAL;
+  }
+
+  private Kind classifyInteger(String value, int significantStart, int numDigits, boolean negative) {
+    integerDigits = Math.max(integerDigits, numDigits);
+    if (numDigits < 10) {
+      return Kind.INT;
+    }
+    if (numDigits > 19) {
+      return Kind.DECIMAL;
+    }
+    long absolute = 0L;
+    for (int i = significantStart; i < significantStart + Math.min(numDigits, 18); i++) {
+      absolute = absolute * 10 + value.charAt(i) - '0';
+    }
+    if (numDigits == 19) {
+      // compare with the largest magnitude of a long before the last digit could overflow
+      long limit = Long.MAX_VALUE / 10;
+      int lastDigit = value.charAt(significantStart + 18) - '0';
+      int maxLastDigit = negative ? 8 : 7;
+      if (absolute > limit || (absolute == limit && lastDigit > maxLastDigit)) {
+        return Kind.DECIMAL;
+      }
+      return Kind.LONG;
+    }
+    long signed = negative ? -absolute : absolute;
+    return signed >= Integer.MIN_VALUE && signed <= Integer.MAX_VALUE ? Kind.INT : Kind.LONG;
+  }
+
+  private static Kind classifyNonNumber(String value) {
+    return parseTimestamp(value) == null ? Kind.STRING : Kind.TIMESTAMP;
+  }
+
+  private static boolean isEmpty(@Nullable String value) {
+    // readers only read empty values as null, so blank values are not empty
+    return value == null || value.isEmpty();
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * Returns the value of the digits between start and end, or -1 if any character is not a digit.
+   */
+  private static int digits(String value, int start, int end) {
+    if (end > value.length()) {
+      return -1;
+    }
+    int result = 0;
+    for (int i = start; i < end; i++) {
+      char c = value.charAt(i);
+      if (!isDigit(c)) {
+        return -1;
+      }
+      result = result * 10 + c - '0';
+    }
+    return result;
+  }
+}
@@ -18,8 +18,13 @@ package io.cdap.plugin.format.delimited.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.plugin.common.batch.JobUtils;
+import io.cdap.plugin.format.input.AdaptiveSplitPacker;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import io.cdap.plugin.format.input.ProcessedFileIndex;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
@@ -39,8 +44,33 @@ public class CombineDelimitedInputFormat extends CombineFileInputFormat<NullWrit
 
   @Override
   public List<InputSplit> getSplits(JobContext job) throws IOException {
-    return JobUtils.applyWithExtraClassLoader(job, getClass().getClassLoader(),
-                                              CombineDelimitedInputFormat.super::getSplits);
+    return JobUtils.applyWithExtraClassLoader(job, getClass().getClassLoader(), context -> {
+      if (AdaptiveSplitPacker.isEnabled(context)) {
+        return new AdaptiveSplitPacker(context, file -> isSplitable(context, file)).getSplits();
+      }
+      return super.getSplits(context);
+    });
+  }
+
+  /**
+   * Leaves out the files that previous runs have read, if the job has a processed file index.
+   */
+  @Override
+  protected List<FileStatus> listStatus(JobContext job) throws IOException {
+    return ProcessedFileIndex.selectNewFiles(job.getConfiguration(), super.listStatus(job));
+  }
+
+  /**
+   * Compressed files are not split when quoted values may contain newlines, since the multi-line reader can only
+   * find record boundaries in uncompressed files.
+   */
+  @Override
+  protected boolean isSplitable(JobContext context, Path file) {
+    if (context.getConfiguration().getBoolean(PathTrackingDelimitedInputFormat.ENABLE_MULTILINE_SUPPORT, false)
+      && new CompressionCodecFactory(context.getConfiguration()).getCodec(file) != null) {
+      return false;
+    }
+    return super.isSplitable(context, file);
   }
 
   /**
@@ -22,9 +22,11 @@ import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
 import io.cdap.cdap.api.plugin.PluginPropertyField;
+import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.validation.FormatContext;
 import io.cdap.plugin.common.KeyValueListParser;
 import io.cdap.plugin.common.batch.JobUtils;
+import io.cdap.plugin.format.charset.fixedlength.FixedLengthCharset;
 import io.cdap.plugin.format.delimited.common.DataTypeDetectorStatusKeeper;
 import io.cdap.plugin.format.delimited.common.DataTypeDetectorUtils;
 import io.cdap.plugin.format.input.PathTrackingConfig;
@@ -37,6 +39,7 @@ import org.apache.hadoop.mapreduce.Job;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -51,16 +54,26 @@ public class DelimitedConfig extends PathTrackingConfig {
   // properties
   public static final String NAME_DELIMITER = "delimiter";
   public static final String NAME_ENABLE_QUOTES_VALUES = "enableQuotedValues";
+  public static final String NAME_ENABLE_MULTILINE_SUPPORT = "enableMultilineSupport";
   public static final String NAME_FORMAT = "format";
   public static final String NAME_OVERRIDE = "override";
   public static final String NAME_SAMPLE_SIZE = "sampleSize";
   public static final String NAME_PATH = "path";
   public static final String NAME_REGEX_PATH_FILTER = "fileRegex";
+  public static final String NAME_FILE_ENCODING = "fileEncoding";
+  public static final String NAME_SCHEMA_DETECTION_MODE = "schemaDetectionMode";
+  public static final String SCHEMA_DETECTION_SEQUENTIAL = "sequential";
+  public static final String SCHEMA_DETECTION_SAMPLED = "sampled";
   public static final Map<String, PluginPropertyField> DELIMITED_FIELDS;
 
   // description
   public static final String DESC_ENABLE_QUOTES =
     "Whether to treat content between quotes as a value. The default value is false.";
+  public static final String DESC_ENABLE_MULTILINE =
+    "Whether quoted values may contain newlines. Quoted values are read as described in RFC 4180, where two " +
+    "consecutive quotes within a quoted value are a single quote. Files are still split, as long as each record " +
+    "ends within 1 MB of the start of a split. Requires quoted values to be enabled and files to be encoded in " +
+    "UTF-8. The default value is false.";
   public static final String DESC_SKIP_HEADER =
     "Whether to skip the first line of each file. The default value is false.";
 
@@ -69,6 +82,8 @@ public class DelimitedConfig extends PathTrackingConfig {
     fields.put("skipHeader", new PluginPropertyField("skipHeader", DESC_SKIP_HEADER, "boolean", false, true));
     fields.put(NAME_ENABLE_QUOTES_VALUES,
       new PluginPropertyField(NAME_ENABLE_QUOTES_VALUES, DESC_ENABLE_QUOTES, "boolean", false, true));
+    fields.put(NAME_ENABLE_MULTILINE_SUPPORT,
+      new PluginPropertyField(NAME_ENABLE_MULTILINE_SUPPORT, DESC_ENABLE_MULTILINE, "boolean", false, true));
     DELIMITED_FIELDS = Collections.unmodifiableMap(fields);
   }
 
@@ -82,6 +97,11 @@ public class DelimitedConfig extends PathTrackingConfig {
   @Description(DESC_ENABLE_QUOTES)
   protected Boolean enableQuotedValues;
 
+  @Macro
+  @Nullable
+  @Description(DESC_ENABLE_MULTILINE)
+  protected Boolean enableMultilineSupport;
+
   public boolean getSkipHeader() {
     return skipHeader == null ? false : skipHeader;
   }
@@ -90,6 +110,53 @@ public class DelimitedConfig extends PathTrackingConfig {
     return enableQuotedValues == null ? false : enableQuotedValues;
   }
 
+  public boolean getEnableMultilineSupport() {
+    return enableMultilineSupport == null ? false : enableMultilineSupport;
+  }
+
+  /**
+   * Validates that multi-line support, if enabled, is used with quoted values and files encoded in UTF-8.
+   *
+   * @param collector failure collector
+   */
+  public void validateMultilineSupport(FailureCollector collector) {
+    if (containsMacro(NAME_ENABLE_MULTILINE_SUPPORT) || !getEnableMultilineSupport()) {
+      return;
+    }
+    if (!containsMacro(NAME_ENABLE_QUOTES_VALUES) && !getEnableQuotedValues()) {
+      collector.addFailure("Multi-line support requires quoted values to be enabled.",
+                           "Enable quoted values or disable multi-line support.")
+        .withConfigProperty(NAME_ENABLE_MULTILINE_SUPPORT);
+    }
+    String encoding = getProperties().getProperties().get(NAME_FILE_ENCODING);
+    if (!containsMacro(NAME_FILE_ENCODING) && !Strings.isNullOrEmpty(encoding) &&
+      !StandardCharsets.UTF_8.name().equals(FixedLengthCharset.cleanFileEncodingName(encoding))) {
+      collector.addFailure(
+        String.format("Multi-line support requires files encoded in UTF-8, but the encoding is '%s'.", encoding),
+        "Use UTF-8 or disable multi-line support.")
+        .withConfigProperty(NAME_ENABLE_MULTILINE_SUPPORT);
+    }
+  }
+
+  /**
+   * Validates that the schema detection mode, if set, is 'sequential' or 'sampled'.
+   *
+   * @param collector failure collector
+   */
+  public void validateSchemaDetectionMode(FailureCollector collector) {
+    String mode = getProperties().getProperties().get(NAME_SCHEMA_DETECTION_MODE);
+    if (!containsMacro(NAME_SCHEMA_DETECTION_MODE) && !isValidSchemaDetectionMode(mode)) {
+      collector.addFailure(String.format("Invalid schema detection mode '%s'.", mode),
+                           String.format("Use '%s' or '%s'.", SCHEMA_DETECTION_SEQUENTIAL, SCHEMA_DETECTION_SAMPLED))
+        .withConfigProperty(NAME_SCHEMA_DETECTION_MODE);
+    }
+  }
+
+  private static boolean isValidSchemaDetectionMode(@Nullable String mode) {
+    return Strings.isNullOrEmpty(mode) || SCHEMA_DETECTION_SEQUENTIAL.equals(mode) ||
+      SCHEMA_DETECTION_SAMPLED.equals(mode);
+  }
+
   public Long getSampleSize() {
     return Long.parseLong(getProperties().getProperties().getOrDefault(NAME_SAMPLE_SIZE, "1000"));
   }
@@ -168,7 +235,8 @@ public class DelimitedConfig extends PathTrackingConfig {
   }
 
   /**
-   * Gets the detected schema.
+   * Gets the detected schema. By default, the first rows of the first file are read. If the schema detection mode is
+   * 'sampled', rows are sampled from several files and offsets in parallel by a {@link SampledSchemaDetector}.
    *
    * @param context {@link FormatContext}
    * @return The detected schema.
@@ -188,6 +256,18 @@ public class DelimitedConfig extends PathTrackingConfig {
     for (Map.Entry<String, String> entry : getFileSystemProperties().entrySet()) {
       configuration.set(entry.getKey(), entry.getValue());
     }
+    String mode = getProperties().getProperties().get(NAME_SCHEMA_DETECTION_MODE);
+    if (!isValidSchemaDetectionMode(mode)) {
+      throw new IllegalArgumentException(String.format("Invalid schema detection mode '%s'. Use '%s' or '%s'.", mode,
+                                                       SCHEMA_DETECTION_SEQUENTIAL, SCHEMA_DETECTION_SAMPLED));
+    }
+    if (SCHEMA_DETECTION_SAMPLED.equals(mode)) {
+      Path fsPath = new Path(path);
+      FileSystem fileSystem = JobUtils.applyWithExtraClassLoader(job, getClass().getClassLoader(),
+                                                                 f -> FileSystem.get(fsPath.toUri(), configuration));
+      return new SampledSchemaDetector(fileSystem, configuration, delimiter, getSkipHeader(), getEnableQuotedValues())
+        .detect(fsPath, regexPathFilter, getOverride(), getSampleSize());
+    }
     Path filePath = getFilePathForSchemaGeneration(path, regexPathFilter, configuration, job);
     DataTypeDetectorStatusKeeper dataTypeDetectorStatusKeeper = new DataTypeDetectorStatusKeeper();
     String line = null;
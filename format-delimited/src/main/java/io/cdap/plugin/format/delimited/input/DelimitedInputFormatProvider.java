@@ -72,6 +72,8 @@ public class DelimitedInputFormatProvider extends PathTrackingInputFormatProvide
         "Schema must be specified.")
         .withConfigProperty("schema");
     }
+    conf.validateMultilineSupport(collector);
+    conf.validateSchemaDetectionMode(collector);
 
     if (conf.containsMacro(DelimitedConfig.NAME_ENABLE_QUOTES_VALUES) || conf.containsMacro(Conf.DELIMITER)) {
       return;
@@ -90,6 +92,8 @@ public class DelimitedInputFormatProvider extends PathTrackingInputFormatProvide
     properties.put(PathTrackingDelimitedInputFormat.DELIMITER, conf.delimiter == null ? "," : conf.delimiter);
     properties.put(PathTrackingDelimitedInputFormat.SKIP_HEADER, String.valueOf(conf.getSkipHeader()));
     properties.put(PathTrackingDelimitedInputFormat.ENABLE_QUOTES_VALUE, String.valueOf(conf.getEnableQuotedValues()));
+    properties.put(PathTrackingDelimitedInputFormat.ENABLE_MULTILINE_SUPPORT,
+                   String.valueOf(conf.getEnableMultilineSupport()));
   }
 
   /**
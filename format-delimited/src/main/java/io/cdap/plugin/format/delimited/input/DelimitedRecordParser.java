@@ -0,0 +1,508 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.format.UnexpectedFormatException;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.common.SchemaValidator;
+import io.cdap.plugin.format.delimited.common.ColumnTypeLattice;
+import org.apache.hadoop.io.Text;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Parses delimited lines into records. The UTF-8 bytes of each line are scanned directly, without decoding the line
+ * into a String and splitting it. A converter is chosen once for each field in the schema, so that ints, longs,
+ * doubles and booleans are parsed straight from the bytes of the field. Decimals and timestamps are parsed from a
+ * String. Other types are converted from a String.
+ *
+ * Fields that are not in the output schema are only split, not converted.
+ *
+ * A field that is quoted has the same semantics as {@link SplitQuotesIterator}, except that when doubled quotes are
+ * escapes, two consecutive quotes within a quoted value are a single quote in the value, as described in RFC 4180.
+ */
+final class DelimitedRecordParser {
+  private static final byte QUOTE = '"';
+  private static final byte[] EMPTY = new byte[0];
+
+  private final Schema schema;
+  private final Schema outputSchema;
+  private final byte[] delimiter;
+  private final boolean enableQuotedValues;
+  private final boolean escapedQuotes;
+  // the converter of each field in the schema, or null if the field is not in the output schema
+  private final FieldConverter[] converters;
+  // holds the value of a quoted field, with the quotes removed
+  private byte[] unquoted;
+
+  DelimitedRecordParser(Schema schema, String delimiter, boolean enableQuotedValues) {
+    this(schema, delimiter, enableQuotedValues, false);
+  }
+
+  DelimitedRecordParser(Schema schema, String delimiter, boolean enableQuotedValues, boolean escapedQuotes) {
+    this(schema, schema, delimiter, enableQuotedValues, escapedQuotes);
+  }
+
+  /**
+   * @param schema the schema of the fields in each line
+   * @param outputSchema the schema of the records, which contains the fields of the schema that are read
+   */
+  DelimitedRecordParser(Schema schema, Schema outputSchema, String delimiter, boolean enableQuotedValues,
+                        boolean escapedQuotes) {
+    this.schema = schema;
+    this.outputSchema = outputSchema;
+    this.delimiter = delimiter.getBytes(StandardCharsets.UTF_8);
+    this.enableQuotedValues = enableQuotedValues;
+    this.escapedQuotes = escapedQuotes;
+    List<Schema.Field> fields = schema.getFields();
+    this.converters = new FieldConverter[fields.size()];
+    for (int i = 0; i < converters.length; i++) {
+      Schema.Field field = fields.get(i);
+      converters[i] = outputSchema.getField(field.getName()) == null ? null : FieldConverter.create(field);
+    }
+    this.unquoted = new byte[64];
+  }
+
+  /**
+   * Parses a line into a record. Fields that are empty are set to null, and fields at the end of the schema that
+   * are not in the line are left unset.
+   *
+   * @param line the line to parse
+   * @return a builder for the record
+   * @throws IOException if the line contains more fields than the schema
+   */
+  StructuredRecord.Builder parse(Text line) throws IOException {
+    byte[] bytes = line.getBytes();
+    int length = line.getLength();
+    StructuredRecord.Builder builder = StructuredRecord.builder(outputSchema);
+    int numDataFields = enableQuotedValues ? parseQuoted(bytes, length, builder) : parse(bytes, length, builder);
+    if (numDataFields > converters.length) {
+      throw tooManyFields(numDataFields, bytes, length);
+    }
+    return builder;
+  }
+
+  /**
+   * Sets the fields of a line without quoted values.
+   *
+   * @return the number of fields in the line
+   */
+  private int parse(byte[] bytes, int length, StructuredRecord.Builder builder) {
+    int numFields = 0;
+    int start = 0;
+    while (true) {
+      int end = indexOfDelimiter(bytes, start, length);
+      setField(builder, numFields++, bytes, start, end);
+      if (end == length) {
+        return numFields;
+      }
+      start = end + delimiter.length;
+    }
+  }
+
+  /**
+   * Sets the fields of a line where values may be enclosed in quotes. Quotes are removed, and delimiters within
+   * quotes are part of the value. An empty line contains no fields.
+   *
+   * @return the number of fields in the line
+   */
+  private int parseQuoted(byte[] bytes, int length, StructuredRecord.Builder builder) {
+    int numFields = 0;
+    int pos = 0;
+    while (pos < length) {
+      int start = pos;
+      boolean inQuotes = false;
+      boolean quoted = false;
+      while (pos < length) {
+        byte b = bytes[pos];
+        if (b == QUOTE) {
+          inQuotes = !inQuotes;
+          quoted = true;
+        } else if (!inQuotes && startsWithDelimiter(bytes, pos, length)) {
+          break;
+        }
+        pos++;
+      }
+      if (inQuotes) {
+        throw new IllegalArgumentException("Found a line with an unenclosed quote. Ensure that all values are " +
+                                             "properly quoted, or disable quoted values.");
+      }
+      if (quoted && isRead(numFields)) {
+        int unquotedLength = unquote(bytes, start, pos);
+        setField(builder, numFields++, unquoted, 0, unquotedLength);
+      } else {
+        setField(builder, numFields++, bytes, start, pos);
+      }
+      if (pos < length) {
+        pos += delimiter.length;
+        // a trailing delimiter is followed by an empty field
+        if (pos == length) {
+          setField(builder, numFields++, EMPTY, 0, 0);
+        }
+      }
+    }
+    return numFields;
+  }
+
+  private boolean isRead(int index) {
+    return index < converters.length && converters[index] != null;
+  }
+
+  private void setField(StructuredRecord.Builder builder, int index, byte[] bytes, int start, int end) {
+    // fields past the end of the schema are only counted, and fields that are not read are skipped
+    if (!isRead(index)) {
+      return;
+    }
+    FieldConverter converter = converters[index];
+    if (start == end) {
+      builder.set(converter.name, null);
+    } else {
+      converter.set(builder, bytes, start, end);
+    }
+  }
+
+  /**
+   * Copies the bytes of a field without its quotes, keeping one quote of each escaped pair if doubled quotes are
+   * escapes.
+   *
+   * @return the length of the unquoted value
+   */
+  private int unquote(byte[] bytes, int start, int end) {
+    if (unquoted.length < end - start) {
+      unquoted = new byte[Math.max(end - start, 2 * unquoted.length)];
+    }
+    int length = 0;
+    boolean inQuotes = false;
+    for (int i = start; i < end; i++) {
+      if (bytes[i] != QUOTE) {
+        unquoted[length++] = bytes[i];
+      } else if (escapedQuotes && inQuotes && i + 1 < end && bytes[i + 1] == QUOTE) {
+        unquoted[length++] = QUOTE;
+        i++;
+      } else {
+        inQuotes = !inQuotes;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * @return the index of the next delimiter at or after the start, or the length if there is none
+   */
+  private int indexOfDelimiter(byte[] bytes, int start, int length) {
+    byte first = delimiter[0];
+    int last = length - delimiter.length;
+    for (int i = start; i <= last; i++) {
+      if (bytes[i] == first && startsWithDelimiter(bytes, i, length)) {
+        return i;
+      }
+    }
+    return length;
+  }
+
+  private boolean startsWithDelimiter(byte[] bytes, int pos, int length) {
+    if (pos + delimiter.length > length) {
+      return false;
+    }
+    for (int i = 0; i < delimiter.length; i++) {
+      if (bytes[pos + i] != delimiter[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private IOException tooManyFields(int numDataFields, byte[] bytes, int length) {
+    int numSchemaFields = converters.length;
+    String message = String.format("Found a row with %d fields when the schema only contains %d field%s.",
+                                   numDataFields, numSchemaFields, numSchemaFields == 1 ? "" : "s");
+    // special error handling for the case when the user most likely set the schema to delimited
+    // when they meant to use 'text'.
+    Schema.Field bodyField = schema.getField("body");
+    if (bodyField != null) {
+      Schema bodySchema = bodyField.getSchema();
+      bodySchema = bodySchema.isNullable() ? bodySchema.getNonNullable() : bodySchema;
+      if (bodySchema.getType() == Schema.Type.STRING) {
+        return new IOException(message + " Did you mean to use the 'text' format?");
+      }
+    }
+    if (!enableQuotedValues && contains(bytes, length, QUOTE)) {
+      message += " Check if quoted values should be allowed.";
+    }
+    return new IOException(message + " Check that the schema contains the right number of fields.");
+  }
+
+  private static boolean contains(byte[] bytes, int length, byte b) {
+    for (int i = 0; i < length; i++) {
+      if (bytes[i] == b) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Converts the bytes of a non-empty field and sets it on the record. The default converter decodes the field
+   * into a String and converts it as {@link StructuredRecord.Builder#convertAndSet(String, String)} does.
+   */
+  private static class FieldConverter {
+    final String name;
+    final Schema schema;
+
+    FieldConverter(Schema.Field field) {
+      this.name = field.getName();
+      this.schema = field.getSchema();
+    }
+
+    static FieldConverter create(Schema.Field field) {
+      Schema schema = field.getSchema();
+      schema = schema.isNullable() ? schema.getNonNullable() : schema;
+      Schema.LogicalType logicalType = schema.getLogicalType();
+      if (logicalType == Schema.LogicalType.DECIMAL) {
+        return new DecimalConverter(field, schema.getScale());
+      }
+      if (logicalType == Schema.LogicalType.TIMESTAMP_MICROS || logicalType == Schema.LogicalType.TIMESTAMP_MILLIS) {
+        return new TimestampConverter(field);
+      }
+      if (logicalType != null) {
+        return new FieldConverter(field);
+      }
+      switch (schema.getType()) {
+        case STRING:
+          return new StringConverter(field);
+        case INT:
+          return new IntConverter(field);
+        case LONG:
+          return new LongConverter(field);
+        case DOUBLE:
+          return new DoubleConverter(field);
+        case BOOLEAN:
+          return new BooleanConverter(field);
+        default:
+          return new FieldConverter(field);
+      }
+    }
+
+    void set(StructuredRecord.Builder builder, byte[] bytes, int start, int end) {
+      String value = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+      // Ensure if date time field, value is in correct format
+      SchemaValidator.validateDateTimeField(schema, name, value);
+      builder.convertAndSet(name, value);
+    }
+  }
+
+  /**
+   * Decodes the field into a String.
+   */
+  private static class StringConverter extends FieldConverter {
+
+    StringConverter(Schema.Field field) {
+      super(field);
+    }
+
+    @Override
+    void set(StructuredRecord.Builder builder, byte[] bytes, int start, int end) {
+      builder.set(name, new String(bytes, start, end - start, StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Parses an optional minus sign followed by at most 9 digits, which cannot overflow an int. Anything else is
+   * converted from a String, so that it is parsed or rejected as before.
+   */
+  private static class IntConverter extends FieldConverter {
+
+    IntConverter(Schema.Field field) {
+      super(field);
+    }
+
+    @Override
+    void set(StructuredRecord.Builder builder, byte[] bytes, int start, int end) {
+      boolean negative = bytes[start] == '-';
+      int pos = negative ? start + 1 : start;
+      if (pos == end || end - pos > 9) {
+        super.set(builder, bytes, start, end);
+        return;
+      }
+      int value = 0;
+      for (; pos < end; pos++) {
+        int digit = bytes[pos] - '0';
+        if (digit < 0 || digit > 9) {
+          super.set(builder, bytes, start, end);
+          return;
+        }
+        value = value * 10 + digit;
+      }
+      builder.set(name, negative ? -value : value);
+    }
+  }
+
+  /**
+   * Parses an optional minus sign followed by at most 18 digits, which cannot overflow a long. Anything else is
+   * converted from a String.
+   */
+  private static class LongConverter extends FieldConverter {
+
+    LongConverter(Schema.Field field) {
+      super(field);
+    }
+
+    @Override
+    void set(StructuredRecord.Builder builder, byte[] bytes, int start, int end) {
+      boolean negative = bytes[start] == '-';
+      int pos = negative ? start + 1 : start;
+      if (pos == end || end - pos > 18) {
+        super.set(builder, bytes, start, end);
+        return;
+      }
+      long value = 0L;
+      for (; pos < end; pos++) {
+        int digit = bytes[pos] - '0';
+        if (digit < 0 || digit > 9) {
+          super.set(builder, bytes, start, end);
+          return;
+        }
+        value = value * 10 + digit;
+      }
+      builder.set(name, negative ? -value : value);
+    }
+  }
+
+  /**
+   * Parses plain decimals with at most 15 digits, of which at most 22 are after the decimal point. Both the digits
+   * and the power of ten are exact doubles, so a single division gives the correctly rounded value, the same as
+   * {@link Double#parseDouble(String)}. Anything else, such as exponents, is converted from a String.
+   */
+  private static class DoubleConverter extends FieldConverter {
+    private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    DoubleConverter(Schema.Field field) {
+      super(field);
+    }
+
+    @Override
+    void set(StructuredRecord.Builder builder, byte[] bytes, int start, int end) {
+      boolean negative = bytes[start] == '-';
+      long digits = 0L;
+      int numDigits = 0;
+      int scale = 0;
+      boolean decimalPoint = false;
+      for (int pos = negative ? start + 1 : start; pos < end; pos++) {
+        byte b = bytes[pos];
+        if (b >= '0' && b <= '9') {
+          digits = digits * 10 + (b - '0');
+          numDigits++;
+          if (decimalPoint) {
+            scale++;
+          }
+        } else if (b == '.' && !decimalPoint) {
+          decimalPoint = true;
+        } else {
+          super.set(builder, bytes, start, end);
+          return;
+        }
+        if (numDigits > 15) {
+          super.set(builder, bytes, start, end);
+          return;
+        }
+      }
+      if (numDigits == 0 || scale >= POWERS_OF_TEN.length) {
+        super.set(builder, bytes, start, end);
+        return;
+      }
+      double value = digits / POWERS_OF_TEN[scale];
+      builder.set(name, negative ? -value : value);
+    }
+  }
+
+  /**
+   * Parses the field as {@link Boolean#parseBoolean(String)} does, which is true for 'true' in any case and false
+   * for anything else.
+   */
+  private static class BooleanConverter extends FieldConverter {
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.UTF_8);
+
+    BooleanConverter(Schema.Field field) {
+      super(field);
+    }
+
+    @Override
+    void set(StructuredRecord.Builder builder, byte[] bytes, int start, int end) {
+      boolean value = end - start == TRUE.length;
+      for (int i = 0; value && i < TRUE.length; i++) {
+        value = Character.toLowerCase(bytes[start + i]) == TRUE[i];
+      }
+      builder.set(name, value);
+    }
+  }
+
+  /**
+   * Parses the field as a {@link BigDecimal} with the scale of the schema. Values that are not numbers, or that have
+   * more digits after the decimal point than the scale, are rejected rather than rounded.
+   */
+  private static class DecimalConverter extends FieldConverter {
+    private final int scale;
+
+    DecimalConverter(Schema.Field field, int scale) {
+      super(field);
+      this.scale = scale;
+    }
+
+    @Override
+    void set(StructuredRecord.Builder builder, byte[] bytes, int start, int end) {
+      String value = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+      BigDecimal decimal;
+      try {
+        decimal = new BigDecimal(value).setScale(scale);
+      } catch (NumberFormatException | ArithmeticException e) {
+        throw new UnexpectedFormatException(
+          String.format("Field '%s' of type decimal with scale %d cannot be set to '%s'.", name, scale, value), e);
+      }
+      builder.setDecimal(name, decimal);
+    }
+  }
+
+  /**
+   * Parses ISO-8601 date times with an offset, as {@link ColumnTypeLattice#parseTimestamp(String)} does. Anything
+   * else is converted from a String.
+   */
+  private static class TimestampConverter extends FieldConverter {
+
+    TimestampConverter(Schema.Field field) {
+      super(field);
+    }
+
+    @Override
+    void set(StructuredRecord.Builder builder, byte[] bytes, int start, int end) {
+      String value = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+      ZonedDateTime timestamp = ColumnTypeLattice.parseTimestamp(value);
+      if (timestamp == null) {
+        builder.convertAndSet(name, value);
+        return;
+      }
+      builder.setTimestamp(name, timestamp);
+    }
+  }
+}
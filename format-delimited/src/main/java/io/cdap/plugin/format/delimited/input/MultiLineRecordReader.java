@@ -0,0 +1,319 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.input;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nullable;
+
+/**
+ * Reads delimited records whose quoted values may contain newlines, as described in RFC 4180. A record ends at the
+ * first newline that is not within quotes, and a trailing carriage return is removed. The key is the offset of the
+ * record in the file.
+ * <p>
+ * A split that does not start at the beginning of the file starts with the first record that begins after the split
+ * start. To find it without reading the file from its beginning, the bytes that follow the split start are checked
+ * against the quoting rules of RFC 4180 twice, once assuming that the split starts outside of quotes and once
+ * assuming that it starts inside quotes. If exactly one assumption holds and shows a record boundary, the first
+ * record boundary under that assumption is used. Otherwise, such as when a quoted value continues past the checked
+ * bytes or no quote follows the split start, the quotes are counted from the beginning of the file. A split reads
+ * every record that starts at or before its end, so each record in the file is read by exactly one split.
+ * <p>
+ * Compressed files are not split, and are read from the beginning.
+ */
+final class MultiLineRecordReader extends RecordReader<LongWritable, Text> {
+  // number of bytes after the split start that are checked to find the first record
+  @VisibleForTesting
+  static final int SPECULATION_LENGTH = 1024 * 1024;
+  // the bytes are not consistent with the assumed quoting state
+  @VisibleForTesting
+  static final int NO_RECORD = -1;
+  // the bytes are consistent with the assumed quoting state, but do not contain a record boundary
+  @VisibleForTesting
+  static final int UNDETERMINED = -2;
+  private static final byte QUOTE = '"';
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+
+  private final byte[] delimiter;
+  private final byte[] buffer;
+  private final LongWritable key;
+  private final Text value;
+  private FSDataInputStream fileIn;
+  private InputStream in;
+  private int bufferPos;
+  private int bufferLength;
+  private long splitStart;
+  private long splitLength;
+  private long end;
+  private long pos;
+
+  MultiLineRecordReader(String delimiter) {
+    this.delimiter = delimiter.getBytes(StandardCharsets.UTF_8);
+    this.buffer = new byte[64 * 1024];
+    this.key = new LongWritable();
+    this.value = new Text();
+  }
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+    FileSplit fileSplit = (FileSplit) split;
+    Configuration conf = context.getConfiguration();
+    Path path = fileSplit.getPath();
+    FileSystem fs = path.getFileSystem(conf);
+    splitStart = fileSplit.getStart();
+    splitLength = fileSplit.getLength();
+    fileIn = fs.open(path);
+
+    CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(path);
+    if (codec != null) {
+      in = codec.createInputStream(fileIn);
+      end = Long.MAX_VALUE;
+      pos = 0L;
+      return;
+    }
+
+    in = fileIn;
+    end = splitStart + splitLength;
+    pos = splitStart;
+    if (splitStart == 0L) {
+      return;
+    }
+    long recordStart = speculateRecordStart(fs.getFileStatus(path).getLen());
+    if (recordStart < 0) {
+      skipToRecordStartFromFileStart();
+    } else {
+      fileIn.seek(recordStart);
+      pos = recordStart;
+    }
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    if (pos > end) {
+      return false;
+    }
+    key.set(pos);
+    value.clear();
+    return readRecord(value, false);
+  }
+
+  @Override
+  public LongWritable getCurrentKey() {
+    return key;
+  }
+
+  @Override
+  public Text getCurrentValue() {
+    return value;
+  }
+
+  @Override
+  public float getProgress() throws IOException {
+    if (splitLength == 0L) {
+      return 0f;
+    }
+    return Math.min(1f, (fileIn.getPos() - splitStart) / (float) splitLength);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (in != null) {
+      in.close();
+    }
+  }
+
+  /**
+   * Finds the offset of the first record that starts after the split start by checking both possible quoting
+   * states at the split start against the bytes that follow.
+   *
+   * @return the offset of the first record, or a negative value if it could not be determined
+   */
+  private long speculateRecordStart(long fileLength) throws IOException {
+    // the bytes before the split start are needed to tell whether a quote starts a value
+    int offset = (int) Math.min(splitStart, delimiter.length);
+    long windowStart = splitStart - offset;
+    byte[] window = new byte[(int) Math.min(fileLength - windowStart, (long) offset + SPECULATION_LENGTH)];
+    fileIn.readFully(windowStart, window, 0, window.length);
+    boolean endOfFile = windowStart + window.length == fileLength;
+
+    int outside = findRecordStart(window, offset, windowStart == 0L, endOfFile, delimiter, false);
+    int inside = findRecordStart(window, offset, windowStart == 0L, endOfFile, delimiter, true);
+    if (outside >= 0 && (inside == NO_RECORD || inside == outside)) {
+      return windowStart + outside;
+    }
+    if (inside >= 0 && outside == NO_RECORD) {
+      return windowStart + inside;
+    }
+    return NO_RECORD;
+  }
+
+  /**
+   * Counts the quotes from the beginning of the file to the split start, then skips to the end of the record that
+   * contains the split start.
+   */
+  private void skipToRecordStartFromFileStart() throws IOException {
+    fileIn.seek(0L);
+    bufferPos = 0;
+    bufferLength = 0;
+    pos = 0L;
+    boolean inQuotes = false;
+    while (pos < splitStart && fill()) {
+      int length = (int) Math.min(bufferLength, splitStart - pos);
+      for (int i = 0; i < length; i++) {
+        if (buffer[i] == QUOTE) {
+          inQuotes = !inQuotes;
+        }
+      }
+      bufferPos = length;
+      pos += length;
+    }
+    readRecord(null, inQuotes);
+  }
+
+  /**
+   * Checks the bytes of a window against the quoting rules of RFC 4180, starting with the given quoting state. A
+   * quote outside of quotes must start a value, and a quote inside quotes must either be followed by another quote,
+   * which escapes it, or end the value.
+   *
+   * @param window the bytes to check
+   * @param offset the index in the window of the split start, which is greater than 0
+   * @param fileStart whether the window starts at the beginning of the file
+   * @param endOfFile whether the window ends at the end of the file
+   * @param delimiter the field delimiter
+   * @param inQuotes whether the split start is within quotes
+   * @return the index in the window of the first record that starts after the split start, {@link #NO_RECORD} if
+   *   the bytes are not consistent with the quoting state, or {@link #UNDETERMINED} if the window does not contain a
+   *   record boundary
+   */
+  @VisibleForTesting
+  static int findRecordStart(byte[] window, int offset, boolean fileStart, boolean endOfFile, byte[] delimiter,
+                             boolean inQuotes) {
+    int recordStart = NO_RECORD;
+    // a split that starts within a run of quotes may start between the two quotes of an escaped quote, which neither
+    // quoting state is consistent with. Start checking after the run, since it cannot contain a record boundary.
+    int checkStart = offset;
+    while (checkStart < window.length && window[checkStart] == QUOTE && window[checkStart - 1] == QUOTE) {
+      checkStart++;
+    }
+    for (int i = checkStart; i < window.length; i++) {
+      byte b = window[i];
+      if (b == QUOTE) {
+        if (!inQuotes) {
+          boolean valueStart = (i == 0 && fileStart) || (i > 0 && (window[i - 1] == LF || window[i - 1] == CR)) ||
+            (i >= delimiter.length && startsWith(window, i - delimiter.length, delimiter));
+          if (!valueStart) {
+            return NO_RECORD;
+          }
+          inQuotes = true;
+        } else if (i + 1 < window.length && window[i + 1] == QUOTE) {
+          i++;
+        } else {
+          if (i + 1 < window.length && window[i + 1] != LF && window[i + 1] != CR &&
+            !startsWith(window, i + 1, delimiter)) {
+            return NO_RECORD;
+          }
+          inQuotes = false;
+        }
+      } else if (b == LF && !inQuotes && recordStart == NO_RECORD) {
+        recordStart = i + 1;
+      }
+    }
+    if (recordStart != NO_RECORD) {
+      return recordStart;
+    }
+    if (!endOfFile) {
+      return UNDETERMINED;
+    }
+    // the split start is in the last record of the file, unless a quoted value is never closed
+    return inQuotes ? NO_RECORD : window.length;
+  }
+
+  private static boolean startsWith(byte[] bytes, int pos, byte[] prefix) {
+    if (pos + prefix.length > bytes.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (bytes[pos + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reads up to and including the next newline that is not within quotes.
+   *
+   * @param out the text to append the record to, or null to skip the record
+   * @param inQuotes whether the current position is within quotes
+   * @return whether any bytes were read
+   */
+  private boolean readRecord(@Nullable Text out, boolean inQuotes) throws IOException {
+    boolean read = false;
+    while (bufferPos < bufferLength || fill()) {
+      read = true;
+      int chunkStart = bufferPos;
+      while (bufferPos < bufferLength) {
+        byte b = buffer[bufferPos++];
+        if (b == QUOTE) {
+          inQuotes = !inQuotes;
+        } else if (b == LF && !inQuotes) {
+          append(out, chunkStart, bufferPos - 1);
+          pos += bufferPos - chunkStart;
+          if (out != null && out.getLength() > 0 && out.getBytes()[out.getLength() - 1] == CR) {
+            out.set(out.getBytes(), 0, out.getLength() - 1);
+          }
+          return true;
+        }
+      }
+      append(out, chunkStart, bufferPos);
+      pos += bufferPos - chunkStart;
+    }
+    return read;
+  }
+
+  private void append(@Nullable Text out, int start, int end) {
+    if (out != null && end > start) {
+      out.append(buffer, start, end - start);
+    }
+  }
+
+  private boolean fill() throws IOException {
+    int read = in.read(buffer, 0, buffer.length);
+    if (read <= 0) {
+      return false;
+    }
+    bufferPos = 0;
+    bufferLength = read;
+    return true;
+  }
+}
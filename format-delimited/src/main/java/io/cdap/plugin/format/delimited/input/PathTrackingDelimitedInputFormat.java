@@ -16,12 +16,8 @@
 
 package io.cdap.plugin.format.delimited.input;
 
-import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Splitter;
-import com.google.common.collect.AbstractIterator;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
-import io.cdap.plugin.common.SchemaValidator;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
@@ -31,7 +27,6 @@ import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 import java.io.IOException;
-import java.util.Iterator;
 import javax.annotation.Nullable;
 
 /**
@@ -41,21 +36,42 @@ public class PathTrackingDelimitedInputFormat extends PathTrackingInputFormat {
   static final String DELIMITER = "delimiter";
   static final String ENABLE_QUOTES_VALUE = "enable_quotes_value";
   static final String SKIP_HEADER = "skip_header";
-
-  private static final String QUOTE = "\"";
+  static final String ENABLE_MULTILINE_SUPPORT = "enable_multiline_support";
 
   @Override
   protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
     TaskAttemptContext context,
     @Nullable String pathField,
     @Nullable Schema schema) {
+    return createRecordReader(split, context, pathField, schema, null);
+  }
+
+  @Override
+  protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
+    TaskAttemptContext context,
+    @Nullable String pathField,
+    @Nullable Schema schema,
+    @Nullable Schema outputSchema) {
 
-    RecordReader<LongWritable, Text> delegate = getDefaultRecordReaderDelegate(split, context);
     String delimiter = context.getConfiguration().get(DELIMITER);
     boolean skipHeader = context.getConfiguration().getBoolean(SKIP_HEADER, false);
     boolean enableQuotesValue = context.getConfiguration().getBoolean(ENABLE_QUOTES_VALUE, false);
+    boolean enableMultilineSupport = context.getConfiguration().getBoolean(ENABLE_MULTILINE_SUPPORT, false);
+    RecordReader<LongWritable, Text> delegate;
+    if (enableMultilineSupport) {
+      String encoding = context.getConfiguration().get(SOURCE_FILE_ENCODING);
+      if (encoding != null) {
+        throw new IllegalArgumentException(
+          String.format("Multi-line support requires files encoded in UTF-8, but the encoding is '%s'.", encoding));
+      }
+      delegate = new MultiLineRecordReader(delimiter);
+    } else {
+      delegate = getDefaultRecordReaderDelegate(split, context);
+    }
 
     return new RecordReader<NullWritable, StructuredRecord.Builder>() {
+      // created once for the schema, on the first record
+      private DelimitedRecordParser parser;
 
       @Override
       public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
@@ -81,61 +97,11 @@ public class PathTrackingDelimitedInputFormat extends PathTrackingInputFormat {
 
       @Override
       public StructuredRecord.Builder getCurrentValue() throws IOException, InterruptedException {
-        String delimitedString = delegate.getCurrentValue().toString();
-
-        StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-        Iterator<Schema.Field> fields = schema.getFields().iterator();
-        Iterator<String> splitsIterator = getSplitsIterator(enableQuotesValue, delimitedString, delimiter);
-
-        while (splitsIterator.hasNext()) {
-          String part = splitsIterator.next();
-          if (!fields.hasNext()) {
-            int numDataFields = 0;
-            splitsIterator = getSplitsIterator(enableQuotesValue, delimitedString, delimiter);
-            while (splitsIterator.hasNext()) {
-              numDataFields++;
-            }
-            int numSchemaFields = schema.getFields().size();
-            String message =
-              String.format(
-                "Found a row with %d fields when the schema only contains %d field%s.",
-                numDataFields, numSchemaFields, numSchemaFields == 1 ? "" : "s");
-            // special error handling for the case when the user most likely set the schema to delimited
-            // when they meant to use 'text'.
-            Schema.Field bodyField = schema.getField("body");
-            if (bodyField != null) {
-              Schema bodySchema = bodyField.getSchema();
-              bodySchema = bodySchema.isNullable() ? bodySchema.getNonNullable() : bodySchema;
-              if (bodySchema.getType() == Schema.Type.STRING) {
-                throw new IOException(message + " Did you mean to use the 'text' format?");
-              }
-            }
-            if (!enableQuotesValue && delimitedString.contains(QUOTE)) {
-              message += " Check if quoted values should be allowed.";
-            }
-            throw new IOException(
-              message + " Check that the schema contains the right number of fields.");
-          }
-
-          Schema.Field nextField = fields.next();
-          if (part.isEmpty()) {
-            builder.set(nextField.getName(), null);
-          } else {
-            String fieldName = nextField.getName();
-            // Ensure if date time field, value is in correct format
-            SchemaValidator.validateDateTimeField(nextField.getSchema(), fieldName, part);
-            builder.convertAndSet(fieldName, part);
-          }
-        }
-        return builder;
-      }
-
-      private Iterator<String> getSplitsIterator(boolean enableQuotesValue, String delimitedString, String delimiter) {
-        if (enableQuotesValue) {
-          return new SplitQuotesIterator(delimitedString, delimiter);
-        } else {
-          return Splitter.on(delimiter).split(delimitedString).iterator();
+        if (parser == null) {
+          parser = new DelimitedRecordParser(schema, outputSchema == null ? schema : outputSchema, delimiter,
+                                             enableQuotesValue, enableMultilineSupport);
         }
+        return parser.parse(delegate.getCurrentValue());
       }
 
       @Override
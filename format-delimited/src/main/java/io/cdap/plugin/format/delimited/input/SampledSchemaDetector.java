@@ -0,0 +1,296 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.input;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.delimited.common.ColumnTypeLattice;
+import io.cdap.plugin.format.delimited.common.DataTypeDetectorUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+
+/**
+ * Detects the schema of delimited files by sampling rows from several files, and from several offsets within each
+ * file, in parallel. The column names come from the first line of the first file. The rows of each sample are
+ * classified with a {@link ColumnTypeLattice} per column, and the lattices of all samples are merged.
+ * <p>
+ * A sample that does not start at the beginning of a file skips the partial line at its start. Compressed files are
+ * only sampled from their beginning.
+ */
+final class SampledSchemaDetector {
+  @VisibleForTesting
+  static final int MAX_FILES = 16;
+  @VisibleForTesting
+  static final int SAMPLES_PER_FILE = 4;
+  private static final int MAX_THREADS = 8;
+  // files smaller than this are sampled from their beginning only
+  private static final long MIN_SAMPLED_FILE_LENGTH = 64 * 1024;
+
+  private final FileSystem fs;
+  private final Configuration conf;
+  private final String delimiter;
+  private final boolean skipHeader;
+  private final boolean enableQuotedValues;
+
+  SampledSchemaDetector(FileSystem fs, Configuration conf, String delimiter, boolean skipHeader,
+                        boolean enableQuotedValues) {
+    this.fs = fs;
+    this.conf = conf;
+    this.delimiter = delimiter;
+    this.skipHeader = skipHeader;
+    this.enableQuotedValues = enableQuotedValues;
+  }
+
+  /**
+   * Detects the schema of the files at the given path.
+   *
+   * @param path a file, or a directory of files
+   * @param regexPathFilter a regular expression that the paths of sampled files must contain a match of
+   * @param override columns whose type is given by the user instead of detected
+   * @param sampleSize the maximum number of rows to sample in total
+   * @return the detected schema
+   * @throws IOException if the files could not be read
+   */
+  Schema detect(Path path, @Nullable String regexPathFilter, Map<String, Schema> override,
+                long sampleSize) throws IOException {
+    List<FileStatus> files = pickFiles(listFiles(path, regexPathFilter));
+    String[] columnNames = readColumnNames(files.get(0).getPath());
+
+    List<Sample> samples = new ArrayList<>();
+    for (FileStatus file : files) {
+      long length = file.getLen();
+      int numSamples = isCompressed(file.getPath()) || length < MIN_SAMPLED_FILE_LENGTH ? 1 : SAMPLES_PER_FILE;
+      for (int i = 0; i < numSamples; i++) {
+        samples.add(new Sample(file.getPath(), length / numSamples * i));
+      }
+    }
+    long rowsPerSample = Math.max(1L, (sampleSize + samples.size() - 1) / samples.size());
+
+    ColumnTypeLattice[] columns = newLattices(columnNames.length);
+    ExecutorService executor = Executors.newFixedThreadPool(
+      Math.min(samples.size(), MAX_THREADS),
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("schema-detection-%d").build());
+    boolean sampledRows = false;
+    try {
+      List<Future<ColumnTypeLattice[]>> futures = new ArrayList<>(samples.size());
+      for (Sample sample : samples) {
+        futures.add(executor.submit(() -> sample.read(columnNames.length, rowsPerSample)));
+      }
+      for (Future<ColumnTypeLattice[]> future : futures) {
+        ColumnTypeLattice[] sampleColumns = future.get();
+        if (sampleColumns == null) {
+          continue;
+        }
+        sampledRows = true;
+        for (int i = 0; i < columns.length; i++) {
+          columns[i].merge(sampleColumns[i]);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while detecting the schema.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Failed to read the files to detect the schema.", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    if (!sampledRows) {
+      throw new RuntimeException(
+        "Failed to perform automated data type detection! Check if the data file has any rows. " +
+          "If one single row is present, make sure to set the property \"Skip Header\" to False.");
+    }
+    return Schema.recordOf("text", toFields(columnNames, columns, override));
+  }
+
+  private List<FileStatus> listFiles(Path path, @Nullable String regexPathFilter) throws IOException {
+    if (!fs.exists(path)) {
+      throw new IOException("Input path not found");
+    }
+    FileStatus status = fs.getFileStatus(path);
+    if (status.isFile()) {
+      return Arrays.asList(status);
+    }
+    FileStatus[] statuses = fs.listStatus(path);
+    if (statuses == null) {
+      throw new IllegalArgumentException("Cannot read files from provided path");
+    }
+    if (statuses.length == 0) {
+      throw new IllegalArgumentException("Provided directory is empty");
+    }
+    Pattern pattern = Strings.isNullOrEmpty(regexPathFilter) ? null : Pattern.compile(regexPathFilter);
+    List<FileStatus> files = Arrays.stream(statuses)
+      .filter(FileStatus::isFile)
+      .filter(file -> pattern == null || pattern.matcher(file.getPath().toString()).find())
+      .sorted(Comparator.comparing(file -> file.getPath().toString()))
+      .collect(Collectors.toList());
+    if (files.isEmpty()) {
+      throw new IllegalArgumentException(String.format("No file inside \"%s\" matched regex \"%s\"!", path,
+                                                       regexPathFilter));
+    }
+    return files;
+  }
+
+  /**
+   * Picks files that are evenly spread over the sorted list, always including the first one.
+   */
+  @VisibleForTesting
+  static <T> List<T> pickFiles(List<T> files) {
+    if (files.size() <= MAX_FILES) {
+      return files;
+    }
+    List<T> picked = new ArrayList<>(MAX_FILES);
+    for (int i = 0; i < MAX_FILES; i++) {
+      picked.add(files.get((int) ((long) i * files.size() / MAX_FILES)));
+    }
+    return picked;
+  }
+
+  private String[] readColumnNames(Path path) throws IOException {
+    try (BufferedReader reader = open(path, 0L)) {
+      String line = reader.readLine();
+      if (line == null) {
+        throw new RuntimeException(
+          "Failed to perform automated data type detection! Check if the data file has any rows.");
+      }
+      return DataTypeDetectorUtils.setColumnNames(line, skipHeader, delimiter);
+    }
+  }
+
+  private List<Schema.Field> toFields(String[] columnNames, ColumnTypeLattice[] columns,
+                                      Map<String, Schema> override) {
+    List<String> names = Arrays.asList(columnNames);
+    for (String name : override.keySet()) {
+      if (!names.contains(name)) {
+        throw new IllegalArgumentException(String.format("Field %s is not present in the input schema!", name));
+      }
+    }
+    List<Schema.Field> fields = new ArrayList<>(columnNames.length);
+    for (int i = 0; i < columnNames.length; i++) {
+      Schema schema = override.containsKey(columnNames[i]) ? override.get(columnNames[i]) : columns[i].toSchema();
+      fields.add(Schema.Field.of(columnNames[i], schema));
+    }
+    return fields;
+  }
+
+  private boolean isCompressed(Path path) {
+    return new CompressionCodecFactory(conf).getCodec(path) != null;
+  }
+
+  private BufferedReader open(Path path, long offset) throws IOException {
+    FSDataInputStream fileIn = fs.open(path);
+    InputStream in = fileIn;
+    CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(path);
+    if (codec != null) {
+      in = codec.createInputStream(fileIn);
+    } else if (offset > 0L) {
+      fileIn.seek(offset);
+    }
+    return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+  }
+
+  private Iterator<String> split(String line) {
+    if (enableQuotedValues) {
+      return new SplitQuotesIterator(line, delimiter);
+    }
+    return Splitter.on(delimiter).split(line).iterator();
+  }
+
+  private static ColumnTypeLattice[] newLattices(int numColumns) {
+    ColumnTypeLattice[] columns = new ColumnTypeLattice[numColumns];
+    for (int i = 0; i < numColumns; i++) {
+      columns[i] = new ColumnTypeLattice();
+    }
+    return columns;
+  }
+
+  /**
+   * Rows of a file that start at an offset.
+   */
+  private final class Sample {
+    private final Path path;
+    private final long offset;
+
+    private Sample(Path path, long offset) {
+      this.path = path;
+      this.offset = offset;
+    }
+
+    /**
+     * Reads and classifies the rows of the sample.
+     *
+     * @return a lattice for each column, or null if the sample has no rows
+     */
+    @Nullable
+    private ColumnTypeLattice[] read(int numColumns, long maxRows) throws IOException {
+      ColumnTypeLattice[] columns = newLattices(numColumns);
+      boolean sampledRows = false;
+      try (BufferedReader reader = open(path, offset)) {
+        // the first line is either the header, or the end of a line that starts before the offset
+        if ((offset > 0L || skipHeader) && reader.readLine() == null) {
+          return null;
+        }
+        String line;
+        for (long row = 0; row < maxRows && (line = reader.readLine()) != null; row++) {
+          List<String> values = new ArrayList<>(numColumns);
+          try {
+            split(line).forEachRemaining(values::add);
+          } catch (IllegalArgumentException e) {
+            // a line with an unenclosed quote, such as part of a value that spans lines, is not sampled
+            continue;
+          }
+          // values that are missing at the end of a row are empty, as when the row is read
+          for (int i = 0; i < numColumns; i++) {
+            columns[i].add(i < values.size() ? values.get(i) : null);
+          }
+          sampledRows = true;
+        }
+      }
+      return sampledRows ? columns : null;
+    }
+  }
+}
@@ -68,6 +68,8 @@ public class TSVInputFormatProvider extends PathTrackingInputFormatProvider<Deli
       collector.addFailure("TSV format cannot be used without specifying a schema.", "Schema must be specified.")
         .withConfigProperty("schema");
     }
+    conf.validateMultilineSupport(collector);
+    conf.validateSchemaDetectionMode(collector);
   }
 
   @Override
@@ -75,5 +77,7 @@ public class TSVInputFormatProvider extends PathTrackingInputFormatProvider<Deli
     properties.put(PathTrackingDelimitedInputFormat.DELIMITER, "\t");
     properties.put(PathTrackingDelimitedInputFormat.SKIP_HEADER, String.valueOf(conf.getSkipHeader()));
     properties.put(PathTrackingDelimitedInputFormat.ENABLE_QUOTES_VALUE, String.valueOf(conf.getEnableQuotedValues()));
+    properties.put(PathTrackingDelimitedInputFormat.ENABLE_MULTILINE_SUPPORT,
+                   String.valueOf(conf.getEnableMultilineSupport()));
   }
 }
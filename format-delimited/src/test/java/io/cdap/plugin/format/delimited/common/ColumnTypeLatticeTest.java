@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.common;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Unit tests for {@link ColumnTypeLattice}
+ */
+public class ColumnTypeLatticeTest {
+
+  @Test
+  public void testIntegers() {
+    Assert.assertEquals(Schema.of(Schema.Type.INT), detect("0", "-2147483648", "+7", "007"));
+    Assert.assertEquals(Schema.of(Schema.Type.LONG), detect("1", "2147483648"));
+    Assert.assertEquals(Schema.of(Schema.Type.LONG), detect("-9223372036854775808"));
+    Assert.assertEquals(Schema.decimalOf(19, 0), detect("9223372036854775808"));
+    // the reader parses longs with Long.parseLong, which does not accept a type suffix
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), detect("123L"));
+  }
+
+  @Test
+  public void testDecimalNumbers() {
+    Assert.assertEquals(Schema.of(Schema.Type.DOUBLE), detect("3.14", "-1789.10", "1", "1e3"));
+    Assert.assertEquals(Schema.decimalOf(32, 27), detect("13004.012312312423112122121121212"));
+    Assert.assertEquals(Schema.decimalOf(19, 16), detect("12.50", "100.1234567890123456", "7"));
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), detect("1.", ".5"));
+  }
+
+  @Test
+  public void testBooleansAndStrings() {
+    Assert.assertEquals(Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN)), detect("true", "FaLsE", ""));
+    // blank values are not read as null, so they are strings
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), detect("true", " "));
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), detect("1", "\t", "2"));
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), detect("true", "1"));
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), detect("1", "yes"));
+    Assert.assertEquals(Schema.nullableOf(Schema.of(Schema.Type.STRING)), detect("", ""));
+  }
+
+  @Test
+  public void testTimestamps() {
+    Assert.assertEquals(Schema.of(Schema.LogicalType.TIMESTAMP_MICROS),
+                        detect("2021-01-12T23:50:06+00:00", "2021-01-12 23:50:06.5Z", "2021-01-12T23:50:06-0530"));
+    // no offset, and an invalid month
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), detect("2021-01-12T23:50:06"));
+    Assert.assertEquals(Schema.of(Schema.Type.STRING), detect("2021-13-12T23:50:06Z"));
+    Assert.assertEquals(ZonedDateTime.of(2021, 1, 12, 23, 50, 6, 123456000, ZoneOffset.ofHoursMinutes(-5, -30)),
+                        ColumnTypeLattice.parseTimestamp("2021-01-12 23:50:06.123456-05:30"));
+  }
+
+  @Test
+  public void testMerge() {
+    ColumnTypeLattice first = new ColumnTypeLattice();
+    first.add("1");
+    ColumnTypeLattice second = new ColumnTypeLattice();
+    second.add("");
+    second.add("12345678901234567.5");
+    first.merge(second);
+    Assert.assertEquals(Schema.nullableOf(Schema.decimalOf(18, 1)), first.toSchema());
+  }
+
+  private static Schema detect(String... values) {
+    ColumnTypeLattice lattice = new ColumnTypeLattice();
+    for (String value : values) {
+      lattice.add(value);
+    }
+    return lattice.toSchema();
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.format.UnexpectedFormatException;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Tests for {@link DelimitedRecordParser}.
+ */
+public class DelimitedRecordParserTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("i", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("l", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+    Schema.Field.of("d", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+    Schema.Field.of("f", Schema.nullableOf(Schema.of(Schema.Type.FLOAT))));
+
+  @Test
+  public void testParseTypes() throws IOException {
+    DelimitedRecordParser parser = new DelimitedRecordParser(SCHEMA, ",", false);
+    StructuredRecord record = parser.parse(new Text("héllo,-123,9876543210123,-12.625,TRUE,1.5")).build();
+    Assert.assertEquals("héllo", record.get("s"));
+    Assert.assertEquals(-123, (int) record.get("i"));
+    Assert.assertEquals(9876543210123L, (long) record.get("l"));
+    Assert.assertEquals(-12.625d, record.<Double>get("d"), 0d);
+    Assert.assertTrue(record.get("b"));
+    Assert.assertEquals(1.5f, record.<Float>get("f"), 0f);
+  }
+
+  @Test
+  public void testFallbackConversions() throws IOException {
+    DelimitedRecordParser parser = new DelimitedRecordParser(SCHEMA, ",", false);
+    StructuredRecord record = parser.parse(new Text("a,+7,-9223372036854775808,1.5e3,no,")).build();
+    Assert.assertEquals(7, (int) record.get("i"));
+    Assert.assertEquals(Long.MIN_VALUE, (long) record.get("l"));
+    Assert.assertEquals(1500d, record.<Double>get("d"), 0d);
+    Assert.assertFalse(record.get("b"));
+    Assert.assertNull(record.get("f"));
+  }
+
+  @Test
+  public void testDoublesMatchParseDouble() throws IOException {
+    Schema schema = Schema.recordOf("record", Schema.Field.of("d", Schema.of(Schema.Type.DOUBLE)));
+    DelimitedRecordParser parser = new DelimitedRecordParser(schema, ",", false);
+    for (String value : new String[] { "0.1", "0.3", "-0", ".5", "1.", "123456789012345", "1234567.89012345",
+      "0.0000000000000000000001", "3.141592653589793", "12345678901234567890" }) {
+      StructuredRecord record = parser.parse(new Text(value)).build();
+      Assert.assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)),
+                          Double.doubleToLongBits(record.<Double>get("d")));
+    }
+  }
+
+  @Test
+  public void testEmptyAndMissingFields() throws IOException {
+    DelimitedRecordParser parser = new DelimitedRecordParser(SCHEMA, "::", false);
+    StructuredRecord.Builder builder = parser.parse(new Text("::5"));
+    builder.set("l", 1L).set("d", 1d).set("b", true).set("f", 1f);
+    StructuredRecord record = builder.build();
+    Assert.assertNull(record.get("s"));
+    Assert.assertEquals(5, (int) record.get("i"));
+  }
+
+  @Test
+  public void testQuotedValues() throws IOException {
+    DelimitedRecordParser parser = new DelimitedRecordParser(SCHEMA, ",", true);
+    StructuredRecord record = parser.parse(new Text("\"a,\"\"b\",\"1\"2,,\"\",true,")).build();
+    Assert.assertEquals("a,b", record.get("s"));
+    Assert.assertEquals(12, (int) record.get("i"));
+    Assert.assertNull(record.get("l"));
+    Assert.assertNull(record.get("d"));
+    Assert.assertTrue(record.get("b"));
+    Assert.assertNull(record.get("f"));
+  }
+
+  @Test
+  public void testEscapedQuotes() throws IOException {
+    DelimitedRecordParser parser = new DelimitedRecordParser(SCHEMA, ",", true, true);
+    StructuredRecord record = parser.parse(new Text("\"say \"\"hi\"\"\nthere\",1")).build();
+    Assert.assertEquals("say \"hi\"\nthere", record.get("s"));
+    Assert.assertEquals(1, (int) record.get("i"));
+  }
+
+  @Test
+  public void testOutputSchema() throws IOException {
+    Schema outputSchema = Schema.recordOf("record",
+                                          Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                          Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))));
+    DelimitedRecordParser parser = new DelimitedRecordParser(SCHEMA, outputSchema, ",", true, false);
+    // fields that are not read are not converted, so invalid values are not an error
+    StructuredRecord record = parser.parse(new Text("\"a\",x,y,z,true,\"w\"")).build();
+    Assert.assertSame(outputSchema, record.getSchema());
+    Assert.assertEquals("a", record.get("s"));
+    Assert.assertTrue(record.get("b"));
+  }
+
+  @Test
+  public void testDecimalsAndTimestamps() throws IOException {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("dec", Schema.nullableOf(Schema.decimalOf(10, 3))),
+                                    Schema.Field.of("ts", Schema.of(Schema.LogicalType.TIMESTAMP_MICROS)));
+    DelimitedRecordParser parser = new DelimitedRecordParser(schema, ",", false);
+    StructuredRecord record = parser.parse(new Text("-12.5,2021-01-12 23:50:06.25+01:00")).build();
+    Assert.assertEquals(new BigDecimal("-12.500"), record.getDecimal("dec"));
+    Assert.assertEquals(ZonedDateTime.of(2021, 1, 12, 22, 50, 6, 250000000, ZoneOffset.UTC).toInstant(),
+                        record.getTimestamp("ts").toInstant());
+  }
+
+  @Test
+  public void testInvalidDecimals() throws IOException {
+    Schema schema = Schema.recordOf("record", Schema.Field.of("dec", Schema.decimalOf(10, 3)));
+    DelimitedRecordParser parser = new DelimitedRecordParser(schema, ",", false);
+    for (String value : new String[] { "1.2345", "abc" }) {
+      try {
+        parser.parse(new Text(value));
+        Assert.fail(String.format("Parsing '%s' as a decimal with scale 3 should fail.", value));
+      } catch (UnexpectedFormatException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnenclosedQuote() throws IOException {
+    new DelimitedRecordParser(SCHEMA, ",", true).parse(new Text("\"a,b"));
+  }
+
+  @Test
+  public void testTooManyFields() {
+    Schema schema = Schema.recordOf("record", Schema.Field.of("i", Schema.of(Schema.Type.INT)));
+    try {
+      new DelimitedRecordParser(schema, ",", false).parse(new Text("1,\"2\",3"));
+      Assert.fail("Parsing a row with more fields than the schema should fail.");
+    } catch (IOException e) {
+      Assert.assertEquals("Found a row with 3 fields when the schema only contains 1 field. Check if quoted values " +
+                            "should be allowed. Check that the schema contains the right number of fields.",
+                          e.getMessage());
+    }
+  }
+}
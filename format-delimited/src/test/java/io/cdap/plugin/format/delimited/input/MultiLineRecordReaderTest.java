@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for {@link MultiLineRecordReader}.
+ */
+public class MultiLineRecordReaderTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testEmbeddedNewlines() throws IOException {
+    File file = write("id,comment\r\n1,\"first\nsecond\"\r\n2,\"say \"\"hi\"\"\"\n3,\n");
+    Assert.assertEquals(Arrays.asList("id,comment", "1,\"first\nsecond\"", "2,\"say \"\"hi\"\"\"", "3,"),
+                        read(file, 0, file.length()));
+  }
+
+  @Test
+  public void testSplitsReadEachRecordOnce() throws IOException {
+    StringBuilder content = new StringBuilder();
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      String record;
+      switch (i % 4) {
+        case 0:
+          record = i + ",plain value," + i;
+          break;
+        case 1:
+          record = i + ",\"a value with\nnewlines, commas\nand \"\"quotes\"\"\"," + i;
+          break;
+        case 2:
+          record = i + ",\"\"," + i;
+          break;
+        default:
+          record = i + ",\"\"\"quoted\"\"\n\",\"x\"";
+      }
+      expected.add(record);
+      content.append(record).append('\n');
+    }
+    File file = write(content.toString());
+
+    for (long splitSize : new long[] { 1, 7, 13, 64, 100, 1000 }) {
+      List<String> records = new ArrayList<>();
+      for (long start = 0; start < file.length(); start += splitSize) {
+        records.addAll(read(file, start, Math.min(splitSize, file.length() - start)));
+      }
+      Assert.assertEquals("split size " + splitSize, expected, records);
+    }
+  }
+
+  @Test
+  public void testFindRecordStart() {
+    byte[] delimiter = ",".getBytes(StandardCharsets.UTF_8);
+    // starts inside the quoted value "b\nc"
+    byte[] window = "a,\"b\nc\"\nd,e\n".getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals(MultiLineRecordReader.NO_RECORD,
+                        MultiLineRecordReader.findRecordStart(window, 4, false, false, delimiter, false));
+    Assert.assertEquals(8, MultiLineRecordReader.findRecordStart(window, 4, false, false, delimiter, true));
+    // no quotes, so a split start within quotes is in a value that continues after the window
+    window = "a,b\nc,d\n".getBytes(StandardCharsets.UTF_8);
+    Assert.assertEquals(4, MultiLineRecordReader.findRecordStart(window, 1, false, false, delimiter, false));
+    Assert.assertEquals(MultiLineRecordReader.UNDETERMINED,
+                        MultiLineRecordReader.findRecordStart(window, 1, false, false, delimiter, true));
+    // at the end of the file, a quoted value that is never closed is not consistent
+    Assert.assertEquals(MultiLineRecordReader.NO_RECORD,
+                        MultiLineRecordReader.findRecordStart(window, 1, false, true, delimiter, true));
+  }
+
+  @Test
+  public void testQuotedValueLongerThanSpeculation() throws IOException {
+    // a quoted value with lines that look like records, which continues past the bytes checked after a split start
+    StringBuilder value = new StringBuilder();
+    while (value.length() < MultiLineRecordReader.SPECULATION_LENGTH * 2) {
+      value.append("not,a,record\n");
+    }
+    List<String> expected = Arrays.asList("1,a", "2,\"" + value + "\"", "3,c");
+    File file = write(String.join("\n", expected) + "\n");
+
+    long splitSize = MultiLineRecordReader.SPECULATION_LENGTH / 2;
+    List<String> records = new ArrayList<>();
+    for (long start = 0; start < file.length(); start += splitSize) {
+      records.addAll(read(file, start, Math.min(splitSize, file.length() - start)));
+    }
+    Assert.assertEquals(expected, records);
+  }
+
+  private static File write(String content) throws IOException {
+    File file = TMP_FOLDER.newFile();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private static List<String> read(File file, long start, long length) throws IOException {
+    TaskAttemptContext context = new TaskAttemptContextImpl(new Configuration(), new TaskAttemptID());
+    List<String> records = new ArrayList<>();
+    try (MultiLineRecordReader reader = new MultiLineRecordReader(",")) {
+      reader.initialize(new FileSplit(new Path(file.toURI()), start, length, new String[0]), context);
+      while (reader.nextKeyValue()) {
+        records.add(reader.getCurrentValue().toString());
+      }
+    }
+    return records;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.delimited.input;
+
+import com.google.common.collect.ImmutableMap;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests for {@link SampledSchemaDetector}.
+ */
+public class SampledSchemaDetectorTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testPickFiles() {
+    List<Integer> files = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+    List<Integer> picked = SampledSchemaDetector.pickFiles(files);
+    Assert.assertEquals(SampledSchemaDetector.MAX_FILES, picked.size());
+    Assert.assertEquals(0, (int) picked.get(0));
+    Assert.assertEquals(93, (int) picked.get(SampledSchemaDetector.MAX_FILES - 1));
+    Assert.assertEquals(files.subList(0, 3), SampledSchemaDetector.pickFiles(files.subList(0, 3)));
+  }
+
+  @Test
+  public void testDetectAcrossFiles() throws IOException {
+    File dir = TMP_FOLDER.newFolder();
+    for (int i = 0; i < 40; i++) {
+      StringBuilder content = new StringBuilder("id|price|seen|note\n");
+      // only files after the first one have decimal prices, empty notes and large ids
+      for (int row = 0; row < 10; row++) {
+        long id = i == 0 ? row : Integer.MAX_VALUE + (long) row;
+        String price = i == 0 ? "1" : "12.5";
+        String note = i == 0 ? "a" : "";
+        content.append(id).append('|').append(price).append("|2021-01-12T23:50:06Z|").append(note).append('\n');
+      }
+      Files.write(new File(dir, String.format("part-%02d.csv", i)).toPath(),
+                  content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    // not sampled, since it does not match the filter
+    Files.write(new File(dir, "other.txt").toPath(), "x|y|z|w\n".getBytes(StandardCharsets.UTF_8));
+
+    Configuration conf = new Configuration();
+    SampledSchemaDetector detector = new SampledSchemaDetector(FileSystem.getLocal(conf), conf, "|", true, false);
+    Schema schema = detector.detect(new Path(dir.toURI()), "\\.csv$",
+                                    ImmutableMap.of("seen", Schema.of(Schema.Type.STRING)), 1000L);
+
+    List<Schema.Field> expected = new ArrayList<>();
+    expected.add(Schema.Field.of("id", Schema.of(Schema.Type.LONG)));
+    expected.add(Schema.Field.of("price", Schema.of(Schema.Type.DOUBLE)));
+    expected.add(Schema.Field.of("seen", Schema.of(Schema.Type.STRING)));
+    expected.add(Schema.Field.of("note", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Assert.assertEquals(Schema.recordOf("text", expected), schema);
+  }
+
+  @Test
+  public void testDetectedSchemaReadsBlankValues() throws IOException {
+    String content = "id,count\n1,5\n2, \n3,\n";
+    File file = TMP_FOLDER.newFile();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    Configuration conf = new Configuration();
+    Schema schema = new SampledSchemaDetector(FileSystem.getLocal(conf), conf, ",", true, false)
+      .detect(new Path(file.toURI()), null, Collections.emptyMap(), 10L);
+    Assert.assertEquals(Schema.nullableOf(Schema.of(Schema.Type.STRING)), schema.getField("count").getSchema());
+
+    // every line can be read with the detected schema
+    DelimitedRecordParser parser = new DelimitedRecordParser(schema, ",", false);
+    List<Object> counts = new ArrayList<>();
+    for (String line : content.split("\n")) {
+      if (!line.startsWith("id")) {
+        StructuredRecord record = parser.parse(new Text(line)).build();
+        counts.add(record.get("count"));
+      }
+    }
+    Assert.assertEquals(Arrays.asList("5", " ", null), counts);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownOverride() throws IOException {
+    File file = TMP_FOLDER.newFile();
+    Files.write(file.toPath(), "1,2\n".getBytes(StandardCharsets.UTF_8));
+    Configuration conf = new Configuration();
+    new SampledSchemaDetector(FileSystem.getLocal(conf), conf, ",", false, false)
+      .detect(new Path(file.toURI()), null, Collections.singletonMap("missing", Schema.of(Schema.Type.INT)), 10L);
+  }
+}
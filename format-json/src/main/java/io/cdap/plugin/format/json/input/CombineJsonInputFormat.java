@@ -18,8 +18,14 @@ package io.cdap.plugin.format.json.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.plugin.common.batch.JobUtils;
+import io.cdap.plugin.format.input.AdaptiveSplitPacker;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import io.cdap.plugin.format.input.ProcessedFileIndex;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.RecordReader;
@@ -28,19 +34,59 @@ import org.apache.hadoop.mapreduce.lib.input.CombineFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileRecordReader;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileRecordReaderWrapper;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 /**
  * Combined input format that tracks which file each json record was read from.
  */
 public class CombineJsonInputFormat extends CombineFileInputFormat<NullWritable, StructuredRecord> {
+  private static final Logger LOG = LoggerFactory.getLogger(CombineJsonInputFormat.class);
 
   @Override
   public List<InputSplit> getSplits(JobContext job) throws IOException {
-    return JobUtils.applyWithExtraClassLoader(job, getClass().getClassLoader(),
-                                              CombineJsonInputFormat.super::getSplits);
+    return JobUtils.applyWithExtraClassLoader(job, getClass().getClassLoader(), context -> {
+      if (AdaptiveSplitPacker.isEnabled(context)) {
+        return new AdaptiveSplitPacker(context, file -> isSplitable(context, file)).getSplits();
+      }
+      return super.getSplits(context);
+    });
+  }
+
+  /**
+   * Leaves out the files that previous runs have read, if the job has a processed file index.
+   */
+  @Override
+  protected List<FileStatus> listStatus(JobContext job) throws IOException {
+    return ProcessedFileIndex.selectNewFiles(job.getConfiguration(), super.listStatus(job));
+  }
+
+  /**
+   * With multi-line support, compressed files and files that hold an array of records are not split. Splits of a
+   * file that starts with an array can't find their first record without reading the file from its beginning,
+   * which would read the file once per split.
+   */
+  @Override
+  protected boolean isSplitable(JobContext context, Path file) {
+    Configuration conf = context.getConfiguration();
+    if (conf.getBoolean(PathTrackingJsonInputFormat.ENABLE_MULTILINE_SUPPORT, false)) {
+      if (new CompressionCodecFactory(conf).getCodec(file) != null) {
+        return false;
+      }
+      try (InputStream in = file.getFileSystem(conf).open(file)) {
+        if (JsonDocumentRecordReader.startsWithArray(in)) {
+          return false;
+        }
+      } catch (IOException e) {
+        LOG.warn("Unable to read the start of file {}, so it will not be split.", file, e);
+        return false;
+      }
+    }
+    return super.isSplitable(context, file);
   }
 
   /**
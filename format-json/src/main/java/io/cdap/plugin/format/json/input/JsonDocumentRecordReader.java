@@ -0,0 +1,475 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.input;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads json objects that may span multiple lines. Each object that is not within another object is a record, so a
+ * file can contain a sequence of objects, one or more arrays of objects, or a mix of both. The key is the offset of
+ * the record in the file.
+ * <p>
+ * A split that does not start at the beginning of the file starts with the first record that begins after the split
+ * start. To find it without reading the file from its beginning, the bytes that follow the split start are checked
+ * against the json grammar twice, once assuming that the split starts outside of a string and once assuming that it
+ * starts inside a string. Json strings cannot contain unescaped control characters such as newlines, so usually only
+ * one assumption holds. Under that assumption, the level between records is only known if the bytes that follow show
+ * it: either they reach the end of the file, so that the lowest object nesting level in them is that level, or they
+ * contain two objects that are only separated by whitespace, which json only allows between records. The first object
+ * that starts at that level is the first record. If the assumptions do not agree, or the level between records is not
+ * known, the file is read from its beginning. This is always the case for a split that starts in a record that is
+ * larger than the checked bytes, and for the splits of a file that holds a single array of records, except near its
+ * end. A split reads every record that starts at or before its end, so each record in the file is read by exactly
+ * one split.
+ * <p>
+ * Compressed files are not split, and are read from the beginning. Neither are files that start with an array,
+ * since almost every split of such a file would have to read the file from its beginning, see
+ * {@link #startsWithArray(InputStream)}.
+ * <p>
+ * Files are read as UTF-8, so multi-line support requires UTF-8 files.
+ */
+final class JsonDocumentRecordReader extends RecordReader<LongWritable, Text> {
+  // number of bytes after the split start that are checked to find the first record
+  @VisibleForTesting
+  static final int SPECULATION_LENGTH = 1024 * 1024;
+  // the bytes are not consistent with the assumed string state
+  @VisibleForTesting
+  static final int NO_RECORD = -1;
+  // the bytes are consistent with the assumed string state, but do not show the level between records
+  @VisibleForTesting
+  static final int UNDETERMINED = -2;
+  private static final byte QUOTE = '"';
+  private static final byte BACKSLASH = '\\';
+  private static final byte OBJECT_START = '{';
+  private static final byte OBJECT_END = '}';
+
+  private final byte[] buffer;
+  private final LongWritable key;
+  private final Text value;
+  private FSDataInputStream fileIn;
+  private InputStream in;
+  private int bufferPos;
+  private int bufferLength;
+  private long splitStart;
+  private long splitLength;
+  private long end;
+  private long pos;
+  // parsing state of the current position, used when skipping to the first record from the beginning of the file
+  private boolean inString;
+  private boolean escaped;
+  private int depth;
+
+  JsonDocumentRecordReader() {
+    this.buffer = new byte[64 * 1024];
+    this.key = new LongWritable();
+    this.value = new Text();
+  }
+
+  @Override
+  public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+    FileSplit fileSplit = (FileSplit) split;
+    Configuration conf = context.getConfiguration();
+    Path path = fileSplit.getPath();
+    FileSystem fs = path.getFileSystem(conf);
+    splitStart = fileSplit.getStart();
+    splitLength = fileSplit.getLength();
+    fileIn = fs.open(path);
+
+    CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(path);
+    if (codec != null) {
+      in = codec.createInputStream(fileIn);
+      end = Long.MAX_VALUE;
+      pos = 0L;
+      return;
+    }
+
+    in = fileIn;
+    end = splitStart + splitLength;
+    pos = splitStart;
+    if (splitStart == 0L) {
+      return;
+    }
+    long recordStart = speculateRecordStart(fs.getFileStatus(path).getLen());
+    if (recordStart < 0) {
+      skipToRecordStartFromFileStart();
+    } else {
+      fileIn.seek(recordStart);
+      pos = recordStart;
+    }
+  }
+
+  @Override
+  public boolean nextKeyValue() throws IOException {
+    if (!skipToObject() || pos > end) {
+      return false;
+    }
+    key.set(pos);
+    value.clear();
+    readObject();
+    return true;
+  }
+
+  @Override
+  public LongWritable getCurrentKey() {
+    return key;
+  }
+
+  @Override
+  public Text getCurrentValue() {
+    return value;
+  }
+
+  @Override
+  public float getProgress() throws IOException {
+    if (splitLength == 0L) {
+      return 0f;
+    }
+    return Math.min(1f, (fileIn.getPos() - splitStart) / (float) splitLength);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (in != null) {
+      in.close();
+    }
+  }
+
+  /**
+   * Finds the offset of the first record that starts after the split start by checking both possible string
+   * states at the split start against the bytes that follow.
+   *
+   * @return the offset of the first record, or a negative value if it could not be determined
+   */
+  private long speculateRecordStart(long fileLength) throws IOException {
+    // the byte before the split start is needed to tell whether the split starts after an escape character
+    long windowStart = splitStart - 1;
+    byte[] window = new byte[(int) Math.min(fileLength - windowStart, 1L + SPECULATION_LENGTH)];
+    fileIn.readFully(windowStart, window, 0, window.length);
+    boolean endOfFile = windowStart + window.length == fileLength;
+
+    int outside = findRecordStart(window, 1, endOfFile, false);
+    int inside = findRecordStart(window, 1, endOfFile, true);
+    if (outside >= 0 && (inside == NO_RECORD || inside == outside)) {
+      return windowStart + outside;
+    }
+    if (inside >= 0 && outside == NO_RECORD) {
+      return windowStart + inside;
+    }
+    return NO_RECORD;
+  }
+
+  /**
+   * Parses the file from its beginning to the split start, then skips to the end of the record that contains the
+   * split start.
+   */
+  private void skipToRecordStartFromFileStart() throws IOException {
+    fileIn.seek(0L);
+    bufferPos = 0;
+    bufferLength = 0;
+    pos = 0L;
+    inString = false;
+    escaped = false;
+    depth = 0;
+    while (pos <= splitStart && (bufferPos < bufferLength || fill())) {
+      update(buffer[bufferPos++]);
+      pos++;
+    }
+    while ((inString || depth > 0) && (bufferPos < bufferLength || fill())) {
+      update(buffer[bufferPos++]);
+      pos++;
+    }
+  }
+
+  /**
+   * Checks the bytes of a window against the json grammar, starting with the given string state. Outside of
+   * strings, only whitespace, structural characters, numbers and the literals true, false and null are allowed.
+   * Within strings, control characters are not allowed, and the end of a string must be followed by a colon, a
+   * comma or the end of an object or array.
+   *
+   * @param window the bytes to check
+   * @param offset the index in the window of the split start, which is greater than 0
+   * @param endOfFile whether the window ends at the end of the file
+   * @param inString whether the split start is within a string
+   * @return the index in the window of the first record that starts after the split start, {@link #NO_RECORD} if
+   *   the bytes are not consistent with the string state, or {@link #UNDETERMINED} if the window does not show the
+   *   level between records
+   */
+  @VisibleForTesting
+  static int findRecordStart(byte[] window, int offset, boolean endOfFile, boolean inString) {
+    // a split that starts after a backslash may start within an escape sequence. Start checking after the
+    // backslashes and the character that follows them, since they are all within a string.
+    int checkStart = offset;
+    while (checkStart < window.length && window[checkStart - 1] == BACKSLASH) {
+      checkStart++;
+    }
+
+    // find the lowest object nesting level, relative to the split start, and the level of objects that are only
+    // separated by whitespace, which is the level between records
+    boolean startsInString = inString;
+    boolean escaped = false;
+    boolean afterObject = false;
+    int depth = 0;
+    int minDepth = 0;
+    int recordDepth = 0;
+    boolean hasRecordDepth = false;
+    for (int i = checkStart; i < window.length; i++) {
+      byte b = window[i];
+      if (inString) {
+        if (escaped) {
+          escaped = false;
+        } else if (b == BACKSLASH) {
+          escaped = true;
+        } else if (b == QUOTE) {
+          if (!isStringEnd(window, i + 1)) {
+            return NO_RECORD;
+          }
+          inString = false;
+        } else if (b >= 0 && b < ' ') {
+          return NO_RECORD;
+        }
+      } else if (b == QUOTE) {
+        inString = true;
+        afterObject = false;
+      } else if (b == OBJECT_START) {
+        if (afterObject && !hasRecordDepth) {
+          recordDepth = depth;
+          hasRecordDepth = true;
+        }
+        depth++;
+        afterObject = false;
+      } else if (b == OBJECT_END) {
+        depth--;
+        minDepth = Math.min(minDepth, depth);
+        afterObject = true;
+      } else if (!isAllowedOutsideString(b)) {
+        return NO_RECORD;
+      } else if (!isWhitespace(b)) {
+        afterObject = false;
+      }
+    }
+    if (inString && endOfFile) {
+      return NO_RECORD;
+    }
+    if (hasRecordDepth && recordDepth != minDepth) {
+      // json never goes below the level between records
+      return NO_RECORD;
+    }
+    if (!hasRecordDepth && !endOfFile) {
+      // the split start may be in a record that does not end in the window, whose nested objects are at the lowest
+      // level reached so far
+      return UNDETERMINED;
+    }
+
+    // find the first object that starts at that level after the split start
+    inString = startsInString;
+    escaped = false;
+    depth = 0;
+    for (int i = checkStart; i < window.length; i++) {
+      byte b = window[i];
+      if (inString) {
+        if (escaped) {
+          escaped = false;
+        } else if (b == BACKSLASH) {
+          escaped = true;
+        } else if (b == QUOTE) {
+          inString = false;
+        }
+      } else if (b == QUOTE) {
+        inString = true;
+      } else if (b == OBJECT_START) {
+        if (depth == minDepth && i > offset) {
+          return i;
+        }
+        depth++;
+      } else if (b == OBJECT_END) {
+        depth--;
+      }
+    }
+    // the split start is in the last record of the file
+    return endOfFile ? window.length : UNDETERMINED;
+  }
+
+  /**
+   * Returns whether the first character of a file that is not whitespace starts an array. The records of such a file
+   * are usually separated by commas rather than whitespace, so a split in the middle of the file cannot find its
+   * first record without reading the file from its beginning.
+   *
+   * @param in the file content, which is read up to the first character that is not whitespace
+   */
+  static boolean startsWithArray(InputStream in) throws IOException {
+    int b = in.read();
+    // skip the UTF-8 byte order mark
+    if (b == 0xEF && in.read() == 0xBB && in.read() == 0xBF) {
+      b = in.read();
+    }
+    while (b >= 0 && isWhitespace((byte) b)) {
+      b = in.read();
+    }
+    return b == '[';
+  }
+
+  private static boolean isStringEnd(byte[] window, int pos) {
+    for (int i = pos; i < window.length; i++) {
+      switch (window[i]) {
+        case ' ':
+        case '\t':
+        case '\n':
+        case '\r':
+          break;
+        case ':':
+        case ',':
+        case '}':
+        case ']':
+          return true;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+  }
+
+  private static boolean isAllowedOutsideString(byte b) {
+    switch (b) {
+      case ' ':
+      case '\t':
+      case '\n':
+      case '\r':
+      case '[':
+      case ']':
+      case ':':
+      case ',':
+      // numbers and the literals true, false and null
+      case '-':
+      case '+':
+      case '.':
+      case 'E':
+      case 'a':
+      case 'e':
+      case 'f':
+      case 'l':
+      case 'n':
+      case 'r':
+      case 's':
+      case 't':
+      case 'u':
+        return true;
+      default:
+        return b >= '0' && b <= '9';
+    }
+  }
+
+  /**
+   * Skips the whitespace, commas and array brackets before the next object.
+   *
+   * @return whether an object was found, in which case the current position is its start
+   */
+  private boolean skipToObject() throws IOException {
+    while (bufferPos < bufferLength || fill()) {
+      byte b = buffer[bufferPos];
+      switch (b) {
+        case '{':
+          return true;
+        case ' ':
+        case '\t':
+        case '\n':
+        case '\r':
+        case ',':
+        case '[':
+        case ']':
+          bufferPos++;
+          pos++;
+          break;
+        default:
+          throw new IOException(String.format(
+            "Found a value that is not a json object at offset %d. Only json objects and arrays of json objects can " +
+              "be read.", pos));
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Reads the object that starts at the current position into the value.
+   */
+  private void readObject() throws IOException {
+    long recordStart = pos;
+    inString = false;
+    escaped = false;
+    depth = 0;
+    while (bufferPos < bufferLength || fill()) {
+      int chunkStart = bufferPos;
+      while (bufferPos < bufferLength) {
+        update(buffer[bufferPos++]);
+        if (depth == 0 && !inString) {
+          value.append(buffer, chunkStart, bufferPos - chunkStart);
+          pos += bufferPos - chunkStart;
+          return;
+        }
+      }
+      value.append(buffer, chunkStart, bufferPos - chunkStart);
+      pos += bufferPos - chunkStart;
+    }
+    throw new IOException(String.format("Found an incomplete json object at offset %d.", recordStart));
+  }
+
+  private void update(byte b) {
+    if (inString) {
+      if (escaped) {
+        escaped = false;
+      } else if (b == BACKSLASH) {
+        escaped = true;
+      } else if (b == QUOTE) {
+        inString = false;
+      }
+    } else if (b == QUOTE) {
+      inString = true;
+    } else if (b == OBJECT_START) {
+      depth++;
+    } else if (b == OBJECT_END) {
+      depth--;
+    }
+  }
+
+  private boolean fill() throws IOException {
+    int read = in.read(buffer, 0, buffer.length);
+    if (read <= 0) {
+      return false;
+    }
+    bufferPos = 0;
+    bufferLength = read;
+    return true;
+  }
+}
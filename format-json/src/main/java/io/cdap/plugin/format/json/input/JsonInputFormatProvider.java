@@ -16,31 +16,41 @@
 
 package io.cdap.plugin.format.json.input;
 
+import com.google.common.base.Strings;
 import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
 import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.validation.FormatContext;
 import io.cdap.cdap.etl.api.validation.ValidatingInputFormat;
+import io.cdap.plugin.format.charset.fixedlength.FixedLengthCharset;
 import io.cdap.plugin.format.input.PathTrackingConfig;
 import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
 /**
  * Reads json into StructuredRecords.
  */
 @Plugin(type = ValidatingInputFormat.PLUGIN_TYPE)
 @Name(JsonInputFormatProvider.NAME)
 @Description(JsonInputFormatProvider.DESC)
-public class JsonInputFormatProvider extends PathTrackingInputFormatProvider<PathTrackingConfig> {
+public class JsonInputFormatProvider extends PathTrackingInputFormatProvider<JsonInputFormatProvider.JsonConfig> {
   static final String NAME = "json";
   static final String DESC = "Plugin for reading files in json format.";
   public static final PluginClass PLUGIN_CLASS =
     new PluginClass(ValidatingInputFormat.PLUGIN_TYPE, NAME, DESC, JsonInputFormatProvider.class.getName(),
-                    "conf", PathTrackingConfig.FIELDS);
+                    "conf", JsonConfig.JSON_FIELDS);
 
-  public JsonInputFormatProvider(PathTrackingConfig conf) {
+  public JsonInputFormatProvider(JsonConfig conf) {
     super(conf);
   }
 
@@ -64,5 +74,62 @@ public class JsonInputFormatProvider extends PathTrackingInputFormatProvider<Pat
       collector.addFailure("Json format cannot be used without specifying a schema.", "Schema must be specified.")
         .withConfigProperty("schema");
     }
+    conf.validateMultilineSupport(collector);
+  }
+
+  @Override
+  protected void addFormatProperties(Map<String, String> properties) {
+    super.addFormatProperties(properties);
+    properties.put(PathTrackingJsonInputFormat.ENABLE_MULTILINE_SUPPORT,
+                   String.valueOf(conf.getEnableMultilineSupport()));
+  }
+
+  /**
+   * Json plugin config
+   */
+  public static class JsonConfig extends PathTrackingConfig {
+    public static final Map<String, PluginPropertyField> JSON_FIELDS;
+    private static final String NAME_ENABLE_MULTILINE_SUPPORT = "enableMultilineSupport";
+    private static final String NAME_FILE_ENCODING = "fileEncoding";
+    private static final String ENABLE_MULTILINE_DESC = "Whether json objects may span multiple lines. When enabled, " +
+      "each json object in a file is a record, and files may contain top-level arrays of objects. Files must be " +
+      "encoded in UTF-8. Files that start with an array are not split. Other files are still split, as long as each " +
+      "record ends within 1 MB of the start of a split. The default value is false.";
+
+    static {
+      Map<String, PluginPropertyField> fields = new HashMap<>(FIELDS);
+      fields.put(NAME_ENABLE_MULTILINE_SUPPORT, new PluginPropertyField(NAME_ENABLE_MULTILINE_SUPPORT,
+                                                                        ENABLE_MULTILINE_DESC, "boolean", false, true));
+      JSON_FIELDS = Collections.unmodifiableMap(fields);
+    }
+
+    @Macro
+    @Nullable
+    @Description(ENABLE_MULTILINE_DESC)
+    protected Boolean enableMultilineSupport;
+
+    public boolean getEnableMultilineSupport() {
+      return enableMultilineSupport == null ? false : enableMultilineSupport;
+    }
+
+    /**
+     * Validates that multi-line support is only enabled for files encoded in UTF-8, which is the only encoding that
+     * the multi-line reader decodes.
+     *
+     * @param collector failure collector
+     */
+    public void validateMultilineSupport(FailureCollector collector) {
+      if (containsMacro(NAME_ENABLE_MULTILINE_SUPPORT) || !getEnableMultilineSupport()) {
+        return;
+      }
+      String encoding = getProperties().getProperties().get(NAME_FILE_ENCODING);
+      if (!containsMacro(NAME_FILE_ENCODING) && !Strings.isNullOrEmpty(encoding) &&
+        !StandardCharsets.UTF_8.name().equals(FixedLengthCharset.cleanFileEncodingName(encoding))) {
+        collector.addFailure(
+          String.format("Multi-line support requires files encoded in UTF-8, but the encoding is '%s'.", encoding),
+          "Use UTF-8 or disable multi-line support.")
+          .withConfigProperty(NAME_ENABLE_MULTILINE_SUPPORT);
+      }
+    }
   }
 }
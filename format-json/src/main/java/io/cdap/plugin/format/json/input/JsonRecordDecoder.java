@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.input;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.common.SchemaValidator;
+import org.apache.hadoop.io.Text;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decodes json objects into {@link StructuredRecord.Builder StructuredRecord.Builders}. The decoder for each field
+ * is created once for the schema, so decoding looks up each json name once and sets the value directly on the
+ * builder. Values of names that are not in the schema are skipped without being parsed.
+ * <p>
+ * Only schemas that are made of simple types, nullable unions, arrays and non-recursive records, without logical
+ * types other than datetime, can be decoded this way, which is checked with {@link #isSupported(Schema)}.
+ */
+final class JsonRecordDecoder {
+  private final RecordDecoder recordDecoder;
+
+  /**
+   * @param schema the schema of the builders that are returned
+   */
+  JsonRecordDecoder(Schema schema) {
+    this.recordDecoder = new RecordDecoder(schema);
+  }
+
+  /**
+   * Returns whether the given record schema can be decoded by this class.
+   */
+  static boolean isSupported(Schema schema) {
+    return isSupported(schema, new HashSet<>());
+  }
+
+  private static boolean isSupported(Schema schema, Set<String> records) {
+    Schema.LogicalType logicalType = schema.getLogicalType();
+    if (logicalType != null && logicalType != Schema.LogicalType.DATETIME) {
+      return false;
+    }
+    switch (schema.getType()) {
+      case NULL:
+      case BOOLEAN:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+      case STRING:
+      case ENUM:
+        return true;
+      case ARRAY:
+        return isSupported(schema.getComponentSchema(), records);
+      case RECORD:
+        // recursive records would need a decoder per nesting level
+        if (!records.add(schema.getRecordName())) {
+          return false;
+        }
+        for (Schema.Field field : schema.getFields()) {
+          if (!isSupported(field.getSchema(), records)) {
+            return false;
+          }
+        }
+        records.remove(schema.getRecordName());
+        return true;
+      case UNION:
+        return schema.isNullable() && schema.getUnionSchemas().size() == 2 &&
+          isSupported(schema.getNonNullable(), records);
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Decodes the json object in the given text.
+   *
+   * @param json the UTF-8 encoded json object
+   * @return a builder with a value set for each field in the json object
+   * @throws IOException if the text is not a json object or a value does not match the schema
+   */
+  StructuredRecord.Builder decode(Text json) throws IOException {
+    JsonReader reader = new JsonReader(new InputStreamReader(
+      new ByteArrayInputStream(json.getBytes(), 0, json.getLength()), StandardCharsets.UTF_8));
+    try {
+      return recordDecoder.decodeBuilder(reader);
+    } catch (IllegalStateException | NumberFormatException e) {
+      throw new IOException(String.format("Unable to decode json record: %s", e.getMessage()), e);
+    }
+  }
+
+  private static ValueDecoder createDecoder(String fieldName, Schema schema) {
+    switch (schema.getType()) {
+      case NULL:
+        return reader -> {
+          reader.nextNull();
+          return null;
+        };
+      case BOOLEAN:
+        return JsonReader::nextBoolean;
+      case INT:
+        return JsonReader::nextInt;
+      case LONG:
+        return JsonReader::nextLong;
+      case FLOAT:
+        return reader -> (float) reader.nextDouble();
+      case DOUBLE:
+        return JsonReader::nextDouble;
+      case ENUM:
+        return JsonReader::nextString;
+      case STRING:
+        if (schema.getLogicalType() == Schema.LogicalType.DATETIME) {
+          return reader -> {
+            String value = reader.nextString();
+            SchemaValidator.validateDateTimeField(schema, fieldName, value);
+            return value;
+          };
+        }
+        return JsonReader::nextString;
+      case ARRAY:
+        ValueDecoder componentDecoder = createDecoder(fieldName, schema.getComponentSchema());
+        return reader -> {
+          List<Object> values = new ArrayList<>();
+          reader.beginArray();
+          while (reader.hasNext()) {
+            values.add(componentDecoder.decode(reader));
+          }
+          reader.endArray();
+          return values;
+        };
+      case RECORD:
+        RecordDecoder recordDecoder = new RecordDecoder(schema);
+        return reader -> recordDecoder.decodeBuilder(reader).build();
+      case UNION:
+        ValueDecoder nonNullableDecoder = createDecoder(fieldName, schema.getNonNullable());
+        return reader -> {
+          if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+          }
+          return nonNullableDecoder.decode(reader);
+        };
+      default:
+        // not reachable for schemas that pass isSupported
+        throw new IllegalArgumentException(String.format("Type '%s' cannot be decoded from json.", schema.getType()));
+    }
+  }
+
+  /**
+   * Decodes a json value.
+   */
+  private interface ValueDecoder {
+    Object decode(JsonReader reader) throws IOException;
+  }
+
+  /**
+   * Decodes a json object into a builder, using a precomputed decoder for each field name.
+   */
+  private static final class RecordDecoder {
+    private final Schema schema;
+    private final Map<String, ValueDecoder> fieldDecoders;
+
+    private RecordDecoder(Schema schema) {
+      this.schema = schema;
+      this.fieldDecoders = new HashMap<>();
+      for (Schema.Field field : schema.getFields()) {
+        fieldDecoders.put(field.getName(), createDecoder(field.getName(), field.getSchema()));
+      }
+    }
+
+    private StructuredRecord.Builder decodeBuilder(JsonReader reader) throws IOException {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String name = reader.nextName();
+        ValueDecoder decoder = fieldDecoders.get(name);
+        if (decoder == null) {
+          reader.skipValue();
+        } else {
+          builder.set(name, decoder.decode(reader));
+        }
+      }
+      reader.endObject();
+      return builder;
+    }
+  }
+}
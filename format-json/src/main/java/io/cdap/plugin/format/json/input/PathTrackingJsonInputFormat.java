@@ -20,6 +20,7 @@ import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.format.StructuredRecordStringConverter;
 import io.cdap.plugin.common.SchemaValidator;
+import io.cdap.plugin.format.charset.fixedlength.FixedLengthCharset;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
@@ -30,6 +31,7 @@ import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import javax.annotation.Nullable;
@@ -38,7 +40,7 @@ import javax.annotation.Nullable;
  * Json format that tracks which file each record was read from.
  */
 public class PathTrackingJsonInputFormat extends PathTrackingInputFormat {
-
+  static final String ENABLE_MULTILINE_SUPPORT = "enable_multiline_support";
 
   private Schema getModifiedSchema(Schema schema, @Nullable String pathField) {
     // if the path field is set, it might not be nullable
@@ -65,8 +67,37 @@ public class PathTrackingJsonInputFormat extends PathTrackingInputFormat {
                                                                                     TaskAttemptContext context,
                                                                                     @Nullable String pathField,
                                                                                     @Nullable Schema schema) {
-    RecordReader<LongWritable, Text> delegate = getDefaultRecordReaderDelegate(split, context);
-    Schema modifiedSchema = getModifiedSchema(schema, pathField);
+    return createRecordReader(split, context, pathField, schema, null);
+  }
+
+  /**
+   * Only the fields of the output schema are decoded. The values of other fields are skipped without being parsed
+   * into objects. If multi-line support is enabled, each json object in the file is a record, otherwise each line
+   * is a record.
+   */
+  @Override
+  protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
+                                                                                    TaskAttemptContext context,
+                                                                                    @Nullable String pathField,
+                                                                                    @Nullable Schema schema,
+                                                                                    @Nullable Schema outputSchema) {
+    RecordReader<LongWritable, Text> delegate;
+    if (context.getConfiguration().getBoolean(ENABLE_MULTILINE_SUPPORT, false)) {
+      String encoding = context.getConfiguration().get(SOURCE_FILE_ENCODING);
+      if (encoding != null &&
+        !StandardCharsets.UTF_8.name().equals(FixedLengthCharset.cleanFileEncodingName(encoding))) {
+        throw new IllegalArgumentException(String.format(
+          "Multi-line support requires files encoded in UTF-8, but the encoding is '%s'.", encoding));
+      }
+      delegate = new JsonDocumentRecordReader();
+    } else {
+      delegate = getDefaultRecordReaderDelegate(split, context);
+    }
+    Schema recordSchema = outputSchema == null ? schema : outputSchema;
+    // decode directly into the builder when possible, instead of decoding a record and copying its fields
+    JsonRecordDecoder decoder =
+      JsonRecordDecoder.isSupported(recordSchema) ? new JsonRecordDecoder(recordSchema) : null;
+    Schema modifiedSchema = getModifiedSchema(recordSchema, pathField);
 
     return new RecordReader<NullWritable, StructuredRecord.Builder>() {
 
@@ -87,10 +118,13 @@ public class PathTrackingJsonInputFormat extends PathTrackingInputFormat {
 
       @Override
       public StructuredRecord.Builder getCurrentValue() throws IOException, InterruptedException {
+        if (decoder != null) {
+          return decoder.decode(delegate.getCurrentValue());
+        }
         String json = delegate.getCurrentValue().toString();
         StructuredRecord record = StructuredRecordStringConverter.fromJsonString(json, modifiedSchema);
-        StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-        for (Schema.Field field : schema.getFields()) {
+        StructuredRecord.Builder builder = StructuredRecord.builder(recordSchema);
+        for (Schema.Field field : recordSchema.getFields()) {
           Object value = record.get(field.getName());
           SchemaValidator.validateDateTimeField(field.getSchema(), field.getName(), value);
           builder.set(field.getName(), value);
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.json.input;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link JsonDocumentRecordReader}.
+ */
+public class JsonDocumentRecordReaderTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testFindRecordStartInString() {
+    String content = "{\"a\": \"x {y} z\"}\n{\"b\": 1}\n{\"c\": 2}\n";
+    // starts after the 'x' in the string "x {y} z", which is not valid json outside of a string
+    byte[] window = window(content, content.indexOf('x') + 1);
+    int expected = content.indexOf("{\"b\"") - content.indexOf('x');
+    Assert.assertEquals(JsonDocumentRecordReader.NO_RECORD,
+                        JsonDocumentRecordReader.findRecordStart(window, 1, false, false));
+    Assert.assertEquals(expected, JsonDocumentRecordReader.findRecordStart(window, 1, false, true));
+  }
+
+  @Test
+  public void testFindRecordStartInNestedObject() {
+    String content = "{\"a\": {\"b\": 1}, \"c\": {\"d\": 2}}\n{\"e\": 3}\n{\"f\": 4}\n";
+    // starts after the '"b":' in the nested object, so {"d": 2} is in the same record and {"e": 3} is the next one
+    int splitStart = content.indexOf(':', content.indexOf("\"b\"")) + 1;
+    byte[] window = window(content, splitStart);
+    int expected = content.indexOf("{\"e\"") - splitStart + 1;
+    Assert.assertEquals(expected, JsonDocumentRecordReader.findRecordStart(window, 1, false, false));
+    Assert.assertEquals(JsonDocumentRecordReader.NO_RECORD,
+                        JsonDocumentRecordReader.findRecordStart(window, 1, false, true));
+  }
+
+  @Test
+  public void testFindRecordStartWindowShorterThanRecord() {
+    String content = "{\"a\": {\"b\": 1}, \"c\": {\"d\": 2}, \"g\": 5}\n{\"e\": 3}\n";
+    int splitStart = content.indexOf(':', content.indexOf("\"b\"")) + 1;
+    // the window ends before the record that contains the split start, so {"d": 2} must not be taken as a record
+    byte[] window = window(content.substring(0, content.indexOf("\"g\"")), splitStart);
+    Assert.assertEquals(JsonDocumentRecordReader.UNDETERMINED,
+                        JsonDocumentRecordReader.findRecordStart(window, 1, false, false));
+    // at the end of the file, the lowest level reached is the level between records
+    window = window(content, splitStart);
+    Assert.assertEquals(content.indexOf("{\"e\"") - splitStart + 1,
+                        JsonDocumentRecordReader.findRecordStart(window, 1, true, false));
+  }
+
+  @Test
+  public void testSplitsReadEachRecordOnce() throws IOException {
+    StringBuilder lines = new StringBuilder();
+    StringBuilder array = new StringBuilder("[");
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      String record;
+      switch (i % 3) {
+        case 0:
+          record = "{\"id\": " + i + "}";
+          break;
+        case 1:
+          record = "{\"id\": " + i + ", \"nested\": {\"s\": \"{not an object}\", \"list\": [{\"x\": 1}, {\"x\": 2}]}}";
+          break;
+        default:
+          record = "{\n  \"id\": " + i + ",\n  \"escaped\": \"say \\\"hi\\\" {\"\n}";
+      }
+      expected.add(record);
+      lines.append(record).append('\n');
+      array.append(i == 0 ? "" : ",\n").append(record);
+    }
+    array.append("]\n");
+
+    for (String content : new String[] { lines.toString(), array.toString() }) {
+      File file = write(content);
+      for (long splitSize : new long[] { 1, 7, 64, 100, 1000 }) {
+        List<String> records = new ArrayList<>();
+        for (long start = 0; start < file.length(); start += splitSize) {
+          records.addAll(read(file, start, Math.min(splitSize, file.length() - start)));
+        }
+        Assert.assertEquals("split size " + splitSize, expected, records);
+      }
+    }
+  }
+
+  @Test
+  public void testFilesStartingWithArrayAreNotSplit() throws IOException {
+    Assert.assertTrue(startsWithArray(" \n\t[{\"id\": 1},\n{\"id\": 2}]"));
+    Assert.assertTrue(startsWithArray("\uFEFF[{\"id\": 1}]"));
+    Assert.assertFalse(startsWithArray("{\"list\": [1, 2]}\n[{\"id\": 1}]"));
+    Assert.assertFalse(startsWithArray("  "));
+
+    Configuration conf = new Configuration();
+    conf.setBoolean(PathTrackingJsonInputFormat.ENABLE_MULTILINE_SUPPORT, true);
+    Job job = Job.getInstance(conf);
+    CombineJsonInputFormat inputFormat = new CombineJsonInputFormat();
+    Assert.assertFalse(inputFormat.isSplitable(job, new Path(write("\n[{\"id\": 1},\n{\"id\": 2}]\n").toURI())));
+    Assert.assertTrue(inputFormat.isSplitable(job, new Path(write("{\"id\": 1}\n{\"id\": 2}\n").toURI())));
+  }
+
+  private static boolean startsWithArray(String content) throws IOException {
+    return JsonDocumentRecordReader.startsWithArray(
+      new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  /**
+   * Returns the bytes of the content from the byte before the split start.
+   */
+  private static byte[] window(String content, int splitStart) {
+    return content.substring(splitStart - 1).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static File write(String content) throws IOException {
+    File file = TMP_FOLDER.newFile();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  private static List<String> read(File file, long start, long length) throws IOException {
+    TaskAttemptContext context = new TaskAttemptContextImpl(new Configuration(), new TaskAttemptID());
+    List<String> records = new ArrayList<>();
+    try (JsonDocumentRecordReader reader = new JsonDocumentRecordReader()) {
+      reader.initialize(new FileSplit(new Path(file.toURI()), start, length, new String[0]), context);
+      while (reader.nextKeyValue()) {
+        records.add(reader.getCurrentValue().toString());
+      }
+    }
+    return records;
+  }
+}
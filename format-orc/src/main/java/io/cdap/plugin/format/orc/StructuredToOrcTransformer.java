@@ -40,7 +40,11 @@ import java.util.Map;
 
 /**
  * Creates ORCStruct records from StructuredRecords
+ *
+ * @deprecated the ORC output format writes records to column vectors directly, see
+ *   {@link io.cdap.plugin.format.orc.output.StructuredOrcOutputFormat}. This class will be removed in a future release.
  */
+@Deprecated
 public class StructuredToOrcTransformer extends RecordConverter<StructuredRecord, OrcStruct> {
   private final Map<Schema, TypeDescription> schemaCache = new HashMap<>();
 
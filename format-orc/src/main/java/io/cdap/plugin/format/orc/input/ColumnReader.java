@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.orc.TypeDescription;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the values of a column vector as the java objects used for a record field. The conversion is chosen once
+ * for the field and the ORC column type, and then applied to a whole vector at a time.
+ */
+final class ColumnReader {
+
+  /**
+   * Reads a single non-null value from a vector.
+   */
+  private interface ValueReader {
+    Object read(ColumnVector vector, int row);
+  }
+
+  private final ValueReader valueReader;
+
+  private ColumnReader(ValueReader valueReader) {
+    this.valueReader = valueReader;
+  }
+
+  /**
+   * Creates a reader for a field.
+   *
+   * @param fieldName the name of the field
+   * @param fieldSchema the schema of the field
+   * @param orcType the type of the ORC column for the field
+   * @throws IllegalArgumentException if the ORC column cannot be read as the field type
+   */
+  static ColumnReader create(String fieldName, Schema fieldSchema, TypeDescription orcType) {
+    Schema schema = fieldSchema.isNullable() ? fieldSchema.getNonNullable() : fieldSchema;
+    TypeDescription.Category category = orcType.getCategory();
+    switch (schema.getType()) {
+      case BOOLEAN:
+        if (category == TypeDescription.Category.BOOLEAN) {
+          return new ColumnReader((vector, row) -> ((LongColumnVector) vector).vector[row] != 0);
+        }
+        break;
+      case INT:
+        if (category == TypeDescription.Category.BYTE || category == TypeDescription.Category.SHORT
+          || category == TypeDescription.Category.INT || category == TypeDescription.Category.DATE) {
+          return new ColumnReader((vector, row) -> (int) ((LongColumnVector) vector).vector[row]);
+        }
+        break;
+      case LONG:
+        if (category == TypeDescription.Category.BYTE || category == TypeDescription.Category.SHORT
+          || category == TypeDescription.Category.INT || category == TypeDescription.Category.LONG) {
+          return new ColumnReader((vector, row) -> ((LongColumnVector) vector).vector[row]);
+        }
+        break;
+      case FLOAT:
+        if (category == TypeDescription.Category.FLOAT || category == TypeDescription.Category.DOUBLE) {
+          return new ColumnReader((vector, row) -> (float) ((DoubleColumnVector) vector).vector[row]);
+        }
+        break;
+      case DOUBLE:
+        if (category == TypeDescription.Category.FLOAT || category == TypeDescription.Category.DOUBLE) {
+          return new ColumnReader((vector, row) -> ((DoubleColumnVector) vector).vector[row]);
+        }
+        break;
+      case STRING:
+        if (category == TypeDescription.Category.STRING || category == TypeDescription.Category.VARCHAR
+          || category == TypeDescription.Category.CHAR) {
+          return new ColumnReader((vector, row) -> {
+            BytesColumnVector bytesVector = (BytesColumnVector) vector;
+            return new String(bytesVector.vector[row], bytesVector.start[row], bytesVector.length[row],
+                              StandardCharsets.UTF_8);
+          });
+        }
+        break;
+      case BYTES:
+        if (category == TypeDescription.Category.BINARY || category == TypeDescription.Category.STRING) {
+          return new ColumnReader((vector, row) -> {
+            BytesColumnVector bytesVector = (BytesColumnVector) vector;
+            int start = bytesVector.start[row];
+            return ByteBuffer.wrap(Arrays.copyOfRange(bytesVector.vector[row], start,
+                                                      start + bytesVector.length[row]));
+          });
+        }
+        break;
+      default:
+        break;
+    }
+    throw new IllegalArgumentException(
+      String.format("Field '%s' of type '%s' cannot be read from ORC column of type '%s'.",
+                    fieldName, schema.getType(), orcType));
+  }
+
+  /**
+   * Reads the first rows of a vector.
+   *
+   * @param vector the vector to read
+   * @param size the number of rows to read
+   * @param values the array to read the values into
+   */
+  void read(ColumnVector vector, int size, Object[] values) {
+    if (vector.isRepeating) {
+      Object value = vector.noNulls || !vector.isNull[0] ? valueReader.read(vector, 0) : null;
+      Arrays.fill(values, 0, size, value);
+      return;
+    }
+    if (vector.noNulls) {
+      for (int row = 0; row < size; row++) {
+        values[row] = valueReader.read(vector, row);
+      }
+      return;
+    }
+    for (int row = 0; row < size; row++) {
+      values[row] = vector.isNull[row] ? null : valueReader.read(vector, row);
+    }
+  }
+}
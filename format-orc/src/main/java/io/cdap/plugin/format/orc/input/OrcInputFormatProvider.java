@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import com.google.common.base.Strings;
+import io.cdap.cdap.api.annotation.Description;
+import io.cdap.cdap.api.annotation.Macro;
+import io.cdap.cdap.api.annotation.Name;
+import io.cdap.cdap.api.annotation.Plugin;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
+import io.cdap.cdap.etl.api.FailureCollector;
+import io.cdap.cdap.etl.api.validation.FormatContext;
+import io.cdap.cdap.etl.api.validation.ValidatingInputFormat;
+import io.cdap.plugin.common.batch.JobUtils;
+import io.cdap.plugin.format.input.FilterExpression;
+import io.cdap.plugin.format.input.PathTrackingConfig;
+import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Provides and sets up configuration for an orc input format.
+ */
+@Plugin(type = ValidatingInputFormat.PLUGIN_TYPE)
+@Name(OrcInputFormatProvider.NAME)
+@Description(OrcInputFormatProvider.DESC)
+public class OrcInputFormatProvider extends PathTrackingInputFormatProvider<OrcInputFormatProvider.Conf> {
+  static final String NAME = "orc";
+  static final String DESC = "Plugin for reading files in orc format.";
+  public static final PluginClass PLUGIN_CLASS =
+    new PluginClass(ValidatingInputFormat.PLUGIN_TYPE, NAME, DESC, OrcInputFormatProvider.class.getName(),
+                    "conf", Conf.ORC_FIELDS);
+
+  public OrcInputFormatProvider(OrcInputFormatProvider.Conf conf) {
+    super(conf);
+  }
+
+  @Override
+  public String getInputFormatClassName() {
+    return CombineOrcInputFormat.class.getName();
+  }
+
+  @Override
+  protected void addFormatProperties(Map<String, String> properties) {
+    if (!Strings.isNullOrEmpty(conf.filter)) {
+      properties.put(PathTrackingOrcInputFormat.FILTER, conf.filter);
+    }
+  }
+
+  @Override
+  public void validate(FormatContext context) {
+    super.validate(context);
+    if (conf.containsMacro(Conf.NAME_FILTER) || Strings.isNullOrEmpty(conf.filter)) {
+      return;
+    }
+    FailureCollector collector = context.getFailureCollector();
+    // the filter is typed by the configured schema, not by a schema detected from the files
+    Schema schema = conf.getSchema();
+    if (schema == null) {
+      if (!conf.containsMacro(PathTrackingConfig.NAME_SCHEMA)) {
+        collector.addFailure("A filter requires a schema.", "Provide a schema or remove the filter.")
+          .withConfigProperty(Conf.NAME_FILTER);
+      }
+      return;
+    }
+    try {
+      FilterExpression.parse(conf.filter, schema);
+    } catch (IllegalArgumentException e) {
+      collector.addFailure(e.getMessage(), null).withConfigProperty(Conf.NAME_FILTER);
+    }
+  }
+
+  @Nullable
+  @Override
+  public Schema getSchema(FormatContext context) {
+    if (conf.containsMacro(PathTrackingConfig.NAME_SCHEMA) || !Strings.isNullOrEmpty(conf.schema)) {
+      return super.getSchema(context);
+    }
+    return getDefaultSchema(context);
+  }
+
+  /**
+   * Extract schema from file
+   *
+   * @param context {@link FormatContext}
+   * @return {@link Schema}
+   */
+  @Nullable
+  public Schema getDefaultSchema(FormatContext context) {
+    String filePath = conf.getProperties().getProperties().getOrDefault("path", null);
+    try {
+      Job job = JobUtils.createInstance();
+      Configuration hconf = job.getConfiguration();
+      // set entries here, before FileSystem is used
+      for (Map.Entry<String, String> entry : conf.getFileSystemProperties().entrySet()) {
+        hconf.set(entry.getKey(), entry.getValue());
+      }
+      Path file = conf.getFilePathForSchemaGeneration(filePath, ".+\\.orc", hconf, job);
+      Reader reader = OrcFile.createReader(file, OrcFile.readerOptions(hconf));
+      return OrcSchemaConverter.toStructuredSchema(reader.getSchema(), conf.getPathField());
+    } catch (IOException | IllegalArgumentException e) {
+      context.getFailureCollector().addFailure("Schema error", e.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * Common config for ORC format
+   */
+  public static class Conf extends PathTrackingConfig {
+    public static final String NAME_FILTER = "filter";
+    public static final Map<String, PluginPropertyField> ORC_FIELDS;
+    private static final String FILTER_DESC = "Expression that records must match to be read, for example " +
+      "\"country = 'US' and price >= 10\". ORC uses the column statistics to skip stripes and row groups that " +
+      "cannot match, and the remaining records that do not match are dropped. Requires a schema.";
+
+    static {
+      Map<String, PluginPropertyField> fields = new HashMap<>(FIELDS);
+      fields.put(NAME_FILTER, new PluginPropertyField(NAME_FILTER, FILTER_DESC, "string", false, true));
+      ORC_FIELDS = Collections.unmodifiableMap(fields);
+    }
+
+    @Macro
+    @Nullable
+    @Description(NAME_SCHEMA)
+    public String schema;
+
+    @Macro
+    @Nullable
+    @Description(FILTER_DESC)
+    public String filter;
+  }
+}
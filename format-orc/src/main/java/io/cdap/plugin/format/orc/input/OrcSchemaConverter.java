@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.orc.TypeDescription;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Converts the schema of an ORC file into a record schema.
+ */
+final class OrcSchemaConverter {
+
+  private OrcSchemaConverter() {
+    // no-op
+  }
+
+  /**
+   * Converts the top level struct of an ORC file into a record schema with nullable fields, since ORC columns can
+   * always contain nulls.
+   *
+   * @param orcSchema the schema of the file
+   * @param pathField the name of a string field to add for the path of the file, or null to not add it
+   * @throws IllegalArgumentException if the file contains a column whose type is not supported
+   */
+  static Schema toStructuredSchema(TypeDescription orcSchema, @Nullable String pathField) {
+    if (orcSchema.getCategory() != TypeDescription.Category.STRUCT) {
+      throw new IllegalArgumentException(String.format("ORC schema '%s' is not a struct.", orcSchema));
+    }
+    List<String> fieldNames = orcSchema.getFieldNames();
+    List<TypeDescription> fieldTypes = orcSchema.getChildren();
+    List<Schema.Field> fields = new ArrayList<>(fieldNames.size() + 1);
+    for (int i = 0; i < fieldNames.size(); i++) {
+      fields.add(Schema.Field.of(fieldNames.get(i), Schema.nullableOf(toSchema(fieldNames.get(i), fieldTypes.get(i)))));
+    }
+    if (pathField != null) {
+      fields.add(Schema.Field.of(pathField, Schema.of(Schema.Type.STRING)));
+    }
+    return Schema.recordOf("record", fields);
+  }
+
+  private static Schema toSchema(String fieldName, TypeDescription type) {
+    switch (type.getCategory()) {
+      case BOOLEAN:
+        return Schema.of(Schema.Type.BOOLEAN);
+      case BYTE:
+      case SHORT:
+      case INT:
+        return Schema.of(Schema.Type.INT);
+      case LONG:
+        return Schema.of(Schema.Type.LONG);
+      case FLOAT:
+        return Schema.of(Schema.Type.FLOAT);
+      case DOUBLE:
+        return Schema.of(Schema.Type.DOUBLE);
+      case STRING:
+      case VARCHAR:
+      case CHAR:
+        return Schema.of(Schema.Type.STRING);
+      case BINARY:
+        return Schema.of(Schema.Type.BYTES);
+      case DATE:
+        return Schema.of(Schema.LogicalType.DATE);
+      default:
+        throw new IllegalArgumentException(String.format("Field '%s' of ORC type '%s' is not supported.",
+                                                         fieldName, type));
+    }
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.input.FilterExpression;
+import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.TypeDescription;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * ORC format that tracks which file each record was read from. Records are read in batches of column vectors, and
+ * each vector is converted with a reader chosen once for its column. Only the columns in the schema are read, and
+ * an optional filter is used to skip stripes and row groups. Each split reads the stripes that start within it.
+ */
+public class PathTrackingOrcInputFormat extends PathTrackingInputFormat {
+  static final String FILTER = "io.cdap.format.orc.filter";
+
+  @Override
+  protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
+                                                                                    TaskAttemptContext context,
+                                                                                    @Nullable String pathField,
+                                                                                    @Nullable Schema schema) {
+    String filter = context.getConfiguration().get(FILTER);
+    FilterExpression filterExpression = null;
+    if (filter != null) {
+      if (schema == null) {
+        throw new IllegalArgumentException(String.format("A schema is required to apply the filter '%s'.", filter));
+      }
+      filterExpression = FilterExpression.parse(filter, schema);
+    }
+    return new OrcRecordReader(schema, pathField, filterExpression);
+  }
+
+  /**
+   * Reads batches of rows from an ORC file and converts them into records.
+   */
+  static class OrcRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
+    private final String pathField;
+    private final FilterExpression filter;
+    private Schema schema;
+    private org.apache.orc.RecordReader rows;
+    private VectorizedRowBatch batch;
+    // for each field read from the file, its name, the index of its vector in the batch and its reader
+    private String[] fieldNames;
+    private int[] vectorIndexes;
+    private ColumnReader[] columnReaders;
+    private Map<String, Integer> fieldIndexes;
+    // the values of the current batch, by field
+    private Object[][] values;
+    private int batchSize;
+    private int batchRow;
+    private StructuredRecord.Builder current;
+
+    OrcRecordReader(@Nullable Schema schema, @Nullable String pathField, @Nullable FilterExpression filter) {
+      this.schema = schema;
+      this.pathField = pathField;
+      this.filter = filter;
+    }
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+      FileSplit fileSplit = (FileSplit) split;
+      Configuration conf = context.getConfiguration();
+      Reader reader = OrcFile.createReader(fileSplit.getPath(), OrcFile.readerOptions(conf));
+      TypeDescription fileSchema = reader.getSchema();
+      if (schema == null) {
+        schema = OrcSchemaConverter.toStructuredSchema(fileSchema, pathField);
+      }
+
+      List<String> fileFieldNames = fileSchema.getFieldNames();
+      List<TypeDescription> fileFieldTypes = fileSchema.getChildren();
+      Map<String, Integer> fileFieldIndexes = new HashMap<>();
+      // search argument columns are looked up by column id
+      String[] columnNames = new String[fileSchema.getMaximumId() + 1];
+      for (int i = 0; i < fileFieldNames.size(); i++) {
+        fileFieldIndexes.put(fileFieldNames.get(i), i);
+        columnNames[fileFieldTypes.get(i).getId()] = fileFieldNames.get(i);
+      }
+
+      // only include the columns of the fields in the schema. Fields that are not in the file are left null.
+      boolean[] include = new boolean[fileSchema.getMaximumId() + 1];
+      include[0] = true;
+      List<String> names = new ArrayList<>();
+      List<Integer> indexes = new ArrayList<>();
+      List<ColumnReader> readers = new ArrayList<>();
+      for (Schema.Field field : schema.getFields()) {
+        Integer index = fileFieldIndexes.get(field.getName());
+        if (field.getName().equals(pathField) || index == null) {
+          continue;
+        }
+        TypeDescription fieldType = fileFieldTypes.get(index);
+        for (int id = fieldType.getId(); id <= fieldType.getMaximumId(); id++) {
+          include[id] = true;
+        }
+        names.add(field.getName());
+        indexes.add(index);
+        readers.add(ColumnReader.create(field.getName(), field.getSchema(), fieldType));
+      }
+      fieldNames = names.toArray(new String[0]);
+      vectorIndexes = new int[indexes.size()];
+      fieldIndexes = new HashMap<>();
+      for (int i = 0; i < fieldNames.length; i++) {
+        vectorIndexes[i] = indexes.get(i);
+        fieldIndexes.put(fieldNames[i], i);
+      }
+      columnReaders = readers.toArray(new ColumnReader[0]);
+
+      Reader.Options options = reader.options()
+        .range(fileSplit.getStart(), fileSplit.getLength())
+        .include(include);
+      if (filter != null) {
+        options.searchArgument(SearchArgumentConverter.convert(filter), columnNames);
+      }
+      rows = reader.rows(options);
+      batch = fileSchema.createRowBatch();
+      values = new Object[fieldNames.length][VectorizedRowBatch.DEFAULT_SIZE];
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException {
+      while (true) {
+        while (batchRow < batchSize) {
+          int row = batchRow++;
+          if (filter == null || filter.matches(fieldName -> getValue(fieldName, row))) {
+            current = createRecord(row);
+            return true;
+          }
+        }
+        if (!rows.nextBatch(batch)) {
+          return false;
+        }
+        readBatch();
+      }
+    }
+
+    @Override
+    public NullWritable getCurrentKey() {
+      return NullWritable.get();
+    }
+
+    @Override
+    public StructuredRecord.Builder getCurrentValue() {
+      return current;
+    }
+
+    @Override
+    public float getProgress() throws IOException {
+      return rows.getProgress();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (rows != null) {
+        rows.close();
+      }
+    }
+
+    /**
+     * Converts the vectors of the current batch, one column at a time.
+     */
+    private void readBatch() {
+      batchSize = batch.size;
+      batchRow = 0;
+      for (int i = 0; i < fieldNames.length; i++) {
+        columnReaders[i].read(batch.cols[vectorIndexes[i]], batchSize, values[i]);
+      }
+    }
+
+    @Nullable
+    private Object getValue(String fieldName, int row) {
+      Integer index = fieldIndexes.get(fieldName);
+      return index == null ? null : values[index][row];
+    }
+
+    private StructuredRecord.Builder createRecord(int row) {
+      StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+      for (int i = 0; i < fieldNames.length; i++) {
+        Object value = values[i][row];
+        if (value != null) {
+          builder.set(fieldNames[i], value);
+        }
+      }
+      return builder;
+    }
+  }
+}
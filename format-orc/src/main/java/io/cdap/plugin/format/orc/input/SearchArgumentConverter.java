@@ -0,0 +1,142 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.input.FilterExpression;
+import org.apache.hadoop.hive.ql.io.sarg.PredicateLeaf;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgumentFactory;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Converts a {@link FilterExpression} into an ORC {@link SearchArgument}. ORC only uses the search argument to skip
+ * stripes and row groups whose column statistics cannot match, so records still have to be checked against the
+ * expression after they are read. Comparisons that ORC cannot evaluate, such as null checks of fields whose type
+ * has no statistics, are converted into a literal that may match anything, so that they never skip any rows.
+ */
+final class SearchArgumentConverter implements FilterExpression.Visitor<Void> {
+  private final SearchArgument.Builder builder = SearchArgumentFactory.newBuilder();
+
+  private SearchArgumentConverter() {
+    // use convert
+  }
+
+  static SearchArgument convert(FilterExpression filter) {
+    SearchArgumentConverter converter = new SearchArgumentConverter();
+    filter.accept(converter);
+    return converter.builder.build();
+  }
+
+  @Override
+  public Void visitAnd(FilterExpression left, FilterExpression right) {
+    builder.startAnd();
+    left.accept(this);
+    right.accept(this);
+    builder.end();
+    return null;
+  }
+
+  @Override
+  public Void visitOr(FilterExpression left, FilterExpression right) {
+    builder.startOr();
+    left.accept(this);
+    right.accept(this);
+    builder.end();
+    return null;
+  }
+
+  @Override
+  public Void visitNot(FilterExpression child) {
+    builder.startNot();
+    child.accept(this);
+    builder.end();
+    return null;
+  }
+
+  @Override
+  public Void visitComparison(FilterExpression.Comparison comparison) {
+    String column = comparison.getFieldName();
+    Schema fieldSchema = comparison.getFieldSchema();
+    Object value = comparison.getValue();
+    PredicateLeaf.Type type;
+    Object literal;
+    switch (fieldSchema.getType()) {
+      case INT:
+        if (fieldSchema.getLogicalType() == Schema.LogicalType.DATE) {
+          type = PredicateLeaf.Type.DATE;
+          literal = value == null ? null : Date.valueOf(LocalDate.ofEpochDay((Integer) value));
+        } else {
+          type = PredicateLeaf.Type.LONG;
+          literal = value == null ? null : ((Integer) value).longValue();
+        }
+        break;
+      case LONG:
+        type = PredicateLeaf.Type.LONG;
+        literal = value;
+        break;
+      case FLOAT:
+      case DOUBLE:
+        type = PredicateLeaf.Type.FLOAT;
+        literal = value == null ? null : ((Number) value).doubleValue();
+        break;
+      case BOOLEAN:
+        type = PredicateLeaf.Type.BOOLEAN;
+        literal = value;
+        break;
+      case STRING:
+      case ENUM:
+        type = PredicateLeaf.Type.STRING;
+        literal = value;
+        break;
+      default:
+        // the filter only allows null checks on other types
+        builder.literal(SearchArgument.TruthValue.YES_NO_NULL);
+        return null;
+    }
+
+    switch (comparison.getOperator()) {
+      case EQ:
+        builder.equals(column, type, literal);
+        break;
+      case NOT_EQ:
+        builder.startNot().equals(column, type, literal).end();
+        break;
+      case LT:
+        builder.lessThan(column, type, literal);
+        break;
+      case LT_EQ:
+        builder.lessThanEquals(column, type, literal);
+        break;
+      case GT:
+        builder.startNot().lessThanEquals(column, type, literal).end();
+        break;
+      case GT_EQ:
+        builder.startNot().lessThan(column, type, literal).end();
+        break;
+      case IS_NULL:
+        builder.isNull(column, type);
+        break;
+      default:
+        builder.startNot().isNull(column, type).end();
+        break;
+    }
+    return null;
+  }
+}
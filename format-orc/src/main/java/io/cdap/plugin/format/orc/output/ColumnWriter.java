@@ -0,0 +1,242 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.output;
+
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.StructColumnVector;
+import org.apache.orc.TypeDescription;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Writes the java objects of a record field into a column vector. The conversion is chosen once for the field and
+ * the ORC column type, and then applied to every value of the field.
+ */
+final class ColumnWriter {
+
+  /**
+   * Writes a single non-null value into a vector.
+   */
+  private interface ValueWriter {
+    void write(ColumnVector vector, int row, Object value);
+  }
+
+  // writes the columns that are not in the record schema, which are always null
+  private static final ColumnWriter NULLS = new ColumnWriter((vector, row, value) -> {
+    throw new IllegalStateException("Found a value for a field that is not in the record schema.");
+  });
+
+  private final ValueWriter valueWriter;
+
+  private ColumnWriter(ValueWriter valueWriter) {
+    this.valueWriter = valueWriter;
+  }
+
+  /**
+   * Creates a writer for a field.
+   *
+   * @param fieldName the name of the field
+   * @param fieldSchema the schema of the field
+   * @param orcType the type of the ORC column for the field
+   * @throws IllegalArgumentException if the field type cannot be written to the ORC column
+   */
+  static ColumnWriter create(String fieldName, Schema fieldSchema, TypeDescription orcType) {
+    Schema schema = fieldSchema.isNullable() ? fieldSchema.getNonNullable() : fieldSchema;
+    TypeDescription.Category category = orcType.getCategory();
+    switch (schema.getType()) {
+      case BOOLEAN:
+        if (category == TypeDescription.Category.BOOLEAN) {
+          return new ColumnWriter((vector, row, value) ->
+                                    ((LongColumnVector) vector).vector[row] = (Boolean) value ? 1L : 0L);
+        }
+        break;
+      case INT:
+        if (category == TypeDescription.Category.INT || category == TypeDescription.Category.LONG) {
+          return new ColumnWriter((vector, row, value) -> ((LongColumnVector) vector).vector[row] = (Integer) value);
+        }
+        break;
+      case LONG:
+        if (category == TypeDescription.Category.LONG) {
+          return new ColumnWriter((vector, row, value) -> ((LongColumnVector) vector).vector[row] = (Long) value);
+        }
+        break;
+      case FLOAT:
+        if (category == TypeDescription.Category.FLOAT || category == TypeDescription.Category.DOUBLE) {
+          return new ColumnWriter((vector, row, value) -> ((DoubleColumnVector) vector).vector[row] = (Float) value);
+        }
+        break;
+      case DOUBLE:
+        if (category == TypeDescription.Category.DOUBLE) {
+          return new ColumnWriter((vector, row, value) -> ((DoubleColumnVector) vector).vector[row] = (Double) value);
+        }
+        break;
+      case STRING:
+      case ENUM:
+        if (category == TypeDescription.Category.STRING) {
+          return new ColumnWriter((vector, row, value) -> {
+            byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+            ((BytesColumnVector) vector).setRef(row, bytes, 0, bytes.length);
+          });
+        }
+        break;
+      case BYTES:
+        if (category == TypeDescription.Category.BINARY) {
+          return new ColumnWriter((vector, row, value) -> {
+            // the batch keeps a reference to the bytes until it is written, which is fine since records are not reused
+            byte[] bytes = value instanceof ByteBuffer ? Bytes.getBytes((ByteBuffer) value) : (byte[]) value;
+            ((BytesColumnVector) vector).setRef(row, bytes, 0, bytes.length);
+          });
+        }
+        break;
+      case RECORD:
+        if (category == TypeDescription.Category.STRUCT) {
+          return createStructWriter(schema, orcType);
+        }
+        break;
+      case ARRAY:
+        if (category == TypeDescription.Category.LIST) {
+          return createListWriter(fieldName, schema, orcType);
+        }
+        break;
+      case MAP:
+        if (category == TypeDescription.Category.MAP) {
+          return createMapWriter(fieldName, schema, orcType);
+        }
+        break;
+      default:
+        break;
+    }
+    throw new IllegalArgumentException(
+      String.format("Field '%s' of type '%s' cannot be written to ORC column of type '%s'.",
+                    fieldName, schema.getType(), orcType));
+  }
+
+  /**
+   * Writes a value into a row of a vector.
+   *
+   * @param vector the vector to write
+   * @param row the row to write
+   * @param value the value to write, or null to mark the row as null
+   */
+  void write(ColumnVector vector, int row, @Nullable Object value) {
+    if (value == null) {
+      vector.noNulls = false;
+      vector.isNull[row] = true;
+      return;
+    }
+    // don't rely on the vector having been reset since a null was last written to this row
+    vector.isNull[row] = false;
+    valueWriter.write(vector, row, value);
+  }
+
+  /**
+   * Creates the writers for the columns of a struct, matching each column to the record field of the same name.
+   * Columns without a field are always null.
+   *
+   * @param schema the schema of the record
+   * @param orcType the struct type
+   * @return the writers in the order of the struct columns
+   */
+  static ColumnWriter[] createFieldWriters(Schema schema, TypeDescription orcType) {
+    List<String> names = orcType.getFieldNames();
+    List<TypeDescription> types = orcType.getChildren();
+    ColumnWriter[] writers = new ColumnWriter[names.size()];
+    for (int i = 0; i < writers.length; i++) {
+      Schema.Field field = schema.getField(names.get(i));
+      writers[i] = field == null ? NULLS : create(field.getName(), field.getSchema(), types.get(i));
+    }
+    return writers;
+  }
+
+  private static ColumnWriter createStructWriter(Schema schema, TypeDescription orcType) {
+    List<String> names = orcType.getFieldNames();
+    ColumnWriter[] writers = createFieldWriters(schema, orcType);
+    return new ColumnWriter((vector, row, value) -> {
+      StructColumnVector structVector = (StructColumnVector) vector;
+      StructuredRecord record = (StructuredRecord) value;
+      for (int i = 0; i < writers.length; i++) {
+        writers[i].write(structVector.fields[i], row, record.get(names.get(i)));
+      }
+    });
+  }
+
+  private static ColumnWriter createListWriter(String fieldName, Schema schema, TypeDescription orcType) {
+    ColumnWriter elementWriter = create(fieldName, schema.getComponentSchema(), orcType.getChildren().get(0));
+    return new ColumnWriter((vector, row, value) -> {
+      ListColumnVector listVector = (ListColumnVector) vector;
+      int offset = listVector.childCount;
+      if (value instanceof Collection) {
+        Collection<?> values = (Collection<?>) value;
+        reserve(listVector, row, values.size());
+        for (Object element : values) {
+          elementWriter.write(listVector.child, offset++, element);
+        }
+      } else {
+        int length = Array.getLength(value);
+        reserve(listVector, row, length);
+        for (int i = 0; i < length; i++) {
+          elementWriter.write(listVector.child, offset++, Array.get(value, i));
+        }
+      }
+    });
+  }
+
+  private static ColumnWriter createMapWriter(String fieldName, Schema schema, TypeDescription orcType) {
+    Map.Entry<Schema, Schema> mapSchema = schema.getMapSchema();
+    List<TypeDescription> types = orcType.getChildren();
+    ColumnWriter keyWriter = create(fieldName, mapSchema.getKey(), types.get(0));
+    ColumnWriter valueWriter = create(fieldName, mapSchema.getValue(), types.get(1));
+    return new ColumnWriter((vector, row, value) -> {
+      MapColumnVector mapVector = (MapColumnVector) vector;
+      Map<?, ?> map = (Map<?, ?>) value;
+      int offset = mapVector.childCount;
+      mapVector.offsets[row] = offset;
+      mapVector.lengths[row] = map.size();
+      mapVector.childCount += map.size();
+      mapVector.keys.ensureSize(mapVector.childCount, true);
+      mapVector.values.ensureSize(mapVector.childCount, true);
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        keyWriter.write(mapVector.keys, offset, entry.getKey());
+        valueWriter.write(mapVector.values, offset++, entry.getValue());
+      }
+    });
+  }
+
+  /**
+   * Reserves space in the child vector for the elements of a row.
+   */
+  private static void reserve(ListColumnVector listVector, int row, int length) {
+    listVector.offsets[row] = listVector.childCount;
+    listVector.lengths[row] = length;
+    listVector.childCount += length;
+    listVector.child.ensureSize(listVector.childCount, true);
+  }
+}
@@ -16,6 +16,7 @@
 
 package io.cdap.plugin.format.orc.output;
 
+import com.google.common.base.Strings;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Macro;
 import io.cdap.cdap.api.annotation.Name;
@@ -24,6 +25,7 @@ import io.cdap.cdap.api.data.schema.UnsupportedTypeException;
 import io.cdap.cdap.api.plugin.PluginClass;
 import io.cdap.cdap.api.plugin.PluginConfig;
 import io.cdap.cdap.api.plugin.PluginPropertyField;
+import io.cdap.cdap.etl.api.validation.FormatContext;
 import io.cdap.cdap.etl.api.validation.ValidatingOutputFormat;
 import io.cdap.plugin.common.HiveSchemaConverter;
 import io.cdap.plugin.format.output.AbstractOutputFormatProvider;
@@ -44,12 +46,17 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
   public static final PluginClass PLUGIN_CLASS = getPluginClass();
   static final String NAME = "orc";
   static final String DESC = "Plugin for writing files in orc format.";
+  static final String SCHEMA_KEY = "orc.mapred.output.schema";
   private static final String ORC_COMPRESS = "orc.compress";
   private static final String SNAPPY_CODEC = "SNAPPY";
   private static final String ZLIB_CODEC = "ZLIB";
   private static final String COMPRESS_SIZE = "orc.compress.size";
   private static final String ROW_INDEX_STRIDE = "orc.row.index.stride";
   private static final String CREATE_INDEX = "orc.create.index";
+  private static final String STRIPE_SIZE = "orc.stripe.size";
+  private static final String BLOOM_FILTER_COLUMNS = "orc.bloom.filter.columns";
+  private static final String BLOOM_FILTER_FPP = "orc.bloom.filter.fpp";
+  private static final String DICTIONARY_KEY_THRESHOLD = "orc.dictionary.key.threshold";
   private final Conf conf;
 
   public OrcOutputFormatProvider(Conf conf) {
@@ -61,10 +68,16 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
     return StructuredOrcOutputFormat.class.getName();
   }
 
+  @Override
+  public void validate(FormatContext context) {
+    conf.validate();
+  }
+
   @Override
   public Map<String, String> getOutputFormatConfiguration() {
+    conf.validate();
     Map<String, String> configuration = new HashMap<>();
-    configuration.put("orc.mapred.output.schema", parseOrcSchema(conf.schema));
+    configuration.put(SCHEMA_KEY, parseOrcSchema(conf.schema));
 
     if (conf.compressionCodec != null && !conf.compressionCodec.equalsIgnoreCase("None")) {
       try {
@@ -77,15 +90,25 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
       if (conf.compressionChunkSize != null) {
         configuration.put(COMPRESS_SIZE, String.valueOf(conf.compressionChunkSize));
       }
-      if (conf.stripeSize != null) {
-        configuration.put(COMPRESS_SIZE, String.valueOf(conf.stripeSize.toString()));
-      }
-      if (conf.indexStride != null) {
-        configuration.put(ROW_INDEX_STRIDE, String.valueOf(conf.indexStride));
-      }
-      if (conf.createIndex != null) {
-        configuration.put(CREATE_INDEX, String.valueOf(conf.createIndex));
-      }
+    }
+
+    if (conf.stripeSize != null) {
+      configuration.put(STRIPE_SIZE, String.valueOf(conf.stripeSize));
+    }
+    if (conf.indexStride != null) {
+      configuration.put(ROW_INDEX_STRIDE, String.valueOf(conf.indexStride));
+    }
+    if (conf.createIndex != null) {
+      configuration.put(CREATE_INDEX, String.valueOf(conf.createIndex));
+    }
+    if (!Strings.isNullOrEmpty(conf.bloomFilterColumns)) {
+      configuration.put(BLOOM_FILTER_COLUMNS, conf.bloomFilterColumns);
+    }
+    if (conf.bloomFilterFpp != null) {
+      configuration.put(BLOOM_FILTER_FPP, String.valueOf(conf.bloomFilterFpp));
+    }
+    if (conf.dictionaryKeyThreshold != null) {
+      configuration.put(DICTIONARY_KEY_THRESHOLD, String.valueOf(conf.dictionaryKeyThreshold));
     }
     return configuration;
   }
@@ -102,6 +125,15 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
     private static final String INDEX_STRIDE_DESC =
       "Number of rows between index entries. The value must be at least 1000.";
     private static final String INDEX_CREATE_DESC = "Whether to create inline indexes.";
+    private static final String BLOOM_FILTER_COLUMNS_DESC =
+      "Comma separated list of the columns to create bloom filters for. Bloom filters let readers skip row groups " +
+        "that do not contain a value, which helps equality filters on columns with many distinct values.";
+    private static final String BLOOM_FILTER_FPP_DESC =
+      "False positive probability of the bloom filters. The value must be greater than 0 and less than 1. " +
+        "Defaults to 0.05.";
+    private static final String DICTIONARY_KEY_THRESHOLD_DESC =
+      "Maximum ratio of distinct values to rows in a stripe for a string column to be dictionary encoded. " +
+        "The value must be between 0 and 1, where 0 disables dictionary encoding. Defaults to 0.8.";
 
     @Macro
     @Description(SCHEMA_DESC)
@@ -131,6 +163,37 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
     @Nullable
     @Description(INDEX_CREATE_DESC)
     private Boolean createIndex;
+
+    @Macro
+    @Nullable
+    @Description(BLOOM_FILTER_COLUMNS_DESC)
+    private String bloomFilterColumns;
+
+    @Macro
+    @Nullable
+    @Description(BLOOM_FILTER_FPP_DESC)
+    private Double bloomFilterFpp;
+
+    @Macro
+    @Nullable
+    @Description(DICTIONARY_KEY_THRESHOLD_DESC)
+    private Double dictionaryKeyThreshold;
+
+    private void validate() {
+      if (stripeSize != null && stripeSize <= 0) {
+        throw new IllegalArgumentException(
+          String.format("Invalid stripe size %d. The stripe size must be a positive number.", stripeSize));
+      }
+      if (bloomFilterFpp != null && (bloomFilterFpp <= 0d || bloomFilterFpp >= 1d)) {
+        throw new IllegalArgumentException(
+          String.format("Invalid bloom filter false positive probability %s. It must be greater than 0 and " +
+                          "less than 1.", bloomFilterFpp));
+      }
+      if (dictionaryKeyThreshold != null && (dictionaryKeyThreshold < 0d || dictionaryKeyThreshold > 1d)) {
+        throw new IllegalArgumentException(
+          String.format("Invalid dictionary key threshold %s. It must be between 0 and 1.", dictionaryKeyThreshold));
+      }
+    }
   }
 
   private static String parseOrcSchema(String configuredSchema) {
@@ -157,6 +220,14 @@ public class OrcOutputFormatProvider extends AbstractOutputFormatProvider {
     properties.put("indexStride", new PluginPropertyField("indexStride", Conf.INDEX_STRIDE_DESC, "long", false, true));
     properties.put("createIndex",
                    new PluginPropertyField("createIndex", Conf.INDEX_CREATE_DESC, "boolean", false, true));
+    properties.put("bloomFilterColumns",
+                   new PluginPropertyField("bloomFilterColumns", Conf.BLOOM_FILTER_COLUMNS_DESC, "string",
+                                           false, true));
+    properties.put("bloomFilterFpp",
+                   new PluginPropertyField("bloomFilterFpp", Conf.BLOOM_FILTER_FPP_DESC, "double", false, true));
+    properties.put("dictionaryKeyThreshold",
+                   new PluginPropertyField("dictionaryKeyThreshold", Conf.DICTIONARY_KEY_THRESHOLD_DESC, "double",
+                                           false, true));
     return new PluginClass(ValidatingOutputFormat.PLUGIN_TYPE, NAME, DESC, OrcOutputFormatProvider.class.getName(),
                            "conf", properties);
   }
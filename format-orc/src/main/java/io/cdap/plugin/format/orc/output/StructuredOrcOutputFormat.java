@@ -17,30 +17,31 @@
 package io.cdap.plugin.format.orc.output;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
-import io.cdap.cdap.api.dataset.lib.KeyValue;
-import io.cdap.plugin.format.orc.StructuredToOrcTransformer;
-import io.cdap.plugin.format.output.DelegatingOutputFormat;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
-import org.apache.hadoop.mapreduce.OutputFormat;
+import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.orc.mapred.OrcStruct;
-import org.apache.orc.mapreduce.OrcOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
 
-import java.util.function.Function;
+import java.io.IOException;
 
 /**
- * Converts StructuredRecord into OrcStruct before delegating to OrcOutputFormat.
+ * Writes StructuredRecords directly into the column vectors of the ORC writer, without creating an OrcStruct for
+ * each record. The writer options, such as the stripe size, compression and bloom filters, are read from the
+ * configuration.
  */
-public class StructuredOrcOutputFormat extends DelegatingOutputFormat<NullWritable, OrcStruct> {
+public class StructuredOrcOutputFormat extends FileOutputFormat<NullWritable, StructuredRecord> {
+  private static final String EXTENSION = ".orc";
 
   @Override
-  protected OutputFormat<NullWritable, OrcStruct> createDelegate() {
-    return new OrcOutputFormat<>();
-  }
-
-  @Override
-  protected Function<StructuredRecord, KeyValue<NullWritable, OrcStruct>> getConversion(TaskAttemptContext context) {
-    StructuredToOrcTransformer transformer = new StructuredToOrcTransformer();
-    return record -> new KeyValue<>(NullWritable.get(), transformer.transform(record));
+  public RecordWriter<NullWritable, StructuredRecord> getRecordWriter(TaskAttemptContext context) throws IOException {
+    Configuration conf = context.getConfiguration();
+    TypeDescription orcSchema = TypeDescription.fromString(conf.get(OrcOutputFormatProvider.SCHEMA_KEY));
+    Path file = getDefaultWorkFile(context, EXTENSION);
+    return new StructuredOrcRecordWriter(OrcFile.createWriter(file, OrcFile.writerOptions(conf).setSchema(orcSchema)),
+                                         orcSchema);
   }
 }
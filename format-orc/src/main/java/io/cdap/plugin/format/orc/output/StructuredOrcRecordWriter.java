@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes StructuredRecords to an ORC file by appending their fields to the column vectors of a batch, which is
+ * handed to the ORC writer when it is full. The column writers are created once for each record schema.
+ */
+final class StructuredOrcRecordWriter extends RecordWriter<NullWritable, StructuredRecord> {
+  private final Writer writer;
+  private final TypeDescription orcSchema;
+  private final List<String> fieldNames;
+  private final VectorizedRowBatch batch;
+  private final Map<Schema, ColumnWriter[]> writersCache = new HashMap<>();
+  private Schema lastSchema;
+  private ColumnWriter[] lastWriters;
+
+  StructuredOrcRecordWriter(Writer writer, TypeDescription orcSchema) {
+    this.writer = writer;
+    this.orcSchema = orcSchema;
+    this.fieldNames = orcSchema.getFieldNames();
+    this.batch = orcSchema.createRowBatch();
+  }
+
+  @Override
+  public void write(NullWritable key, StructuredRecord record) throws IOException {
+    ColumnWriter[] writers = getWriters(record.getSchema());
+    int row = batch.size++;
+    for (int i = 0; i < writers.length; i++) {
+      writers[i].write(batch.cols[i], row, record.get(fieldNames.get(i)));
+    }
+    if (batch.size == batch.getMaxSize()) {
+      writer.addRowBatch(batch);
+      batch.reset();
+    }
+  }
+
+  @Override
+  public void close(TaskAttemptContext context) throws IOException {
+    if (batch.size > 0) {
+      writer.addRowBatch(batch);
+      batch.reset();
+    }
+    writer.close();
+  }
+
+  private ColumnWriter[] getWriters(Schema schema) {
+    // records of a stage almost always share a schema object, so this avoids hashing the schema for each record
+    if (schema != lastSchema) {
+      ColumnWriter[] writers = writersCache.get(schema);
+      if (writers == null) {
+        writers = ColumnWriter.createFieldWriters(schema, orcSchema);
+        writersCache.put(schema, writers);
+      }
+      lastSchema = schema;
+      lastWriters = writers;
+    }
+    return lastWriters;
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.orc.TypeDescription;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests for {@link ColumnReader}.
+ */
+public class ColumnReaderTest {
+
+  @Test
+  public void testRepeating() {
+    ColumnReader reader = ColumnReader.create("x", Schema.nullableOf(Schema.of(Schema.Type.LONG)),
+                                              TypeDescription.createLong());
+    LongColumnVector vector = new LongColumnVector(4);
+    vector.isRepeating = true;
+    vector.vector[0] = 7L;
+    Object[] values = new Object[4];
+    reader.read(vector, 3, values);
+    Assert.assertArrayEquals(new Object[] { 7L, 7L, 7L, null }, values);
+
+    // a repeating null, where only the first entry of isNull is set
+    vector.noNulls = false;
+    vector.isNull[0] = true;
+    values = new Object[] { 1L, 1L, 1L, 1L };
+    reader.read(vector, 4, values);
+    Assert.assertArrayEquals(new Object[] { null, null, null, null }, values);
+
+    // a repeating value in a vector that may contain nulls
+    vector.isNull[0] = false;
+    vector.isNull[1] = true;
+    reader.read(vector, 4, values);
+    Assert.assertArrayEquals(new Object[] { 7L, 7L, 7L, 7L }, values);
+  }
+
+  @Test
+  public void testNulls() {
+    ColumnReader reader = ColumnReader.create("x", Schema.nullableOf(Schema.of(Schema.Type.INT)),
+                                              TypeDescription.createShort());
+    LongColumnVector vector = new LongColumnVector(4);
+    vector.noNulls = false;
+    for (int i = 0; i < 4; i++) {
+      vector.vector[i] = i;
+      vector.isNull[i] = i % 2 == 1;
+    }
+    Object[] values = new Object[4];
+    reader.read(vector, 4, values);
+    Assert.assertArrayEquals(new Object[] { 0, null, 2, null }, values);
+
+    // the nulls are ignored if the vector has none
+    vector.noNulls = true;
+    reader.read(vector, 4, values);
+    Assert.assertArrayEquals(new Object[] { 0, 1, 2, 3 }, values);
+  }
+
+  @Test
+  public void testConversions() {
+    DoubleColumnVector doubles = new DoubleColumnVector(1);
+    doubles.vector[0] = 1.5d;
+    Object[] values = new Object[1];
+    ColumnReader.create("x", Schema.of(Schema.Type.FLOAT), TypeDescription.createDouble()).read(doubles, 1, values);
+    Assert.assertEquals(1.5f, values[0]);
+
+    LongColumnVector booleans = new LongColumnVector(1);
+    booleans.vector[0] = 1L;
+    ColumnReader.create("x", Schema.of(Schema.Type.BOOLEAN), TypeDescription.createBoolean())
+      .read(booleans, 1, values);
+    Assert.assertEquals(true, values[0]);
+
+    // the values of a bytes vector are slices of a shared buffer
+    byte[] buffer = "xxhello".getBytes(StandardCharsets.UTF_8);
+    BytesColumnVector bytes = new BytesColumnVector(2);
+    bytes.setRef(0, buffer, 2, 5);
+    bytes.setRef(1, buffer, 0, 2);
+    values = new Object[2];
+    ColumnReader.create("x", Schema.of(Schema.Type.STRING), TypeDescription.createVarchar()).read(bytes, 2, values);
+    Assert.assertArrayEquals(new Object[] { "hello", "xx" }, values);
+    ColumnReader.create("x", Schema.of(Schema.Type.BYTES), TypeDescription.createBinary()).read(bytes, 2, values);
+    Assert.assertEquals(ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8)), values[0]);
+    Assert.assertEquals(ByteBuffer.wrap("xx".getBytes(StandardCharsets.UTF_8)), values[1]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIncompatibleType() {
+    ColumnReader.create("x", Schema.of(Schema.Type.INT), TypeDescription.createLong());
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.input.FilterExpression;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.orc.OrcFile;
+import org.apache.orc.StripeInformation;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.Writer;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link PathTrackingOrcInputFormat}.
+ */
+public class PathTrackingOrcInputFormatTest {
+  private static final int NUM_ROWS = 20000;
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    // not in the file, so always null
+    Schema.Field.of("missing", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))));
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static File file;
+  private static List<StripeInformation> stripes;
+
+  @BeforeClass
+  public static void setupClass() throws IOException {
+    file = new File(TMP_FOLDER.getRoot(), "rows.orc");
+    Configuration conf = new Configuration();
+    TypeDescription type = TypeDescription.fromString("struct<id:int,name:string,extra:bigint>");
+    // small stripes, so that the file has several, and small row groups, so that filters can skip some
+    Writer writer = OrcFile.createWriter(new Path(file.toURI()), OrcFile.writerOptions(conf)
+      .setSchema(type)
+      .stripeSize(1024L)
+      .bufferSize(1024)
+      .rowIndexStride(1000));
+    VectorizedRowBatch batch = type.createRowBatch();
+    LongColumnVector ids = (LongColumnVector) batch.cols[0];
+    BytesColumnVector names = (BytesColumnVector) batch.cols[1];
+    LongColumnVector extras = (LongColumnVector) batch.cols[2];
+    for (int id = 0; id < NUM_ROWS; id++) {
+      int row = batch.size++;
+      ids.vector[row] = id;
+      if (id % 7 == 0) {
+        names.noNulls = false;
+        names.isNull[row] = true;
+      } else {
+        byte[] name = getName(id).getBytes(StandardCharsets.UTF_8);
+        names.setRef(row, name, 0, name.length);
+      }
+      extras.vector[row] = id * 10L;
+      if (batch.size == batch.getMaxSize()) {
+        writer.addRowBatch(batch);
+        batch.reset();
+      }
+    }
+    if (batch.size > 0) {
+      writer.addRowBatch(batch);
+    }
+    writer.close();
+
+    stripes = OrcFile.createReader(new Path(file.toURI()), OrcFile.readerOptions(conf)).getStripes();
+    Assert.assertTrue("The test file should have several stripes.", stripes.size() > 2);
+  }
+
+  @Test
+  public void testSplitsReadTheStripesThatStartInThem() throws IOException {
+    // splits from the middle of a stripe to the middle of the next one only read the next stripe
+    List<Long> splitStarts = new ArrayList<>();
+    splitStarts.add(0L);
+    for (StripeInformation stripe : stripes) {
+      splitStarts.add(stripe.getOffset() + stripe.getLength() / 2);
+    }
+    splitStarts.add(file.length());
+
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int i = 0; i + 1 < splitStarts.size(); i++) {
+      List<StructuredRecord> splitRecords = read(splitStarts.get(i), splitStarts.get(i + 1) - splitStarts.get(i),
+                                                 SCHEMA, null);
+      long expected = i < stripes.size() ? stripes.get(i).getNumberOfRows() : 0L;
+      Assert.assertEquals("split " + i, expected, splitRecords.size());
+      records.addAll(splitRecords);
+    }
+    assertIds(records, 0, NUM_ROWS);
+  }
+
+  @Test
+  public void testSplitsReadEachRowOnce() throws IOException {
+    for (long splitSize : new long[] { 100L, 1000L, file.length() }) {
+      List<StructuredRecord> records = new ArrayList<>();
+      for (long start = 0; start < file.length(); start += splitSize) {
+        records.addAll(read(start, Math.min(splitSize, file.length() - start), SCHEMA, null));
+      }
+      assertIds(records, 0, NUM_ROWS);
+    }
+  }
+
+  @Test
+  public void testProjectedValues() throws IOException {
+    List<StructuredRecord> records = read(0L, file.length(), SCHEMA, null);
+    for (StructuredRecord record : records) {
+      int id = record.get("id");
+      Assert.assertEquals(id % 7 == 0 ? null : getName(id), record.get("name"));
+      Assert.assertNull(record.get("missing"));
+    }
+  }
+
+  @Test
+  public void testFilter() throws IOException {
+    List<StructuredRecord> records = read(0L, file.length(), SCHEMA, "id >= 15000 and name is not null");
+    List<Integer> expected = new ArrayList<>();
+    for (int id = 15000; id < NUM_ROWS; id++) {
+      if (id % 7 != 0) {
+        expected.add(id);
+      }
+    }
+    List<Integer> ids = new ArrayList<>();
+    for (StructuredRecord record : records) {
+      ids.add(record.get("id"));
+    }
+    Assert.assertEquals(expected, ids);
+
+    // a filter that ORC cannot check is still applied to the records
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.BYTES))));
+    Assert.assertEquals(NUM_ROWS / 7 + 1, read(0L, file.length(), schema, "name is null").size());
+  }
+
+  @Test
+  public void testSchemaFromFile() throws IOException {
+    List<StructuredRecord> records = read(0L, file.length(), null, null);
+    Schema expected = Schema.recordOf(
+      "record",
+      Schema.Field.of("id", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+      Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+      Schema.Field.of("extra", Schema.nullableOf(Schema.of(Schema.Type.LONG))));
+    Assert.assertEquals(expected, records.get(0).getSchema());
+    Assert.assertEquals(30L, (long) records.get(3).get("extra"));
+  }
+
+  private static String getName(int id) {
+    return "name-" + id;
+  }
+
+  private static void assertIds(List<StructuredRecord> records, int start, int end) {
+    Assert.assertEquals(end - start, records.size());
+    for (int i = 0; i < records.size(); i++) {
+      Assert.assertEquals(start + i, (int) records.get(i).get("id"));
+    }
+  }
+
+  private static List<StructuredRecord> read(long start, long length, @Nullable Schema schema,
+                                             @Nullable String filter) throws IOException {
+    FilterExpression filterExpression = filter == null ? null : FilterExpression.parse(filter, schema);
+    List<StructuredRecord> records = new ArrayList<>();
+    try (PathTrackingOrcInputFormat.OrcRecordReader reader =
+           new PathTrackingOrcInputFormat.OrcRecordReader(schema, null, filterExpression)) {
+      reader.initialize(new FileSplit(new Path(file.toURI()), start, length, new String[0]),
+                        new TaskAttemptContextImpl(new Configuration(), new TaskAttemptID()));
+      while (reader.nextKeyValue()) {
+        records.add(reader.getCurrentValue().build());
+      }
+    }
+    return records;
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.input.FilterExpression;
+import org.apache.hadoop.hive.ql.io.sarg.PredicateLeaf;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument.TruthValue;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.Date;
+
+/**
+ * Tests for {@link SearchArgumentConverter}.
+ */
+public class SearchArgumentConverterTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("i", Schema.nullableOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("l", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("f", Schema.of(Schema.Type.FLOAT)),
+    Schema.Field.of("b", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("d", Schema.of(Schema.LogicalType.DATE)),
+    Schema.Field.of("bytes", Schema.nullableOf(Schema.of(Schema.Type.BYTES))));
+
+  @Test
+  public void testOperators() {
+    // each operator, with the truth value of the expression when its single leaf is true and when it is false
+    assertComparison("i = 5", PredicateLeaf.Operator.EQUALS, TruthValue.YES, TruthValue.NO);
+    assertComparison("i != 5", PredicateLeaf.Operator.EQUALS, TruthValue.NO, TruthValue.YES);
+    assertComparison("i <> 5", PredicateLeaf.Operator.EQUALS, TruthValue.NO, TruthValue.YES);
+    assertComparison("i < 5", PredicateLeaf.Operator.LESS_THAN, TruthValue.YES, TruthValue.NO);
+    assertComparison("i <= 5", PredicateLeaf.Operator.LESS_THAN_EQUALS, TruthValue.YES, TruthValue.NO);
+    assertComparison("i > 5", PredicateLeaf.Operator.LESS_THAN_EQUALS, TruthValue.NO, TruthValue.YES);
+    assertComparison("i >= 5", PredicateLeaf.Operator.LESS_THAN, TruthValue.NO, TruthValue.YES);
+    assertComparison("not i < 5", PredicateLeaf.Operator.LESS_THAN, TruthValue.NO, TruthValue.YES);
+  }
+
+  @Test
+  public void testNullChecks() {
+    SearchArgument sarg = convert("s is null");
+    PredicateLeaf leaf = sarg.getLeaves().get(0);
+    Assert.assertEquals(PredicateLeaf.Operator.IS_NULL, leaf.getOperator());
+    Assert.assertEquals(PredicateLeaf.Type.STRING, leaf.getType());
+    Assert.assertEquals(TruthValue.YES, sarg.evaluate(new TruthValue[] { TruthValue.YES }));
+
+    sarg = convert("s is not null");
+    Assert.assertEquals(PredicateLeaf.Operator.IS_NULL, sarg.getLeaves().get(0).getOperator());
+    Assert.assertEquals(TruthValue.NO, sarg.evaluate(new TruthValue[] { TruthValue.YES }));
+  }
+
+  @Test
+  public void testLiteralTypes() {
+    assertLeaf(convert("i = 5"), "i", PredicateLeaf.Type.LONG, 5L);
+    assertLeaf(convert("l = 5"), "l", PredicateLeaf.Type.LONG, 5L);
+    assertLeaf(convert("f < 1.5"), "f", PredicateLeaf.Type.FLOAT, 1.5d);
+    assertLeaf(convert("b = true"), "b", PredicateLeaf.Type.BOOLEAN, true);
+    assertLeaf(convert("s = 'it''s'"), "s", PredicateLeaf.Type.STRING, "it's");
+    assertLeaf(convert("d >= '2020-01-31'"), "d", PredicateLeaf.Type.DATE, Date.valueOf("2020-01-31"));
+  }
+
+  @Test
+  public void testCombinedExpressions() {
+    SearchArgument sarg = convert("i = 1 and (s = 'a' or l > 2)");
+    Assert.assertEquals(3, sarg.getLeaves().size());
+    TruthValue[] leaves = new TruthValue[3];
+    setLeaf(sarg, leaves, "i", TruthValue.YES);
+    setLeaf(sarg, leaves, "s", TruthValue.NO);
+    setLeaf(sarg, leaves, "l", TruthValue.NO);
+    // l > 2 is not (l <= 2), so the or is true
+    Assert.assertEquals(TruthValue.YES, sarg.evaluate(leaves));
+    setLeaf(sarg, leaves, "l", TruthValue.YES);
+    Assert.assertEquals(TruthValue.NO, sarg.evaluate(leaves));
+    setLeaf(sarg, leaves, "s", TruthValue.YES);
+    setLeaf(sarg, leaves, "i", TruthValue.NO);
+    Assert.assertEquals(TruthValue.NO, sarg.evaluate(leaves));
+  }
+
+  @Test
+  public void testUnsupportedComparisonIsNotPushedDown() {
+    // ORC has no statistics to check a bytes field with, so the null check may match anything
+    SearchArgument sarg = convert("bytes is null");
+    Assert.assertTrue(sarg.getLeaves().isEmpty());
+    Assert.assertEquals(TruthValue.YES_NO_NULL, sarg.evaluate(new TruthValue[0]));
+
+    // it does not make the rest of the expression skip more or fewer rows
+    sarg = convert("bytes is not null and i = 5");
+    Assert.assertEquals(1, sarg.getLeaves().size());
+    Assert.assertEquals(TruthValue.NO, sarg.evaluate(new TruthValue[] { TruthValue.NO }));
+    Assert.assertNotEquals(TruthValue.NO, sarg.evaluate(new TruthValue[] { TruthValue.YES }));
+
+    sarg = convert("bytes is null or i = 5");
+    Assert.assertNotEquals(TruthValue.NO, sarg.evaluate(new TruthValue[] { TruthValue.NO }));
+  }
+
+  private static SearchArgument convert(String filter) {
+    return SearchArgumentConverter.convert(FilterExpression.parse(filter, SCHEMA));
+  }
+
+  private static void assertComparison(String filter, PredicateLeaf.Operator operator,
+                                       TruthValue whenLeafTrue, TruthValue whenLeafFalse) {
+    SearchArgument sarg = convert(filter);
+    Assert.assertEquals(filter, 1, sarg.getLeaves().size());
+    Assert.assertEquals(filter, operator, sarg.getLeaves().get(0).getOperator());
+    Assert.assertEquals(filter, whenLeafTrue, sarg.evaluate(new TruthValue[] { TruthValue.YES }));
+    Assert.assertEquals(filter, whenLeafFalse, sarg.evaluate(new TruthValue[] { TruthValue.NO }));
+  }
+
+  private static void assertLeaf(SearchArgument sarg, String column, PredicateLeaf.Type type, Object literal) {
+    PredicateLeaf leaf = sarg.getLeaves().get(0);
+    Assert.assertEquals(column, leaf.getColumnName());
+    Assert.assertEquals(type, leaf.getType());
+    Assert.assertEquals(literal, leaf.getLiteral());
+  }
+
+  private static void setLeaf(SearchArgument sarg, TruthValue[] leaves, String column, TruthValue value) {
+    for (int i = 0; i < sarg.getLeaves().size(); i++) {
+      if (sarg.getLeaves().get(i).getColumnName().equals(column)) {
+        leaves[i] = value;
+      }
+    }
+  }
+}
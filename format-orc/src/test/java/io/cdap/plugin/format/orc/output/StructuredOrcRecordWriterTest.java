@@ -0,0 +1,234 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.orc.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.common.HiveSchemaConverter;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ListColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.MapColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.StructColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
+import org.apache.orc.TypeDescription;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link StructuredOrcRecordWriter}.
+ */
+public class StructuredOrcRecordWriterTest {
+  // more than two batches of 1024 rows, with a partial batch at the end
+  private static final int NUM_ROWS = 2500;
+  // a row with more list elements than the default size of a vector
+  private static final int LONG_LIST_ID = 1500;
+  private static final Schema ADDRESS_SCHEMA = Schema.recordOf(
+    "address",
+    Schema.Field.of("city", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("zip", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("score", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.nullableOf(Schema.of(Schema.Type.STRING))))),
+    Schema.Field.of("matrix", Schema.arrayOf(Schema.arrayOf(Schema.of(Schema.Type.LONG)))),
+    Schema.Field.of("counts", Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                                             Schema.of(Schema.Type.INT)))),
+    Schema.Field.of("address", Schema.nullableOf(ADDRESS_SCHEMA)));
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    StringBuilder orcType = new StringBuilder();
+    HiveSchemaConverter.appendType(orcType, SCHEMA);
+    TypeDescription orcSchema = TypeDescription.fromString(orcType.toString());
+    Configuration conf = new Configuration();
+    Path path = new Path(new File(TMP_FOLDER.newFolder(), "records.orc").toURI());
+
+    List<StructuredRecord> records = new ArrayList<>();
+    StructuredOrcRecordWriter writer = new StructuredOrcRecordWriter(
+      OrcFile.createWriter(path, OrcFile.writerOptions(conf).setSchema(orcSchema)), orcSchema);
+    for (int id = 0; id < NUM_ROWS; id++) {
+      StructuredRecord record = createRecord(id);
+      records.add(record);
+      writer.write(NullWritable.get(), record);
+    }
+    writer.close(new TaskAttemptContextImpl(conf, new TaskAttemptID()));
+
+    Reader reader = OrcFile.createReader(path, OrcFile.readerOptions(conf));
+    Assert.assertEquals(NUM_ROWS, reader.getNumberOfRows());
+    RecordReader rows = reader.rows();
+    VectorizedRowBatch batch = reader.getSchema().createRowBatch();
+    int id = 0;
+    while (rows.nextBatch(batch)) {
+      for (int row = 0; row < batch.size; row++) {
+        List<Object> actual = new ArrayList<>();
+        for (ColumnVector vector : batch.cols) {
+          actual.add(read(vector, row));
+        }
+        Assert.assertEquals("row " + id, toOrcValue(records.get(id)), actual);
+        id++;
+      }
+    }
+    rows.close();
+    Assert.assertEquals(NUM_ROWS, id);
+  }
+
+  private static StructuredRecord createRecord(int id) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(SCHEMA)
+      .set("id", id)
+      .set("name", id % 5 == 0 ? null : "name" + id)
+      .set("score", id % 3 == 0 ? null : id / 4d);
+
+    if (id % 7 != 0) {
+      int size = id == LONG_LIST_ID ? 3000 : id % 4;
+      List<String> tags = new ArrayList<>();
+      for (int i = 0; i < size; i++) {
+        tags.add(i == 1 && id % 3 == 0 ? null : "tag" + i);
+      }
+      builder.set("tags", tags);
+    }
+
+    List<List<Long>> matrix = new ArrayList<>();
+    for (int i = 0; i < id % 3; i++) {
+      List<Long> values = new ArrayList<>();
+      for (int j = 0; j <= i; j++) {
+        values.add((long) id * j);
+      }
+      matrix.add(values);
+    }
+    builder.set("matrix", matrix);
+
+    if (id % 6 != 0) {
+      Map<String, Integer> counts = new LinkedHashMap<>();
+      for (int i = 0; i < id % 3; i++) {
+        counts.put("key" + i, id + i);
+      }
+      builder.set("counts", counts);
+    }
+
+    if (id % 11 != 0) {
+      builder.set("address", StructuredRecord.builder(ADDRESS_SCHEMA)
+        .set("city", "city" + id % 10)
+        .set("zip", id % 2 == 0 ? null : id)
+        .build());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Converts a value to the java objects that {@link #read(ColumnVector, int)} returns for it.
+   */
+  private static Object toOrcValue(Object value) {
+    if (value instanceof Integer) {
+      return ((Integer) value).longValue();
+    }
+    if (value instanceof StructuredRecord) {
+      StructuredRecord record = (StructuredRecord) value;
+      List<Object> fields = new ArrayList<>();
+      for (Schema.Field field : record.getSchema().getFields()) {
+        fields.add(toOrcValue(record.get(field.getName())));
+      }
+      return fields;
+    }
+    if (value instanceof Collection) {
+      List<Object> elements = new ArrayList<>();
+      for (Object element : (Collection<?>) value) {
+        elements.add(toOrcValue(element));
+      }
+      return elements;
+    }
+    if (value instanceof Map) {
+      Map<Object, Object> map = new HashMap<>();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        map.put(toOrcValue(entry.getKey()), toOrcValue(entry.getValue()));
+      }
+      return map;
+    }
+    return value;
+  }
+
+  private static Object read(ColumnVector vector, int row) {
+    if (vector.isRepeating) {
+      row = 0;
+    }
+    if (!vector.noNulls && vector.isNull[row]) {
+      return null;
+    }
+    if (vector instanceof LongColumnVector) {
+      return ((LongColumnVector) vector).vector[row];
+    }
+    if (vector instanceof DoubleColumnVector) {
+      return ((DoubleColumnVector) vector).vector[row];
+    }
+    if (vector instanceof BytesColumnVector) {
+      BytesColumnVector bytesVector = (BytesColumnVector) vector;
+      return new String(bytesVector.vector[row], bytesVector.start[row], bytesVector.length[row],
+                        StandardCharsets.UTF_8);
+    }
+    if (vector instanceof ListColumnVector) {
+      ListColumnVector listVector = (ListColumnVector) vector;
+      List<Object> elements = new ArrayList<>();
+      for (long i = 0; i < listVector.lengths[row]; i++) {
+        elements.add(read(listVector.child, (int) (listVector.offsets[row] + i)));
+      }
+      return elements;
+    }
+    if (vector instanceof MapColumnVector) {
+      MapColumnVector mapVector = (MapColumnVector) vector;
+      Map<Object, Object> map = new HashMap<>();
+      for (long i = 0; i < mapVector.lengths[row]; i++) {
+        int offset = (int) (mapVector.offsets[row] + i);
+        map.put(read(mapVector.keys, offset), read(mapVector.values, offset));
+      }
+      return map;
+    }
+    if (vector instanceof StructColumnVector) {
+      List<Object> fields = new ArrayList<>();
+      for (ColumnVector field : ((StructColumnVector) vector).fields) {
+        fields.add(read(field, row));
+      }
+      return fields;
+    }
+    throw new IllegalArgumentException("Unexpected vector " + vector.getClass().getSimpleName());
+  }
+}
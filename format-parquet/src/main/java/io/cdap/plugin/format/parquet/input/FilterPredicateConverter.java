@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.plugin.format.input.FilterExpression;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.io.api.Binary;
+
+import javax.annotation.Nullable;
+
+/**
+ * Converts a {@link FilterExpression} into a Parquet {@link FilterPredicate}. Parquet uses the predicate to skip row
+ * groups whose column statistics cannot match, and to drop the remaining records that do not match.
+ * <p>
+ * The predicate matches the same records as the expression. A comparison with a null value is false, so '!=' also
+ * excludes nulls, and negations are pushed down to the comparisons instead of relying on Parquet's inverse rewrite,
+ * which would turn 'not (a < 1)' into 'a >= 1' and drop the nulls that the expression keeps.
+ * <p>
+ * Parquet predicates only apply to primitive columns, so null checks on arrays, maps, records and unions cannot be
+ * converted. An expression that contains one is not converted at all, since a predicate without the comparison would
+ * not be equivalent to the expression.
+ */
+final class FilterPredicateConverter implements FilterExpression.Visitor<FilterPredicate> {
+  private static final FilterPredicateConverter INSTANCE = new FilterPredicateConverter(false);
+  private static final FilterPredicateConverter NEGATED = new FilterPredicateConverter(true);
+
+  private final boolean negated;
+
+  private FilterPredicateConverter(boolean negated) {
+    this.negated = negated;
+  }
+
+  /**
+   * Converts the given filter expression into a predicate.
+   *
+   * @return the predicate, or null if the expression cannot be evaluated by Parquet
+   */
+  @Nullable
+  static FilterPredicate convert(FilterExpression filter) {
+    return filter.accept(INSTANCE);
+  }
+
+  @Nullable
+  @Override
+  public FilterPredicate visitAnd(FilterExpression left, FilterExpression right) {
+    FilterPredicate leftPredicate = left.accept(this);
+    FilterPredicate rightPredicate = right.accept(this);
+    if (leftPredicate == null || rightPredicate == null) {
+      return null;
+    }
+    // not (a and b) is (not a) or (not b)
+    return negated ? FilterApi.or(leftPredicate, rightPredicate) : FilterApi.and(leftPredicate, rightPredicate);
+  }
+
+  @Nullable
+  @Override
+  public FilterPredicate visitOr(FilterExpression left, FilterExpression right) {
+    FilterPredicate leftPredicate = left.accept(this);
+    FilterPredicate rightPredicate = right.accept(this);
+    if (leftPredicate == null || rightPredicate == null) {
+      return null;
+    }
+    // not (a or b) is (not a) and (not b)
+    return negated ? FilterApi.and(leftPredicate, rightPredicate) : FilterApi.or(leftPredicate, rightPredicate);
+  }
+
+  @Nullable
+  @Override
+  public FilterPredicate visitNot(FilterExpression child) {
+    return child.accept(negated ? INSTANCE : NEGATED);
+  }
+
+  @Nullable
+  @Override
+  public FilterPredicate visitComparison(FilterExpression.Comparison comparison) {
+    String fieldName = comparison.getFieldName();
+    FilterExpression.Operator operator = comparison.getOperator();
+    Object value = comparison.getValue();
+    switch (comparison.getFieldSchema().getType()) {
+      case INT:
+        return compare(FilterApi.intColumn(fieldName), operator, (Integer) value);
+      case LONG:
+        return compare(FilterApi.longColumn(fieldName), operator, (Long) value);
+      case FLOAT:
+        return compare(FilterApi.floatColumn(fieldName), operator, (Float) value);
+      case DOUBLE:
+        return compare(FilterApi.doubleColumn(fieldName), operator, (Double) value);
+      case STRING:
+      case ENUM:
+        return compare(FilterApi.binaryColumn(fieldName), operator,
+                       value == null ? null : Binary.fromString((String) value));
+      case BYTES:
+        // the parser only allows null checks for bytes
+        return compare(FilterApi.binaryColumn(fieldName), operator, null);
+      case BOOLEAN:
+        // the parser only allows equality comparisons for booleans
+        return compareEquality(FilterApi.booleanColumn(fieldName), operator, (Boolean) value);
+      default:
+        // a null check on a group, which has no column to filter on
+        return null;
+    }
+  }
+
+  private <T extends Comparable<T>, C extends Operators.Column<T> & Operators.SupportsLtGt>
+  FilterPredicate compare(C column, FilterExpression.Operator operator, T value) {
+    switch (operator) {
+      case LT:
+        return negated ? orNull(column, FilterApi.gtEq(column, value)) : FilterApi.lt(column, value);
+      case LT_EQ:
+        return negated ? orNull(column, FilterApi.gt(column, value)) : FilterApi.ltEq(column, value);
+      case GT:
+        return negated ? orNull(column, FilterApi.ltEq(column, value)) : FilterApi.gt(column, value);
+      case GT_EQ:
+        return negated ? orNull(column, FilterApi.lt(column, value)) : FilterApi.gtEq(column, value);
+      default:
+        return compareEquality(column, operator, value);
+    }
+  }
+
+  private <T extends Comparable<T>, C extends Operators.Column<T> & Operators.SupportsEqNotEq>
+  FilterPredicate compareEquality(C column, FilterExpression.Operator operator, T value) {
+    switch (operator) {
+      case IS_NULL:
+        return negated ? FilterApi.notEq(column, null) : FilterApi.eq(column, null);
+      case IS_NOT_NULL:
+        return negated ? FilterApi.eq(column, null) : FilterApi.notEq(column, null);
+      case EQ:
+        // parquet's notEq keeps nulls, which is what the negation of a comparison with a null value needs
+        return negated ? FilterApi.notEq(column, value) : FilterApi.eq(column, value);
+      default:
+        // a comparison with a null value is false, but parquet's notEq keeps nulls
+        return negated ? orNull(column, FilterApi.eq(column, value)) :
+          FilterApi.and(FilterApi.notEq(column, value), FilterApi.notEq(column, null));
+    }
+  }
+
+  /**
+   * Returns a predicate that also matches the records where the column is null, for negated comparisons.
+   */
+  private static <T extends Comparable<T>, C extends Operators.Column<T> & Operators.SupportsEqNotEq>
+  FilterPredicate orNull(C column, FilterPredicate predicate) {
+    return FilterApi.or(predicate, FilterApi.eq(column, null));
+  }
+}
@@ -23,9 +23,12 @@ import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.plugin.PluginClass;
+import io.cdap.cdap.api.plugin.PluginPropertyField;
+import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.validation.FormatContext;
 import io.cdap.cdap.etl.api.validation.ValidatingInputFormat;
 import io.cdap.plugin.common.batch.JobUtils;
+import io.cdap.plugin.format.input.FilterExpression;
 import io.cdap.plugin.format.input.PathTrackingConfig;
 import io.cdap.plugin.format.input.PathTrackingInputFormatProvider;
 import org.apache.avro.generic.GenericData;
@@ -36,6 +39,8 @@ import org.apache.parquet.avro.AvroParquetReader;
 import org.apache.parquet.hadoop.ParquetReader;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nullable;
 
@@ -50,7 +55,7 @@ public class ParquetInputFormatProvider extends PathTrackingInputFormatProvider<
   static final String DESC = "Plugin for reading files in text format.";
   public static final PluginClass PLUGIN_CLASS =
     new PluginClass(ValidatingInputFormat.PLUGIN_TYPE, NAME, DESC, ParquetInputFormatProvider.class.getName(),
-                    "conf", PathTrackingConfig.FIELDS);
+                    "conf", Conf.PARQUET_FIELDS);
 
   public ParquetInputFormatProvider(ParquetInputFormatProvider.Conf conf) {
     super(conf);
@@ -67,6 +72,32 @@ public class ParquetInputFormatProvider extends PathTrackingInputFormatProvider<
     if (schema != null) {
       properties.put("parquet.avro.read.schema", schema.toString());
     }
+    if (!Strings.isNullOrEmpty(conf.filter)) {
+      properties.put(PathTrackingParquetInputFormat.FILTER, conf.filter);
+    }
+  }
+
+  @Override
+  public void validate(FormatContext context) {
+    super.validate(context);
+    if (conf.containsMacro(Conf.NAME_FILTER) || Strings.isNullOrEmpty(conf.filter)) {
+      return;
+    }
+    FailureCollector collector = context.getFailureCollector();
+    // the filter is typed by the configured schema, not by a schema detected from the files
+    Schema schema = conf.getSchema();
+    if (schema == null) {
+      if (!conf.containsMacro(PathTrackingConfig.NAME_SCHEMA)) {
+        collector.addFailure("A filter requires a schema.", "Provide a schema or remove the filter.")
+          .withConfigProperty(Conf.NAME_FILTER);
+      }
+      return;
+    }
+    try {
+      FilterExpression.parse(conf.filter, schema);
+    } catch (IllegalArgumentException e) {
+      collector.addFailure(e.getMessage(), null).withConfigProperty(Conf.NAME_FILTER);
+    }
   }
 
   @Nullable
@@ -117,10 +148,26 @@ public class ParquetInputFormatProvider extends PathTrackingInputFormatProvider<
    * Common config for Parquet format
    */
   public static class Conf extends PathTrackingConfig {
+    public static final String NAME_FILTER = "filter";
+    public static final Map<String, PluginPropertyField> PARQUET_FIELDS;
+    private static final String FILTER_DESC = "Expression that records must match to be read, for example " +
+      "\"country = 'US' and price >= 10\". Parquet uses the column statistics to skip row groups that cannot " +
+      "match, and drops the remaining records that do not match. Requires a schema.";
+
+    static {
+      Map<String, PluginPropertyField> fields = new HashMap<>(FIELDS);
+      fields.put(NAME_FILTER, new PluginPropertyField(NAME_FILTER, FILTER_DESC, "string", false, true));
+      PARQUET_FIELDS = Collections.unmodifiableMap(fields);
+    }
 
     @Macro
     @Nullable
     @Description(NAME_SCHEMA)
     public String schema;
+
+    @Macro
+    @Nullable
+    @Description(FILTER_DESC)
+    public String filter;
   }
 }
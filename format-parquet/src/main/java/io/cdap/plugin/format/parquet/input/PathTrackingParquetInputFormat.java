@@ -19,14 +19,19 @@ package io.cdap.plugin.format.parquet.input;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.plugin.format.avro.AvroToStructuredTransformer;
+import io.cdap.plugin.format.input.FilterExpression;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import org.apache.avro.generic.GenericEnumSymbol;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
-import org.apache.parquet.avro.AvroParquetInputFormat;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.hadoop.ParquetInputFormat;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -34,9 +39,12 @@ import java.util.List;
 import javax.annotation.Nullable;
 
 /**
- * Parquet format that tracks which file each record was read from.
+ * Parquet format that tracks which file each record was read from. If a schema is given, only the columns in the
+ * schema are read, and an optional filter is pushed down to Parquet when it can be evaluated there. The filter is
+ * always applied to the records after they are read as well.
  */
 public class PathTrackingParquetInputFormat extends PathTrackingInputFormat {
+  static final String FILTER = "io.cdap.format.parquet.filter";
 
   @Override
   protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
@@ -44,36 +52,75 @@ public class PathTrackingParquetInputFormat extends PathTrackingInputFormat {
                                                                                     @Nullable String pathField,
                                                                                     @Nullable Schema schema)
     throws IOException, InterruptedException {
-    RecordReader<Void, GenericRecord> delegate = (new AvroParquetInputFormat<GenericRecord>())
-      .createRecordReader(split, context);
-    return new ParquetRecordReader(delegate, schema, pathField);
+    // the reader is configured on a copy, since the configuration of the context is shared by the task
+    Configuration conf = new Configuration(context.getConfiguration());
+    if (schema != null) {
+      List<String> fieldNames = new ArrayList<>(schema.getFields().size());
+      for (Schema.Field field : schema.getFields()) {
+        if (!field.getName().equals(pathField)) {
+          fieldNames.add(field.getName());
+        }
+      }
+      ProjectionReadSupport.setProjectedFields(conf, fieldNames);
+    }
+    String filter = conf.get(FILTER);
+    FilterExpression recordFilter = null;
+    if (filter != null) {
+      if (schema == null) {
+        throw new IllegalArgumentException(String.format("A schema is required to apply the filter '%s'.", filter));
+      }
+      recordFilter = FilterExpression.parse(filter, schema);
+      FilterPredicate predicate = FilterPredicateConverter.convert(recordFilter);
+      if (predicate != null) {
+        // the filter is read from the configuration when the record reader is created. Parquet uses it to skip
+        // row groups and records, and the expression is still checked for each record that is returned, so that
+        // the records read always match the expression the same way as in other formats.
+        ParquetInputFormat.setFilterPredicate(conf, predicate);
+      }
+    }
+    RecordReader<Void, GenericRecord> delegate = new ParquetInputFormat<GenericRecord>(ProjectionReadSupport.class)
+      .createRecordReader(split, new TaskAttemptContextImpl(conf, context.getTaskAttemptID()));
+    return new ParquetRecordReader(delegate, conf, schema, pathField, recordFilter);
   }
 
   /**
-   * Transforms GenericRecords into StructuredRecord.
+   * Transforms GenericRecords into StructuredRecord, skipping the records that don't match the filter, if any.
    */
   static class ParquetRecordReader extends RecordReader<NullWritable, StructuredRecord.Builder> {
     private final RecordReader<Void, GenericRecord> delegate;
+    private final Configuration conf;
     private final AvroToStructuredTransformer recordTransformer;
     private final String pathField;
+    private final FilterExpression filter;
     private Schema schema;
 
-    ParquetRecordReader(RecordReader<Void, GenericRecord> delegate, @Nullable Schema schema,
-                        @Nullable String pathField) {
+    ParquetRecordReader(RecordReader<Void, GenericRecord> delegate, Configuration conf, @Nullable Schema schema,
+                        @Nullable String pathField, @Nullable FilterExpression filter) {
       this.delegate = delegate;
+      this.conf = conf;
       this.schema = schema;
       this.pathField = pathField;
+      this.filter = filter;
       this.recordTransformer = new AvroToStructuredTransformer();
     }
 
     @Override
     public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
-      delegate.initialize(split, context);
+      delegate.initialize(split, new TaskAttemptContextImpl(conf, context.getTaskAttemptID()));
     }
 
     @Override
     public boolean nextKeyValue() throws IOException, InterruptedException {
-      return delegate.nextKeyValue();
+      while (delegate.nextKeyValue()) {
+        if (filter == null) {
+          return true;
+        }
+        GenericRecord record = delegate.getCurrentValue();
+        if (filter.matches(fieldName -> getValue(record, fieldName))) {
+          return true;
+        }
+      }
+      return false;
     }
 
     @Override
@@ -110,5 +157,12 @@ public class PathTrackingParquetInputFormat extends PathTrackingInputFormat {
     public void close() throws IOException {
       delegate.close();
     }
+
+    @Nullable
+    private static Object getValue(GenericRecord record, String fieldName) {
+      Object value = record.get(fieldName);
+      // avro strings and enums are compared with the java strings of the filter literals
+      return value instanceof CharSequence || value instanceof GenericEnumSymbol ? value.toString() : value;
+    }
   }
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.avro.AvroReadSupport;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Avro read support that only requests the top level columns that are in the configured projection. Columns that
+ * are not requested are neither read from the file nor decoded. Projected columns that are missing from a file are
+ * ignored, so that files written with an older schema can still be read.
+ */
+public class ProjectionReadSupport extends AvroReadSupport<GenericRecord> {
+  static final String PROJECTED_FIELDS = "io.cdap.format.parquet.projected.fields";
+
+  /**
+   * Sets the names of the top level columns to read.
+   */
+  static void setProjectedFields(Configuration conf, List<String> fieldNames) {
+    conf.setStrings(PROJECTED_FIELDS, fieldNames.toArray(new String[0]));
+  }
+
+  @Override
+  public ReadContext init(Configuration configuration, Map<String, String> keyValueMetaData, MessageType fileSchema) {
+    ReadContext readContext = super.init(configuration, keyValueMetaData, fileSchema);
+    String[] projectedFields = configuration.getStrings(PROJECTED_FIELDS);
+    if (projectedFields == null) {
+      return readContext;
+    }
+    Set<String> fieldNames = new HashSet<>(Arrays.asList(projectedFields));
+    MessageType requestedSchema = readContext.getRequestedSchema();
+    List<Type> fields = new ArrayList<>(fieldNames.size());
+    for (Type field : requestedSchema.getFields()) {
+      if (fieldNames.contains(field.getName())) {
+        fields.add(field);
+      }
+    }
+    // a message must have at least one column, so read everything if none of the projected columns is in the file
+    if (fields.isEmpty() || fields.size() == requestedSchema.getFieldCount()) {
+      return readContext;
+    }
+    return new ReadContext(new MessageType(requestedSchema.getName(), fields),
+                           readContext.getReadSupportMetadata());
+  }
+}
@@ -29,6 +29,7 @@ import io.cdap.cdap.etl.api.validation.FormatContext;
 import io.cdap.cdap.etl.api.validation.ValidatingOutputFormat;
 import io.cdap.plugin.format.output.AbstractOutputFormatProvider;
 import org.apache.parquet.format.CompressionCodec;
+import org.apache.parquet.hadoop.ParquetOutputFormat;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -46,7 +47,6 @@ public class ParquetOutputFormatProvider extends AbstractOutputFormatProvider {
   static final String SCHEMA_KEY = "parquet.avro.schema";
   static final String NAME = "parquet";
   static final String DESC = "Plugin for writing files in parquet format.";
-  private static final String PARQUET_COMPRESSION = "parquet.compression";
   private final Conf conf;
 
   public ParquetOutputFormatProvider(Conf conf) {
@@ -74,11 +74,23 @@ public class ParquetOutputFormatProvider extends AbstractOutputFormatProvider {
     if (conf.compressionCodec != null && !"none".equalsIgnoreCase(conf.compressionCodec)) {
       try {
         CompressionCodec.valueOf(conf.compressionCodec.toUpperCase());
-        configuration.put(PARQUET_COMPRESSION, conf.compressionCodec.toUpperCase());
+        configuration.put(ParquetOutputFormat.COMPRESSION, conf.compressionCodec.toUpperCase());
       } catch (IllegalArgumentException e) {
         throw new IllegalArgumentException("Unsupported compression codec " + conf.compressionCodec, e);
       }
     }
+    if (conf.blockSize != null) {
+      configuration.put(ParquetOutputFormat.BLOCK_SIZE, String.valueOf(conf.blockSize));
+    }
+    if (conf.pageSize != null) {
+      configuration.put(ParquetOutputFormat.PAGE_SIZE, String.valueOf(conf.pageSize));
+    }
+    if (conf.dictionaryPageSize != null) {
+      configuration.put(ParquetOutputFormat.DICTIONARY_PAGE_SIZE, String.valueOf(conf.dictionaryPageSize));
+    }
+    if (conf.enableDictionary != null) {
+      configuration.put(ParquetOutputFormat.ENABLE_DICTIONARY, String.valueOf(conf.enableDictionary));
+    }
     return configuration;
   }
 
@@ -89,6 +101,16 @@ public class ParquetOutputFormatProvider extends AbstractOutputFormatProvider {
     private static final String SCHEMA_DESC = "Schema of the data to write.";
     private static final String CODEC_DESC =
       "Compression codec to use when writing data. Must be 'snappy', 'gzip', or 'none'.";
+    private static final String BLOCK_SIZE_DESC =
+      "Number of bytes in each row group. Larger row groups compress better and are read with fewer seeks, " +
+        "but need more memory to write. Defaults to 134217728 (128 MB).";
+    private static final String PAGE_SIZE_DESC =
+      "Number of bytes in each page. Pages are the unit of compression and encoding. Defaults to 1048576 (1 MB).";
+    private static final String DICTIONARY_PAGE_SIZE_DESC =
+      "Maximum number of bytes in the dictionary of a column chunk. Columns whose dictionary grows larger fall back " +
+        "to plain encoding. Defaults to 1048576 (1 MB).";
+    private static final String ENABLE_DICTIONARY_DESC =
+      "Whether to dictionary encode columns with few distinct values. Defaults to true.";
 
     @Macro
     @Description(SCHEMA_DESC)
@@ -99,7 +121,31 @@ public class ParquetOutputFormatProvider extends AbstractOutputFormatProvider {
     @Description(CODEC_DESC)
     private String compressionCodec;
 
+    @Macro
+    @Nullable
+    @Description(BLOCK_SIZE_DESC)
+    private Long blockSize;
+
+    @Macro
+    @Nullable
+    @Description(PAGE_SIZE_DESC)
+    private Integer pageSize;
+
+    @Macro
+    @Nullable
+    @Description(DICTIONARY_PAGE_SIZE_DESC)
+    private Integer dictionaryPageSize;
+
+    @Macro
+    @Nullable
+    @Description(ENABLE_DICTIONARY_DESC)
+    private Boolean enableDictionary;
+
     private void validate() {
+      validatePositive("blockSize", blockSize);
+      validatePositive("pageSize", pageSize);
+      validatePositive("dictionaryPageSize", dictionaryPageSize);
+
       if (containsMacro("schema")) {
         return;
       }
@@ -114,6 +160,13 @@ public class ParquetOutputFormatProvider extends AbstractOutputFormatProvider {
         throw new IllegalArgumentException("Unable to parse output schema: " + e.getMessage(), e);
       }
     }
+
+    private static void validatePositive(String name, @Nullable Number value) {
+      if (value != null && value.longValue() <= 0) {
+        throw new IllegalArgumentException(
+          String.format("Invalid value %s for '%s'. It must be a positive number.", value, name));
+      }
+    }
   }
 
   private static PluginClass getPluginClass() {
@@ -121,6 +174,12 @@ public class ParquetOutputFormatProvider extends AbstractOutputFormatProvider {
     properties.put("schema", new PluginPropertyField("schema", Conf.SCHEMA_DESC, "string", true, true));
     properties.put("compressionCodec",
                    new PluginPropertyField("compressionCodec", Conf.CODEC_DESC, "string", false, true));
+    properties.put("blockSize", new PluginPropertyField("blockSize", Conf.BLOCK_SIZE_DESC, "long", false, true));
+    properties.put("pageSize", new PluginPropertyField("pageSize", Conf.PAGE_SIZE_DESC, "int", false, true));
+    properties.put("dictionaryPageSize",
+                   new PluginPropertyField("dictionaryPageSize", Conf.DICTIONARY_PAGE_SIZE_DESC, "int", false, true));
+    properties.put("enableDictionary",
+                   new PluginPropertyField("enableDictionary", Conf.ENABLE_DICTIONARY_DESC, "boolean", false, true));
     return new PluginClass(ValidatingOutputFormat.PLUGIN_TYPE, NAME, DESC, ParquetOutputFormatProvider.class.getName(),
                            "conf", properties);
   }
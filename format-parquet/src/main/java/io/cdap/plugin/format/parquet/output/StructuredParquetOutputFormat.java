@@ -17,42 +17,27 @@
 package io.cdap.plugin.format.parquet.output;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
-import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.lib.KeyValue;
-import io.cdap.plugin.format.avro.StructuredToAvroTransformer;
 import io.cdap.plugin.format.output.DelegatingOutputFormat;
-import org.apache.avro.generic.GenericRecord;
-import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.OutputFormat;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
-import org.apache.parquet.avro.AvroParquetOutputFormat;
+import org.apache.parquet.hadoop.ParquetOutputFormat;
 
-import java.io.IOException;
 import java.util.function.Function;
 
 /**
- * Converts StructuredRecord into GenericRecord before delegating to AvroKeyOutputFormat.
+ * Writes StructuredRecords directly through a {@link StructuredWriteSupport}, without converting them into
+ * GenericRecords first.
  */
-public class StructuredParquetOutputFormat extends DelegatingOutputFormat<Void, GenericRecord> {
+public class StructuredParquetOutputFormat extends DelegatingOutputFormat<Void, StructuredRecord> {
 
   @Override
-  protected OutputFormat<Void, GenericRecord> createDelegate() {
-    return new AvroParquetOutputFormat<>();
+  protected OutputFormat<Void, StructuredRecord> createDelegate() {
+    return new ParquetOutputFormat<>(new StructuredWriteSupport());
   }
 
   @Override
-  protected Function<StructuredRecord, KeyValue<Void, GenericRecord>> getConversion(TaskAttemptContext context)
-    throws IOException {
-
-    Configuration hConf = context.getConfiguration();
-    Schema schema = Schema.parseJson(hConf.get(ParquetOutputFormatProvider.SCHEMA_KEY));
-    StructuredToAvroTransformer transformer = new StructuredToAvroTransformer(schema);
-    return record -> {
-      try {
-        return new KeyValue<>(null, transformer.transform(record));
-      } catch (IOException e) {
-        throw new RuntimeException("Unable to transform structured record into a generic record", e);
-      }
-    };
+  protected Function<StructuredRecord, KeyValue<Void, StructuredRecord>> getConversion(TaskAttemptContext context) {
+    return record -> new KeyValue<>(null, record);
   }
 }
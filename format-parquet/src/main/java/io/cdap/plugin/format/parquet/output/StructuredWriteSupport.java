@@ -0,0 +1,322 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.avro.AvroSchemaConverter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes StructuredRecords to Parquet without converting them to Avro records first. The writers for the fields are
+ * created once from the schema, so no field is looked up by name in the schema while writing.
+ * <p>
+ * The file schema and layout are the same as those of the Avro write support, so files can be read as before.
+ */
+final class StructuredWriteSupport extends WriteSupport<StructuredRecord> {
+  // the key under which the avro write support stores the schema in the footer, which avro readers use
+  private static final String AVRO_SCHEMA_METADATA_KEY = "parquet.avro.schema";
+  private static final String LIST_ELEMENT_NAME = "array";
+  private static final String MAP_ENTRY_NAME = "map";
+  private static final String MAP_KEY_NAME = "key";
+  private static final String MAP_VALUE_NAME = "value";
+  private static final String UNION_MEMBER_PREFIX = "member";
+
+  /**
+   * Writes a single non-null value.
+   */
+  private interface ValueWriter {
+    void write(RecordConsumer consumer, Object value);
+  }
+
+  private FieldWriter[] fieldWriters;
+  private Schema checkedSchema;
+  private RecordConsumer consumer;
+
+  @Override
+  public WriteContext init(Configuration conf) {
+    Schema schema;
+    try {
+      schema = Schema.parseJson(conf.get(ParquetOutputFormatProvider.SCHEMA_KEY));
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Unable to parse output schema: " + e.getMessage(), e);
+    }
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(schema.toString());
+    fieldWriters = createFieldWriters(schema);
+    return new WriteContext(new AvroSchemaConverter().convert(avroSchema),
+                            Collections.singletonMap(AVRO_SCHEMA_METADATA_KEY, avroSchema.toString()));
+  }
+
+  @Override
+  public void prepareForWrite(RecordConsumer recordConsumer) {
+    this.consumer = recordConsumer;
+  }
+
+  @Override
+  public void write(StructuredRecord record) {
+    Schema schema = record.getSchema();
+    if (schema != checkedSchema) {
+      for (FieldWriter fieldWriter : fieldWriters) {
+        if (schema.getField(fieldWriter.name) == null) {
+          throw new IllegalArgumentException("Input record does not contain the " + fieldWriter.name + " field.");
+        }
+      }
+      checkedSchema = schema;
+    }
+    consumer.startMessage();
+    writeFields(consumer, fieldWriters, record);
+    consumer.endMessage();
+  }
+
+  private static void writeFields(RecordConsumer consumer, FieldWriter[] fieldWriters, StructuredRecord record) {
+    for (FieldWriter fieldWriter : fieldWriters) {
+      fieldWriter.write(consumer, record.get(fieldWriter.name));
+    }
+  }
+
+  private static FieldWriter[] createFieldWriters(Schema schema) {
+    List<Schema.Field> fields = schema.getFields();
+    FieldWriter[] writers = new FieldWriter[fields.size()];
+    for (int i = 0; i < writers.length; i++) {
+      Schema.Field field = fields.get(i);
+      writers[i] = new FieldWriter(field.getName(), i, field.getSchema());
+    }
+    return writers;
+  }
+
+  private static ValueWriter createValueWriter(String fieldName, Schema schema) {
+    switch (schema.getType()) {
+      case BOOLEAN:
+        return (consumer, value) -> consumer.addBoolean((Boolean) value);
+      case INT:
+        return (consumer, value) -> consumer.addInteger((Integer) value);
+      case LONG:
+        return (consumer, value) -> consumer.addLong((Long) value);
+      case FLOAT:
+        return (consumer, value) -> consumer.addFloat((Float) value);
+      case DOUBLE:
+        return (consumer, value) -> consumer.addDouble((Double) value);
+      case STRING:
+      case ENUM:
+        return (consumer, value) -> consumer.addBinary(Binary.fromString(value.toString()));
+      case BYTES:
+        return (consumer, value) -> consumer.addBinary(
+          value instanceof ByteBuffer ? Binary.fromConstantByteBuffer((ByteBuffer) value)
+            : Binary.fromConstantByteArray((byte[]) value));
+      case RECORD:
+        FieldWriter[] fieldWriters = createFieldWriters(schema);
+        return (consumer, value) -> {
+          consumer.startGroup();
+          writeFields(consumer, fieldWriters, (StructuredRecord) value);
+          consumer.endGroup();
+        };
+      case ARRAY:
+        return createArrayWriter(fieldName, schema.getComponentSchema());
+      case MAP:
+        return createMapWriter(fieldName, schema.getMapSchema().getValue());
+      case UNION:
+        return createUnionWriter(fieldName, schema.getUnionSchemas());
+      default:
+        throw new IllegalArgumentException(
+          String.format("Field '%s' of type '%s' cannot be written to parquet.", fieldName, schema.getType()));
+    }
+  }
+
+  /**
+   * Creates a writer for the list layout of the avro write support, which is a group with a repeated element field.
+   */
+  private static ValueWriter createArrayWriter(String fieldName, Schema elementSchema) {
+    ValueWriter elementWriter = createValueWriter(fieldName, nonNullable(elementSchema));
+    return (consumer, value) -> {
+      consumer.startGroup();
+      if (value instanceof Collection) {
+        Collection<?> elements = (Collection<?>) value;
+        if (!elements.isEmpty()) {
+          consumer.startField(LIST_ELEMENT_NAME, 0);
+          for (Object element : elements) {
+            elementWriter.write(consumer, checkElement(fieldName, element));
+          }
+          consumer.endField(LIST_ELEMENT_NAME, 0);
+        }
+      } else {
+        int length = Array.getLength(value);
+        if (length > 0) {
+          consumer.startField(LIST_ELEMENT_NAME, 0);
+          for (int i = 0; i < length; i++) {
+            elementWriter.write(consumer, checkElement(fieldName, Array.get(value, i)));
+          }
+          consumer.endField(LIST_ELEMENT_NAME, 0);
+        }
+      }
+      consumer.endGroup();
+    };
+  }
+
+  /**
+   * Creates a writer for the map layout of the avro write support, which is a group with a repeated group of
+   * string keys and values.
+   */
+  private static ValueWriter createMapWriter(String fieldName, Schema valueSchema) {
+    FieldWriter valueWriter = new FieldWriter(MAP_VALUE_NAME, 1, valueSchema);
+    return (consumer, value) -> {
+      Map<?, ?> map = (Map<?, ?>) value;
+      consumer.startGroup();
+      if (!map.isEmpty()) {
+        consumer.startField(MAP_ENTRY_NAME, 0);
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          consumer.startGroup();
+          consumer.startField(MAP_KEY_NAME, 0);
+          consumer.addBinary(Binary.fromString(checkElement(fieldName, entry.getKey()).toString()));
+          consumer.endField(MAP_KEY_NAME, 0);
+          valueWriter.write(consumer, entry.getValue());
+          consumer.endGroup();
+        }
+        consumer.endField(MAP_ENTRY_NAME, 0);
+      }
+      consumer.endGroup();
+    };
+  }
+
+  /**
+   * Creates a writer for a union. A nullable union is written as its non-null type. Other unions are written as a
+   * group with a field for each non-null type, of which only the field of the type of the value is set.
+   */
+  private static ValueWriter createUnionWriter(String fieldName, List<Schema> unionSchemas) {
+    List<Schema> memberSchemas = new ArrayList<>();
+    for (Schema unionSchema : unionSchemas) {
+      if (unionSchema.getType() != Schema.Type.NULL) {
+        memberSchemas.add(unionSchema);
+      }
+    }
+    if (memberSchemas.size() == 1) {
+      return createValueWriter(fieldName, memberSchemas.get(0));
+    }
+    FieldWriter[] memberWriters = new FieldWriter[memberSchemas.size()];
+    for (int i = 0; i < memberWriters.length; i++) {
+      memberWriters[i] = new FieldWriter(UNION_MEMBER_PREFIX + i, i, memberSchemas.get(i));
+    }
+    return (consumer, value) -> {
+      for (int i = 0; i < memberWriters.length; i++) {
+        if (isInstance(value, memberSchemas.get(i))) {
+          consumer.startGroup();
+          memberWriters[i].write(consumer, value);
+          consumer.endGroup();
+          return;
+        }
+      }
+      throw new IllegalArgumentException(
+        String.format("Value of field '%s' does not match any type of the union '%s'.", fieldName, unionSchemas));
+    };
+  }
+
+  private static boolean isInstance(Object value, Schema schema) {
+    switch (schema.getType()) {
+      case BOOLEAN:
+        return value instanceof Boolean;
+      case INT:
+        return value instanceof Integer;
+      case LONG:
+        return value instanceof Long;
+      case FLOAT:
+        return value instanceof Float;
+      case DOUBLE:
+        return value instanceof Double;
+      case STRING:
+        return value instanceof CharSequence;
+      case ENUM:
+        return value instanceof String && schema.getEnumIndex((String) value) >= 0;
+      case BYTES:
+        return value instanceof ByteBuffer || value instanceof byte[];
+      case RECORD:
+        return value instanceof StructuredRecord
+          && schema.getRecordName().equals(((StructuredRecord) value).getSchema().getRecordName());
+      case ARRAY:
+        return value instanceof Collection || value.getClass().isArray();
+      case MAP:
+        return value instanceof Map;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isNullable(Schema schema) {
+    if (schema.getType() != Schema.Type.UNION) {
+      return false;
+    }
+    for (Schema unionSchema : schema.getUnionSchemas()) {
+      if (unionSchema.getType() == Schema.Type.NULL) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Schema nonNullable(Schema schema) {
+    return schema.isNullable() ? schema.getNonNullable() : schema;
+  }
+
+  private static Object checkElement(String fieldName, Object element) {
+    if (element == null) {
+      throw new IllegalArgumentException(
+        String.format("Found a null element in field '%s'. Arrays and map keys cannot contain nulls in parquet.",
+                      fieldName));
+    }
+    return element;
+  }
+
+  /**
+   * Writes a field of a group, which is left out if the value is null.
+   */
+  private static final class FieldWriter {
+    private final String name;
+    private final int index;
+    private final boolean nullable;
+    private final ValueWriter valueWriter;
+
+    private FieldWriter(String name, int index, Schema schema) {
+      this.name = name;
+      this.index = index;
+      this.nullable = isNullable(schema);
+      this.valueWriter = createValueWriter(name, schema);
+    }
+
+    private void write(RecordConsumer consumer, Object value) {
+      if (value == null) {
+        if (!nullable) {
+          throw new IllegalArgumentException(
+            String.format("Found a null value for non-nullable field '%s'.", name));
+        }
+        return;
+      }
+      consumer.startField(name, index);
+      valueWriter.write(consumer, value);
+      consumer.endField(name, index);
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.input.FilterExpression;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.io.api.Binary;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link FilterPredicateConverter}.
+ */
+public class FilterPredicateConverterTest {
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("i", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("l", Schema.nullableOf(Schema.of(Schema.Type.LONG))),
+    Schema.Field.of("f", Schema.of(Schema.Type.FLOAT)),
+    Schema.Field.of("d", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+    Schema.Field.of("s", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("b", Schema.nullableOf(Schema.of(Schema.Type.BOOLEAN))),
+    Schema.Field.of("date", Schema.of(Schema.LogicalType.DATE)),
+    Schema.Field.of("data", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+    Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.STRING)))),
+    Schema.Field.of("rec", Schema.nullableOf(
+      Schema.recordOf("nested", Schema.Field.of("x", Schema.of(Schema.Type.INT))))));
+
+  @Test
+  public void testOperators() {
+    Operators.IntColumn column = FilterApi.intColumn("i");
+    Assert.assertEquals(FilterApi.eq(column, 5), convert("i = 5"));
+    Assert.assertEquals(FilterApi.eq(column, 5), convert("i == 5"));
+    FilterPredicate notEq = FilterApi.and(FilterApi.notEq(column, 5), FilterApi.notEq(column, null));
+    Assert.assertEquals(notEq, convert("i != 5"));
+    Assert.assertEquals(notEq, convert("i <> 5"));
+    Assert.assertEquals(FilterApi.lt(column, 5), convert("i < 5"));
+    Assert.assertEquals(FilterApi.ltEq(column, 5), convert("i <= 5"));
+    Assert.assertEquals(FilterApi.gt(column, 5), convert("i > 5"));
+    Assert.assertEquals(FilterApi.gtEq(column, 5), convert("i >= 5"));
+  }
+
+  @Test
+  public void testTypes() {
+    Assert.assertEquals(FilterApi.gt(FilterApi.longColumn("l"), 5L), convert("l > 5"));
+    Assert.assertEquals(FilterApi.ltEq(FilterApi.floatColumn("f"), 1.5f), convert("f <= 1.5"));
+    Assert.assertEquals(FilterApi.gtEq(FilterApi.doubleColumn("d"), 2.5d), convert("d >= 2.5"));
+    Assert.assertEquals(FilterApi.eq(FilterApi.binaryColumn("s"), Binary.fromString("it's")),
+                        convert("s = 'it''s'"));
+    Assert.assertEquals(FilterApi.lt(FilterApi.binaryColumn("s"), Binary.fromString("m")), convert("s < 'm'"));
+    Assert.assertEquals(FilterApi.eq(FilterApi.booleanColumn("b"), true), convert("b = true"));
+    Assert.assertEquals(FilterApi.and(FilterApi.notEq(FilterApi.booleanColumn("b"), false),
+                                      FilterApi.notEq(FilterApi.booleanColumn("b"), null)),
+                        convert("b != false"));
+    // dates are compared as the number of days since the epoch
+    int day = (int) LocalDate.of(2020, 1, 2).toEpochDay();
+    Assert.assertEquals(FilterApi.eq(FilterApi.intColumn("date"), day), convert("date = '2020-01-02'"));
+    Assert.assertEquals(FilterApi.lt(FilterApi.intColumn("date"), day), convert("date < " + day));
+  }
+
+  @Test
+  public void testNullChecks() {
+    Assert.assertEquals(FilterApi.eq(FilterApi.longColumn("l"), null), convert("l is null"));
+    Assert.assertEquals(FilterApi.notEq(FilterApi.doubleColumn("d"), null), convert("d is not null"));
+    Assert.assertEquals(FilterApi.eq(FilterApi.binaryColumn("s"), null), convert("s is null"));
+    Assert.assertEquals(FilterApi.notEq(FilterApi.booleanColumn("b"), null), convert("b is not null"));
+    Assert.assertEquals(FilterApi.eq(FilterApi.binaryColumn("data"), null), convert("data is null"));
+    Assert.assertEquals(FilterApi.notEq(FilterApi.binaryColumn("data"), null), convert("data is not null"));
+  }
+
+  @Test
+  public void testCombinedExpressions() {
+    FilterPredicate iGt = FilterApi.gt(FilterApi.intColumn("i"), 1);
+    FilterPredicate sEq = FilterApi.eq(FilterApi.binaryColumn("s"), Binary.fromString("a"));
+    FilterPredicate bEq = FilterApi.eq(FilterApi.booleanColumn("b"), true);
+    FilterPredicate bNotEq = FilterApi.notEq(FilterApi.booleanColumn("b"), true);
+    Assert.assertEquals(FilterApi.and(iGt, FilterApi.or(sEq, bNotEq)),
+                        convert("i > 1 and (s = 'a' or not (b = true))"));
+    Assert.assertEquals(FilterApi.or(FilterApi.and(iGt, sEq), bEq), convert("i > 1 and s = 'a' or b = true"));
+  }
+
+  @Test
+  public void testNegations() {
+    // a comparison with a null value is false, so its negation is true for nulls
+    Operators.LongColumn column = FilterApi.longColumn("l");
+    FilterPredicate isNull = FilterApi.eq(column, null);
+    Assert.assertEquals(FilterApi.notEq(column, 5L), convert("not (l = 5)"));
+    Assert.assertEquals(FilterApi.or(FilterApi.eq(column, 5L), isNull), convert("not (l != 5)"));
+    Assert.assertEquals(FilterApi.or(FilterApi.gtEq(column, 5L), isNull), convert("not (l < 5)"));
+    Assert.assertEquals(FilterApi.or(FilterApi.gt(column, 5L), isNull), convert("not (l <= 5)"));
+    Assert.assertEquals(FilterApi.or(FilterApi.ltEq(column, 5L), isNull), convert("not (l > 5)"));
+    Assert.assertEquals(FilterApi.or(FilterApi.lt(column, 5L), isNull), convert("not (l >= 5)"));
+    Assert.assertEquals(FilterApi.notEq(column, null), convert("not (l is null)"));
+    Assert.assertEquals(isNull, convert("not (l is not null)"));
+    Assert.assertEquals(FilterApi.gt(column, 5L), convert("not (not (l > 5))"));
+
+    FilterPredicate iLtEq = FilterApi.or(FilterApi.ltEq(FilterApi.intColumn("i"), 1),
+                                         FilterApi.eq(FilterApi.intColumn("i"), null));
+    FilterPredicate sNotEq = FilterApi.notEq(FilterApi.binaryColumn("s"), Binary.fromString("a"));
+    Assert.assertEquals(FilterApi.or(iLtEq, sNotEq), convert("not (i > 1 and s = 'a')"));
+    Assert.assertEquals(FilterApi.and(iLtEq, sNotEq), convert("not (i > 1 or s = 'a')"));
+  }
+
+  @Test
+  public void testUnsupportedComparisonIsNotPushedDown() {
+    // arrays and records are groups in parquet, so there is no column to check for nulls
+    Assert.assertNull(convert("tags is null"));
+    Assert.assertNull(convert("rec is not null"));
+    // dropping the comparison would change the meaning of the expression, so none of it is converted
+    Assert.assertNull(convert("i = 1 and tags is null"));
+    Assert.assertNull(convert("rec is null or i = 1"));
+    Assert.assertNull(convert("not (tags is not null)"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidFilter() {
+    FilterExpression.parse("tags = 'a'", SCHEMA);
+  }
+
+  @Nullable
+  private static FilterPredicate convert(String filter) {
+    return FilterPredicateConverter.convert(FilterExpression.parse(filter, SCHEMA));
+  }
+}
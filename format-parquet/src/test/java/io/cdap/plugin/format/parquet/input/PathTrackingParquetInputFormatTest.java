@@ -0,0 +1,250 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.input;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.input.FilterExpression;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.parquet.avro.AvroParquetWriter;
+import org.apache.parquet.hadoop.ParquetInputFormat;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link PathTrackingParquetInputFormat}.
+ */
+public class PathTrackingParquetInputFormatTest {
+  private static final int NUM_RECORDS = 1000;
+  private static final Schema ADDRESS_SCHEMA = Schema.recordOf(
+    "address",
+    Schema.Field.of("city", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("zip", Schema.nullableOf(Schema.of(Schema.Type.INT))));
+  private static final Schema FILE_SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("address", Schema.nullableOf(ADDRESS_SCHEMA)),
+    Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.STRING)))),
+    Schema.Field.of("extra", Schema.of(Schema.Type.LONG)));
+  // leaves out the extra column, and has a column that is not in the file
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("address", Schema.nullableOf(ADDRESS_SCHEMA)),
+    Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.STRING)))),
+    Schema.Field.of("missing", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))));
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  private static File file;
+
+  @BeforeClass
+  public static void setupClass() throws IOException {
+    file = new File(TMP_FOLDER.getRoot(), "records.parquet");
+    org.apache.avro.Schema avroSchema = new org.apache.avro.Schema.Parser().parse(FILE_SCHEMA.toString());
+    org.apache.avro.Schema addressSchema =
+      new org.apache.avro.Schema.Parser().parse(ADDRESS_SCHEMA.toString());
+    try (ParquetWriter<GenericRecord> writer = new AvroParquetWriter<>(new Path(file.toURI()), avroSchema)) {
+      for (int id = 0; id < NUM_RECORDS; id++) {
+        GenericRecord record = new GenericData.Record(avroSchema);
+        record.put("id", id);
+        record.put("name", getName(id));
+        String city = getCity(id);
+        if (city != null) {
+          GenericRecord address = new GenericData.Record(addressSchema);
+          address.put("city", city);
+          address.put("zip", getZip(id));
+          record.put("address", address);
+        }
+        record.put("tags", getTags(id));
+        record.put("extra", id * 10L);
+        writer.write(record);
+      }
+    }
+  }
+
+  @Test
+  public void testProjectedNestedAndNullableFields() throws Exception {
+    List<StructuredRecord> records = read(SCHEMA, null);
+    Assert.assertEquals(NUM_RECORDS, records.size());
+    for (int id = 0; id < NUM_RECORDS; id++) {
+      StructuredRecord record = records.get(id);
+      Assert.assertEquals(SCHEMA, record.getSchema());
+      assertRecord(id, record);
+      Assert.assertNull(record.get("missing"));
+    }
+  }
+
+  @Test
+  public void testProjectedNestedFieldOnly() throws Exception {
+    Schema schema = Schema.recordOf("record", Schema.Field.of("address", Schema.nullableOf(ADDRESS_SCHEMA)));
+    List<StructuredRecord> records = read(schema, null);
+    Assert.assertEquals(NUM_RECORDS, records.size());
+    for (int id = 0; id < NUM_RECORDS; id++) {
+      assertAddress(id, records.get(id).get("address"));
+    }
+  }
+
+  @Test
+  public void testPushedDownFilter() throws Exception {
+    Assert.assertNotNull(FilterPredicateConverter.convert(
+      FilterExpression.parse("id < 20 and name is not null", SCHEMA)));
+    List<Integer> expected = new ArrayList<>();
+    for (int id = 0; id < 20; id++) {
+      if (getName(id) != null) {
+        expected.add(id);
+      }
+    }
+    assertIds(expected, read(SCHEMA, "id < 20 and name is not null"));
+  }
+
+  @Test
+  public void testPushedDownFilterOnNullValues() throws Exception {
+    // a comparison with a null name is false, so != drops the null names and the negation keeps them
+    List<Integer> notEqual = new ArrayList<>();
+    List<Integer> notLess = new ArrayList<>();
+    for (int id = 0; id < NUM_RECORDS; id++) {
+      String name = getName(id);
+      if (name != null && !name.equals("name1")) {
+        notEqual.add(id);
+      }
+      if (name == null || name.compareTo("name5") >= 0) {
+        notLess.add(id);
+      }
+    }
+    Assert.assertNotNull(FilterPredicateConverter.convert(FilterExpression.parse("name != 'name1'", SCHEMA)));
+    assertIds(notEqual, read(SCHEMA, "name != 'name1'"));
+    Assert.assertNotNull(FilterPredicateConverter.convert(FilterExpression.parse("not (name < 'name5')", SCHEMA)));
+    assertIds(notLess, read(SCHEMA, "not (name < 'name5')"));
+  }
+
+  @Test
+  public void testFilterThatIsNotPushedDown() throws Exception {
+    // null checks on arrays and records are applied to the records after they are read
+    String filter = "(tags is null and address is not null) or name = 'name7'";
+    Assert.assertNull(FilterPredicateConverter.convert(FilterExpression.parse(filter, SCHEMA)));
+    List<Integer> expected = new ArrayList<>();
+    for (int id = 0; id < NUM_RECORDS; id++) {
+      if ((getTags(id) == null && getCity(id) != null) || id == 7) {
+        expected.add(id);
+      }
+    }
+    List<StructuredRecord> records = read(SCHEMA, filter);
+    assertIds(expected, records);
+    for (StructuredRecord record : records) {
+      assertRecord(record.get("id"), record);
+    }
+  }
+
+  private static void assertRecord(int id, StructuredRecord record) {
+    Assert.assertEquals(id, (int) record.get("id"));
+    Assert.assertEquals(getName(id), record.get("name"));
+    Assert.assertEquals(getTags(id), record.get("tags"));
+    assertAddress(id, record.get("address"));
+  }
+
+  private static void assertAddress(int id, @Nullable StructuredRecord address) {
+    if (getCity(id) == null) {
+      Assert.assertNull(address);
+      return;
+    }
+    Assert.assertNotNull(address);
+    Assert.assertEquals(getCity(id), address.get("city"));
+    Assert.assertEquals(getZip(id), address.get("zip"));
+  }
+
+  private static void assertIds(List<Integer> expected, List<StructuredRecord> records) {
+    List<Integer> ids = new ArrayList<>();
+    for (StructuredRecord record : records) {
+      ids.add(record.get("id"));
+    }
+    Assert.assertEquals(expected, ids);
+  }
+
+  @Nullable
+  private static String getName(int id) {
+    return id % 3 == 0 ? null : "name" + id;
+  }
+
+  @Nullable
+  private static String getCity(int id) {
+    return id % 4 == 0 ? null : "city" + id % 10;
+  }
+
+  @Nullable
+  private static Integer getZip(int id) {
+    return id % 2 == 0 ? null : id;
+  }
+
+  @Nullable
+  private static List<String> getTags(int id) {
+    if (id % 5 == 0) {
+      return null;
+    }
+    List<String> tags = new ArrayList<>();
+    for (int i = 0; i < id % 3; i++) {
+      tags.add("tag" + i);
+    }
+    return tags;
+  }
+
+  private static List<StructuredRecord> read(Schema schema, @Nullable String filter) throws Exception {
+    Configuration conf = new Configuration();
+    // set the way the parquet input format provider sets them
+    conf.set("schema", schema.toString());
+    conf.set("parquet.avro.read.schema", schema.toString());
+    if (filter != null) {
+      conf.set(PathTrackingParquetInputFormat.FILTER, filter);
+    }
+    TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+    FileSplit split = new FileSplit(new Path(file.toURI()), 0, file.length(), new String[0]);
+    List<StructuredRecord> records = new ArrayList<>();
+    try (RecordReader<NullWritable, StructuredRecord> reader =
+           new PathTrackingParquetInputFormat().createRecordReader(split, context)) {
+      reader.initialize(split, context);
+      while (reader.nextKeyValue()) {
+        records.add(reader.getCurrentValue());
+      }
+    }
+    // the reader is configured on a copy of the configuration, which other readers of the task share
+    Assert.assertNull(conf.get(ProjectionReadSupport.PROJECTED_FIELDS));
+    Assert.assertNull(conf.get(ParquetInputFormat.FILTER_PREDICATE));
+    return records;
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin.format.parquet.output;
+
+import io.cdap.cdap.api.data.format.StructuredRecord;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.plugin.format.avro.StructuredToAvroTransformer;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.parquet.avro.AvroParquetOutputFormat;
+import org.apache.parquet.avro.AvroParquetReader;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetOutputFormat;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.metadata.FileMetaData;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link StructuredWriteSupport}, which must write the same files as the avro write support.
+ */
+public class StructuredWriteSupportTest {
+  private static final String AVRO_SCHEMA_METADATA_KEY = "parquet.avro.schema";
+  private static final Schema POINT_SCHEMA = Schema.recordOf(
+    "point",
+    Schema.Field.of("x", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))));
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("flag", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("ratio", Schema.nullableOf(Schema.of(Schema.Type.FLOAT))),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("data", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+    // the avro conversion only converts records in a union if the record is the first type
+    Schema.Field.of("value", Schema.unionOf(POINT_SCHEMA, Schema.of(Schema.Type.INT),
+                                            Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("optional", Schema.unionOf(Schema.of(Schema.Type.NULL), Schema.of(Schema.Type.LONG),
+                                               Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("tags", Schema.nullableOf(Schema.arrayOf(Schema.of(Schema.Type.STRING)))),
+    Schema.Field.of("points", Schema.arrayOf(POINT_SCHEMA)),
+    Schema.Field.of("counts", Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                           Schema.nullableOf(Schema.of(Schema.Type.INT)))),
+    Schema.Field.of("nested", Schema.nullableOf(Schema.mapOf(Schema.of(Schema.Type.STRING),
+                                                             Schema.arrayOf(Schema.of(Schema.Type.LONG))))));
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testSameAsAvroWriteSupport() throws Exception {
+    List<StructuredRecord> records = new ArrayList<>();
+    for (int id = 0; id < 100; id++) {
+      records.add(createRecord(id));
+    }
+
+    Configuration conf = new Configuration();
+    conf.set(ParquetOutputFormatProvider.SCHEMA_KEY, SCHEMA.toString());
+    TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+    File dir = TMP_FOLDER.newFolder();
+
+    // the avro output format and conversion that were used to write parquet files before
+    Path avroPath = new Path(new File(dir, "avro.parquet").toURI());
+    RecordWriter<Void, GenericRecord> avroWriter =
+      new AvroParquetOutputFormat<GenericRecord>().getRecordWriter(context, avroPath);
+    StructuredToAvroTransformer transformer = new StructuredToAvroTransformer(SCHEMA);
+    for (StructuredRecord record : records) {
+      avroWriter.write(null, transformer.transform(record));
+    }
+    avroWriter.close(context);
+
+    Path path = new Path(new File(dir, "structured.parquet").toURI());
+    RecordWriter<Void, StructuredRecord> writer =
+      new ParquetOutputFormat<>(new StructuredWriteSupport()).getRecordWriter(context, path);
+    for (StructuredRecord record : records) {
+      writer.write(null, record);
+    }
+    writer.close(context);
+
+    FileMetaData avroMetadata = ParquetFileReader.readFooter(conf, avroPath).getFileMetaData();
+    FileMetaData metadata = ParquetFileReader.readFooter(conf, path).getFileMetaData();
+    Assert.assertEquals(avroMetadata.getSchema(), metadata.getSchema());
+    Assert.assertEquals(avroMetadata.getKeyValueMetaData().get(AVRO_SCHEMA_METADATA_KEY),
+                        metadata.getKeyValueMetaData().get(AVRO_SCHEMA_METADATA_KEY));
+
+    List<GenericRecord> expected = read(conf, avroPath);
+    Assert.assertEquals(records.size(), expected.size());
+    Assert.assertEquals(expected, read(conf, path));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullArrayElement() throws Exception {
+    Configuration conf = new Configuration();
+    conf.set(ParquetOutputFormatProvider.SCHEMA_KEY, SCHEMA.toString());
+    TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+    Path path = new Path(new File(TMP_FOLDER.newFolder(), "nulls.parquet").toURI());
+    RecordWriter<Void, StructuredRecord> writer =
+      new ParquetOutputFormat<>(new StructuredWriteSupport()).getRecordWriter(context, path);
+    StructuredRecord record = createRecord(1);
+    List<String> tags = new ArrayList<>();
+    tags.add(null);
+    try {
+      writer.write(null, StructuredRecord.builder(SCHEMA)
+        .set("id", record.get("id"))
+        .set("flag", record.get("flag"))
+        .set("value", record.get("value"))
+        .set("tags", tags)
+        .set("points", record.get("points"))
+        .set("counts", record.get("counts"))
+        .build());
+    } finally {
+      writer.close(context);
+    }
+  }
+
+  private static StructuredRecord createRecord(int id) {
+    StructuredRecord.Builder builder = StructuredRecord.builder(SCHEMA)
+      .set("id", id)
+      .set("flag", id % 2 == 0)
+      .set("ratio", id % 3 == 0 ? null : id / 3f)
+      .set("name", id % 5 == 0 ? null : "name" + id);
+
+    if (id % 4 == 1) {
+      builder.set("data", new byte[] { (byte) id, 1, 2 });
+    } else if (id % 4 == 2) {
+      builder.set("data", ByteBuffer.wrap(new byte[] { 3, (byte) id }));
+    }
+
+    // each branch of the unions, the record one with and without its nullable field
+    switch (id % 4) {
+      case 0:
+        builder.set("value", id);
+        break;
+      case 1:
+        builder.set("value", "value" + id);
+        break;
+      default:
+        builder.set("value", createPoint(id));
+    }
+    if (id % 3 == 1) {
+      builder.set("optional", (long) id);
+    } else if (id % 3 == 2) {
+      builder.set("optional", "optional" + id);
+    }
+
+    if (id % 7 != 0) {
+      List<String> tags = new ArrayList<>();
+      for (int i = 0; i < id % 4; i++) {
+        tags.add("tag" + i);
+      }
+      builder.set("tags", tags);
+    }
+
+    List<StructuredRecord> points = new ArrayList<>();
+    for (int i = 0; i < id % 3; i++) {
+      points.add(createPoint(id + i));
+    }
+    builder.set("points", points);
+
+    Map<String, Integer> counts = new LinkedHashMap<>();
+    for (int i = 0; i < id % 4; i++) {
+      counts.put("key" + i, i == 2 ? null : id + i);
+    }
+    builder.set("counts", counts);
+
+    if (id % 6 != 0) {
+      Map<String, List<Long>> nested = new LinkedHashMap<>();
+      for (int i = 0; i < id % 3; i++) {
+        nested.put("key" + i, i == 0 ? Collections.emptyList() : Collections.nCopies(i, (long) id));
+      }
+      builder.set("nested", nested);
+    }
+    return builder.build();
+  }
+
+  private static StructuredRecord createPoint(int id) {
+    return StructuredRecord.builder(POINT_SCHEMA)
+      .set("x", (long) id)
+      .set("y", id % 2 == 0 ? null : id / 2d)
+      .build();
+  }
+
+  private static List<GenericRecord> read(Configuration conf, Path path) throws IOException {
+    List<GenericRecord> records = new ArrayList<>();
+    try (ParquetReader<GenericRecord> reader = AvroParquetReader.<GenericRecord>builder(path).withConf(conf).build()) {
+      GenericRecord record;
+      while ((record = reader.read()) != null) {
+        records.add(record);
+      }
+    }
+    return records;
+  }
+}
@@ -18,9 +18,12 @@ package io.cdap.plugin.format.text.input;
 
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.plugin.common.batch.JobUtils;
+import io.cdap.plugin.format.input.AdaptiveSplitPacker;
 import io.cdap.plugin.format.input.PathTrackingInputFormat;
+import io.cdap.plugin.format.input.ProcessedFileIndex;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
@@ -64,8 +67,12 @@ public class CombineTextInputFormat extends CombineFileInputFormat<NullWritable,
    */
   @Override
   public List<InputSplit> getSplits(JobContext job) throws IOException {
-    List<InputSplit> fileSplits = JobUtils.applyWithExtraClassLoader(job, getClass().getClassLoader(),
-                                                                     CombineTextInputFormat.super::getSplits);
+    List<InputSplit> fileSplits = JobUtils.applyWithExtraClassLoader(job, getClass().getClassLoader(), context -> {
+      if (AdaptiveSplitPacker.isEnabled(context)) {
+        return new AdaptiveSplitPacker(context, file -> isSplitable(context, file)).getSplits();
+      }
+      return super.getSplits(context);
+    });
     Configuration hConf = job.getConfiguration();
 
     boolean shouldCopyHeader = hConf.getBoolean(PathTrackingInputFormat.COPY_HEADER, false);
@@ -84,6 +91,14 @@ public class CombineTextInputFormat extends CombineFileInputFormat<NullWritable,
     return splits;
   }
 
+  /**
+   * Leaves out the files that previous runs have read, if the job has a processed file index.
+   */
+  @Override
+  protected List<FileStatus> listStatus(JobContext job) throws IOException {
+    return ProcessedFileIndex.selectNewFiles(job.getConfiguration(), super.listStatus(job));
+  }
+
   @Nullable
   private String getHeader(Configuration hConf, CombineFileSplit split) throws IOException {
     String header = null;
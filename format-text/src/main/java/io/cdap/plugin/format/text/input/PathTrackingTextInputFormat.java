@@ -51,10 +51,20 @@ public class PathTrackingTextInputFormat extends PathTrackingInputFormat {
                                                                                     TaskAttemptContext context,
                                                                                     @Nullable String pathField,
                                                                                     Schema schema) {
+    return createRecordReader(split, context, pathField, schema, null);
+  }
+
+  @Override
+  protected RecordReader<NullWritable, StructuredRecord.Builder> createRecordReader(FileSplit split,
+                                                                                    TaskAttemptContext context,
+                                                                                    @Nullable String pathField,
+                                                                                    Schema schema,
+                                                                                    @Nullable Schema outputSchema) {
     RecordReader<LongWritable, Text> delegate = getDefaultRecordReaderDelegate(split, context);
     String header = context.getConfiguration().get(CombineTextInputFormat.HEADER);
     boolean skipHeader = context.getConfiguration().getBoolean(CombineTextInputFormat.SKIP_HEADER, false);
-    return new TextRecordReader(delegate, schema, emittedHeader, header, skipHeader);
+    return new TextRecordReader(delegate, outputSchema == null ? schema : outputSchema, emittedHeader, header,
+                                skipHeader);
   }
 
   /**
@@ -65,6 +75,7 @@ public class PathTrackingTextInputFormat extends PathTrackingInputFormat {
     private final Schema schema;
     private final String header;
     private final boolean setOffset;
+    private final boolean setBody;
     private final boolean skipHeader;
     private boolean emittedHeader;
 
@@ -75,6 +86,7 @@ public class PathTrackingTextInputFormat extends PathTrackingInputFormat {
       this.emittedHeader = emittedHeader;
       this.header = header;
       this.setOffset = schema.getField("offset") != null;
+      this.setBody = schema.getField("body") != null;
       this.skipHeader = skipHeader;
     }
 
@@ -112,12 +124,16 @@ public class PathTrackingTextInputFormat extends PathTrackingInputFormat {
         if (setOffset) {
           recordBuilder.set("offset", 0L);
         }
-        recordBuilder.set("body", header);
+        if (setBody) {
+          recordBuilder.set("body", header);
+        }
       } else {
         if (setOffset) {
           recordBuilder.set("offset", delegate.getCurrentKey().get());
         }
-        recordBuilder.set("body", delegate.getCurrentValue().toString());
+        if (setBody) {
+          recordBuilder.set("body", delegate.getCurrentValue().toString());
+        }
       }
       return recordBuilder;
     }
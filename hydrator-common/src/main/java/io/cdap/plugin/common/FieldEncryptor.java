@@ -21,20 +21,36 @@ import io.cdap.cdap.api.data.schema.Schema;
 import org.apache.commons.codec.binary.Hex;
 
 import java.io.InputStream;
+import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyStore;
+import java.security.SecureRandom;
+import javax.annotation.Nullable;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 
 /**
  * Encrypts and decrypts fields based on their schema.
+ * <p>
+ * The key is loaded once, and each thread that uses the encryptor gets its own cipher, since ciphers cannot be
+ * shared between threads. With the GCM mode, every value is encrypted with a different nonce, which is stored in
+ * front of the encrypted value. The nonces of the fields of a record are derived from a single random nonce for
+ * the record. With other modes, the cipher is initialized once with the configured initialization vector.
  */
 public abstract class FieldEncryptor {
+  private static final String GCM_MODE = "GCM";
+  private static final int GCM_NONCE_LENGTH = 12;
+  private static final int GCM_TAG_BITS = 128;
+
   private final KeystoreConf conf;
   private int mode;
-  private Cipher cipher;
+  private Key key;
+  private IvParameterSpec ivParameterSpec;
+  private boolean gcm;
+  private ThreadLocal<CipherState> cipherStates;
 
   public FieldEncryptor(KeystoreConf conf, int mode) {
     this.mode = mode;
@@ -46,15 +62,19 @@ public abstract class FieldEncryptor {
     try (InputStream keystoreStream = getKeystoreInputStream(conf.getKeystorePath())) {
       keystore.load(keystoreStream, conf.getKeystorePassword().toCharArray());
     }
-    Key key = keystore.getKey(conf.getKeyAlias(), conf.getKeyPassword().toCharArray());
-    cipher = Cipher.getInstance(conf.getTransformation());
+    key = keystore.getKey(conf.getKeyAlias(), conf.getKeyPassword().toCharArray());
+    String[] transformation = conf.getTransformation().split("/");
+    gcm = transformation.length > 1 && GCM_MODE.equalsIgnoreCase(transformation[1].trim());
     if (conf.getIvHex() != null) {
-      byte[] ivBytes = Hex.decodeHex(conf.getIvHex().toCharArray());
-      IvParameterSpec ivParameterSpec = new IvParameterSpec(ivBytes);
-      cipher.init(mode, key, ivParameterSpec);
-    } else {
-      cipher.init(mode, key);
+      if (gcm) {
+        throw new IllegalArgumentException(
+          "An initialization vector must not be given for the GCM mode, which generates a nonce for every value.");
+      }
+      ivParameterSpec = new IvParameterSpec(Hex.decodeHex(conf.getIvHex().toCharArray()));
     }
+    // create the cipher of this thread, so that an invalid transformation or key fails here
+    cipherStates = ThreadLocal.withInitial(this::createCipherState);
+    cipherStates.get();
   }
 
   public abstract InputStream getKeystoreInputStream(String keystorePath) throws Exception;
@@ -63,32 +83,41 @@ public abstract class FieldEncryptor {
     if (fieldVal == null) {
       return null;
     }
+    CipherState state = cipherStates.get();
+    if (gcm) {
+      state.random.nextBytes(state.nonce);
+    }
+    return encrypt(state, toBytes(fieldVal, fieldSchema));
+  }
 
-    Schema.Type fieldType = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
-    byte[] fieldBytes;
-    switch (fieldType) {
-      case INT:
-        fieldBytes = Bytes.toBytes((int) fieldVal);
-        break;
-      case LONG:
-        fieldBytes = Bytes.toBytes((long) fieldVal);
-        break;
-      case FLOAT:
-        fieldBytes = Bytes.toBytes((float) fieldVal);
-        break;
-      case DOUBLE:
-        fieldBytes = Bytes.toBytes((double) fieldVal);
-        break;
-      case STRING:
-        fieldBytes = Bytes.toBytes((String) fieldVal);
-        break;
-      case BYTES:
-        fieldBytes = (byte[]) fieldVal;
-        break;
-      default:
-        throw new IllegalArgumentException("field type " + fieldType + " is not supported.");
+  /**
+   * Encrypts the values of the fields of a record in one pass. With the GCM mode, a single random nonce is
+   * generated for the record, and the nonce of each value is derived from it and the index of the value.
+   *
+   * @param fieldVals the values to encrypt, which may be null
+   * @param fieldSchemas the schemas of the values
+   * @param encrypted the array to write the encrypted values to, which are null for null values
+   */
+  public void encrypt(Object[] fieldVals, Schema[] fieldSchemas,
+                      byte[][] encrypted) throws BadPaddingException, IllegalBlockSizeException {
+    CipherState state = cipherStates.get();
+    if (gcm) {
+      state.random.nextBytes(state.recordNonce);
+    }
+    for (int i = 0; i < fieldVals.length; i++) {
+      if (fieldVals[i] == null) {
+        encrypted[i] = null;
+        continue;
+      }
+      if (gcm) {
+        System.arraycopy(state.recordNonce, 0, state.nonce, 0, GCM_NONCE_LENGTH);
+        // the index is mixed into the last four bytes, so every value of the record has a different nonce
+        for (int b = 0; b < Integer.BYTES; b++) {
+          state.nonce[GCM_NONCE_LENGTH - 1 - b] ^= (byte) (i >>> (8 * b));
+        }
+      }
+      encrypted[i] = encrypt(state, toBytes(fieldVals[i], fieldSchemas[i]));
     }
-    return cipher.doFinal(fieldBytes);
   }
 
   public Object decrypt(byte[] fieldBytes, Schema fieldSchema) throws BadPaddingException, IllegalBlockSizeException {
@@ -97,7 +126,7 @@ public abstract class FieldEncryptor {
     }
 
     Schema.Type fieldType = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
-    fieldBytes = cipher.doFinal(fieldBytes);
+    fieldBytes = decrypt(cipherStates.get(), fieldBytes);
     switch (fieldType) {
       case INT:
         return Bytes.toInt(fieldBytes);
@@ -116,4 +145,92 @@ public abstract class FieldEncryptor {
     }
   }
 
+  private static byte[] toBytes(Object fieldVal, Schema fieldSchema) {
+    Schema.Type fieldType = fieldSchema.isNullable() ? fieldSchema.getNonNullable().getType() : fieldSchema.getType();
+    switch (fieldType) {
+      case INT:
+        return Bytes.toBytes((int) fieldVal);
+      case LONG:
+        return Bytes.toBytes((long) fieldVal);
+      case FLOAT:
+        return Bytes.toBytes((float) fieldVal);
+      case DOUBLE:
+        return Bytes.toBytes((double) fieldVal);
+      case STRING:
+        return Bytes.toBytes((String) fieldVal);
+      case BYTES:
+        return (byte[]) fieldVal;
+      default:
+        throw new IllegalArgumentException("field type " + fieldType + " is not supported.");
+    }
+  }
+
+  /**
+   * Encrypts bytes with the cipher of a thread. With the GCM mode, the bytes are encrypted with the nonce of the
+   * thread, which is written in front of the encrypted bytes.
+   */
+  private byte[] encrypt(CipherState state, byte[] fieldBytes) throws BadPaddingException, IllegalBlockSizeException {
+    if (!gcm) {
+      return state.cipher.doFinal(fieldBytes);
+    }
+    try {
+      state.cipher.init(mode, key, new GCMParameterSpec(GCM_TAG_BITS, state.nonce));
+      byte[] encrypted = new byte[GCM_NONCE_LENGTH + state.cipher.getOutputSize(fieldBytes.length)];
+      System.arraycopy(state.nonce, 0, encrypted, 0, GCM_NONCE_LENGTH);
+      state.cipher.doFinal(fieldBytes, 0, fieldBytes.length, encrypted, GCM_NONCE_LENGTH);
+      return encrypted;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Failed to encrypt with the GCM mode: " + e.getMessage(), e);
+    }
+  }
+
+  private byte[] decrypt(CipherState state, byte[] fieldBytes) throws BadPaddingException, IllegalBlockSizeException {
+    if (!gcm) {
+      return state.cipher.doFinal(fieldBytes);
+    }
+    if (fieldBytes.length < GCM_NONCE_LENGTH) {
+      throw new IllegalArgumentException("Encrypted value is too short to contain a GCM nonce.");
+    }
+    try {
+      state.cipher.init(mode, key, new GCMParameterSpec(GCM_TAG_BITS, fieldBytes, 0, GCM_NONCE_LENGTH));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Failed to decrypt with the GCM mode: " + e.getMessage(), e);
+    }
+    return state.cipher.doFinal(fieldBytes, GCM_NONCE_LENGTH, fieldBytes.length - GCM_NONCE_LENGTH);
+  }
+
+  private CipherState createCipherState() {
+    try {
+      Cipher cipher = Cipher.getInstance(conf.getTransformation());
+      if (gcm) {
+        // the cipher is initialized with a new nonce for every value
+        return new CipherState(cipher, new SecureRandom());
+      }
+      if (ivParameterSpec != null) {
+        cipher.init(mode, key, ivParameterSpec);
+      } else {
+        cipher.init(mode, key);
+      }
+      return new CipherState(cipher, null);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalArgumentException(
+        String.format("Failed to create cipher for transformation '%s': %s", conf.getTransformation(), e.getMessage()),
+        e);
+    }
+  }
+
+  /**
+   * The cipher of a thread, with the random generator and the buffers for the GCM nonces.
+   */
+  private static final class CipherState {
+    private final Cipher cipher;
+    private final SecureRandom random;
+    private final byte[] recordNonce = new byte[GCM_NONCE_LENGTH];
+    private final byte[] nonce = new byte[GCM_NONCE_LENGTH];
+
+    private CipherState(Cipher cipher, @Nullable SecureRandom random) {
+      this.cipher = cipher;
+      this.random = random;
+    }
+  }
 }
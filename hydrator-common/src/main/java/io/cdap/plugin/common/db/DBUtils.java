@@ -379,7 +379,17 @@ public final class DBUtils {
   @Nullable
   public static Object transformValue(int sqlType, int precision, int scale, ResultSet resultSet, String fieldName,
     Schema outputFieldSchema) throws SQLException {
-    Object original = resultSet.getObject(fieldName);
+    return transformValue(sqlType, precision, scale, resultSet, resultSet.findColumn(fieldName), outputFieldSchema);
+  }
+
+  /**
+   * Reads the value of the column with the given index and converts it to the type used for the output field.
+   * Reading by index avoids looking up the column by name for every row.
+   */
+  @Nullable
+  public static Object transformValue(int sqlType, int precision, int scale, ResultSet resultSet, int columnIndex,
+    Schema outputFieldSchema) throws SQLException {
+    Object original = resultSet.getObject(columnIndex);
     if (original != null) {
       switch (sqlType) {
         case Types.SMALLINT:
@@ -391,7 +401,7 @@ public final class DBUtils {
             // It's required to pass 'scale' parameter since in the case of some dbs like Oracle, scale of 'BigDecimal'
             // depends on the scale of actual value. For example for value '77.12'
             // scale will be '2' even if sql scale is '6'
-            return resultSet.getBigDecimal(fieldName, scale);
+            return resultSet.getBigDecimal(columnIndex, scale);
           } else {
             BigDecimal decimal = (BigDecimal) original;
             if (scale != 0) {
@@ -406,13 +416,13 @@ public final class DBUtils {
           }
         }
         case Types.DATE:
-          return resultSet.getDate(fieldName);
+          return resultSet.getDate(columnIndex);
         case Types.TIME:
-          return resultSet.getTime(fieldName);
+          return resultSet.getTime(columnIndex);
         case Types.TIMESTAMP:
-          return resultSet.getTimestamp(fieldName);
+          return resultSet.getTimestamp(columnIndex);
         case Types.ROWID:
-          return resultSet.getString(fieldName);
+          return resultSet.getString(columnIndex);
         case Types.BLOB:
           Blob blob = (Blob) original;
           try {
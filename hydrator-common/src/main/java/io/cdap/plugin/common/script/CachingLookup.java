@@ -16,8 +16,10 @@
 
 package io.cdap.plugin.common.script;
 
+import com.google.common.base.Optional;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -30,31 +32,44 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
- * {@link Lookup} that provides caching over a delegate.
+ * {@link Lookup} that provides caching over a delegate. Keys that the delegate has no value for are cached as well,
+ * so that looking them up again does not go to the delegate.
  *
  * @param <T> the type of object that will be returned for a lookup
  */
 public class CachingLookup<T> implements Lookup<T> {
 
   private final Lookup<T> delegate;
-  private final LoadingCache<String, T> cache;
+  private final LoadingCache<String, Optional<T>> cache;
 
   public CachingLookup(final Lookup<T> delegate, CacheConfig cacheConfig) {
-    this.delegate = delegate;
-    this.cache = CacheBuilder.newBuilder()
+    this(delegate, CacheBuilder.newBuilder()
       .maximumSize(cacheConfig.getMaxSize())
-      .expireAfterWrite(cacheConfig.getExpirySeconds(), TimeUnit.SECONDS)
-      .build(new CacheLoader<String, T>() {
+      .expireAfterWrite(cacheConfig.getExpirySeconds(), TimeUnit.SECONDS));
+  }
+
+  /**
+   * Creates a lookup with a cache built by the given builder, which defines the size limit and the expiry of the
+   * cached values. The cache records its hits and misses, which are returned by {@link #getStats()}.
+   *
+   * @param delegate the lookup to cache the values of
+   * @param cacheBuilder the builder of the cache
+   */
+  public CachingLookup(final Lookup<T> delegate, CacheBuilder<Object, Object> cacheBuilder) {
+    this.delegate = delegate;
+    this.cache = cacheBuilder
+      .recordStats()
+      .build(new CacheLoader<String, Optional<T>>() {
         @Override
-        public T load(String key) throws Exception {
-          return delegate.lookup(key);
+        public Optional<T> load(String key) throws Exception {
+          return Optional.fromNullable(delegate.lookup(key));
         }
       });
   }
 
   @Override
   public T lookup(String key) {
-    return cache.getUnchecked(key);
+    return cache.getUnchecked(key).orNull();
   }
 
   @Override
@@ -64,15 +79,32 @@ public class CachingLookup<T> implements Lookup<T> {
 
   @Override
   public Map<String, T> lookup(Set<String> keys) {
-    ImmutableMap<String, T> cached = cache.getAllPresent(keys);
+    ImmutableMap.Builder<String, T> result = ImmutableMap.builder();
+    ImmutableMap<String, Optional<T>> cached = cache.getAllPresent(keys);
+    for (Map.Entry<String, Optional<T>> entry : cached.entrySet()) {
+      if (entry.getValue().isPresent()) {
+        result.put(entry.getKey(), entry.getValue().get());
+      }
+    }
 
     Set<String> missingKeys = Sets.difference(keys, cached.keySet());
-    Map<String, T> missing = delegate.lookup(missingKeys);
-    cache.putAll(missing);
+    if (!missingKeys.isEmpty()) {
+      Map<String, T> missing = delegate.lookup(missingKeys);
+      for (String key : missingKeys) {
+        T value = missing.get(key);
+        cache.put(key, Optional.fromNullable(value));
+        if (value != null) {
+          result.put(key, value);
+        }
+      }
+    }
+    return result.build();
+  }
 
-    return ImmutableMap.<String, T>builder()
-      .putAll(cached)
-      .putAll(missing)
-      .build();
+  /**
+   * Returns the number of hits and misses of the cache since it was created.
+   */
+  public CacheStats getStats() {
+    return cache.stats();
   }
 }
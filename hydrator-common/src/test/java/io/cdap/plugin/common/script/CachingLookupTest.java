@@ -17,6 +17,7 @@
 package io.cdap.plugin.common.script;
 
 import com.google.common.base.Predicates;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
@@ -98,6 +99,29 @@ public class CachingLookupTest {
       lookup.lookup("foo1", "foo4", "foo2"));
   }
 
+  @Test
+  public void testMissingKeys() {
+    Map<String, String> backing = new HashMap<>();
+    backing.put("foo", "1");
+
+    Lookup<String> delegate = new MapLookup<>(backing);
+    CachingLookup<String> lookup = new CachingLookup<>(delegate, CacheBuilder.newBuilder().maximumSize(10));
+
+    Assert.assertNull(lookup.lookup("bar"));
+    Assert.assertEquals(ImmutableMap.of("foo", "1"), lookup.lookup("foo", "bar", "baz"));
+
+    // keys without a value are cached too
+    backing.put("bar", "2");
+    Assert.assertNull(lookup.lookup("bar"));
+    Assert.assertNull(lookup.lookup("baz"));
+
+    lookup = new CachingLookup<>(delegate, CacheBuilder.newBuilder().maximumSize(10));
+    Assert.assertEquals("2", lookup.lookup("bar"));
+    Assert.assertEquals("2", lookup.lookup("bar"));
+    Assert.assertEquals(1, lookup.getStats().hitCount());
+    Assert.assertEquals(1, lookup.getStats().missCount());
+  }
+
   private static class MapLookup<T> implements Lookup<T> {
 
     private final Map<String, T> backing;
@@ -59,6 +59,11 @@ public final class Decryptor extends Transform<StructuredRecord, StructuredRecor
   private Schema schema;
   private FieldEncryptor fieldEncryptor;
 
+  // the schema of the last input record, with the output schema of each of its fields to decrypt
+  // or null for the other fields, which records of a stage almost always share
+  private Schema lastInputSchema;
+  private Schema[] targetSchemas;
+
   public Decryptor(Conf conf) {
     this.conf = conf;
   }
@@ -111,11 +116,23 @@ public final class Decryptor extends Transform<StructuredRecord, StructuredRecor
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
+    Schema inputSchema = in.getSchema();
+    List<Field> fields = inputSchema.getFields();
+    if (inputSchema != lastInputSchema) {
+      targetSchemas = new Schema[fields.size()];
+      for (int i = 0; i < targetSchemas.length; i++) {
+        String name = fields.get(i).getName();
+        targetSchemas[i] = decryptFields.contains(name) ? schema.getField(name).getSchema() : null;
+      }
+      lastInputSchema = inputSchema;
+    }
+
     StructuredRecord.Builder recordBuilder = StructuredRecord.builder(schema);
-    for (Field field : in.getSchema().getFields()) {
-      if (decryptFields.contains(field.getName())) {
+    for (int i = 0; i < targetSchemas.length; i++) {
+      Field field = fields.get(i);
+      Schema targetSchema = targetSchemas[i];
+      if (targetSchema != null) {
         Schema fieldSchema = field.getSchema();
-        Schema targetSchema = schema.getField(field.getName()).getSchema();
         Object val = in.get(field.getName());
         if (fieldSchema.isNullable() && val == null) {
           recordBuilder.set(field.getName(), null);
@@ -56,6 +56,17 @@ public final class Encryptor extends Transform<StructuredRecord, StructuredRecor
   private Set<String> encryptFields;
   private FieldEncryptor fieldEncryptor;
 
+  // the schema of the last input record, with its output schema and the fields to encrypt,
+  // which records of a stage almost always share
+  private Schema lastInputSchema;
+  private Schema lastOutputSchema;
+  // for each input field, the index of the field among the encrypted fields, or -1 if it is not encrypted
+  private int[] encryptedIndexes;
+  private String[] encryptedNames;
+  private Schema[] encryptedSchemas;
+  private Object[] values;
+  private byte[][] encryptedValues;
+
   public Encryptor(Conf conf) {
     this.conf = conf;
   }
@@ -102,18 +113,52 @@ public final class Encryptor extends Transform<StructuredRecord, StructuredRecor
 
   @Override
   public void transform(StructuredRecord in, Emitter<StructuredRecord> emitter) throws Exception {
-    Schema schema = getOutputSchema(in.getSchema());
-    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(schema);
-    for (Field field : in.getSchema().getFields()) {
-      if (encryptFields.contains(field.getName())) {
-        recordBuilder.set(field.getName(), fieldEncryptor.encrypt(in.get(field.getName()), field.getSchema()));
-      } else {
-        recordBuilder.set(field.getName(), in.get(field.getName()));
-      }
+    Schema inputSchema = in.getSchema();
+    if (inputSchema != lastInputSchema) {
+      prepareSchema(inputSchema);
+    }
+    // all the fields of the record are encrypted together, so that they share the random nonce of the record
+    for (int i = 0; i < encryptedNames.length; i++) {
+      values[i] = in.get(encryptedNames[i]);
+    }
+    fieldEncryptor.encrypt(values, encryptedSchemas, encryptedValues);
+
+    StructuredRecord.Builder recordBuilder = StructuredRecord.builder(lastOutputSchema);
+    List<Field> fields = inputSchema.getFields();
+    for (int i = 0; i < encryptedIndexes.length; i++) {
+      String name = fields.get(i).getName();
+      recordBuilder.set(name, encryptedIndexes[i] < 0 ? in.get(name) : encryptedValues[encryptedIndexes[i]]);
     }
     emitter.emit(recordBuilder.build());
   }
 
+  /**
+   * Computes the output schema and the fields to encrypt for an input schema, so that they are not computed again
+   * for every record.
+   */
+  private void prepareSchema(Schema inputSchema) {
+    List<Field> fields = inputSchema.getFields();
+    List<Field> encrypted = new ArrayList<>();
+    encryptedIndexes = new int[fields.size()];
+    for (int i = 0; i < encryptedIndexes.length; i++) {
+      Field field = fields.get(i);
+      encryptedIndexes[i] = encryptFields.contains(field.getName()) ? encrypted.size() : -1;
+      if (encryptedIndexes[i] >= 0) {
+        encrypted.add(field);
+      }
+    }
+    encryptedNames = new String[encrypted.size()];
+    encryptedSchemas = new Schema[encrypted.size()];
+    for (int i = 0; i < encryptedNames.length; i++) {
+      encryptedNames[i] = encrypted.get(i).getName();
+      encryptedSchemas[i] = encrypted.get(i).getSchema();
+    }
+    values = new Object[encryptedNames.length];
+    encryptedValues = new byte[encryptedNames.length][];
+    lastOutputSchema = getOutputSchema(inputSchema);
+    lastInputSchema = inputSchema;
+  }
+
   private Schema getOutputSchema(Schema schema) {
     List<Field> outputFields = new ArrayList<>();
     for (Schema.Field field : schema.getFields()) {
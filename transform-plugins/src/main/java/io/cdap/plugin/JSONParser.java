@@ -19,8 +19,9 @@ package io.cdap.plugin;
 import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
 import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidPathException;
 import com.jayway.jsonpath.JsonPath;
-import com.jayway.jsonpath.PathNotFoundException;
+import com.jayway.jsonpath.Option;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
@@ -54,6 +55,9 @@ import javax.annotation.Nullable;
 @Description("Parses JSON Object into a Structured Record.")
 public final class JSONParser extends Transform<StructuredRecord, StructuredRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(JSONParser.class);
+  // paths that select nothing evaluate to null instead of failing the record
+  private static final Configuration JSON_PATH_CONFIGURATION =
+    Configuration.defaultConfiguration().addOptions(Option.DEFAULT_PATH_LEAF_TO_NULL, Option.SUPPRESS_EXCEPTIONS);
 
   private final Config config;
 
@@ -68,6 +72,18 @@ public final class JSONParser extends Transform<StructuredRecord, StructuredReco
   // Specifies whether mapping is simple or complex.
   private boolean isSimple = true;
 
+  // For a complex mapping, the index of the path of each output field, or -1 if the field is not mapped.
+  private int[] fieldPaths;
+
+  // The compiled paths of the complex mapping.
+  private JsonPath[] paths;
+
+  // Extracts all the paths in a single pass, or null if some of the paths are not simple.
+  private StreamingJsonPathExtractor extractor;
+
+  // The values of the paths for the current record.
+  private Object[] values;
+
   // Mainly used for testing.
   public JSONParser(Config config) {
     this.config = config;
@@ -155,9 +171,38 @@ public final class JSONParser extends Transform<StructuredRecord, StructuredReco
       throw collector.getOrThrowException();
     }
     extractMappings(collector);
+    if (!isSimple) {
+      compilePaths(collector);
+    }
     collector.getOrThrowException();
   }
 
+  // Compiles the paths of the mapped output fields once, so they are not parsed again for every record.
+  private void compilePaths(FailureCollector collector) {
+    fieldPaths = new int[fields.size()];
+    List<String> pathStrings = new ArrayList<>();
+    List<JsonPath> compiledPaths = new ArrayList<>();
+    for (int i = 0; i < fieldPaths.length; i++) {
+      String name = fields.get(i).getName();
+      String path = mapping.get(name);
+      fieldPaths[i] = -1;
+      if (path == null) {
+        continue;
+      }
+      try {
+        compiledPaths.add(JsonPath.compile(path));
+        fieldPaths[i] = pathStrings.size();
+        pathStrings.add(path);
+      } catch (InvalidPathException e) {
+        collector.addFailure(String.format("Invalid JSON path '%s' for field '%s': %s", path, name, e.getMessage()),
+                             null).withConfigElement(Config.MAPPING, name + ":" + path);
+      }
+    }
+    paths = compiledPaths.toArray(new JsonPath[0]);
+    values = new Object[paths.length];
+    extractor = StreamingJsonPathExtractor.create(pathStrings);
+  }
+
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) throws Exception {
     // If it's a simple mapping from JSON to output schema, else we use the mapping fields to map the
@@ -167,28 +212,29 @@ public final class JSONParser extends Transform<StructuredRecord, StructuredReco
       return;
     }
 
-    // When it's not a simple Json to be parsed, we use the Json path to map the input Json fields into the
-    // output schema. In order to optimize for reading multiple paths from the Json we create a document that
-    // allows the Json to be parsed only once. We then iterate through the output fields and apply the
-    // path to extract the fields.
-    Object document = Configuration.defaultConfiguration().jsonProvider().parse((String) input.get(config.field));
+    // When it's not a simple Json to be parsed, we use the Json paths to map the input Json fields into the
+    // output schema. If all the paths are simple, their values are read in a single pass over the Json. Otherwise
+    // the Json is parsed into a document once, and the compiled paths are evaluated on the document.
+    String json = input.get(config.field);
+    if (extractor == null || !extractor.extract(json, values)) {
+      Object document = JSON_PATH_CONFIGURATION.jsonProvider().parse(json);
+      for (int i = 0; i < paths.length; i++) {
+        values[i] = paths[i].read(document, JSON_PATH_CONFIGURATION);
+      }
+    }
+
     StructuredRecord.Builder builder = StructuredRecord.builder(outSchema);
-    for (Schema.Field field : fields) {
+    for (int i = 0; i < fieldPaths.length; i++) {
+      Schema.Field field = fields.get(i);
       String name = field.getName();
-      if (mapping.containsKey(name)) {
-        String path = mapping.get(name);
-        try {
-          Object value = JsonPath.read(document, path);
-          builder.set(field.getName(), value);
-        } catch (PathNotFoundException e) {
-          if (field.getSchema().isNullable()) {
-            builder.set(field.getName(), null);
-          } else {
-            LOG.error("Json path '" + path + "' specified for the field '" + name + "' doesn't exist. " +
-                        "Dropping the error record: " + StructuredRecordStringConverter.toJsonString(input));
-            return;
-          }
+      if (fieldPaths[i] >= 0) {
+        Object value = values[fieldPaths[i]];
+        if (value == null && !field.getSchema().isNullable()) {
+          LOG.error("Json path '" + mapping.get(name) + "' specified for the field '" + name + "' doesn't exist. " +
+                      "Dropping the error record: " + StructuredRecordStringConverter.toJsonString(input));
+          return;
         }
+        builder.set(name, value);
       } else {
         // We didn't find the field name in the mapping, we will not attempt to see if the field is present
         // in the input; if it is, then we will transfer the input field value to the output field value.
@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Extracts the values of simple JSON paths, such as '$.a.b', "$['a']['b']" or '$.a[0]', in a single streaming pass
+ * over a JSON document, without building the document tree. Values have the same java types as those that JsonPath
+ * returns for the parsed document, and a path that selects nothing has a null value.
+ * <p>
+ * Documents that the streaming pass cannot handle exactly like JsonPath are left to the caller. These are documents
+ * where a path selects an object or an array, and documents that are not well formed JSON.
+ */
+final class StreamingJsonPathExtractor {
+  private static final Pattern SEGMENT =
+    Pattern.compile("\\.([A-Za-z_$][\\w$\\-]*)|\\['([^'\\\\,]+)'\\]|\\[\"([^\"\\\\,]+)\"\\]|\\[(\\d+)\\]");
+  // longer decimals are parsed as BigDecimal, as they are by the json provider of JsonPath
+  private static final int MAX_DOUBLE_LENGTH = 18;
+  // integers of up to this many characters always fit in a long
+  private static final int MAX_LONG_DIGITS = 18;
+
+  private final Step root = new Step();
+
+  private StreamingJsonPathExtractor() {
+  }
+
+  /**
+   * Creates an extractor for the given JSON paths.
+   *
+   * @return the extractor, or null if any of the paths is not a simple path
+   */
+  @Nullable
+  static StreamingJsonPathExtractor create(List<String> paths) {
+    StreamingJsonPathExtractor extractor = new StreamingJsonPathExtractor();
+    for (int i = 0; i < paths.size(); i++) {
+      String path = paths.get(i).trim();
+      if (path.length() < 2 || path.charAt(0) != '$') {
+        return null;
+      }
+      Step step = extractor.root;
+      Matcher matcher = SEGMENT.matcher(path);
+      for (int position = 1; position < path.length(); position = matcher.end()) {
+        if (!matcher.region(position, path.length()).lookingAt()) {
+          return null;
+        }
+        if (matcher.group(4) != null) {
+          step = step.elements.computeIfAbsent(Integer.parseInt(matcher.group(4)), key -> new Step());
+        } else {
+          String name = matcher.group(1) != null ? matcher.group(1)
+            : matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+          step = step.fields.computeIfAbsent(name, key -> new Step());
+        }
+      }
+      step.paths.add(i);
+    }
+    return extractor;
+  }
+
+  /**
+   * Extracts the values of the paths from a document.
+   *
+   * @param json the document
+   * @param values the array to write the value of each path to, which is null if the path selects nothing
+   * @return whether the values were extracted, or false if the document must be evaluated with JsonPath instead
+   */
+  boolean extract(String json, Object[] values) {
+    Arrays.fill(values, null);
+    try (JsonReader reader = new JsonReader(new StringReader(json))) {
+      // the json provider of JsonPath is permissive, so accept what it accepts as far as possible
+      reader.setLenient(true);
+      return readValue(reader, root, values) && reader.peek() == JsonToken.END_DOCUMENT;
+    } catch (IOException | IllegalStateException | NumberFormatException e) {
+      // leave the document to JsonPath, which reports the error if the document is really malformed
+      return false;
+    }
+  }
+
+  /**
+   * Reads the next value, writing it to the paths that end at the given step.
+   *
+   * @param step the step of the value, or null if no path goes through the value
+   * @return whether the value was read, or false if a path selects an object or an array
+   */
+  private static boolean readValue(JsonReader reader, @Nullable Step step, Object[] values) throws IOException {
+    if (step == null) {
+      reader.skipValue();
+      return true;
+    }
+    JsonToken token = reader.peek();
+    if (token == JsonToken.BEGIN_OBJECT) {
+      if (!step.paths.isEmpty()) {
+        return false;
+      }
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (!readValue(reader, step.fields.get(reader.nextName()), values)) {
+          return false;
+        }
+      }
+      reader.endObject();
+      return true;
+    }
+    if (token == JsonToken.BEGIN_ARRAY) {
+      if (!step.paths.isEmpty()) {
+        return false;
+      }
+      reader.beginArray();
+      for (int index = 0; reader.hasNext(); index++) {
+        if (!readValue(reader, step.elements.get(index), values)) {
+          return false;
+        }
+      }
+      reader.endArray();
+      return true;
+    }
+    Object value = readScalar(reader, token);
+    for (int path : step.paths) {
+      values[path] = value;
+    }
+    return true;
+  }
+
+  @Nullable
+  private static Object readScalar(JsonReader reader, JsonToken token) throws IOException {
+    switch (token) {
+      case BOOLEAN:
+        return reader.nextBoolean();
+      case NULL:
+        reader.nextNull();
+        return null;
+      case NUMBER:
+        return parseNumber(reader.nextString());
+      default:
+        return reader.nextString();
+    }
+  }
+
+  /**
+   * Parses a number into the smallest of Integer, Long and BigInteger that holds it, or into a Double, or a
+   * BigDecimal if it is long, if it has a fraction or an exponent.
+   */
+  private static Number parseNumber(String number) {
+    for (int i = 0; i < number.length(); i++) {
+      char c = number.charAt(i);
+      if (c == '.' || c == 'e' || c == 'E') {
+        return number.length() > MAX_DOUBLE_LENGTH ? new BigDecimal(number) : (Number) Double.parseDouble(number);
+      }
+    }
+    if (number.length() <= MAX_LONG_DIGITS) {
+      long value = Long.parseLong(number);
+      return (int) value == value ? (Number) (int) value : (Number) value;
+    }
+    BigInteger value = new BigInteger(number);
+    return value.bitLength() < Long.SIZE ? (Number) value.longValue() : value;
+  }
+
+  /**
+   * A step that some paths go through, with the steps for the fields of an object or the elements of an array.
+   */
+  private static final class Step {
+    private final Map<String, Step> fields = new HashMap<>();
+    private final Map<Integer, Step> elements = new HashMap<>();
+    private final List<Integer> paths = new ArrayList<>();
+  }
+}
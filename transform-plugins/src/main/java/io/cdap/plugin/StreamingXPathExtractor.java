@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.plugin;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Extracts the values of simple absolute XPaths, such as '/a/b/c' or '/a/b/@c', in a single streaming pass over an
+ * XML document, without building a DOM. The value of a path is the text of the first element or attribute that it
+ * selects, as it would be for the XPath.
+ * <p>
+ * Documents that the streaming pass cannot handle exactly like XPath over a DOM are left to the caller. These are
+ * documents with a doctype or namespaces, and documents where the first element selected by a path has child
+ * elements.
+ */
+final class StreamingXPathExtractor {
+  private static final Pattern SIMPLE_PATH = Pattern.compile("(/[A-Za-z_][\\w.\\-]*)+(/@[A-Za-z_][\\w.\\-]*)?");
+
+  private final XMLInputFactory inputFactory;
+  private final Step root = new Step();
+
+  private StreamingXPathExtractor(List<String> paths) {
+    inputFactory = XMLInputFactory.newInstance();
+    inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    for (int i = 0; i < paths.size(); i++) {
+      Step step = root;
+      for (String name : paths.get(i).substring(1).split("/")) {
+        if (name.startsWith("@")) {
+          step.attributePaths.computeIfAbsent(name.substring(1), key -> new ArrayList<>()).add(i);
+        } else {
+          step = step.children.computeIfAbsent(name, key -> new Step());
+        }
+      }
+      if (!paths.get(i).contains("@")) {
+        step.elementPaths.add(i);
+      }
+    }
+  }
+
+  /**
+   * Creates an extractor for the given XPaths.
+   *
+   * @return the extractor, or null if any of the XPaths is not a simple absolute path
+   */
+  @Nullable
+  static StreamingXPathExtractor create(List<String> paths) {
+    for (String path : paths) {
+      if (!SIMPLE_PATH.matcher(path).matches()) {
+        return null;
+      }
+    }
+    return new StreamingXPathExtractor(paths);
+  }
+
+  /**
+   * Extracts the values of the paths from a document.
+   *
+   * @param xml the document
+   * @param values the array to write the value of each path to, which is null if the path selects nothing
+   * @param counts the array to write the number of nodes that each path selects to
+   * @return whether the values were extracted, or false if the document must be evaluated with XPath instead
+   * @throws XMLStreamException if the document is not well formed
+   */
+  boolean extract(String xml, String[] values, int[] counts) throws XMLStreamException {
+    Arrays.fill(values, null);
+    Arrays.fill(counts, 0);
+    XMLStreamReader reader = inputFactory.createXMLStreamReader(new StringReader(xml));
+    try {
+      // the steps of the open elements, which are null for elements that no path goes through
+      List<Step> openSteps = new ArrayList<>();
+      Step captureStep = null;
+      int captureDepth = -1;
+      StringBuilder text = new StringBuilder();
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.DTD:
+            return false;
+          case XMLStreamConstants.START_ELEMENT:
+            if (captureStep != null || reader.getNamespaceCount() > 0 || !isNullOrEmpty(reader.getPrefix())) {
+              // XPath would return the element with its children as xml
+              return false;
+            }
+            Step parent = openSteps.isEmpty() ? root : openSteps.get(openSteps.size() - 1);
+            Step step = parent == null ? null : parent.children.get(reader.getLocalName());
+            openSteps.add(step);
+            if (step == null) {
+              break;
+            }
+            if (!step.attributePaths.isEmpty() && !extractAttributes(reader, step, values, counts)) {
+              return false;
+            }
+            if (!step.elementPaths.isEmpty()) {
+              if (counts[step.elementPaths.get(0)] == 0) {
+                captureStep = step;
+                captureDepth = openSteps.size();
+                text.setLength(0);
+              }
+              for (int path : step.elementPaths) {
+                counts[path]++;
+              }
+            }
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+          case XMLStreamConstants.SPACE:
+            if (captureStep != null) {
+              text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+            }
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            if (captureStep != null && openSteps.size() == captureDepth) {
+              String value = text.toString();
+              for (int path : captureStep.elementPaths) {
+                values[path] = value;
+              }
+              captureStep = null;
+            }
+            openSteps.remove(openSteps.size() - 1);
+            break;
+          default:
+            break;
+        }
+      }
+      return true;
+    } finally {
+      reader.close();
+    }
+  }
+
+  private static boolean extractAttributes(XMLStreamReader reader, Step step, String[] values, int[] counts) {
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      List<Integer> paths = step.attributePaths.get(reader.getAttributeLocalName(i));
+      if (paths == null) {
+        continue;
+      }
+      if (!isNullOrEmpty(reader.getAttributePrefix(i))) {
+        return false;
+      }
+      for (int path : paths) {
+        if (counts[path]++ == 0) {
+          values[path] = reader.getAttributeValue(i);
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean isNullOrEmpty(@Nullable String value) {
+    return value == null || value.isEmpty();
+  }
+
+  /**
+   * A location step that some paths go through.
+   */
+  private static final class Step {
+    private final Map<String, Step> children = new HashMap<>();
+    private final Map<String, List<Integer>> attributePaths = new HashMap<>();
+    private final List<Integer> elementPaths = new ArrayList<>();
+  }
+}
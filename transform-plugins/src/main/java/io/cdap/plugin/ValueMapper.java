@@ -16,6 +16,8 @@
 
 package io.cdap.plugin;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import io.cdap.cdap.api.annotation.Description;
 import io.cdap.cdap.api.annotation.Name;
 import io.cdap.cdap.api.annotation.Plugin;
@@ -29,19 +31,23 @@ import io.cdap.cdap.etl.api.FailureCollector;
 import io.cdap.cdap.etl.api.Lookup;
 import io.cdap.cdap.etl.api.LookupTableConfig;
 import io.cdap.cdap.etl.api.PipelineConfigurer;
+import io.cdap.cdap.etl.api.StageMetrics;
 import io.cdap.cdap.etl.api.StageSubmitterContext;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.TransformContext;
 import io.cdap.cdap.etl.api.lineage.field.FieldOperation;
 import io.cdap.cdap.etl.api.lineage.field.FieldTransformOperation;
 import io.cdap.plugin.common.TransformLineageRecorderUtils;
+import io.cdap.plugin.common.script.CachingLookup;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 
 /**
  * Transforms records using custom mapping provided by the config.
@@ -51,11 +57,25 @@ import java.util.stream.Collectors;
 @Requirements(datasetTypes = Table.TYPE)
 @Description("Maps and converts record values using a mapping dataset")
 public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
+  private static final String CACHE_HITS_METRIC = "cache.hits";
+  private static final String CACHE_MISSES_METRIC = "cache.misses";
+  // the cache metrics are emitted after this many records, and when the stage is destroyed
+  private static final int CACHE_METRICS_INTERVAL = 10000;
+
   private final Config config;
   private final Map<Schema, Schema> schemaCache = new HashMap<>();
   private final Map<String, ValueMapping> mappingValues = new HashMap<>();
   private Map<String, String> defaultsMapping = new HashMap<>();
   private Map<String, Lookup<String>> lookupTableCache = new HashMap<String, Lookup<String>>();
+  private final List<CachingLookup<String>> cachingLookups = new ArrayList<>();
+  private CacheStats reportedStats = new CacheStats(0, 0, 0, 0, 0, 0);
+  private int recordsSinceReport;
+
+  // the schema of the last input record, with its output schema and the mapping of each of its fields,
+  // which records of a stage almost always share
+  private Schema lastInputSchema;
+  private Schema lastOutputSchema;
+  private ValueMapping[] lastFieldMappings;
 
   //for unit tests, otherwise config is injected by plugin framework.
   public ValueMapper(Config config) {
@@ -68,6 +88,10 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
   public static class Config extends PluginConfig {
     public static final String DEFAULTS = "defaults";
     public static final String MAPPING = "mapping";
+    public static final String CACHE_SIZE = "cacheSize";
+    public static final String CACHE_EXPIRY_SECONDS = "cacheExpirySeconds";
+    public static final String CACHE_ALL = "cacheAll";
+    private static final int DEFAULT_CACHE_SIZE = 0;
 
     @Name("mapping")
     @Description("Specify the source and target field mapping and lookup dataset name." +
@@ -83,9 +107,56 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
             "For example: lang_code:English,country_code:Britain")
     private final String defaults;
 
+    @Name(CACHE_SIZE)
+    @Description("Maximum number of values to cache for each mapping table. Values that are not in the table are " +
+      "cached too. Caching is off by default, since a mapping table may change while the pipeline runs. " +
+      "Defaults to 0, which looks up every value in the table.")
+    @Nullable
+    private final Integer cacheSize;
+
+    @Name(CACHE_EXPIRY_SECONDS)
+    @Description("Number of seconds after which a cached value is looked up in the mapping table again. " +
+      "If not set, cached values do not expire.")
+    @Nullable
+    private final Integer cacheExpirySeconds;
+
+    @Name(CACHE_ALL)
+    @Description("Whether to cache every value that is looked up for the rest of the run, without a size limit or " +
+      "expiry. This suits small mapping tables that do not change while the pipeline runs. Defaults to false.")
+    @Nullable
+    private final Boolean cacheAll;
+
     public Config(String mapping, String defaults) {
+      this(mapping, defaults, null, null, null);
+    }
+
+    public Config(String mapping, String defaults, @Nullable Integer cacheSize, @Nullable Integer cacheExpirySeconds,
+                  @Nullable Boolean cacheAll) {
       this.mapping = mapping;
       this.defaults = defaults;
+      this.cacheSize = cacheSize;
+      this.cacheExpirySeconds = cacheExpirySeconds;
+      this.cacheAll = cacheAll;
+    }
+
+    public int getCacheSize() {
+      return cacheSize == null ? DEFAULT_CACHE_SIZE : cacheSize;
+    }
+
+    public boolean isCacheAll() {
+      return cacheAll != null && cacheAll;
+    }
+
+    private void validate(FailureCollector collector) {
+      if (cacheSize != null && cacheSize < 0) {
+        collector.addFailure(String.format("Invalid cache size: %d.", cacheSize), "Cache size must not be negative.")
+          .withConfigProperty(CACHE_SIZE);
+      }
+      if (cacheExpirySeconds != null && cacheExpirySeconds <= 0) {
+        collector.addFailure(String.format("Invalid cache expiry: %d.", cacheExpirySeconds),
+                             "Cache expiry must be a positive number of seconds.")
+          .withConfigProperty(CACHE_EXPIRY_SECONDS);
+      }
     }
   }
 
@@ -120,6 +191,7 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
    * It is required to use in configurePiperline as well as transform method (run in initialize).
    */
   private void parseConfiguration(Config config, FailureCollector collector) {
+    config.validate(collector);
     if (!config.defaults.isEmpty()) {
       String[] defaultsList = config.defaults.split(",");
       for (String defaultValue : defaultsList) {
@@ -212,19 +284,68 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
       if (!lookupTableCache.containsKey(lookupTableName)) {
         LookupTableConfig tableConfig = new LookupTableConfig(LookupTableConfig.TableType.DATASET);
         Lookup<String> lookupTable = context.provide(lookupTableName, tableConfig.getDatasetProperties());
-        lookupTableCache.put(lookupTableName, lookupTable);
+        lookupTableCache.put(lookupTableName, cacheLookups(lookupTable));
       }
     }
   }
 
+  /**
+   * Caches the values of a lookup table in memory, as configured, since the same values are usually looked up
+   * for many records.
+   */
+  private Lookup<String> cacheLookups(Lookup<String> lookupTable) {
+    CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder();
+    if (!config.isCacheAll()) {
+      if (config.getCacheSize() == 0) {
+        return lookupTable;
+      }
+      cacheBuilder.maximumSize(config.getCacheSize());
+      if (config.cacheExpirySeconds != null) {
+        cacheBuilder.expireAfterWrite(config.cacheExpirySeconds, TimeUnit.SECONDS);
+      }
+    }
+    CachingLookup<String> cachingLookup = new CachingLookup<>(lookupTable, cacheBuilder);
+    cachingLookups.add(cachingLookup);
+    return cachingLookup;
+  }
+
+  /**
+   * Emits the cache hits and misses since they were last emitted.
+   */
+  private void emitCacheMetrics(StageMetrics metrics) {
+    CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+    for (CachingLookup<String> cachingLookup : cachingLookups) {
+      stats = stats.plus(cachingLookup.getStats());
+    }
+    CacheStats delta = stats.minus(reportedStats);
+    if (delta.hitCount() > 0) {
+      metrics.count(CACHE_HITS_METRIC, (int) delta.hitCount());
+    }
+    if (delta.missCount() > 0) {
+      metrics.count(CACHE_MISSES_METRIC, (int) delta.missCount());
+    }
+    reportedStats = stats;
+    recordsSinceReport = 0;
+  }
+
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) throws Exception {
-    StructuredRecord.Builder builder = StructuredRecord.builder(
-        getOutputSchema(input.getSchema(), getContext().getFailureCollector()));
-    for (Schema.Field sourceField : input.getSchema().getFields()) {
-      String sourceFieldName = sourceField.getName();
-      if (mappingValues.containsKey(sourceFieldName)) {
-        ValueMapping mapping = mappingValues.get(sourceFieldName);
+    Schema inputSchema = input.getSchema();
+    List<Schema.Field> sourceFields = inputSchema.getFields();
+    if (inputSchema != lastInputSchema) {
+      lastOutputSchema = getOutputSchema(inputSchema, getContext().getFailureCollector());
+      lastFieldMappings = new ValueMapping[sourceFields.size()];
+      for (int i = 0; i < lastFieldMappings.length; i++) {
+        lastFieldMappings[i] = mappingValues.get(sourceFields.get(i).getName());
+      }
+      lastInputSchema = inputSchema;
+    }
+
+    StructuredRecord.Builder builder = StructuredRecord.builder(lastOutputSchema);
+    for (int i = 0; i < lastFieldMappings.length; i++) {
+      String sourceFieldName = sourceFields.get(i).getName();
+      ValueMapping mapping = lastFieldMappings[i];
+      if (mapping != null) {
         String sourceVal = input.get(sourceFieldName);
         if (sourceVal == null || sourceVal.isEmpty()) {
           if (mapping.getDefaultValue() != null) {
@@ -248,6 +369,9 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
       }
     }
 
+    if (!cachingLookups.isEmpty() && ++recordsSinceReport == CACHE_METRICS_INTERVAL) {
+      emitCacheMetrics(getContext().getMetrics());
+    }
     emitter.emit(builder.build());
   }
 
@@ -258,6 +382,14 @@ public class ValueMapper extends Transform<StructuredRecord, StructuredRecord> {
     createLookupTableData(context);
   }
 
+  @Override
+  public void destroy() {
+    if (!cachingLookups.isEmpty()) {
+      emitCacheMetrics(getContext().getMetrics());
+    }
+    super.destroy();
+  }
+
   /**
    * @param pipelineConfigurer
    * @throws IllegalArgumentException when source field is other than String type
@@ -48,7 +48,6 @@ import java.util.Set;
 import javax.annotation.Nullable;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
@@ -70,6 +69,7 @@ public class XMLMultiParser extends Transform<StructuredRecord, StructuredRecord
   private final DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
   private Schema schema;
   private XPathExpression xPathExpression;
+  private DocumentBuilder documentBuilder;
   private Set<String> fieldNames;
 
   public XMLMultiParser(Config config) {
@@ -110,6 +110,8 @@ public class XMLMultiParser extends Transform<StructuredRecord, StructuredRecord
                               config.shouldDisallowDocTypeDTD());
     builderFactory.setXIncludeAware(false);
     builderFactory.setExpandEntityReferences(false);
+    // the builder is reused for every document, since each instance of the transform is only used by one thread
+    documentBuilder = builderFactory.newDocumentBuilder();
     for (Schema.Field field : schema.getFields()) {
       fieldNames.add(field.getName());
     }
@@ -123,16 +125,12 @@ public class XMLMultiParser extends Transform<StructuredRecord, StructuredRecord
       return;
     }
 
-    try (Reader reader = new StringReader((String) input.get(config.field))) {
+    try (Reader reader = new StringReader(xmlStr)) {
       InputSource source = new InputSource(reader);
       source.setEncoding(config.encoding);
       Document document;
       try {
-        DocumentBuilder documentBuilder = builderFactory.newDocumentBuilder();
         document = documentBuilder.parse(source);
-      } catch (ParserConfigurationException e) {
-        // shouldn't happen
-        throw new RuntimeException("Unable to create document builder.", e);
       } catch (SAXException e) {
         LOG.error("Unable to parse the xml document. This record will be dropped.", e);
         emitter.emitError(new InvalidEntry<>(31, "Unable to parse the xml document. This record will be dropped.",
@@ -57,6 +57,8 @@ import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 /**
@@ -73,6 +75,13 @@ public class XMLParser extends Transform<StructuredRecord, StructuredRecord> {
   private final Config config;
   private Schema outSchema;
   private Map<String, String> xPathMapping = new HashMap<>();
+  private String[] fieldNames;
+  private XPathExpression[] xPathExpressions;
+  private StreamingXPathExtractor streamingExtractor;
+  private DocumentBuilder documentBuilder;
+  private Transformer nodeTransformer;
+  private String[] values;
+  private int[] counts;
 
   // Required only for testing.
   public XMLParser(Config config) {
@@ -113,8 +122,47 @@ public class XMLParser extends Transform<StructuredRecord, StructuredRecord> {
     super.initialize(context);
     FailureCollector collector = getContext().getFailureCollector();
     outSchema = config.getOutputSchema(collector);
-    xPathMapping = getXPathMapping(collector);
+    validateXpathAndSchema(collector);
+    collector.getOrThrowException();
+
+    // the xpaths are compiled once, and each instance of the transform is only used by one thread at a time
+    List<Schema.Field> fields = outSchema.getFields();
+    fieldNames = new String[fields.size()];
+    xPathExpressions = new XPathExpression[fields.size()];
+    List<String> paths = new ArrayList<>();
+    XPath xPath = XPathFactory.newInstance().newXPath();
+    for (int i = 0; i < fieldNames.length; i++) {
+      fieldNames[i] = fields.get(i).getName();
+      String path = xPathMapping.get(fieldNames[i]);
+      paths.add(path);
+      try {
+        xPathExpressions[i] = xPath.compile(path);
+      } catch (XPathExpressionException e) {
+        collector.addFailure(String.format("Invalid XPath '%s' for field '%s': %s", path, fieldNames[i],
+                                           e.getMessage()), null)
+          .withConfigElement(XPATH_MAPPINGS, String.format("%s:%s", fieldNames[i], path));
+      }
+    }
     collector.getOrThrowException();
+    streamingExtractor = StreamingXPathExtractor.create(paths);
+    values = new String[fieldNames.length];
+    counts = new int[fieldNames.length];
+
+    DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
+    builderFactory.setFeature("http://xml.org/sax/features/external-general-entities",
+                              Boolean.TRUE.equals(config.enableExternalGeneralEntities));
+    builderFactory.setFeature("http://xml.org/sax/features/external-parameter-entities",
+                              Boolean.TRUE.equals(config.enableExternalParameterEntities));
+    builderFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd",
+                              Boolean.TRUE.equals(config.loadExternalDTD));
+    builderFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl",
+                              Boolean.TRUE.equals(config.disallowDocTypeDTD));
+    builderFactory.setXIncludeAware(false);
+    builderFactory.setExpandEntityReferences(false);
+    documentBuilder = builderFactory.newDocumentBuilder();
+    nodeTransformer = TransformerFactory.newInstance().newTransformer();
+    nodeTransformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+    nodeTransformer.setOutputProperty(OutputKeys.INDENT, "no");
   }
 
   /**
@@ -174,42 +222,22 @@ public class XMLParser extends Transform<StructuredRecord, StructuredRecord> {
   @Override
   public void transform(StructuredRecord input, Emitter<StructuredRecord> emitter) {
     try {
-      InputSource source = new InputSource(new StringReader((String) input.get(config.inputField)));
-      source.setEncoding(config.encoding);
-      DocumentBuilderFactory builderFactory = DocumentBuilderFactory.newInstance();
-      builderFactory.setFeature("http://xml.org/sax/features/external-general-entities",
-              config.enableExternalGeneralEntities);
-      builderFactory.setFeature("http://xml.org/sax/features/external-parameter-entities",
-              config.enableExternalParameterEntities);
-      builderFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd",
-              config.loadExternalDTD);
-      builderFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl",
-              config.disallowDocTypeDTD);
-      builderFactory.setXIncludeAware(false);
-      builderFactory.setExpandEntityReferences(false);
-      DocumentBuilder documentBuilder = builderFactory.newDocumentBuilder();
-      Document document = documentBuilder.parse(source);
-      XPathFactory xpathFactory = XPathFactory.newInstance();
-      XPath xpath = xpathFactory.newXPath();
+      String xml = input.get(config.inputField);
+      // simple paths are extracted in one pass without building a document, unless the document needs xpath
+      if (streamingExtractor == null || !streamingExtractor.extract(xml, values, counts)) {
+        evaluateXPaths(xml);
+      }
       StructuredRecord.Builder builder = StructuredRecord.builder(outSchema);
-      for (Schema.Field field : outSchema.getFields()) {
-        String fieldName = field.getName();
-        //To evaluate a node, the type(Nodelist or Node) should be known before hand.
-        //Since, the type is not specified from user inputs, taking everything as NodeList and then evaluating.
-        NodeList nodeList = (NodeList) xpath.compile(xPathMapping.get(fieldName)).evaluate(document,
-                                                                                           XPathConstants.NODESET);
-        if (config.failOnArray && nodeList.getLength() > 1) {
+      for (int i = 0; i < fieldNames.length; i++) {
+        String fieldName = fieldNames[i];
+        if (config.shouldFailOnArray() && counts[i] > 1) {
           throw new IllegalArgumentException("Field " + fieldName + " is an array. " +
                                                "Cannot specify an XPath that is an array unless failOnArray is false.");
         }
-        Node node = nodeList.item(0);
-        //Since all columns have nullable schema extracting not nullable type.
-        Schema.Type type = field.getSchema().getNonNullable().getType();
-        String value = getValue(node, type, fieldName);
-        if (value == null) {
+        if (values[i] == null) {
           builder.set(fieldName, null);
         } else {
-          builder.convertAndSet(fieldName, value);
+          builder.convertAndSet(fieldName, values[i]);
         }
       }
       emitter.emit(builder.build());
@@ -227,6 +255,32 @@ public class XMLParser extends Transform<StructuredRecord, StructuredRecord> {
     }
   }
 
+  /**
+   * Parses the document and evaluates the xpath of each field on it.
+   */
+  private void evaluateXPaths(String xml) throws Exception {
+    InputSource source = new InputSource(new StringReader(xml));
+    source.setEncoding(config.encoding);
+    Document document = documentBuilder.parse(source);
+    for (int i = 0; i < fieldNames.length; i++) {
+      Node node;
+      if (config.shouldFailOnArray()) {
+        //To evaluate a node, the type(Nodelist or Node) should be known before hand.
+        //Since, the type is not specified from user inputs, taking everything as NodeList and then evaluating.
+        NodeList nodeList = (NodeList) xPathExpressions[i].evaluate(document, XPathConstants.NODESET);
+        counts[i] = nodeList.getLength();
+        node = nodeList.item(0);
+      } else {
+        // only the first node in document order is used, so there is no need to collect the others
+        node = (Node) xPathExpressions[i].evaluate(document, XPathConstants.NODE);
+        counts[i] = node == null ? 0 : 1;
+      }
+      //Since all columns have nullable schema extracting not nullable type.
+      Schema.Type type = outSchema.getFields().get(i).getSchema().getNonNullable().getType();
+      values[i] = getValue(node, type, fieldNames[i]);
+    }
+  }
+
   /**
    * Get the node value to be parsed into the required format by parseValues().
    *
@@ -245,7 +299,7 @@ public class XMLParser extends Transform<StructuredRecord, StructuredRecord> {
           throw new IllegalArgumentException(String.format("The xpath returned node which contains child nodes. " +
                                                              "Cannot convert %s to type %s", fieldName, type));
         } else {
-          return nodeToString(node.cloneNode(true));
+          return nodeToString(node);
         }
       } else {
         return node.getTextContent();
@@ -264,10 +318,7 @@ public class XMLParser extends Transform<StructuredRecord, StructuredRecord> {
   private String nodeToString(Node node) {
     StringWriter stringWriter = new StringWriter();
     try {
-      Transformer transformer = TransformerFactory.newInstance().newTransformer();
-      transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-      transformer.setOutputProperty(OutputKeys.INDENT, "no");
-      transformer.transform(new DOMSource(node), new StreamResult(stringWriter));
+      nodeTransformer.transform(new DOMSource(node), new StreamResult(stringWriter));
     } catch (TransformerException e) {
       throw new IllegalArgumentException("Cannot convert node to string. Transformer exception ", e);
     }
@@ -357,6 +408,10 @@ public class XMLParser extends Transform<StructuredRecord, StructuredRecord> {
       this.disallowDocTypeDTD = disallowDocTypeDTD;
     }
 
+    private boolean shouldFailOnArray() {
+      return failOnArray != null && failOnArray;
+    }
+
     /**
      * Create output schema from the field name and type value coming from keyvalue-dropdown widget.
      * Since the xpath can evaluate to null(when no node is selected), creating nullable schema for all columns.
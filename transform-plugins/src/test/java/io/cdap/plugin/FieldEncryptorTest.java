@@ -28,6 +28,7 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.security.KeyStore;
+import java.util.Arrays;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
@@ -75,4 +76,30 @@ public class FieldEncryptorTest {
     Assert.assertEquals("abc", decryptor.decrypt(encryptor.encrypt("abc", fieldSchema), fieldSchema));
   }
 
+  @Test
+  public void testGCMEncryption() throws Exception {
+    KeystoreConf gcmConf = new KeystoreConf("AES/GCM/NoPadding", null, keystoreConf.getKeystorePath(),
+                                            keystoreConf.getKeystorePassword(), keystoreConf.getKeystoreType(),
+                                            keystoreConf.getKeyAlias(), keystoreConf.getKeyPassword());
+    FieldEncryptor encryptor = new FileBasedFieldEncryptor(gcmConf, Cipher.ENCRYPT_MODE);
+    encryptor.initialize();
+    FieldEncryptor decryptor = new FileBasedFieldEncryptor(gcmConf, Cipher.DECRYPT_MODE);
+    decryptor.initialize();
+
+    Schema stringSchema = Schema.of(Schema.Type.STRING);
+    Schema longSchema = Schema.nullableOf(Schema.of(Schema.Type.LONG));
+    // the same value is encrypted differently every time, since every value gets its own nonce
+    Assert.assertFalse(Arrays.equals(encryptor.encrypt("abc", stringSchema), encryptor.encrypt("abc", stringSchema)));
+    Assert.assertEquals("abc", decryptor.decrypt(encryptor.encrypt("abc", stringSchema), stringSchema));
+
+    byte[][] encrypted = new byte[4][];
+    encryptor.encrypt(new Object[] {"abc", null, 5L, "abc"},
+                      new Schema[] {stringSchema, longSchema, longSchema, stringSchema}, encrypted);
+    Assert.assertEquals("abc", decryptor.decrypt(encrypted[0], stringSchema));
+    Assert.assertNull(encrypted[1]);
+    Assert.assertEquals(5L, decryptor.decrypt(encrypted[2], longSchema));
+    Assert.assertEquals("abc", decryptor.decrypt(encrypted[3], stringSchema));
+    Assert.assertFalse(Arrays.equals(encrypted[0], encrypted[3]));
+  }
+
 }
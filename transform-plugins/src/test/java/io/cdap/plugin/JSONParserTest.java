@@ -270,4 +270,32 @@ public class JSONParserTest {
     Assert.assertEquals(19.95d, emitter.getEmitted().get(0).get("bicycle_price"), 0.0001d);
     Assert.assertEquals(null, emitter.getEmitted().get(0).get("window"));
   }
+
+  @Test
+  public void testArrayIndexPaths() throws Exception {
+    final String[] jsonPaths = {
+      "second_author:$.store.book[1].author",
+      "fourth_isbn:$['store']['book'][3]['isbn']",
+      "tenth_isbn:$.store.book[9].isbn"
+    };
+    Schema output = Schema.recordOf("output",
+                                    Schema.Field.of("second_author", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("fourth_isbn", Schema.of(Schema.Type.STRING)),
+                                    Schema.Field.of("tenth_isbn", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    JSONParser.Config config = new JSONParser.Config("body", Joiner.on(",").join(jsonPaths), output.toString());
+    Transform<StructuredRecord, StructuredRecord> transform = new JSONParser(config);
+
+    MockPipelineConfigurer mockPipelineConfigurer = new MockPipelineConfigurer(INPUT1);
+    transform.configurePipeline(mockPipelineConfigurer);
+    TransformContext context = new MockTransformContext();
+    transform.initialize(context);
+    transform.transform(StructuredRecord.builder(INPUT1)
+                          .set("body", json)
+                          .build(), emitter);
+    Assert.assertEquals("Evelyn Waugh", emitter.getEmitted().get(0).get("second_author"));
+    Assert.assertEquals("0-395-19395-8", emitter.getEmitted().get(0).get("fourth_isbn"));
+    Assert.assertNull(emitter.getEmitted().get(0).get("tenth_isbn"));
+  }
 }
@@ -19,18 +19,23 @@ package io.cdap.plugin;
 import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import io.cdap.cdap.api.data.format.StructuredRecord;
 import io.cdap.cdap.api.data.schema.Schema;
 import io.cdap.cdap.api.dataset.lib.KeyValueTable;
 import io.cdap.cdap.api.dataset.table.Table;
 import io.cdap.cdap.datapipeline.SmartWorkflow;
+import io.cdap.cdap.etl.api.Lookup;
 import io.cdap.cdap.etl.api.Transform;
 import io.cdap.cdap.etl.api.validation.CauseAttributes;
 import io.cdap.cdap.etl.api.validation.ValidationException;
 import io.cdap.cdap.etl.api.validation.ValidationFailure.Cause;
 import io.cdap.cdap.etl.mock.batch.MockSink;
 import io.cdap.cdap.etl.mock.batch.MockSource;
+import io.cdap.cdap.etl.mock.common.MockEmitter;
+import io.cdap.cdap.etl.mock.common.MockLookupProvider;
 import io.cdap.cdap.etl.mock.common.MockPipelineConfigurer;
+import io.cdap.cdap.etl.mock.transform.MockTransformContext;
 import io.cdap.cdap.etl.proto.v2.ETLBatchConfig;
 import io.cdap.cdap.etl.proto.v2.ETLPlugin;
 import io.cdap.cdap.etl.proto.v2.ETLStage;
@@ -44,9 +49,11 @@ import io.cdap.cdap.test.WorkflowManager;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -447,4 +454,221 @@ public class ValueMapperTest extends TransformPluginsTestBase {
       Assert.assertEquals(expectedCause, e.getFailures().get(0).getCauses().get(0));
     }
   }
+
+  @Test
+  public void testNoCacheByDefault() throws Exception {
+    CountingLookup lookup = new CountingLookup();
+    ValueMapper.Config config = new ValueMapper.Config("designationid:designation_lookup_table:designationName",
+                                                       "designationid:DEFAULTID");
+    MockTransformContext context = createContext(lookup);
+    List<StructuredRecord> output = transform(new ValueMapper(config), context, "1", "1", "4", "1");
+
+    Assert.assertEquals(ImmutableList.of("SE", "SE", "DEFAULTID", "SE"), getDesignationNames(output));
+    Assert.assertEquals(4, lookup.numLookups);
+    Assert.assertEquals(0, context.getMockMetrics().getCount("cache.hits"));
+    Assert.assertEquals(0, context.getMockMetrics().getCount("cache.misses"));
+  }
+
+  @Test
+  public void testCacheSize() throws Exception {
+    CountingLookup lookup = new CountingLookup();
+    ValueMapper.Config config = new ValueMapper.Config("designationid:designation_lookup_table:designationName",
+                                                       "designationid:DEFAULTID", 2, null, null);
+    MockTransformContext context = createContext(lookup);
+    // 3 is evicted by 2, since 1 was used more recently, and looked up again
+    List<StructuredRecord> output = transform(new ValueMapper(config), context, "1", "1", "3", "1", "2", "3");
+
+    Assert.assertEquals(ImmutableList.of("SE", "SE", "ML", "SE", "SSE", "ML"), getDesignationNames(output));
+    Assert.assertEquals(4, lookup.numLookups);
+    Assert.assertEquals(2, context.getMockMetrics().getCount("cache.hits"));
+    Assert.assertEquals(4, context.getMockMetrics().getCount("cache.misses"));
+  }
+
+  @Test
+  public void testCacheExpiry() throws Exception {
+    CountingLookup lookup = new CountingLookup();
+    ValueMapper.Config config = new ValueMapper.Config("designationid:designation_lookup_table:designationName",
+                                                       "designationid:DEFAULTID", 10, 1, null);
+    MockTransformContext context = createContext(lookup);
+    ValueMapper mapper = new ValueMapper(config);
+    mapper.initialize(context);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    mapper.transform(createRecord(SOURCE_SCHEMA, "1"), emitter);
+    mapper.transform(createRecord(SOURCE_SCHEMA, "1"), emitter);
+    Assert.assertEquals(1, lookup.numLookups);
+
+    TimeUnit.MILLISECONDS.sleep(1100);
+    lookup.values.put("1", "Senior Engineer");
+    mapper.transform(createRecord(SOURCE_SCHEMA, "1"), emitter);
+    mapper.destroy();
+
+    Assert.assertEquals(ImmutableList.of("SE", "SE", "Senior Engineer"), getDesignationNames(emitter.getEmitted()));
+    Assert.assertEquals(2, lookup.numLookups);
+    Assert.assertEquals(1, context.getMockMetrics().getCount("cache.hits"));
+    Assert.assertEquals(2, context.getMockMetrics().getCount("cache.misses"));
+  }
+
+  @Test
+  public void testCacheAll() throws Exception {
+    CountingLookup lookup = new CountingLookup();
+    // the cache size does not limit the cache when every value is cached
+    ValueMapper.Config config = new ValueMapper.Config("designationid:designation_lookup_table:designationName",
+                                                       "designationid:DEFAULTID", 1, null, true);
+    MockTransformContext context = createContext(lookup);
+    List<StructuredRecord> output = transform(new ValueMapper(config), context,
+                                              "1", "2", "3", "4", "1", "2", "3", "4", "", null);
+
+    Assert.assertEquals(ImmutableList.of("SE", "SSE", "ML", "DEFAULTID", "SE", "SSE", "ML", "DEFAULTID",
+                                         "DEFAULTID", "DEFAULTID"), getDesignationNames(output));
+    // values that are not in the table are cached as well, and empty values are not looked up
+    Assert.assertEquals(4, lookup.numLookups);
+    Assert.assertEquals(4, context.getMockMetrics().getCount("cache.hits"));
+    Assert.assertEquals(4, context.getMockMetrics().getCount("cache.misses"));
+  }
+
+  @Test
+  public void testCacheMetricsInterval() throws Exception {
+    ValueMapper.Config config = new ValueMapper.Config("designationid:designation_lookup_table:designationName",
+                                                       "designationid:DEFAULTID", 10, null, null);
+    MockTransformContext context = createContext(new CountingLookup());
+    ValueMapper mapper = new ValueMapper(config);
+    mapper.initialize(context);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    StructuredRecord record = createRecord(SOURCE_SCHEMA, "1");
+    for (int i = 0; i < 9999; i++) {
+      mapper.transform(record, emitter);
+    }
+    Assert.assertEquals(0, context.getMockMetrics().getCount("cache.hits"));
+    Assert.assertEquals(0, context.getMockMetrics().getCount("cache.misses"));
+
+    // metrics are emitted every 10000 records, and for the remaining records when the stage is destroyed
+    mapper.transform(record, emitter);
+    Assert.assertEquals(9999, context.getMockMetrics().getCount("cache.hits"));
+    Assert.assertEquals(1, context.getMockMetrics().getCount("cache.misses"));
+    mapper.transform(createRecord(SOURCE_SCHEMA, "2"), emitter);
+    mapper.transform(record, emitter);
+    mapper.destroy();
+    Assert.assertEquals(10000, context.getMockMetrics().getCount("cache.hits"));
+    Assert.assertEquals(2, context.getMockMetrics().getCount("cache.misses"));
+  }
+
+  @Test
+  public void testCacheValidation() throws Exception {
+    ValueMapper.Config config = new ValueMapper.Config("designationid:designation_lookup_table:designationName",
+                                                       "designationid:DEFAULTID", -1, 0, null);
+    MockPipelineConfigurer configurer = new MockPipelineConfigurer(SOURCE_SCHEMA);
+    try {
+      new ValueMapper(config).configurePipeline(configurer);
+      Assert.fail();
+    } catch (ValidationException e) {
+      Assert.assertEquals(2, e.getFailures().size());
+      Cause sizeCause = new Cause();
+      sizeCause.addAttribute(STAGE, MOCK_STAGE);
+      sizeCause.addAttribute(CauseAttributes.STAGE_CONFIG, ValueMapper.Config.CACHE_SIZE);
+      Assert.assertEquals(ImmutableList.of(sizeCause), e.getFailures().get(0).getCauses());
+      Cause expiryCause = new Cause();
+      expiryCause.addAttribute(STAGE, MOCK_STAGE);
+      expiryCause.addAttribute(CauseAttributes.STAGE_CONFIG, ValueMapper.Config.CACHE_EXPIRY_SECONDS);
+      Assert.assertEquals(ImmutableList.of(expiryCause), e.getFailures().get(1).getCauses());
+    }
+  }
+
+  @Test
+  public void testOutputSchemaPerInputSchema() throws Exception {
+    ValueMapper.Config config = new ValueMapper.Config("designationid:designation_lookup_table:designationName",
+                                                       "designationid:DEFAULTID");
+    Schema equalSchema = Schema.parseJson(SOURCE_SCHEMA.toString());
+    Schema otherSchema = Schema.recordOf("otherRecord",
+                                         Schema.Field.of(DESIGNATIONID, Schema.of(Schema.Type.STRING)),
+                                         Schema.Field.of(NAME, Schema.of(Schema.Type.STRING)));
+    ValueMapper mapper = new ValueMapper(config);
+    mapper.initialize(createContext(new CountingLookup()));
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    mapper.transform(createRecord(SOURCE_SCHEMA, "1"), emitter);
+    mapper.transform(createRecord(SOURCE_SCHEMA, "2"), emitter);
+    mapper.transform(createRecord(equalSchema, "3"), emitter);
+    mapper.transform(StructuredRecord.builder(otherSchema).set(DESIGNATIONID, "1").set(NAME, "John").build(),
+                     emitter);
+    mapper.transform(createRecord(SOURCE_SCHEMA, "1"), emitter);
+
+    List<StructuredRecord> output = emitter.getEmitted();
+    Schema expectedOutputSchema = Schema.recordOf("sourceRecord.formatted",
+                                                  Schema.Field.of(ID, Schema.of(Schema.Type.STRING)),
+                                                  Schema.Field.of(NAME, Schema.of(Schema.Type.STRING)),
+                                                  Schema.Field.of(SALARY, Schema.of(Schema.Type.STRING)),
+                                                  Schema.Field.of(DESIGNATIONNAME, Schema.of(Schema.Type.STRING)));
+    Assert.assertEquals(expectedOutputSchema, output.get(0).getSchema());
+    // the output schema is created once for equal input schemas, whether or not they are the same object
+    Assert.assertSame(output.get(0).getSchema(), output.get(1).getSchema());
+    Assert.assertSame(output.get(0).getSchema(), output.get(2).getSchema());
+    Assert.assertSame(output.get(0).getSchema(), output.get(4).getSchema());
+    Assert.assertEquals(Schema.recordOf("otherRecord.formatted",
+                                        Schema.Field.of(DESIGNATIONNAME, Schema.of(Schema.Type.STRING)),
+                                        Schema.Field.of(NAME, Schema.of(Schema.Type.STRING))),
+                        output.get(3).getSchema());
+    Assert.assertEquals(ImmutableList.of("SE", "SSE", "ML", "SE", "SE"), getDesignationNames(output));
+    Assert.assertEquals("John", output.get(3).get(NAME));
+  }
+
+  private static MockTransformContext createContext(Lookup<String> lookup) {
+    return new MockTransformContext(MOCK_STAGE, new HashMap<>(), new MockLookupProvider(lookup));
+  }
+
+  private static StructuredRecord createRecord(Schema schema, String designationId) {
+    return StructuredRecord.builder(schema).set(ID, "100").set(NAME, "John").set(SALARY, "1000")
+      .set(DESIGNATIONID, designationId).build();
+  }
+
+  /**
+   * Transforms a record for each of the designation ids, then destroys the transform.
+   */
+  private static List<StructuredRecord> transform(ValueMapper mapper, MockTransformContext context,
+                                                  String... designationIds) throws Exception {
+    mapper.initialize(context);
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+    for (String designationId : designationIds) {
+      mapper.transform(createRecord(SOURCE_SCHEMA, designationId), emitter);
+    }
+    mapper.destroy();
+    return emitter.getEmitted();
+  }
+
+  private static List<String> getDesignationNames(List<StructuredRecord> records) {
+    List<String> names = new ArrayList<>();
+    for (StructuredRecord record : records) {
+      names.add(record.get(DESIGNATIONNAME));
+    }
+    return names;
+  }
+
+  /**
+   * Designation lookup that counts how many values it looked up.
+   */
+  private static final class CountingLookup implements Lookup<String> {
+    private final Map<String, String> values = new HashMap<>(ImmutableMap.of("1", "SE", "2", "SSE", "3", "ML"));
+    private int numLookups;
+
+    @Override
+    public String lookup(String key) {
+      numLookups++;
+      return values.get(key);
+    }
+
+    @Override
+    public Map<String, String> lookup(String... keys) {
+      return lookup(ImmutableSet.copyOf(keys));
+    }
+
+    @Override
+    public Map<String, String> lookup(Set<String> keys) {
+      Map<String, String> result = new HashMap<>();
+      for (String key : keys) {
+        String value = lookup(key);
+        if (value != null) {
+          result.put(key, value);
+        }
+      }
+      return result;
+    }
+  }
 }
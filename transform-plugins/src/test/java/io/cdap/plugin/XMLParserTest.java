@@ -157,6 +157,46 @@ public class XMLParserTest {
     emitter.clear();
   }
 
+  @Test
+  public void testSimplePaths() throws Exception {
+    Schema schema = Schema.recordOf("record",
+                                    Schema.Field.of("category", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("title", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("price", Schema.nullableOf(Schema.of(Schema.Type.DOUBLE))),
+                                    Schema.Field.of("info", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    XMLParser.Config config = new XMLParser.Config(
+      "body", "UTF-8",
+      "category:/bookstore/book/@category,title:/bookstore/book/title,price:/bookstore/book/price," +
+        "info:/bookstore/book/info",
+      "category:string,title:string,price:double,info:string",
+      "Write to error dataset");
+    Transform<StructuredRecord, StructuredRecord> transform = new XMLParser(config);
+    transform.initialize(new MockTransformContext());
+    MockEmitter<StructuredRecord> emitter = new MockEmitter<>();
+
+    // the first node of each path is used, text is joined with cdata, and missing nodes are null
+    transform.transform(StructuredRecord.builder(INPUT).set("offset", 1)
+                          .set("body", "<bookstore><book><title>A &amp; <![CDATA[<B>]]></title></book>" +
+                            "<book category=\"web\"><title>C</title><price>39.95</price></book></bookstore>")
+                          .build(), emitter);
+    // a path that selects an element with children returns it as xml
+    transform.transform(StructuredRecord.builder(INPUT).set("offset", 2)
+                          .set("body", "<bookstore><book category=\"web\"><info><type>Basics</type></info>" +
+                            "</book></bookstore>")
+                          .build(), emitter);
+    // documents with namespaces are evaluated with xpath
+    transform.transform(StructuredRecord.builder(INPUT).set("offset", 3)
+                          .set("body", "<bookstore xmlns:x=\"urn:x\"><book category=\"kids\"><title>D</title>" +
+                            "</book></bookstore>")
+                          .build(), emitter);
+    List<StructuredRecord> expected = ImmutableList.of(
+      StructuredRecord.builder(schema).set("category", "web").set("title", "A & <B>").set("price", 39.95d).build(),
+      StructuredRecord.builder(schema).set("category", "web").set("info", "<info><type>Basics</type></info>").build(),
+      StructuredRecord.builder(schema).set("category", "kids").set("title", "D").build());
+    Assert.assertEquals(expected, emitter.getEmitted());
+    Assert.assertTrue(emitter.getErrors().isEmpty());
+  }
+
   @Test
   public void testEmitErrors() throws Exception {
     XMLParser.Config config = new XMLParser.Config("body", "UTF-8", "title:/book/title,author:/book/author," +